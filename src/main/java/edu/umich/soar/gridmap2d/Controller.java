@@ -6,9 +6,11 @@ import org.apache.commons.logging.LogFactory;
 import com.commsen.stopwatch.Report;
 import com.commsen.stopwatch.Stopwatch;
 
+import edu.umich.soar.gridmap2d.config.GeneralConfig;
 import edu.umich.soar.gridmap2d.players.CommandInfo;
 import edu.umich.soar.gridmap2d.players.Player;
 import edu.umich.soar.gridmap2d.visuals.WindowManager;
+import edu.umich.soar.gridmap2d.world.PhaseProfiler;
 import edu.umich.soar.gridmap2d.world.World;
 
 /**
@@ -42,7 +44,24 @@ public class Controller implements Runnable {
 	private boolean shuttingDown = false;
 	
 	private double timeSlice = 0;
-	private CognitiveArchitecture cogArch;
+	private final SimulationContext context;
+	private final TickScheduler scheduler;
+
+	Controller(SimulationContext context) {
+		this.context = context;
+		
+		GeneralConfig general = context.config().generalConfig();
+		this.scheduler = new TickScheduler(context.config().tickMode(), 
+				general.cycle_time_slice, general.tick_max_lag, general.tick_steps);
+	}
+	
+	/**
+	 * @return the scheduler pacing updates, its mode, rate and step count can
+	 * be changed while stopped or running
+	 */
+	public TickScheduler getScheduler() {
+		return scheduler;
+	}
 
 	/**
 	 * Set to true when a stop is requested
@@ -50,16 +69,16 @@ public class Controller implements Runnable {
 	public synchronized boolean isStopped() { return this.stop ; }
 	
 	public void errorPopUp(String message) {
-		if (Gridmap2D.wm.using()) {
-			Gridmap2D.wm.errorMessage(Gridmap2D.config.title(), message);
+		if (context.usingGUI()) {
+			context.wm().errorMessage(context.config().title(), message);
 		} else {
 			logger.error(message);
 		}
 	}
 	
 	public void infoPopUp(String message) {
-		if (Gridmap2D.wm.using()) {
-			Gridmap2D.wm.infoMessage(Gridmap2D.config.title(), message);
+		if (context.usingGUI()) {
+			context.wm().infoMessage(context.config().title(), message);
 		} else {
 			logger.info(message);
 		}
@@ -69,8 +88,8 @@ public class Controller implements Runnable {
 	 * Called when there is a change in the number of players.
 	 */
 	public void playerEvent() {
-		if (Gridmap2D.wm.using()) {
-			Gridmap2D.wm.playerEvent();
+		if (context.usingGUI()) {
+			context.wm().playerEvent();
 		}		
 	}
 	
@@ -84,10 +103,12 @@ public class Controller implements Runnable {
 		this.step = step;
 		
 		// update the status line in the gui
-		if (step) {
-			Gridmap2D.wm.setStatus("Stepping", WindowManager.black);
-		} else {
-			Gridmap2D.wm.setStatus("Running", WindowManager.black);
+		if (context.usingGUI()) {
+			if (step) {
+				context.wm().setStatus("Stepping", WindowManager.black);
+			} else {
+				context.wm().setStatus("Running", WindowManager.black);
+			}
 		}
 		
 		// spawn a thread or just run it in this one
@@ -116,14 +137,14 @@ public class Controller implements Runnable {
 	 */
 	public void resetSimulation() {
 //		try {
-			Gridmap2D.simulation.reset();
+			context.simulation().reset();
 //		} catch (Exception e) {
 //			e.printStackTrace();
 //			error(e.getMessage());
 //		}
 		
-		if (Gridmap2D.wm.using()) {
-			Gridmap2D.wm.reset();
+		if (context.usingGUI()) {
+			context.wm().reset();
 		}
 	}
 	
@@ -131,7 +152,7 @@ public class Controller implements Runnable {
 	 * The thread, do not call directly!
 	 */
 	public void run() {
-		
+		CognitiveArchitecture cogArch = context.cogArch();
 		do {
 			// if there are soar agents
 			if (cogArch.haveAgents()) {
@@ -167,20 +188,22 @@ public class Controller implements Runnable {
 			}
 			if (this.runsTerminal > 0) {
 //				try {
-					Gridmap2D.simulation.reset();
+					context.simulation().reset();
 //				} catch (Exception e) {
 //					logger.error("Exception thrown resetting simulation");
 //					this.runsTerminal = 0;
-//					if (Gridmap2D.wm.using()) {
+//					if (context.usingGUI()) {
 //						// we're stopped, this updates buttons
-//						Gridmap2D.wm.stop();
+//						context.wm().stop();
 //					}
 //				}
 			}
 		} while (this.runsTerminal > 0);
 
 		// reset the status message
-		Gridmap2D.wm.setStatus("Ready", WindowManager.black);
+		if (context.usingGUI()) {
+			context.wm().setStatus("Ready", WindowManager.black);
+		}
 	}
 	
 	/**
@@ -193,10 +216,11 @@ public class Controller implements Runnable {
 		logger.trace(Names.Trace.startEvent);
 		stop = false;
 		running = true;
+		scheduler.start();
 
-		if (Gridmap2D.wm.using()) {
+		if (context.usingGUI()) {
 			// this updates buttons and what-not
-			Gridmap2D.wm.start();
+			context.wm().start();
 		}
 	}
 	
@@ -208,17 +232,26 @@ public class Controller implements Runnable {
 	public void tickEvent() {
 		logger.trace("Tick event.");
 		// this is 50 except for room, where it is configurable
-		timeSlice = Gridmap2D.config.generalConfig().cycle_time_slice / 1000.0f;
+		timeSlice = context.config().generalConfig().cycle_time_slice / 1000.0f;
 
-		{
-			long id = Stopwatch.start("tickEvent", "simulation update");
-			Gridmap2D.simulation.update();
-			Stopwatch.stop(id);
+		if (scheduler.wantsHooks()) {
+			{
+				long id = Stopwatch.start("tickEvent", "simulation update");
+				context.simulation().update();
+				Stopwatch.stop(id);
+			}
+			if (context.usingGUI()) {
+				long id = Stopwatch.start("tickEvent", "wm update");
+				context.wm().update();
+				Stopwatch.stop(id);
+			}
+		} else {
+			context.simulation().update();
 		}
-		if (Gridmap2D.wm.using()) {
-			long id = Stopwatch.start("tickEvent", "wm update");
-			Gridmap2D.wm.update();
-			Stopwatch.stop(id);
+		
+		if (scheduler.afterTick()) {
+			logger.debug("Pausing after " + scheduler.getTicks() + " ticks.");
+			stopSimulation();
 		}
 	}
 	
@@ -238,16 +271,24 @@ public class Controller implements Runnable {
 	public void stopEvent() {
 		logger.trace(Names.Trace.stopEvent);
 		running = false;
+		scheduler.stop();
 		
 		if (checkRunsTerminal()) {
-			if (Gridmap2D.wm.using()) {
+			if (context.usingGUI()) {
 				// we're stopped, this updates buttons
-				Gridmap2D.wm.stop();
+				context.wm().stop();
 			}
 		}
 		
-		for (Report report : Stopwatch.getAllReports()) {
-			System.out.println(report);
+		if (scheduler.wantsHooks()) {
+			for (Report report : Stopwatch.getAllReports()) {
+				System.out.println(report);
+			}
+		}
+		
+		PhaseProfiler<?> profiler = context.simulation().getProfiler();
+		if (profiler.isEnabled()) {
+			System.out.print(profiler.report());
 		}
 	}
 	
@@ -256,9 +297,9 @@ public class Controller implements Runnable {
 	 * GUI is disposed. 
 	 */
 	public void runGUI(World world) {
-		if (Gridmap2D.wm.using()) {
+		if (context.usingGUI()) {
 			// creates, displays and loops the window. returns on shutdown *hopefully
-			Gridmap2D.wm.run(world);
+			context.wm().run(world);
 		}
 	}
 
@@ -279,13 +320,13 @@ public class Controller implements Runnable {
 		// make sure things are stopped, doesn't hurt to call this when stopped
 		stopSimulation();
 		logger.info(Names.Info.shutdown);
-		if (Gridmap2D.wm.using()) {
+		if (context.usingGUI()) {
 			// closes out the window manager
-			Gridmap2D.wm.shutdown();
+			context.wm().shutdown();
 		}
 		
 		// closes out the simulation
-		Gridmap2D.simulation.shutdown();
+		context.simulation().shutdown();
 	}
 
 	public boolean isRunning() {
@@ -293,7 +334,10 @@ public class Controller implements Runnable {
 	}
 	
 	public CommandInfo getHumanCommand(Player player) {
-		return Gridmap2D.wm.getHumanCommand(player);
+		if (!context.usingGUI()) {
+			return new CommandInfo();
+		}
+		return context.wm().getHumanCommand(player);
 	}
 	
 	private int runsTerminal = 0;
@@ -318,8 +362,4 @@ public class Controller implements Runnable {
 		}
 		return stopNow;
 	}
-
-	public void setCogArch(CognitiveArchitecture cogArch) {
-		this.cogArch = cogArch;
-	}
 }
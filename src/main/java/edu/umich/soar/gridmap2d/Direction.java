@@ -66,6 +66,12 @@ public enum Direction {
 	public Direction right() { 
 		return right; 
 	}
+	public int dx() {
+		return delta[0];
+	}
+	public int dy() {
+		return delta[1];
+	}
 	public static Direction parse(String name) {
 		if (name.length() == 0) {
 			return null;
@@ -109,6 +115,14 @@ public enum Direction {
 		return translate(point, direction, null);
 	}
 
+	/**
+	 * @param xy a location packed with Xy
+	 * @return the packed location of the neighbour in direction
+	 */
+	public static int translate(int xy, Direction direction) {
+		return Xy.pack(Xy.x(xy) + direction.delta[0], Xy.y(xy) + direction.delta[1]);
+	}
+
 	public static double toDisplayRadians(double internalRadians) {
 		while (internalRadians < 0) {
 			internalRadians += 2 * Math.PI;
@@ -44,10 +44,16 @@ public class Gridmap2D {
 	public static final Preferences preferences;
 	public static final SoarProperties soarProperties = new SoarProperties();
 	
+	/*
+	 * The GUI application runs exactly one context, these point in to it for
+	 * the benefit of the visuals. Everything else receives its context
+	 * directly.
+	 */
 	public static SimConfig config = null;
 	public static final WindowManager wm = new WindowManager();
-	public static final Simulation simulation = new Simulation();
-	public static final Controller control = new Controller();
+	public static SimulationContext context = null;
+	public static Simulation simulation = null;
+	public static Controller control = null;
 
 	public static final String parent = System.getProperty("user.dir") + File.separator + "soar2d";
 
@@ -92,7 +98,10 @@ public class Gridmap2D {
 
 		// Initialize simulation
 		logger.trace(Names.Trace.initSimulation);
-		World world = simulation.initialize(config);
+		context = new SimulationContext(config, wm);
+		simulation = context.simulation();
+		control = context.control();
+		World world = context.initialize();
 		
 		if (usingGUI) {
 			// Run GUI
@@ -1,5 +1,7 @@
 package edu.umich.soar.gridmap2d;
 
+import edu.umich.soar.gridmap2d.map.PropertyKey;
+
 /**
  * @author voigtjr
  *
@@ -43,7 +45,7 @@ public class Names {
 	public class Debug {
 		public static final String autoCommit = "Setting auto commit false";
 		public static final String seed = "Seeding generators with: ";
-		public static final String noSeed = "Not seeding generators.";
+		public static final String noSeed = "Not seeding Soar, seeding the world with: ";
 		public static final String runTilOutput = "Registering for: smlEVENT_AFTER_ALL_GENERATED_OUTPUT";
 		public static final String noRunTilOutput = "Registering for: smlEVENT_AFTER_ALL_OUTPUT_PHASES";
 		public static final String stopRequested = "Stop requested during update.";
@@ -71,6 +73,34 @@ public class Names {
 		public static final String unknownEvent = "Unknown system event received from kernel, ignoring: ";
 	}
 	
+	/**
+	 * Interned keys for the cell object properties looked up in hot code.
+	 */
+	public static class Keys {
+		public static final PropertyKey DIRECTION = PropertyKey.intern(kPropertyDirection);
+		public static final PropertyKey ENERGY = PropertyKey.intern(kPropertyEnergy);
+		public static final PropertyKey HEALTH = PropertyKey.intern(kPropertyHealth);
+		public static final PropertyKey MISSILE = PropertyKey.intern(kPropertyMissile);
+		public static final PropertyKey MISSILES = PropertyKey.intern(kPropertyMissiles);
+		public static final PropertyKey NAME = PropertyKey.intern("name");
+		
+		public static final PropertyKey DECAY = PropertyKey.intern("update.decay");
+		public static final PropertyKey FLY_MISSILE = PropertyKey.intern("update.fly-missile");
+		public static final PropertyKey LINGER = PropertyKey.intern("update.linger");
+		
+		public static final PropertyKey APPLY_ENERGY = PropertyKey.intern("apply.energy");
+		public static final PropertyKey APPLY_ENERGY_SHIELDS = PropertyKey.intern("apply.energy.shields");
+		public static final PropertyKey APPLY_HEALTH = PropertyKey.intern("apply.health");
+		public static final PropertyKey APPLY_HEALTH_SHIELDS_DOWN = PropertyKey.intern("apply.health.shields-down");
+		public static final PropertyKey APPLY_MISSILES = PropertyKey.intern("apply.missiles");
+		public static final PropertyKey APPLY_POINTS = PropertyKey.intern("apply.points");
+		public static final PropertyKey APPLY_REMOVE = PropertyKey.intern("apply.remove");
+		public static final PropertyKey APPLY_RESET = PropertyKey.intern("apply.reset");
+		public static final PropertyKey APPLY_REWARD = PropertyKey.intern("apply.reward");
+		public static final PropertyKey APPLY_REWARD_CORRECT = PropertyKey.intern("apply.reward.correct");
+		public static final PropertyKey APPLY_REWARD_POSITIVE = PropertyKey.intern("apply.reward.positive");
+	}
+	
 	
 	public static final String kNone = "none";
 
@@ -3,7 +3,6 @@ package edu.umich.soar.gridmap2d;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Random;
 import java.util.Map.Entry;
 
 import org.apache.commons.logging.Log;
@@ -11,12 +10,13 @@ import org.apache.commons.logging.LogFactory;
 
 import com.commsen.stopwatch.Stopwatch;
 
+import edu.umich.soar.gridmap2d.SimulationContext.RandomStream;
 import edu.umich.soar.gridmap2d.config.PlayerConfig;
 import edu.umich.soar.gridmap2d.config.SimConfig;
-import edu.umich.soar.gridmap2d.config.TaxiConfig;
 import edu.umich.soar.gridmap2d.players.Player;
 import edu.umich.soar.gridmap2d.soar.Soar;
 import edu.umich.soar.gridmap2d.world.EatersWorld;
+import edu.umich.soar.gridmap2d.world.PhaseProfiler;
 import edu.umich.soar.gridmap2d.world.TankSoarWorld;
 import edu.umich.soar.gridmap2d.world.TaxiWorld;
 import edu.umich.soar.gridmap2d.world.World;
@@ -31,16 +31,22 @@ import edu.umich.soar.gridmap2d.world.World;
 public class Simulation {
 	private static final Log logger = LogFactory.getLog(Simulation.class);
 
-	public static Random random = new Random();
-	public final String kColors[] = { "red", "blue", "yellow", "purple", "orange", "green", "black",  };
+	public static final String kColors[] = { "red", "blue", "yellow", "purple", "orange", "green", "black",  };
 	
+	private final SimulationContext context;
 	private World world;
 	private List<String> unusedColors = new ArrayList<String>(kColors.length);
 	private Game game;
 	private CognitiveArchitecture cogArch;
 	private int worldCount;
+	private int run;
 
-	World initialize(SimConfig config) {
+	Simulation(SimulationContext context) {
+		this.context = context;
+	}
+
+	World initialize() {
+		SimConfig config = context.config();
 		
 		Stopwatch.setActive(false);
 
@@ -52,10 +58,10 @@ public class Simulation {
 		}
 		
 		// Initialize Soar
-		cogArch = new Soar(config.soarConfig(), config.clientConfigs(), game);
-		Gridmap2D.control.setCogArch(cogArch);
-		if (Gridmap2D.wm.using()) {
-			Gridmap2D.wm.setCogArch(cogArch);
+		cogArch = new Soar(context, config.soarConfig(), config.clientConfigs(), game);
+		context.setCogArch(cogArch);
+		if (context.usingGUI()) {
+			context.wm().setCogArch(cogArch);
 		}
 
 		// Make all runs non-random if asked
@@ -64,27 +70,28 @@ public class Simulation {
 			// seed the generators
 			cogArch.seed(config.generalConfig().seed);
 			logger.debug(Names.Debug.seed + config.generalConfig().seed);
-			random.setSeed(config.generalConfig().seed);
 		} else {
-			logger.debug(Names.Debug.noSeed);
+			logger.debug(Names.Debug.noSeed + context.getBaseSeed());
 		}
+		run = 0;
+		context.seedRandoms(run);
 		
 		logger.trace(Names.Trace.loadingWorld);
 		switch (game) {
 		case TANKSOAR:
-			world = new TankSoarWorld(Gridmap2D.config.tanksoarConfig().max_missile_packs, cogArch);
+			world = new TankSoarWorld(context);
 			break;
 		case EATERS:
-			world = new EatersWorld(cogArch);
+			world = new EatersWorld(context);
 			break;
 		case TAXI:
-			TaxiConfig tc = Gridmap2D.config.taxiConfig();
-			world = new TaxiWorld(cogArch, tc.fuel_starting_minimum, tc.fuel_starting_maximum, tc.fuel_maximum, tc.disable_fuel);
+			world = new TaxiWorld(context);
 			break;
 		}
 		world.setForceHumanInput(config.generalConfig().force_human);
-		Gridmap2D.control.setRunsTerminal(config.generalConfig().runs);
-		Gridmap2D.control.resetTime();
+		world.getProfiler().setEnabled(config.generalConfig().profile_phases);
+		context.control().setRunsTerminal(config.generalConfig().runs);
+		context.control().resetTime();
 		
 		changeMap(config.generalConfig().map);
 
@@ -98,6 +105,12 @@ public class Simulation {
 			createPlayer(entry.getKey(), entry.getValue(), cogArch.debug());
 		}
 		
+		// fill the arena, if there is one
+		if (game == Game.TANKSOAR && config.tanksoarConfig().arena_tanks > 0) {
+			((TankSoarWorld) world).addArenaTanks(config.tanksoarConfig().arena_tanks);
+			context.control().playerEvent();
+		}
+		
 		return world;
 	}
 	
@@ -109,7 +122,9 @@ public class Simulation {
 		logger.debug(Names.Debug.changingMap + mapPath);
 		world.setAndResetMap(mapPath);
 		worldCount = 0;
-		Gridmap2D.wm.reset();
+		if (context.usingGUI()) {
+			context.wm().reset();
+		}
 	}
 
 	/**
@@ -125,7 +140,7 @@ public class Simulation {
 			return null;
 		}
 		if (color == null) {
-			int pick = random.nextInt(unusedColors.size());
+			int pick = context.random(RandomStream.PLAYERS).nextInt(unusedColors.size());
 			color = unusedColors.get(pick);
 			unusedColors.remove(pick);
 			return color;
@@ -199,7 +214,7 @@ public class Simulation {
 		}
 		
 		// the agent list has changed, notify things that care
-		Gridmap2D.control.playerEvent();
+		context.control().playerEvent();
 	}
 	
 	/**
@@ -217,7 +232,7 @@ public class Simulation {
 		cogArch.destroyPlayer(player.getName());
 		
 		// the player list has changed, notify those who care
-		Gridmap2D.control.playerEvent();
+		context.control().playerEvent();
 	}
 	
 	/**
@@ -241,12 +256,22 @@ public class Simulation {
 	public int getWorldCount() {
 		return worldCount;
 	}
+	
+	/**
+	 * @return the world's phase timers, general.profile_phases turns them on
+	 *         at startup, setEnabled at any time after
+	 */
+	public PhaseProfiler<?> getProfiler() {
+		return world.getProfiler();
+	}
 
 	public void reset() {
 		logger.info(Names.Info.reset);
+		run += 1;
+		context.seedRandoms(run);
 		world.reset();
 		worldCount = 0;
-		Gridmap2D.control.resetTime();
+		context.control().resetTime();
 	}
 
 	public void shutdown() {
@@ -0,0 +1,170 @@
+package edu.umich.soar.gridmap2d;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import edu.umich.soar.gridmap2d.config.SimConfig;
+import edu.umich.soar.gridmap2d.map.Cells;
+import edu.umich.soar.gridmap2d.visuals.WindowManager;
+import edu.umich.soar.gridmap2d.world.RunResult;
+import edu.umich.soar.gridmap2d.world.World;
+
+/**
+ * Everything one running world needs that used to be global: the
+ * configuration, the random number generators, the cell observers, the
+ * controller, the simulation and the cognitive architecture. Worlds, maps
+ * and players receive their context instead of reaching for the statics
+ * in Gridmap2D, so any number of contexts can run side by side in one JVM.
+ */
+public class SimulationContext {
+	/**
+	 * Each subsystem draws from its own stream, so draws in one do not shift
+	 * the numbers another sees.
+	 */
+	public enum RandomStream {
+		/** random walls and food, template choice, taxi destinations */
+		MAP,
+		/** player placement */
+		SPAWN,
+		/** initial player facing */
+		FACING,
+		/** object respawns during a run */
+		OBJECTS,
+		/** player colors, starting state and scripted tanks */
+		PLAYERS,
+		/** random values on the input link and sensor tie-breaks */
+		INPUT;
+	}
+	
+	private final SimConfig config;
+	private final WindowManager wm;
+	private final long baseSeed;
+	private final SplitMixRandom[] randoms = new SplitMixRandom[RandomStream.values().length];
+	private final Cells cells;
+	private final Controller control;
+	private final Simulation simulation;
+	private CognitiveArchitecture cogArch;
+	private final List<RunResult> runResults = new ArrayList<RunResult>();
+
+	/**
+	 * @param config the configuration for this context, must not be null
+	 * @param wm the window manager, or null if this context never has a GUI
+	 */
+	public SimulationContext(SimConfig config, WindowManager wm) {
+		if (config == null) {
+			throw new NullPointerException();
+		}
+		this.config = config;
+		this.wm = wm;
+		this.cells = new Cells(config.cellStorage());
+		
+		// without a seed each context still gets its own, logged when runs start
+		this.baseSeed = config.hasSeed() ? config.generalConfig().seed : System.nanoTime() ^ System.identityHashCode(this);
+		for (int i = 0; i < randoms.length; ++i) {
+			randoms[i] = new SplitMixRandom(0);
+		}
+		seedRandoms(0);
+		
+		this.control = new Controller(this);
+		this.simulation = new Simulation(this);
+	}
+
+	/**
+	 * Creates a context with no window manager, for running headless.
+	 */
+	public SimulationContext(SimConfig config) {
+		this(config, null);
+	}
+
+	/**
+	 * Creates the cognitive architecture, world, map and initial players.
+	 *
+	 * @return the new world
+	 */
+	public World initialize() {
+		return simulation.initialize();
+	}
+
+	public SimConfig config() {
+		return config;
+	}
+
+	/**
+	 * @return the window manager, may be null
+	 */
+	public WindowManager wm() {
+		return wm;
+	}
+
+	/**
+	 * @return true if there is a window manager and the config asks for it
+	 */
+	public boolean usingGUI() {
+		return wm != null && !config.generalConfig().headless;
+	}
+
+	/**
+	 * @return the generator for one subsystem, the same object for the life 
+	 * of the context, it is reseeded in place between runs
+	 */
+	public Random random(RandomStream stream) {
+		return randoms[stream.ordinal()];
+	}
+	
+	/**
+	 * @return general.seed if there is one, otherwise the seed picked for this
+	 *         context
+	 */
+	public long getBaseSeed() {
+		return baseSeed;
+	}
+	
+	/**
+	 * Reseeds every stream from the base seed and the run index, so run n of
+	 * a seed draws the same numbers however many other worlds are running.
+	 * 
+	 * @param run the run index, 0 for the first run
+	 */
+	public void seedRandoms(int run) {
+		long runSeed = SplitMixRandom.childSeed(baseSeed, run);
+		for (RandomStream stream : RandomStream.values()) {
+			randoms[stream.ordinal()].setSeed(SplitMixRandom.childSeed(runSeed, stream.ordinal()));
+		}
+	}
+
+	public Cells cells() {
+		return cells;
+	}
+
+	public Controller control() {
+		return control;
+	}
+
+	public Simulation simulation() {
+		return simulation;
+	}
+
+	public CognitiveArchitecture cogArch() {
+		return cogArch;
+	}
+
+	void setCogArch(CognitiveArchitecture cogArch) {
+		this.cogArch = cogArch;
+	}
+
+	/**
+	 * Called by the world each time a run ends.
+	 */
+	public synchronized void addRunResult(RunResult result) {
+		runResults.add(result);
+	}
+
+	/**
+	 * @return the results of every run that has ended in this context, oldest
+	 *         first
+	 */
+	public synchronized List<RunResult> getRunResults() {
+		return new ArrayList<RunResult>(runResults);
+	}
+}
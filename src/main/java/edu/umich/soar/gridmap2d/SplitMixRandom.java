@@ -0,0 +1,61 @@
+package edu.umich.soar.gridmap2d;
+
+import java.util.Random;
+
+/**
+ * A SplitMix64 generator. It is a drop-in Random with no locking or atomic
+ * updates, and child seeds are derived from a parent seed and an index
+ * instead of by drawing from a shared generator. A tree of generators
+ * seeded this way produces the same numbers no matter which order or on
+ * which threads the children are used.
+ * 
+ * Not thread safe, each generator should be used by one thread at a time.
+ */
+public class SplitMixRandom extends Random {
+	private static final long serialVersionUID = 1L;
+	
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	
+	/**
+	 * @return the seed for child number index of seed, children with 
+	 * different indices are independent of each other and of the parent
+	 */
+	public static long childSeed(long seed, long index) {
+		return mix64(mix64(seed) + (index + 1) * GOLDEN_GAMMA);
+	}
+	
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+	
+	private long state;
+	
+	public SplitMixRandom(long seed) {
+		super(seed);
+	}
+	
+	@Override
+	public void setSeed(long seed) {
+		// called by the Random constructor
+		state = seed;
+		super.setSeed(seed);
+	}
+	
+	@Override
+	protected int next(int bits) {
+		return (int)(nextLong() >>> (64 - bits));
+	}
+	
+	@Override
+	public long nextLong() {
+		state += GOLDEN_GAMMA;
+		return mix64(state);
+	}
+	
+	@Override
+	public int nextInt() {
+		return (int)(nextLong() >>> 32);
+	}
+}
@@ -0,0 +1,28 @@
+package edu.umich.soar.gridmap2d;
+
+/**
+ * How the controller paces world updates, set with general.tick_mode.
+ */
+public enum TickMode {
+	/**
+	 * As fast as possible, updating the GUI and timing each update. This is
+	 * how the simulation has always run.
+	 */
+	FREE,
+	/**
+	 * As fast as possible with no GUI updates and no timing, for bulk runs.
+	 */
+	MAX_THROUGHPUT,
+	/**
+	 * One update every general.cycle_time_slice milliseconds.
+	 */
+	FIXED_RATE,
+	/**
+	 * Like FREE, but pauses after general.tick_steps updates.
+	 */
+	STEPS;
+	
+	public String id() {
+		return this.toString().toLowerCase();
+	}
+}
@@ -0,0 +1,198 @@
+package edu.umich.soar.gridmap2d;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Paces world updates for the controller. The controller calls start when a
+ * run starts and afterTick after every world update.
+ * 
+ * At a fixed rate, ticks are scheduled against the start of the run instead
+ * of the previous tick, so a late tick is made up by running the following
+ * ticks early. If the run falls more than the maximum lag behind, the
+ * backlog is dropped and the schedule restarts from the current time rather
+ * than running a burst of catch-up ticks. How far the run drifted from the
+ * schedule is reported when it stops.
+ */
+public class TickScheduler {
+	private static final Log logger = LogFactory.getLog(TickScheduler.class);
+
+	private volatile TickMode mode;
+	private volatile long periodNanos;
+	private volatile long maxLagNanos;
+	private volatile int steps;
+	
+	private long startNanos;
+	private long nextTickNanos;
+	private int ticks;
+	private int lateTicks;
+	private long maxLateNanos;
+	private long droppedNanos;
+	
+	/**
+	 * @param mode the pacing mode
+	 * @param periodMillis the time between ticks at a fixed rate
+	 * @param maxLagMillis how far a fixed rate run can fall behind before the 
+	 * backlog is dropped
+	 * @param steps the number of ticks to run before pausing in step mode
+	 * 
+	 * @throws IllegalArgumentException If the mode is a fixed rate and the 
+	 * period is not positive
+	 */
+	public TickScheduler(TickMode mode, double periodMillis, double maxLagMillis, int steps) {
+		if (mode == null) {
+			throw new NullPointerException();
+		}
+		this.mode = mode;
+		setPeriodMillis(periodMillis);
+		setMaxLagMillis(maxLagMillis);
+		setSteps(steps);
+	}
+	
+	public TickMode getMode() {
+		return mode;
+	}
+	
+	/**
+	 * @throws IllegalArgumentException If the mode is a fixed rate and the 
+	 * period is not positive
+	 */
+	public void setMode(TickMode mode) {
+		if (mode == null) {
+			throw new NullPointerException();
+		}
+		if (mode == TickMode.FIXED_RATE) {
+			checkPeriod(getPeriodMillis());
+		}
+		this.mode = mode;
+	}
+	
+	public double getPeriodMillis() {
+		return periodNanos / 1000000.0;
+	}
+	
+	/**
+	 * The period is only used at a fixed rate, the other modes take any value.
+	 * 
+	 * @throws IllegalArgumentException If the mode is a fixed rate and the 
+	 * period is not positive
+	 */
+	public void setPeriodMillis(double periodMillis) {
+		if (mode == TickMode.FIXED_RATE) {
+			checkPeriod(periodMillis);
+		}
+		this.periodNanos = (long)(Math.max(0, periodMillis) * 1000000.0);
+	}
+	
+	private static void checkPeriod(double periodMillis) {
+		if (periodMillis <= 0) {
+			throw new IllegalArgumentException("tick period must be positive at a fixed rate: " + periodMillis);
+		}
+	}
+	
+	public void setMaxLagMillis(double maxLagMillis) {
+		this.maxLagNanos = (long)(Math.max(0, maxLagMillis) * 1000000.0);
+	}
+	
+	public int getSteps() {
+		return steps;
+	}
+	
+	/**
+	 * @param steps ticks per run in step mode, zero or less runs until stopped
+	 */
+	public void setSteps(int steps) {
+		this.steps = steps;
+	}
+	
+	/**
+	 * @return true if the controller should time updates and refresh the GUI
+	 */
+	public boolean wantsHooks() {
+		return mode != TickMode.MAX_THROUGHPUT;
+	}
+	
+	/**
+	 * Called at the start of each run.
+	 */
+	public void start() {
+		startNanos = System.nanoTime();
+		nextTickNanos = startNanos + periodNanos;
+		ticks = 0;
+		lateTicks = 0;
+		maxLateNanos = 0;
+		droppedNanos = 0;
+	}
+	
+	/**
+	 * Called after every world update, blocks until the next tick is due when
+	 * running at a fixed rate.
+	 * 
+	 * @return true if the run should pause now
+	 */
+	public boolean afterTick() {
+		ticks += 1;
+		switch (mode) {
+		case FIXED_RATE:
+			pace();
+			return false;
+		case STEPS:
+			return steps > 0 && ticks >= steps;
+		default:
+			return false;
+		}
+	}
+	
+	private void pace() {
+		long now = System.nanoTime();
+		long wait = nextTickNanos - now;
+		if (wait > 0) {
+			try {
+				Thread.sleep(wait / 1000000, (int)(wait % 1000000));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		} else if (wait < 0) {
+			long late = -wait;
+			lateTicks += 1;
+			maxLateNanos = Math.max(maxLateNanos, late);
+			if (late > maxLagNanos) {
+				// too far behind to catch up, give up on the backlog
+				droppedNanos += late;
+				nextTickNanos = now;
+			}
+		}
+		nextTickNanos += periodNanos;
+	}
+	
+	/**
+	 * @return ticks in the current or last run
+	 */
+	public int getTicks() {
+		return ticks;
+	}
+	
+	/**
+	 * @return how far the current or last run is behind its schedule, not 
+	 * counting dropped backlog; negative if it is ahead
+	 */
+	public double getDriftMillis() {
+		long scheduled = ticks * periodNanos + droppedNanos;
+		return (System.nanoTime() - startNanos - scheduled) / 1000000.0;
+	}
+	
+	/**
+	 * Called at the end of each run, logs the drift for fixed rate runs.
+	 */
+	public void stop() {
+		if (mode != TickMode.FIXED_RATE || ticks == 0) {
+			return;
+		}
+		
+		double elapsedSeconds = (System.nanoTime() - startNanos) / 1000000000.0;
+		logger.info(String.format("Fixed rate: %d ticks in %.3fs, %.2f Hz target, %.2f Hz actual, "
+				+ "%d late, %.3fms max late, %.3fms dropped, %.3fms drift",
+				ticks, elapsedSeconds, 1000000000.0 / periodNanos, ticks / elapsedSeconds,
+				lateTicks, maxLateNanos / 1000000.0, droppedNanos / 1000000.0, getDriftMillis()));
+	}
+}
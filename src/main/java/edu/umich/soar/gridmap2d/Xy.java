@@ -0,0 +1,51 @@
+package edu.umich.soar.gridmap2d;
+
+/**
+ * A cell location packed into one int, x in the high half and y in the low
+ * half, so locations can be passed around, compared and used as keys
+ * without allocating an int[2]. Both halves are signed 16 bit values, which
+ * leaves room for the -1 neighbours of edge cells.
+ *
+ * Two packed locations are equal exactly when their cells are.
+ */
+public final class Xy {
+	/** where players are before they are placed */
+	public static final int NONE = pack(-1, -1);
+
+	private Xy() {
+	}
+
+	public static int pack(int x, int y) {
+		return (x << 16) | (y & 0xffff);
+	}
+
+	/**
+	 * @throws NullPointerException if xy is null
+	 */
+	public static int pack(int[] xy) {
+		return pack(xy[0], xy[1]);
+	}
+
+	public static int x(int xy) {
+		return xy >> 16;
+	}
+
+	public static int y(int xy) {
+		return (short) xy;
+	}
+
+	public static int[] toArray(int xy) {
+		return new int[] { x(xy), y(xy) };
+	}
+
+	/**
+	 * @return the number of moves between the two cells ignoring walls
+	 */
+	public static int manhattan(int a, int b) {
+		return Math.abs(x(a) - x(b)) + Math.abs(y(a) - y(b));
+	}
+
+	public static String toString(int xy) {
+		return "(" + x(xy) + "," + y(xy) + ")";
+	}
+}
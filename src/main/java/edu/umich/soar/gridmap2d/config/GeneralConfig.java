@@ -10,4 +10,9 @@ public class GeneralConfig {
 	public int runs = 0;
 	public int seed = 0; // Note: has special field in SimConfig for null case TODO: make Integer and null
 	public boolean force_human = false;
+	public String tick_mode = "free";
+	public double tick_max_lag = 250;
+	public int tick_steps = 0;
+	public String cell_storage = "set";
+	public boolean profile_phases = false;
 }
@@ -11,6 +11,8 @@ import edu.umich.soar.config.ParseError;
 import edu.umich.soar.gridmap2d.Game;
 import edu.umich.soar.gridmap2d.Gridmap2D;
 import edu.umich.soar.gridmap2d.Names;
+import edu.umich.soar.gridmap2d.TickMode;
+import edu.umich.soar.gridmap2d.map.Cells;
 
 
 public class SimConfig implements GameConfig {	
@@ -20,12 +22,22 @@ public class SimConfig implements GameConfig {
 	 * 
 	 * @throws ParseError If there is an error parsing the config file specified by path
 	 * @throws IOException If there is an error finding or reading the config file specified by path
-	 * @throws IllegalArgumentException If an unknown game type is passed.
+	 * @throws IllegalArgumentException If an unknown game type, tick mode or cell storage is passed.
 	 */
 	public static SimConfig newInstance(String path) throws ParseError, IOException {
 		return new SimConfig(new Config(new ConfigFile(path)));
 	}
 	
+	/**
+	 * @param config an already loaded config, possibly with values overridden
+	 * @return
+	 * 
+	 * @throws IllegalArgumentException If an unknown game type, tick mode or cell storage is passed.
+	 */
+	public static SimConfig newInstance(Config config) {
+		return new SimConfig(config);
+	}
+	
 	private static class Keys {
 		private static final String last_productions = "last_productions";
 		private static final String window_position_x = "window_position.x";
@@ -41,6 +53,8 @@ public class SimConfig implements GameConfig {
 	}
 	
 	private Game game;
+	private TickMode tickMode;
+	private Cells.Storage cellStorage;
 
 	private Config config;
 	
@@ -56,7 +70,7 @@ public class SimConfig implements GameConfig {
 	/**
 	 * @param config
 	 * 
-	 * @throws IllegalArgumentException If an unknown game type is passed.
+	 * @throws IllegalArgumentException If an unknown game type, tick mode or cell storage is passed.
 	 */
 	private SimConfig(Config config) {
 		this.config = config;
@@ -85,7 +99,34 @@ public class SimConfig implements GameConfig {
 				sb.append(" ");
 				sb.append(gameType.id());
 			}
-			Gridmap2D.control.errorPopUp(sb.toString());
+			throw new IllegalArgumentException(sb.toString(), e);
+		}
+		
+		try {
+			tickMode = TickMode.valueOf(generalConfig.tick_mode.toUpperCase());
+		} catch (IllegalArgumentException e) {
+			StringBuilder sb = new StringBuilder();
+			sb.append("Unknown tick mode: ");
+			sb.append(generalConfig.tick_mode);
+			sb.append("\nKnown tick modes:");
+			for (TickMode mode : TickMode.values()) {
+				sb.append(" ");
+				sb.append(mode.id());
+			}
+			throw new IllegalArgumentException(sb.toString(), e);
+		}
+		
+		try {
+			cellStorage = Cells.Storage.valueOf(generalConfig.cell_storage.toUpperCase());
+		} catch (IllegalArgumentException e) {
+			StringBuilder sb = new StringBuilder();
+			sb.append("Unknown cell storage: ");
+			sb.append(generalConfig.cell_storage);
+			sb.append("\nKnown cell storage:");
+			for (Cells.Storage storage : Cells.Storage.values()) {
+				sb.append(" ");
+				sb.append(storage.id());
+			}
 			throw new IllegalArgumentException(sb.toString(), e);
 		}
 		
@@ -178,6 +219,14 @@ public class SimConfig implements GameConfig {
 		return game;
 	}
 	
+	public TickMode tickMode() {
+		return tickMode;
+	}
+	
+	public Cells.Storage cellStorage() {
+		return cellStorage;
+	}
+	
 	public GeneralConfig generalConfig() {
 		return generalConfig;
 	}
@@ -9,6 +9,11 @@ public class SoarConfig {
 	public boolean spawn_debuggers = true;
 	public boolean soar_print = false;
 	public boolean optimized = false;
+	// more than one spreads the agents over that many kernels, each run on
+	// its own thread; needs optimized, no remote and no debuggers
+	public int kernels = 1;
+	// place agents by how many productions they load instead of by count
+	public boolean kernel_weights = false;
 	
 	public boolean runTilOutput(Game game) {
 		if (game.equals(Game.TANKSOAR)) {
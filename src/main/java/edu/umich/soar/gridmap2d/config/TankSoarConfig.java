@@ -14,7 +14,10 @@ public class TankSoarConfig implements GameConfig {
 	public int frag_award = 3;
 	public int frag_penalty = -2;
 	public int max_sound_distance = 7;
+	public String sound_table_cache = null;	// directory to cache sound tables in, null for none
 	public int missile_reset_threshold = 100;
+	public double wall_probability = 0.05;	// chance of a wall inside maps with random_walls
+	public int arena_tanks = 0;	// wandering tanks to add at startup, with generated names and colors
 	
 	public String title() {
 		return "TankSoar";
@@ -0,0 +1,91 @@
+package edu.umich.soar.gridmap2d.map;
+
+import edu.umich.soar.gridmap2d.Names;
+
+/**
+ * Per-grid storage behind BitplaneCell: one bit per cell for each of the
+ * frequently queried properties and a flat array of player counts, both
+ * indexed row-major. A 512x512 grid needs 32K per plane.
+ * 
+ * Bit writes are synchronized since neighboring cells share a word. Reads
+ * are not, like the modified flag on cells they may briefly lag a write
+ * made by another thread.
+ */
+class BitPlanes {
+	/**
+	 * The properties that get a plane. Anything else is answered by scanning
+	 * the cell's objects.
+	 */
+	static final PropertyKey[] PROPERTIES = new PropertyKey[] { 
+		PropertyKey.intern(Names.kPropertyBlock), 
+		PropertyKey.intern(Names.kPropertyEdible), 
+		PropertyKey.intern(Names.kPropertyCharger),
+		PropertyKey.intern(Names.kPropertyMissiles), 
+		PropertyKey.intern("destination"), 
+		PropertyKey.intern("fuel"), 
+	};
+	
+	/**
+	 * @return the plane for property, or -1 if it has none
+	 */
+	static int plane(String property) {
+		for (int i = 0; i < PROPERTIES.length; ++i) {
+			if (PROPERTIES[i].name() == property) {
+				return i;
+			}
+		}
+		for (int i = 0; i < PROPERTIES.length; ++i) {
+			if (PROPERTIES[i].name().equals(property)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	private final int size;
+	private final long[][] planes;
+	private final int[] occupancy;
+	
+	BitPlanes(int size) {
+		this.size = size;
+		int words = (size * size + 63) >>> 6;
+		planes = new long[PROPERTIES.length][words];
+		occupancy = new int[size * size];
+	}
+	
+	int size() {
+		return size;
+	}
+	
+	int index(int[] xy) {
+		return xy[1] * size + xy[0];
+	}
+	
+	int x(int index) {
+		return index % size;
+	}
+	
+	int y(int index) {
+		return index / size;
+	}
+	
+	boolean test(int plane, int index) {
+		return (planes[plane][index >>> 6] & (1L << index)) != 0;
+	}
+	
+	synchronized void set(int plane, int index, boolean value) {
+		if (value) {
+			planes[plane][index >>> 6] |= 1L << index;
+		} else {
+			planes[plane][index >>> 6] &= ~(1L << index);
+		}
+	}
+	
+	int getOccupancy(int index) {
+		return occupancy[index];
+	}
+	
+	void setOccupancy(int index, int players) {
+		occupancy[index] = players;
+	}
+}
@@ -0,0 +1,319 @@
+package edu.umich.soar.gridmap2d.map;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import edu.umich.soar.gridmap2d.Xy;
+import edu.umich.soar.gridmap2d.players.Player;
+
+/**
+ * A cell backed by its grid's BitPlanes. Objects are kept in a small array
+ * ordered the same way SetCell orders them, and the common property
+ * existence queries are a bit test instead of a scan.
+ * 
+ * Objects tell their cell when their property keys change so the bits stay
+ * correct.
+ */
+class BitplaneCell implements ObservedCell {
+	private static final CellObject[] EMPTY = new CellObject[0];
+	
+	private final Cells owner;
+	private final BitPlanes planes;
+	private final int index;
+	
+	// guarded by this
+	private List<Player> players;
+	private CellObject[] objects = EMPTY;
+	private int count;
+
+	// Weakly consistent, many races below. This is acceptable: used only for
+	// rendering.
+	private boolean modified = true;
+
+	BitplaneCell(Cells owner, BitPlanes planes, int[] location) {
+		this.owner = owner;
+		this.planes = planes;
+		this.index = planes.index(location);
+	}
+
+	public int[] getLocation() {
+		return new int[] { planes.x(index), planes.y(index) };
+	}
+
+	public int getXy() {
+		return Xy.pack(planes.x(index), planes.y(index));
+	}
+
+	public boolean isModified() {
+		return modified;
+	}
+
+	public void setModified(boolean value) {
+		modified = value;
+	}
+
+	public synchronized Player getFirstPlayer() {
+		return players != null && players.size() > 0 ? players.get(0) : null;
+	}
+
+	public synchronized List<Player> getAllPlayers() {
+		return players != null ? new ArrayList<Player>(players) : new ArrayList<Player>();
+	}
+
+	public synchronized void addPlayer(Player player) {
+		if (player == null) {
+			throw new NullPointerException();
+		}
+		if (players == null) {
+			players = new ArrayList<Player>(1);
+		}
+		players.add(player);
+		planes.setOccupancy(index, players.size());
+		modified = true;
+		owner.fireCellChanged(this);
+	}
+
+	public synchronized void removePlayer(Player player) {
+		if (players != null && players.remove(player)) {
+			planes.setOccupancy(index, players.size());
+			modified = true;
+			owner.fireCellChanged(this);
+		}
+	}
+
+	public synchronized void clearPlayers() {
+		if (players != null && !players.isEmpty()) {
+			players.clear();
+			planes.setOccupancy(index, 0);
+			modified = true;
+			owner.fireCellChanged(this);
+		}
+	}
+
+	public boolean hasPlayers() {
+		return planes.getOccupancy(index) > 0;
+	}
+
+	public void addObject(CellObject object) {
+		if (object == null) {
+			throw new NullPointerException();
+		}
+		synchronized (this) {
+			int pos = find(object);
+			if (pos >= 0) {
+				return;
+			}
+			pos = -(pos + 1);
+			if (count == objects.length) {
+				objects = Arrays.copyOf(objects, Math.max(4, count * 2));
+			}
+			System.arraycopy(objects, pos, objects, pos + 1, count - pos);
+			objects[pos] = object;
+			count += 1;
+			for (int plane = 0; plane < BitPlanes.PROPERTIES.length; ++plane) {
+				if (object.hasProperty(BitPlanes.PROPERTIES[plane])) {
+					planes.set(plane, index, true);
+				}
+			}
+			modified = true;
+			object.setCell(this);
+		}
+		owner.fireAddedCallbacks(object);
+	}
+
+	public synchronized boolean hasObject(CellObject object) {
+		if (object == null) {
+			throw new NullPointerException();
+		}
+		return find(object) >= 0;
+	}
+
+	public boolean removeObject(CellObject object) {
+		synchronized (this) {
+			int pos = find(object);
+			if (pos < 0) {
+				return false;
+			}
+			removeAt(pos);
+			updatePlanes();
+			modified = true;
+			object.setCell(null);
+		}
+		owner.fireRemovedCallbacks(this, object);
+		return true;
+	}
+
+	public Set<CellObject> removeAllObjects() {
+		Set<CellObject> removed;
+		synchronized (this) {
+			removed = new HashSet<CellObject>(Arrays.asList(objects).subList(0, count));
+			Arrays.fill(objects, 0, count, null);
+			count = 0;
+			updatePlanes();
+
+			// isEmpty not called if already modified
+			modified = modified || !removed.isEmpty();
+			for (CellObject object : removed) {
+				object.setCell(null);
+			}
+		}
+		for (CellObject object : removed) {
+			owner.fireRemovedCallbacks(this, object);
+		}
+		return removed;
+	}
+
+	public Set<CellObject> removeAllObjectsByProperty(String property) {
+		List<CellObject> removed = new ArrayList<CellObject>();
+		removeAllObjectsByProperty(property, removed);
+		return new HashSet<CellObject>(removed);
+	}
+
+	public synchronized Set<CellObject> getAllObjects() {
+		return new HashSet<CellObject>(Arrays.asList(objects).subList(0, count));
+	}
+
+	public Set<CellObject> getAllObjectsWithProperty(String property) {
+		List<CellObject> ret = new ArrayList<CellObject>();
+		getObjectsWithProperty(property, ret);
+		return new HashSet<CellObject>(ret);
+	}
+
+	public CellObject getFirstObjectWithProperty(String property) {
+		PropertyKey key = PropertyKey.intern(property);
+		int plane = BitPlanes.plane(property);
+		if (plane >= 0 && !planes.test(plane, index)) {
+			return null;
+		}
+		
+		synchronized (this) {
+			for (int i = 0; i < count; ++i) {
+				if (objects[i].hasProperty(key)) {
+					return objects[i];
+				}
+			}
+		}
+		return null;
+	}
+
+	public synchronized boolean visitObjects(CellObjectVisitor visitor) {
+		for (int i = 0; i < count; ++i) {
+			if (!visitor.visit(objects[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public boolean visitObjectsWithProperty(String property, CellObjectVisitor visitor) {
+		int plane = BitPlanes.plane(property);
+		if (plane >= 0 && !planes.test(plane, index)) {
+			return true;
+		}
+		
+		PropertyKey key = PropertyKey.intern(property);
+		synchronized (this) {
+			for (int i = 0; i < count; ++i) {
+				if (objects[i].hasProperty(key) && !visitor.visit(objects[i])) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	public int getObjectsWithProperty(String property, List<CellObject> into) {
+		int plane = BitPlanes.plane(property);
+		if (plane >= 0 && !planes.test(plane, index)) {
+			return 0;
+		}
+		
+		PropertyKey key = PropertyKey.intern(property);
+		int added = 0;
+		synchronized (this) {
+			for (int i = 0; i < count; ++i) {
+				if (objects[i].hasProperty(key)) {
+					into.add(objects[i]);
+					added += 1;
+				}
+			}
+		}
+		return added;
+	}
+
+	public int removeAllObjectsByProperty(String property, List<CellObject> into) {
+		int plane = BitPlanes.plane(property);
+		if (plane >= 0 && !planes.test(plane, index)) {
+			return 0;
+		}
+		
+		PropertyKey key = PropertyKey.intern(property);
+		int first = into.size();
+		synchronized (this) {
+			int kept = 0;
+			for (int i = 0; i < count; ++i) {
+				CellObject object = objects[i];
+				if (object.hasProperty(key)) {
+					into.add(object);
+					object.setCell(null);
+				} else {
+					objects[kept++] = object;
+				}
+			}
+			if (kept < count) {
+				Arrays.fill(objects, kept, count, null);
+				count = kept;
+				updatePlanes();
+				modified = true;
+			}
+		}
+		for (int i = first; i < into.size(); ++i) {
+			owner.fireRemovedCallbacks(this, into.get(i));
+		}
+		return into.size() - first;
+	}
+
+	public boolean hasObjectWithProperty(String property) {
+		if (property == null) {
+			throw new NullPointerException();
+		}
+		int plane = BitPlanes.plane(property);
+		if (plane >= 0) {
+			return planes.test(plane, index);
+		}
+		return getFirstObjectWithProperty(property) != null;
+	}
+	
+	public void keysChanged(CellObject object) {
+		synchronized (this) {
+			updatePlanes();
+		}
+		owner.fireKeysChanged(object);
+	}
+	
+	/**
+	 * @return the position of object, or -(insertion point + 1)
+	 */
+	private int find(CellObject object) {
+		return Arrays.binarySearch(objects, 0, count, object);
+	}
+	
+	private void removeAt(int pos) {
+		count -= 1;
+		System.arraycopy(objects, pos + 1, objects, pos, count - pos);
+		objects[count] = null;
+	}
+	
+	private void updatePlanes() {
+		for (int plane = 0; plane < BitPlanes.PROPERTIES.length; ++plane) {
+			boolean any = false;
+			for (int i = 0; i < count && !any; ++i) {
+				any = objects[i].hasProperty(BitPlanes.PROPERTIES[plane]);
+			}
+			planes.set(plane, index, any);
+		}
+	}
+}
@@ -9,6 +9,11 @@ public interface Cell {
 
 	public int[] getLocation();
 
+	/**
+	 * @return the location packed with Xy, without allocating
+	 */
+	public int getXy();
+
 	public Player getFirstPlayer();
 
 	public List<Player> getAllPlayers();
@@ -39,6 +44,46 @@ public interface Cell {
 
 	public boolean hasObjectWithProperty(String property);
 
+	/**
+	 * The allocation free queries below return objects in ascending serial
+	 * (creation) order.
+	 * 
+	 * @param visitor
+	 *            called for each object in the cell
+	 * @return false if the visitor stopped early
+	 */
+	public boolean visitObjects(CellObjectVisitor visitor);
+
+	/**
+	 * @param property
+	 *            the property to look for
+	 * @param visitor
+	 *            called for each object in the cell with the property
+	 * @return false if the visitor stopped early
+	 */
+	public boolean visitObjectsWithProperty(String property, CellObjectVisitor visitor);
+
+	/**
+	 * Appends the objects with property to a caller-owned list, which does not
+	 * allocate once the list has grown to size. Unlike a visitor, the caller
+	 * is free to change the cell while going through the list.
+	 * 
+	 * @param property
+	 *            the property to look for
+	 * @param into
+	 *            the list to append to
+	 * @return the number of objects appended
+	 */
+	public int getObjectsWithProperty(String property, List<CellObject> into);
+
+	/**
+	 * Same as removeAllObjectsByProperty(String) but appends the removed
+	 * objects to a caller-owned list.
+	 * 
+	 * @return the number of objects removed
+	 */
+	public int removeAllObjectsByProperty(String property, List<CellObject> into);
+
 	public boolean isModified();
 
 	public void setModified(boolean value);
@@ -0,0 +1,83 @@
+package edu.umich.soar.gridmap2d.map;
+
+import java.util.Arrays;
+
+import edu.umich.soar.gridmap2d.Xy;
+
+/**
+ * A log of the cells of one grid whose objects or players changed, for
+ * readers that want to look at only those cells since they last looked.
+ * Positions in the log only grow; a reader keeps the cursor it got last time
+ * and reads the locations from there up to a new cursor.
+ *
+ * The log is a ring of fixed size, so a reader that falls too far behind
+ * finds its cursor no longer covered and has to look at everything again. A
+ * cell changed several times between two cursors is logged once.
+ */
+public class CellChanges implements CellListener {
+	private static final int CAPACITY = 4096;
+
+	private final GridMapCells cells;
+	private final int size;
+	private final int[] log = new int[CAPACITY];
+	private long end;
+	// the position handed out by the last cursor call
+	private long handed;
+	// per cell index, the position of its newest entry, -1 if none
+	private final long[] newest;
+
+	CellChanges(GridMapCells cells) {
+		this.cells = cells;
+		this.size = cells.size();
+		this.newest = new long[size * size];
+		Arrays.fill(newest, -1);
+	}
+
+	/**
+	 * Logs the cell unless it is already logged after the last cursor call.
+	 * Cells of other grids are ignored.
+	 */
+	public void cellChanged(Cell cell) {
+		int xy = cell.getXy();
+		if (!cells.isInBounds(xy) || cells.getCell(xy) != cell) {
+			return;
+		}
+		int index = Xy.y(xy) * size + Xy.x(xy);
+		if (newest[index] >= handed) {
+			// every reader will still see that entry
+			return;
+		}
+		newest[index] = end;
+		log[(int)(end % CAPACITY)] = xy;
+		end += 1;
+	}
+
+	/**
+	 * @return the position after the newest change; changes logged after
+	 *         this call are at or after it
+	 */
+	public long cursor() {
+		handed = end;
+		return end;
+	}
+
+	/**
+	 * @param from
+	 *            a cursor from an earlier call, or a negative number for
+	 *            none
+	 * @return true if every change from there on can still be read with xyAt
+	 */
+	public boolean covers(long from) {
+		return from >= 0 && from <= end && end - from <= CAPACITY;
+	}
+
+	/**
+	 * @param position
+	 *            a position covered by the reader's cursor and before the
+	 *            newest cursor
+	 * @return the location of the cell changed, packed with Xy
+	 */
+	public int xyAt(long position) {
+		return log[(int)(position % CAPACITY)];
+	}
+}
@@ -0,0 +1,9 @@
+package edu.umich.soar.gridmap2d.map;
+
+/**
+ * Hears about every change to the objects or players of any cell made by a
+ * Cells, see Cells.addCellListener.
+ */
+interface CellListener {
+	void cellChanged(Cell cell);
+}
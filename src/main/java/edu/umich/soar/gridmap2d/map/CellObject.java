@@ -1,28 +1,42 @@
 package edu.umich.soar.gridmap2d.map;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.Map.Entry;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import edu.umich.soar.config.Config;
+import edu.umich.soar.gridmap2d.Direction;
+import edu.umich.soar.gridmap2d.Names;
 
 /**
- * Essentially houses a concurrent property map that converts its values from
- * String types to a few other types (Boolean, Double, Float, Integer) on demand
- * using generics. The converted values are then stored in the array as their
- * new type under the assumption that's how they are to be used in the future.
+ * Essentially houses a property map that converts its values from String
+ * types to a few other types (Boolean, Direction, Double, Float, Integer) on
+ * demand using generics. The converted values are then stored as their new
+ * type under the assumption that's how they are to be used in the future.
  * This has an effect of losing precision when floating point numbers are
  * converted away from their initial value.
  * 
  * Objects that are placed in the property list as a specific type stay that
  * way.
  * 
+ * Properties live in slots described by a PropertyLayout shared with other
+ * objects that have the same keys. Integer values are stored unboxed.
+ * Templates are compiled when they are registered, so values that are
+ * plainly integers or booleans in the objects file are already typed in
+ * every clone. Hot code should use the PropertyKey overloads and getInt or
+ * getBoolean to avoid hashing, boxing and parsing altogether.
+ * 
+ * Objects that only last a few updates, like missiles and explosions, can
+ * be pooled: CellObjectManager hands them out and takes them back, and
+ * reuse resets them to their template in place.
+ * 
+ * Writes are synchronized, reads are not. A reader on another thread sees
+ * each write as a whole but possibly late, which is all rendering needs.
+ * 
  * @author voigtjr
  * 
  */
@@ -38,10 +52,42 @@ public class CellObject implements Comparable<CellObject> {
 	private final String APPLY_PROPERTIES = "apply.properties.";
 
 	/**
-	 * The property source map, holding arbitrary keys mapped to properties.
-	 * Null keys and values are not supported.
+	 * Stored in a value slot to mean the value is in the int slot.
 	 */
-	private final ConcurrentMap<String, Object> properties = new ConcurrentHashMap<String, Object>();
+	private static final Object INT = new Object();
+
+	/**
+	 * A layout and the values for it. Replaced when a key is added, written
+	 * in place otherwise. A null value is an absent property, null values are
+	 * not supported.
+	 */
+	private static final class Slots {
+		final PropertyLayout layout;
+		final Object[] values;
+		final int[] ints;
+
+		Slots(PropertyLayout layout, Object[] values, int[] ints) {
+			this.layout = layout;
+			this.values = values;
+			this.ints = ints;
+		}
+
+		Slots copy() {
+			return new Slots(layout, values.clone(), ints.clone());
+		}
+
+		Slots with(PropertyKey key) {
+			PropertyLayout next = layout.with(key);
+			return new Slots(next, Arrays.copyOf(values, next.size()), Arrays.copyOf(ints, next.size()));
+		}
+
+		Object get(int slot) {
+			Object value = values[slot];
+			return value == INT ? Integer.valueOf(ints[slot]) : value;
+		}
+	}
+
+	private volatile Slots slots = new Slots(PropertyLayout.EMPTY, new Object[0], new int[0]);
 
 	/**
 	 * The cell that this object is currently in. Might be null if not currently
@@ -50,9 +96,20 @@ public class CellObject implements Comparable<CellObject> {
 	private volatile Cell cell;
 
 	/**
-	 * Cell's unique identifying number.
+	 * Cell's unique identifying number, renewed when a pooled object is
+	 * reused so it still sorts by creation.
+	 */
+	private long serial;
+
+	/**
+	 * The template a pooled object is reset to, null if it is not pooled.
 	 */
-	private final long serial;
+	private CellObject template;
+
+	/**
+	 * True while a pooled object is waiting in its pool.
+	 */
+	private boolean released;
 
 	/**
 	 * Construct a new, empty cell object.
@@ -71,10 +128,22 @@ public class CellObject implements Comparable<CellObject> {
 	 */
 	CellObject(CellObject other) {
 		serial = nextSerial.getAndIncrement();
-		this.properties.putAll(other.properties);
+		this.slots = other.slots.copy();
 		this.cell = other.cell;
 	}
 
+	/**
+	 * Creates a pooled copy of template.
+	 * 
+	 * @see CellObjectManager#createTransientObject(String)
+	 */
+	CellObject(CellObject template, boolean pooled) {
+		this(template);
+		if (pooled) {
+			this.template = template;
+		}
+	}
+
 	/**
 	 * Create a new object from a config file. Adds all key/value pairs to the
 	 * new object's property list. If the config file value is a single-element
@@ -92,9 +161,9 @@ public class CellObject implements Comparable<CellObject> {
 				if (strings.length == 0) {
 					continue;
 				} else if (strings.length == 1) {
-					this.properties.put(key, strings[0]);
+					put(PropertyKey.intern(key), strings[0]);
 				} else {
-					this.properties.put(key, strings);
+					put(PropertyKey.intern(key), strings);
 				}
 			}
 		}
@@ -121,6 +190,49 @@ public class CellObject implements Comparable<CellObject> {
 		this.cell = cell;
 	}
 
+	/**
+	 * @return the template a pooled object is reset to, or null if it is not
+	 *         pooled
+	 */
+	CellObject getTemplate() {
+		return template;
+	}
+
+	/**
+	 * Marks a pooled object as back in its pool.
+	 * 
+	 * @throws IllegalStateException
+	 *             if it is still in a cell or already released
+	 */
+	synchronized void release() {
+		if (cell != null) {
+			throw new IllegalStateException("Releasing " + this + " while it is in a cell");
+		}
+		if (released) {
+			throw new IllegalStateException("Releasing " + this + " twice");
+		}
+		released = true;
+	}
+
+	/**
+	 * Resets a released pooled object to a fresh copy of its template. Keys
+	 * it gained since the template keep their slots, emptied, so setting
+	 * them again does not grow the object.
+	 */
+	synchronized void reuse() {
+		Slots from = template.slots;
+		Slots current = slots;
+		if (current.layout.startsWith(from.layout)) {
+			System.arraycopy(from.values, 0, current.values, 0, from.values.length);
+			System.arraycopy(from.ints, 0, current.ints, 0, from.ints.length);
+			Arrays.fill(current.values, from.values.length, current.values.length, null);
+		} else {
+			slots = from.copy();
+		}
+		serial = nextSerial.getAndIncrement();
+		released = false;
+	}
+
 	/**
 	 * Puts a new property in the property list, replacing an existing property
 	 * if one exists.
@@ -133,13 +245,79 @@ public class CellObject implements Comparable<CellObject> {
 	 *            The value, of any type
 	 * @return The previous value associated with key, or null if there was no
 	 *         object.
-	 * @see ConcurrentMap#put(Object, Object)
 	 */
 	public Object setProperty(String key, Object value) {
+		return setProperty(PropertyKey.intern(key), value);
+	}
+
+	/**
+	 * @see CellObject#setProperty(String, Object)
+	 */
+	public Object setProperty(PropertyKey key, Object value) {
 		if (value == null) {
 			throw new NullPointerException();
 		}
-		return properties.put(key, value);
+		Object previous = put(key, value);
+		if (previous == null) {
+			keysChanged();
+		}
+		return previous;
+	}
+
+	/**
+	 * Stores an int property without boxing it.
+	 * 
+	 * @see CellObject#setProperty(String, Object)
+	 */
+	public void setInt(PropertyKey key, int value) {
+		boolean added;
+		synchronized (this) {
+			Slots current = slotsFor(key);
+			int slot = current.layout.slot(key);
+			added = current.values[slot] == null;
+			current.ints[slot] = value;
+			current.values[slot] = INT;
+		}
+		if (added) {
+			keysChanged();
+		}
+	}
+
+	/**
+	 * @return the previous value
+	 */
+	private synchronized Object put(PropertyKey key, Object value) {
+		Slots current = slotsFor(key);
+		int slot = current.layout.slot(key);
+		Object previous = current.get(slot);
+		if (value instanceof Integer) {
+			current.ints[slot] = ((Integer) value).intValue();
+			current.values[slot] = INT;
+		} else {
+			current.values[slot] = value;
+		}
+		return previous;
+	}
+
+	/**
+	 * @return slots with a slot for key, switching to them if necessary
+	 */
+	private Slots slotsFor(PropertyKey key) {
+		Slots current = slots;
+		if (current.layout.slot(key) < 0) {
+			current = current.with(key);
+			slots = current;
+		}
+		return current;
+	}
+
+	/**
+	 * @return the current value for key or null, ints are boxed
+	 */
+	private Object get(PropertyKey key) {
+		Slots current = slots;
+		int slot = current.layout.slot(key);
+		return slot < 0 ? null : current.get(slot);
 	}
 
 	/**
@@ -152,7 +330,16 @@ public class CellObject implements Comparable<CellObject> {
 	 *         Null values are not supported.
 	 */
 	public boolean hasProperty(String key) {
-		return properties.containsKey(key);
+		return hasProperty(PropertyKey.intern(key));
+	}
+
+	/**
+	 * @see CellObject#hasProperty(String)
+	 */
+	public boolean hasProperty(PropertyKey key) {
+		Slots current = slots;
+		int slot = current.layout.slot(key);
+		return slot >= 0 && current.values[slot] != null;
 	}
 
 	/**
@@ -161,7 +348,14 @@ public class CellObject implements Comparable<CellObject> {
 	 * @return A copy of the property key set.
 	 */
 	public Set<String> getProperties() {
-		return new HashSet<String>(properties.keySet());
+		Slots current = slots;
+		Set<String> keys = new HashSet<String>();
+		for (int slot = 0; slot < current.layout.size(); ++slot) {
+			if (current.values[slot] != null) {
+				keys.add(current.layout.key(slot).name());
+			}
+		}
+		return keys;
 	}
 
 	/**
@@ -177,6 +371,13 @@ public class CellObject implements Comparable<CellObject> {
 		return getProperty(key, null, String.class);
 	}
 
+	/**
+	 * @see CellObject#getProperty(String)
+	 */
+	public String getProperty(PropertyKey key) {
+		return getProperty(key, null, String.class);
+	}
+
 	/**
 	 * Null-default helper for
 	 * {@link CellObject#getProperty(String, Object, Class)}
@@ -194,6 +395,13 @@ public class CellObject implements Comparable<CellObject> {
 		return getProperty(key, null, c);
 	}
 
+	/**
+	 * @see CellObject#getProperty(String, Class)
+	 */
+	public <T> T getProperty(PropertyKey key, Class<? extends T> c) {
+		return getProperty(key, null, c);
+	}
+
 	/**
 	 * Get the value associated with key, casting it to a specific type.
 	 * 
@@ -217,7 +425,43 @@ public class CellObject implements Comparable<CellObject> {
 	 * @see CellObject#getProperty(String, Class)
 	 */
 	public <T> T getProperty(String key, T def, Class<? extends T> c) {
-		return convert(key, properties.get(key), def, c);
+		return getProperty(PropertyKey.intern(key), def, c);
+	}
+
+	/**
+	 * @see CellObject#getProperty(String, Object, Class)
+	 */
+	public <T> T getProperty(PropertyKey key, T def, Class<? extends T> c) {
+		return convert(key, get(key), def, c);
+	}
+
+	/**
+	 * Get an int property without boxing it if it is stored as an int.
+	 * 
+	 * @see CellObject#getProperty(String, Object, Class)
+	 */
+	public int getInt(PropertyKey key, int def) {
+		Slots current = slots;
+		int slot = current.layout.slot(key);
+		if (slot < 0) {
+			return def;
+		}
+		Object value = current.values[slot];
+		if (value == INT) {
+			return current.ints[slot];
+		}
+		return convert(key, value, def, Integer.class);
+	}
+
+	/**
+	 * @see CellObject#getProperty(String, Object, Class)
+	 */
+	public boolean getBoolean(PropertyKey key, boolean def) {
+		Object value = get(key);
+		if (value instanceof Boolean) {
+			return ((Boolean) value).booleanValue();
+		}
+		return convert(key, value, def, Boolean.class);
 	}
 
 	/**
@@ -228,7 +472,32 @@ public class CellObject implements Comparable<CellObject> {
 	 * @return true if something was removed
 	 */
 	public boolean removeProperty(String key) {
-		return properties.remove(key) != null;
+		return removeProperty(PropertyKey.intern(key));
+	}
+
+	/**
+	 * @see CellObject#removeProperty(String)
+	 */
+	public boolean removeProperty(PropertyKey key) {
+		if (remove(key) != null) {
+			keysChanged();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the removed value, or null
+	 */
+	private synchronized Object remove(PropertyKey key) {
+		Slots current = slots;
+		int slot = current.layout.slot(key);
+		if (slot < 0) {
+			return null;
+		}
+		Object previous = current.get(slot);
+		current.values[slot] = null;
+		return previous;
 	}
 
 	/**
@@ -246,7 +515,12 @@ public class CellObject implements Comparable<CellObject> {
 	 * @see CellObject#getProperty(String, Class)
 	 */
 	public <T> T removeProperty(String key, Class<? extends T> c) {
-		return convert(key, properties.remove(key), null, c);
+		PropertyKey interned = PropertyKey.intern(key);
+		Object value = remove(interned);
+		if (value != null) {
+			keysChanged();
+		}
+		return convert(interned, value, null, c);
 	}
 
 	/**
@@ -272,11 +546,11 @@ public class CellObject implements Comparable<CellObject> {
 	 * @see CellObject#getProperty(String, Object, Class)
 	 * @see CellObject#removeProperty(String, Class)
 	 */
-	private <T> T convert(String key, Object value, T def, Class<? extends T> c) {
+	private <T> T convert(PropertyKey key, Object value, T def, Class<? extends T> c) {
 		if (value == null) {
 			return def;
 		}
-		if (value.getClass().equals(c)) {
+		if (c.isInstance(value)) {
 			return c.cast(value);
 		}
 		if (c.equals(String.class)) {
@@ -286,26 +560,32 @@ public class CellObject implements Comparable<CellObject> {
 			String str = (String) value;
 			if (c.equals(Boolean.class)) {
 				Boolean v = Boolean.valueOf(str);
-				properties.replace(key, value, v);
+				replace(key, value, v);
 				return c.cast(v);
 			}
 			try {
+				if (c.equals(Direction.class)) {
+					Direction v = Direction.valueOf(str);
+					replace(key, value, v);
+					return c.cast(v);
+				}
 				if (c.equals(Integer.class)) {
 					Integer v = Integer.valueOf(str);
-					properties.replace(key, value, v);
+					replace(key, value, v);
 					return c.cast(v);
 				}
 				if (c.equals(Double.class)) {
 					Double v = Double.valueOf(str);
-					properties.replace(key, value, v);
+					replace(key, value, v);
 					return c.cast(v);
 				}
 				if (c.equals(Float.class)) {
 					Float v = Float.valueOf(str);
-					properties.replace(key, value, v);
+					replace(key, value, v);
 					return c.cast(v);
 				}
-			} catch (NumberFormatException e) {
+			} catch (IllegalArgumentException e) {
+				// includes NumberFormatException
 				e.printStackTrace();
 			}
 		}
@@ -315,6 +595,52 @@ public class CellObject implements Comparable<CellObject> {
 		return def;
 	}
 
+	/**
+	 * Replaces the value for key with converted if it is still value.
+	 */
+	private synchronized void replace(PropertyKey key, Object value, Object converted) {
+		Slots current = slots;
+		int slot = current.layout.slot(key);
+		if (slot >= 0 && current.values[slot] == value) {
+			put(key, converted);
+		}
+	}
+
+	/**
+	 * Gives string values that are plainly ints, booleans or, for the
+	 * direction key, directions their type up front. Called on templates
+	 * when they are registered so clones never parse them. Values that would
+	 * not come back out as the same string are left alone.
+	 */
+	synchronized void compile() {
+		Slots current = slots;
+		for (int slot = 0; slot < current.layout.size(); ++slot) {
+			if (!(current.values[slot] instanceof String)) {
+				continue;
+			}
+			String str = (String) current.values[slot];
+			PropertyKey key = current.layout.key(slot);
+			if (str.equals("true") || str.equals("false")) {
+				current.values[slot] = Boolean.valueOf(str);
+			} else if (key == Names.Keys.DIRECTION) {
+				for (Direction direction : Direction.values()) {
+					if (direction.toString().equals(str)) {
+						current.values[slot] = direction;
+					}
+				}
+			} else {
+				try {
+					int value = Integer.parseInt(str);
+					if (Integer.toString(value).equals(str)) {
+						current.ints[slot] = value;
+						current.values[slot] = INT;
+					}
+				} catch (NumberFormatException ignored) {
+				}
+			}
+		}
+	}
+
 	/**
 	 * When a executed on an object, all of the properties who's keys start with
 	 * {@link CellObject#APPLY_PROPERTIES} get that prefix removed, becoming
@@ -324,18 +650,40 @@ public class CellObject implements Comparable<CellObject> {
 	 * @see CellObject#APPLY_PROPERTIES
 	 */
 	public void doApplyProperties() {
-		// move apply properties to regular properties
-		for (Entry<String, Object> entry : properties.entrySet()) {
-			if (entry.getKey().length() > APPLY_PROPERTIES.length()) {
-				int pos = entry.getKey().indexOf(APPLY_PROPERTIES);
-				if (pos == 0) {
-					properties.put(
-							entry.getKey().substring(APPLY_PROPERTIES.length(),
-									entry.getKey().length()), entry.getValue());
-					properties.remove(entry.getKey(), entry.getValue());
+		boolean changed = false;
+		
+		synchronized (this) {
+			// move apply properties to regular properties
+			// slots only get appended, but adding keys replaces the arrays
+			int size = slots.layout.size();
+			for (int slot = 0; slot < size; ++slot) {
+				Slots current = slots;
+				String name = current.layout.key(slot).name();
+				Object value = current.get(slot);
+				if (value != null && name.length() > APPLY_PROPERTIES.length()) {
+					if (name.startsWith(APPLY_PROPERTIES)) {
+						current.values[slot] = null;
+						put(PropertyKey.intern(name.substring(APPLY_PROPERTIES.length())), value);
+						changed = true;
+					}
 				}
 			}
 		}
+		
+		if (changed) {
+			keysChanged();
+		}
+	}
+	
+	/**
+	 * Lets the cell, and through it anything indexing objects by property,
+	 * know that a key was added or removed.
+	 */
+	private void keysChanged() {
+		Cell current = cell;
+		if (current instanceof ObservedCell) {
+			((ObservedCell) current).keysChanged(this);
+		}
 	}
 
 	/*
@@ -347,11 +695,15 @@ public class CellObject implements Comparable<CellObject> {
 	public String toString() {
 		StringBuilder builder = new StringBuilder();
 		builder.append("(");
-		for (Entry<String, Object> entry : properties.entrySet()) {
-			builder.append(entry.getKey());
-			builder.append(" => ");
-			builder.append(entry.getValue().toString());
-			builder.append(", ");
+		Slots current = slots;
+		for (int slot = 0; slot < current.layout.size(); ++slot) {
+			Object value = current.get(slot);
+			if (value != null) {
+				builder.append(current.layout.key(slot).name());
+				builder.append(" => ");
+				builder.append(value.toString());
+				builder.append(", ");
+			}
 		}
 		builder.deleteCharAt(builder.length() - 1);
 		builder.append(")");
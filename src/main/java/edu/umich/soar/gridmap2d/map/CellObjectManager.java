@@ -6,8 +6,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-
-import edu.umich.soar.gridmap2d.Simulation;
+import java.util.Random;
 
 /**
  * This object keeps track of the "object templates" or prototypes. These
@@ -21,6 +20,20 @@ class CellObjectManager {
 	 */
 	private Map<String, CellObject> templates = new HashMap<String, CellObject>();
 
+	/**
+	 * Released transient objects waiting to be reused, by template.
+	 */
+	private Map<CellObject, List<CellObject>> pools = new HashMap<CellObject, List<CellObject>>();
+
+	/**
+	 * Used to pick between templates sharing a property.
+	 */
+	private final Random random;
+
+	CellObjectManager(Random random) {
+		this.random = random;
+	}
+
 	/**
 	 * @param name
 	 *            template object name
@@ -35,6 +48,7 @@ class CellObjectManager {
 	 */
 	void removeAllTemplates() {
 		templates.clear();
+		pools.clear();
 	}
 
 	/**
@@ -44,6 +58,9 @@ class CellObjectManager {
 	 */
 	boolean removeTemplate(String name) {
 		CellObject object = templates.remove(name);
+		if (object != null) {
+			pools.remove(object);
+		}
 		return object != null;
 	}
 
@@ -61,6 +78,7 @@ class CellObjectManager {
 		if (cellObject == null) {
 			return false;
 		}
+		cellObject.compile();
 		templates.put(cellObject.getProperty("name"), cellObject);
 		return true;
 	}
@@ -113,6 +131,55 @@ class CellObjectManager {
 		return null;
 	}
 
+	/**
+	 * Same as createObject but for objects that only last a few updates:
+	 * the object may be one given back to recycle earlier, reset to the
+	 * template.
+	 * 
+	 * @param name
+	 *            object name to create
+	 * @return the object, or null if there is no such template
+	 */
+	CellObject createTransientObject(String name) {
+		CellObject template = templates.get(name);
+		if (template == null) {
+			return null;
+		}
+		List<CellObject> pool = pools.get(template);
+		if (pool != null && !pool.isEmpty()) {
+			CellObject object = pool.remove(pool.size() - 1);
+			object.reuse();
+			return object;
+		}
+		return new CellObject(template, true);
+	}
+
+	/**
+	 * Takes back an object from createTransientObject for reuse. Objects
+	 * that are not pooled, or whose template is gone, are left alone.
+	 * 
+	 * @param object
+	 *            off the map and no longer referred to
+	 * @throws IllegalStateException
+	 *             if the object is still in a cell or was already recycled
+	 */
+	void recycle(CellObject object) {
+		CellObject template = object.getTemplate();
+		if (template == null) {
+			return;
+		}
+		object.release();
+		if (templates.get(template.getProperty("name")) != template) {
+			return;
+		}
+		List<CellObject> pool = pools.get(template);
+		if (pool == null) {
+			pool = new ArrayList<CellObject>();
+			pools.put(template, pool);
+		}
+		pool.add(object);
+	}
+
 	/**
 	 * creates an object that has the specified property. Many different
 	 * templates could possibly have the same property, this randomly picks one
@@ -127,7 +194,7 @@ class CellObjectManager {
 		if (all.size() <= 0) {
 			return null;
 		}
-		return new CellObject(all.get(Simulation.random.nextInt(all.size())));
+		return new CellObject(all.get(random.nextInt(all.size())));
 	}
 
 	/**
@@ -154,6 +221,6 @@ class CellObjectManager {
 		if (all.size() <= 0) {
 			return null;
 		}
-		return new CellObject(all.get(Simulation.random.nextInt(all.size())));
+		return new CellObject(all.get(random.nextInt(all.size())));
 	}
 }
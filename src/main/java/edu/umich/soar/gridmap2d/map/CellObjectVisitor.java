@@ -0,0 +1,17 @@
+package edu.umich.soar.gridmap2d.map;
+
+/**
+ * Receives the objects from a Cell query one at a time, so the query does
+ * not have to build a collection. Keep an instance in a field and reuse it
+ * to keep hot loops free of garbage.
+ */
+public interface CellObjectVisitor {
+	/**
+	 * Must not add objects to or remove objects from the cell being visited.
+	 * 
+	 * @param object
+	 *            the next matching object
+	 * @return false to stop visiting
+	 */
+	public boolean visit(CellObject object);
+}
@@ -3,36 +3,148 @@ package edu.umich.soar.gridmap2d.map;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 
+import edu.umich.soar.gridmap2d.Names;
+
+/**
+ * Creates cells and holds the observers notified when objects are added to or
+ * removed from any cell it created. Each simulation context owns one.
+ */
 public class Cells {
-	private static final List<CellObjectObserver> observers = new CopyOnWriteArrayList<CellObjectObserver>();
+	/**
+	 * How grid cells store their contents, set with general.cell_storage.
+	 */
+	public enum Storage {
+		/**
+		 * Each cell keeps its own sorted set of objects and list of players.
+		 */
+		SET,
+		/**
+		 * Cells share per-grid bit planes for the common properties and a
+		 * flat player count, see BitPlanes.
+		 */
+		BITPLANE;
+		
+		public String id() {
+			return this.toString().toLowerCase();
+		}
+	}
+	
+	private final List<CellObjectObserver> observers = new CopyOnWriteArrayList<CellObjectObserver>();
+	private final List<PropertyIndex> indexes = new CopyOnWriteArrayList<PropertyIndex>();
+	private final List<CellListener> cellListeners = new CopyOnWriteArrayList<CellListener>();
+	private final Storage storage;
+	
+	public Cells() {
+		this(Storage.SET);
+	}
+	
+	public Cells(Storage storage) {
+		if (storage == null) {
+			throw new NullPointerException();
+		}
+		this.storage = storage;
+	}
+	
+	public Storage getStorage() {
+		return storage;
+	}
 
-	static Cell createCell(int[] location) {
-		return new SetCell(location);
+	Cell createCell(int[] location) {
+		return new SetCell(this, location);
+	}
+	
+	/**
+	 * @return the shared storage for a new grid, or null if its cells don't 
+	 * share any
+	 */
+	BitPlanes createPlanes(int size) {
+		return storage == Storage.BITPLANE ? new BitPlanes(size) : null;
+	}
+	
+	/**
+	 * @param planes what createPlanes returned for the grid
+	 */
+	Cell createCell(BitPlanes planes, int[] location) {
+		if (planes == null) {
+			return createCell(location);
+		}
+		return new BitplaneCell(this, planes, location);
 	}
 
-	public static void addObserver(CellObjectObserver observer) {
+	public void addObserver(CellObjectObserver observer) {
 		observers.add(observer);
 	}
 
-	public static void removeObserver(CellObjectObserver observer) {
+	public void removeObserver(CellObjectObserver observer) {
 		observers.remove(observer);
 	}
 
-	static void fireAddedCallbacks(CellObject object) {
+	/**
+	 * Indexes also need to hear about key changes, register them as an 
+	 * observer too.
+	 */
+	void addIndex(PropertyIndex index) {
+		indexes.add(index);
+	}
+
+	void removeIndex(PropertyIndex index) {
+		indexes.remove(index);
+	}
+
+	/**
+	 * Cell listeners, like free cell indexes, hear about every change to a
+	 * cell's objects or players.
+	 */
+	void addCellListener(CellListener listener) {
+		cellListeners.add(listener);
+	}
+
+	void removeCellListener(CellListener listener) {
+		cellListeners.remove(listener);
+	}
+
+	void fireKeysChanged(CellObject object) {
+		for (PropertyIndex index : indexes) {
+			index.keysChanged(object);
+		}
+		fireCellChanged(object.getCell());
+	}
+
+	void fireAddedCallbacks(CellObject object) {
 		for (CellObjectObserver observer : observers) {
 			observer.addStateUpdate(object);
 		}
+		fireCellChanged(object.getCell());
 	}
 
-	static void fireRemovedCallbacks(CellObject object) {
+	/**
+	 * @param cell
+	 *            the cell the object was removed from, the object no longer
+	 *            knows
+	 */
+	void fireRemovedCallbacks(Cell cell, CellObject object) {
 		for (CellObjectObserver observer : observers) {
 			observer.removalStateUpdate(object);
 		}
+		fireCellChanged(cell);
+	}
+
+	/**
+	 * Called by cells when their players change, and for object changes
+	 * by the callbacks above.
+	 */
+	void fireCellChanged(Cell cell) {
+		if (cell == null) {
+			return;
+		}
+		for (CellListener listener : cellListeners) {
+			listener.cellChanged(cell);
+		}
 	}
 
 	static boolean updatable(CellObject added) {
-		return added.hasProperty("update.decay")
-				|| added.hasProperty("update.fly-missile")
-				|| added.hasProperty("update.linger");
+		return added.hasProperty(Names.Keys.DECAY)
+				|| added.hasProperty(Names.Keys.FLY_MISSILE)
+				|| added.hasProperty(Names.Keys.LINGER);
 	}
 }
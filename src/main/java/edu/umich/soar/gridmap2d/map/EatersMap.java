@@ -13,19 +13,22 @@ import org.apache.commons.logging.LogFactory;
 import com.commsen.stopwatch.Report;
 import com.commsen.stopwatch.Stopwatch;
 
-import edu.umich.soar.gridmap2d.Gridmap2D;
+import edu.umich.soar.gridmap2d.Direction;
 import edu.umich.soar.gridmap2d.Names;
 import edu.umich.soar.gridmap2d.Simulation;
+import edu.umich.soar.gridmap2d.SimulationContext;
+import edu.umich.soar.gridmap2d.SimulationContext.RandomStream;
+import edu.umich.soar.gridmap2d.Xy;
 
 public class EatersMap extends GridMapBase implements GridMap,
 		CellObjectObserver {
 	private static final Log logger = LogFactory.getLog(EatersMap.class);
 
-	public static EatersMap generateInstance(String mapPath,
-			boolean unopenedBoxesTerminal, double lowProbability,
-			double highProbability) {
-		return new EatersMap(mapPath, unopenedBoxesTerminal, lowProbability,
-				highProbability);
+	public static EatersMap generateInstance(SimulationContext context,
+			String mapPath, boolean unopenedBoxesTerminal,
+			double lowProbability, double highProbability) {
+		return new EatersMap(context, mapPath, unopenedBoxesTerminal,
+				lowProbability, highProbability);
 	}
 
 	private int foodCount;
@@ -39,9 +42,10 @@ public class EatersMap extends GridMapBase implements GridMap,
 	List<CellObject> rewardObjects = new ArrayList<CellObject>();
 	private boolean generatePhase = false;
 
-	private EatersMap(String mapPath, boolean unopenedBoxesTerminal,
-			double lowProbability, double highProbability) {
-		super(mapPath);
+	private EatersMap(SimulationContext context, String mapPath,
+			boolean unopenedBoxesTerminal, double lowProbability,
+			double highProbability) {
+		super(context, mapPath);
 		this.lowProbability = lowProbability;
 		this.highProbability = highProbability;
 
@@ -71,7 +75,7 @@ public class EatersMap extends GridMapBase implements GridMap,
 		// pick positive box
 		if (rewardInfoObject != null) {
 			assert positiveRewardID == 0;
-			positiveRewardID = Simulation.random.nextInt(rewardObjects.size());
+			positiveRewardID = getContext().random(RandomStream.MAP).nextInt(rewardObjects.size());
 			positiveRewardID += 1;
 			logger.trace("reward-info.positive-id: " + positiveRewardID);
 			rewardInfoObject.setProperty("apply.reward-info.positive-id",
@@ -86,12 +90,12 @@ public class EatersMap extends GridMapBase implements GridMap,
 				if (aBox.getProperty("box-id", 0, Integer.class) == positiveRewardID) {
 					aBox.setProperty("apply.reward.correct", "ignored");
 					aBox.setProperty(Names.kPropertyColor,
-							Gridmap2D.simulation.kColors[1]);
+							Simulation.kColors[1]);
 				} else {
 					aBox.setProperty(Names.kPropertyColor,
-							Gridmap2D.simulation.kColors[negativeColor]);
+							Simulation.kColors[negativeColor]);
 					negativeColor += 1;
-					assert negativeColor < Gridmap2D.simulation.kColors.length;
+					assert negativeColor < Simulation.kColors.length;
 				}
 			}
 		}
@@ -144,7 +148,7 @@ public class EatersMap extends GridMapBase implements GridMap,
 					if (wallOnAnySide(xy)) {
 						probability = highProbability;
 					}
-					if (Simulation.random.nextDouble() < probability) {
+					if (getContext().random(RandomStream.MAP).nextDouble() < probability) {
 						removeFoodAndAddWall(xy);
 					}
 				}
@@ -162,50 +166,36 @@ public class EatersMap extends GridMapBase implements GridMap,
 		cell.addObject(wall);
 	}
 
-	private boolean noWallsOnCorners(int[] xy) {
-		Cell cell;
-
-		cell = getData().cells.getCell(new int[] { xy[0] + 1, xy[1] + 1 });
-		if (cell != null && cell.hasObjectWithProperty(Names.kPropertyBlock)) {
-			return false;
-		}
-		cell = getData().cells.getCell(new int[] { xy[0] - 1, xy[1] + 1 });
-		if (cell != null && cell.hasObjectWithProperty(Names.kPropertyBlock)) {
-			return false;
-		}
-		cell = getData().cells.getCell(new int[] { xy[0] - 1, xy[1] - 1 });
-		if (cell != null && cell.hasObjectWithProperty(Names.kPropertyBlock)) {
-			return false;
-		}
-		cell = getData().cells.getCell(new int[] { xy[0] + 1, xy[1] - 1 });
-		if (cell != null && cell.hasObjectWithProperty(Names.kPropertyBlock)) {
-			return false;
+	private boolean noWallsOnCorners(int[] location) {
+		int xy = Xy.pack(location);
+		for (Direction direction : SIDES) {
+			// the corner clockwise of each side
+			int corner = Direction.translate(Direction.translate(xy, direction), direction.right());
+			if (blocked(corner)) {
+				return false;
+			}
 		}
 		return true;
 	}
 
-	private boolean wallOnAnySide(int[] xy) {
-		Cell cell;
-
-		cell = getData().cells.getCell(new int[] { xy[0] + 1, xy[1] });
-		if (cell != null && cell.hasObjectWithProperty(Names.kPropertyBlock)) {
-			return true;
-		}
-		cell = getData().cells.getCell(new int[] { xy[0], xy[1] + 1 });
-		if (cell != null && cell.hasObjectWithProperty(Names.kPropertyBlock)) {
-			return true;
-		}
-		cell = getData().cells.getCell(new int[] { xy[0] - 1, xy[1] });
-		if (cell != null && cell.hasObjectWithProperty(Names.kPropertyBlock)) {
-			return true;
-		}
-		cell = getData().cells.getCell(new int[] { xy[0], xy[1] - 1 });
-		if (cell != null && cell.hasObjectWithProperty(Names.kPropertyBlock)) {
-			return true;
+	private boolean wallOnAnySide(int[] location) {
+		int xy = Xy.pack(location);
+		for (Direction direction : SIDES) {
+			if (blocked(Direction.translate(xy, direction))) {
+				return true;
+			}
 		}
 		return false;
 	}
 
+	private static final Direction[] SIDES = { Direction.NORTH,
+			Direction.EAST, Direction.SOUTH, Direction.WEST };
+
+	private boolean blocked(int xy) {
+		Cell cell = getData().cells.getCell(xy);
+		return cell != null && cell.hasObjectWithProperty(Names.kPropertyBlock);
+	}
+
 	/**
 	 * @throws IllegalStateException
 	 *             If no food types available
@@ -263,7 +253,7 @@ public class EatersMap extends GridMapBase implements GridMap,
 					Boolean.class)) {
 				// assign identification properties
 				added.setProperty(Names.kPropertyColor,
-						Gridmap2D.simulation.kColors[0]);
+						Simulation.kColors[0]);
 				added.setProperty("box-id", "0");
 
 				logger.trace("Info box: "
@@ -296,6 +286,7 @@ public class EatersMap extends GridMapBase implements GridMap,
 	}
 
 	public void updateObjects() {
+		expireEffects();
 		Set<CellObject> copy = new HashSet<CellObject>(getData().updatables);
 		for (CellObject cellObject : copy) {
 			Cell cell = cellObject.getCell();
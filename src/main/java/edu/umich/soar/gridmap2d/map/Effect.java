@@ -0,0 +1,66 @@
+package edu.umich.soar.gridmap2d.map;
+
+import edu.umich.soar.gridmap2d.Direction;
+
+/**
+ * Something drawn on a cell for a few updates that nothing in the
+ * simulation reacts to.
+ * 
+ * @see GridMap#addEffect(int, Effect, int)
+ */
+public enum Effect {
+	EXPLOSION, RADAR_NORTH, RADAR_EAST, RADAR_SOUTH, RADAR_WEST;
+
+	/**
+	 * @return this effect's bit in GridMap.getEffects
+	 */
+	public int bit() {
+		return 1 << ordinal();
+	}
+
+	/**
+	 * @return true if the mask from GridMap.getEffects has this effect
+	 */
+	public boolean in(int effects) {
+		return (effects & bit()) != 0;
+	}
+
+	/**
+	 * @return radar waves travelling in the direction
+	 * @throws IllegalArgumentException
+	 *             for Direction.NONE
+	 */
+	public static Effect radar(Direction direction) {
+		switch (direction) {
+		case NORTH:
+			return RADAR_NORTH;
+		case EAST:
+			return RADAR_EAST;
+		case SOUTH:
+			return RADAR_SOUTH;
+		case WEST:
+			return RADAR_WEST;
+		default:
+			throw new IllegalArgumentException("No radar waves for " + direction);
+		}
+	}
+
+	/**
+	 * @return the direction radar waves travel in, Direction.NONE for
+	 *         anything else
+	 */
+	public Direction radarDirection() {
+		switch (this) {
+		case RADAR_NORTH:
+			return Direction.NORTH;
+		case RADAR_EAST:
+			return Direction.EAST;
+		case RADAR_SOUTH:
+			return Direction.SOUTH;
+		case RADAR_WEST:
+			return Direction.WEST;
+		default:
+			return Direction.NONE;
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package edu.umich.soar.gridmap2d.map;
+
+import edu.umich.soar.gridmap2d.Xy;
+
+/**
+ * Effects kept beside the cells instead of in them: a mask of effects per
+ * cell and, for each effect in a cell, the update it goes away on. Cells
+ * with effects are listed so expiring them does not scan the map.
+ * 
+ * Adding or expiring an effect marks the cell modified so it is redrawn.
+ * The masks can be read from another thread, like cell contents.
+ */
+class EffectLayer {
+	private static final Effect[] ALL = Effect.values();
+	private static final int EFFECTS = ALL.length;
+
+	private final GridMapCells cells;
+	private final int size;
+	private final byte[] masks;
+	// by cell index * EFFECTS + effect ordinal
+	private final int[] expiries;
+	private int[] active = new int[16];
+	private int activeCount;
+	private int tick;
+
+	EffectLayer(GridMapCells cells) {
+		this.cells = cells;
+		this.size = cells.size();
+		masks = new byte[size * size];
+		expiries = new int[size * size * EFFECTS];
+	}
+
+	/**
+	 * @param linger
+	 *            how many calls to expire the effect lasts for, as the
+	 *            update.linger property counts for objects
+	 * @throws IllegalArgumentException
+	 *             if linger is less than one
+	 */
+	void add(int xy, Effect effect, int linger) {
+		if (linger < 1) {
+			throw new IllegalArgumentException("Effect linger must be positive: " + linger);
+		}
+		int index = index(xy);
+		int expiry = tick + linger;
+		int slot = index * EFFECTS + effect.ordinal();
+		if (masks[index] == 0) {
+			if (activeCount == active.length) {
+				int[] grown = new int[active.length * 2];
+				System.arraycopy(active, 0, grown, 0, activeCount);
+				active = grown;
+			}
+			active[activeCount++] = index;
+		} else if (effect.in(masks[index]) && expiries[slot] > expiry) {
+			// already there for longer
+			expiry = expiries[slot];
+		}
+		masks[index] |= effect.bit();
+		expiries[slot] = expiry;
+		cells.getCell(xy).setModified(true);
+	}
+
+	/**
+	 * @return the effects in the cell, as a mask of Effect.bit
+	 */
+	int get(int xy) {
+		return masks[index(xy)];
+	}
+
+	/**
+	 * Counts off one update and removes the effects that have run out.
+	 */
+	void expire() {
+		tick += 1;
+		int kept = 0;
+		for (int i = 0; i < activeCount; ++i) {
+			int index = active[i];
+			int mask = masks[index];
+			for (Effect effect : ALL) {
+				if (effect.in(mask) && expiries[index * EFFECTS + effect.ordinal()] <= tick) {
+					mask &= ~effect.bit();
+				}
+			}
+			if (mask != masks[index]) {
+				masks[index] = (byte) mask;
+				cells.getCell(Xy.pack(index % size, index / size)).setModified(true);
+			}
+			if (mask != 0) {
+				active[kept++] = index;
+			}
+		}
+		activeCount = kept;
+	}
+
+	private int index(int xy) {
+		return Xy.y(xy) * size + Xy.x(xy);
+	}
+}
@@ -0,0 +1,128 @@
+package edu.umich.soar.gridmap2d.map;
+
+import java.util.Random;
+
+import edu.umich.soar.gridmap2d.Xy;
+
+/**
+ * The cells of a grid where something could be placed, as the map's
+ * isAvailable decides, kept as an array with each cell's position in it so
+ * adding, removing and picking one at random are constant time.
+ * 
+ * Cells report every change to their objects or players through Cells.
+ * Changed cells are only noted, and asked again the next time a free cell
+ * is wanted, so busy updates cost a flag each. The whole grid is asked the
+ * first time.
+ */
+class FreeCells implements CellListener {
+	private final GridMapCells cells;
+	private final GridMap map;
+	private final int size;
+
+	private final int[] members;
+	// position in members by cell index, -1 for cells that are not free
+	private final int[] positions;
+	private int count;
+
+	private final boolean[] dirty;
+	private int[] dirtyCells = new int[16];
+	private int dirtyCount;
+	private boolean stale = true;
+	// handed to isAvailable, which does not keep it
+	private final int[] location = new int[2];
+
+	FreeCells(GridMapCells cells, GridMap map) {
+		this.cells = cells;
+		this.map = map;
+		this.size = cells.size();
+		members = new int[size * size];
+		positions = new int[size * size];
+		dirty = new boolean[size * size];
+	}
+
+	/**
+	 * Notes that the cell's contents changed. Cells of other grids are
+	 * ignored.
+	 */
+	public void cellChanged(Cell cell) {
+		if (stale) {
+			return;
+		}
+		int xy = cell.getXy();
+		if (!cells.isInBounds(xy) || cells.getCell(xy) != cell) {
+			return;
+		}
+		int index = index(xy);
+		if (!dirty[index]) {
+			dirty[index] = true;
+			if (dirtyCount == dirtyCells.length) {
+				int[] grown = new int[dirtyCells.length * 2];
+				System.arraycopy(dirtyCells, 0, grown, 0, dirtyCount);
+				dirtyCells = grown;
+			}
+			dirtyCells[dirtyCount++] = index;
+		}
+	}
+
+	/**
+	 * @return a free cell picked uniformly, packed with Xy, or Xy.NONE if
+	 *         there are none
+	 */
+	int random(Random random) {
+		refresh();
+		if (count == 0) {
+			return Xy.NONE;
+		}
+		int index = members[random.nextInt(count)];
+		return Xy.pack(index % size, index / size);
+	}
+
+	/**
+	 * @return how many cells are free
+	 */
+	int count() {
+		refresh();
+		return count;
+	}
+
+	private void refresh() {
+		if (stale) {
+			stale = false;
+			count = 0;
+			for (int index = 0; index < size * size; ++index) {
+				positions[index] = -1;
+				dirty[index] = false;
+				update(index);
+			}
+			dirtyCount = 0;
+			return;
+		}
+		for (int i = 0; i < dirtyCount; ++i) {
+			int index = dirtyCells[i];
+			dirty[index] = false;
+			update(index);
+		}
+		dirtyCount = 0;
+	}
+
+	private void update(int index) {
+		location[0] = index % size;
+		location[1] = index / size;
+		boolean free = map.isAvailable(location);
+		int position = positions[index];
+		if (free && position < 0) {
+			positions[index] = count;
+			members[count++] = index;
+		} else if (!free && position >= 0) {
+			// the last member fills the gap
+			int last = members[--count];
+			members[position] = last;
+			positions[last] = position;
+			positions[index] = -1;
+		}
+	}
+
+	private int index(int xy) {
+		return Xy.y(xy) * size + Xy.x(xy);
+	}
+}
@@ -1,6 +1,7 @@
 package edu.umich.soar.gridmap2d.map;
 
 import java.util.List;
+import java.util.Set;
 
 public interface GridMap {
 
@@ -14,12 +15,88 @@ public interface GridMap {
 
 	public boolean isInBounds(int[] xy);
 
+	/**
+	 * @param xy
+	 *            a location packed with Xy
+	 */
+	public boolean isInBounds(int xy);
+
 	public CellObject createObjectByName(String name);
 
+	/**
+	 * Like createObjectByName for objects that only last a few updates, which
+	 * today means missiles: explosions and radar waves are effects, not
+	 * objects. The object may be a recycled one, reset to the template.
+	 */
+	public CellObject createTransientObject(String name);
+
+	/**
+	 * Gives an object from createTransientObject back for reuse once it is
+	 * off the map and nothing refers to it. Other objects are ignored.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the object is still in a cell or was already recycled
+	 */
+	public void recycleObject(CellObject object);
+
+	/**
+	 * Shows an effect on a cell. Effects are not cell objects: nothing sees
+	 * them but the visual worlds, and they go away by themselves.
+	 * 
+	 * @param xy
+	 *            a location packed with Xy
+	 * @param linger
+	 *            how many map updates it lasts for
+	 * @throws IllegalArgumentException
+	 *             if linger is less than one
+	 */
+	public void addEffect(int xy, Effect effect, int linger);
+
+	/**
+	 * @param xy
+	 *            a location packed with Xy
+	 * @return the effects on the cell, a mask of Effect.bit
+	 */
+	public int getEffects(int xy);
+
+	/**
+	 * @return the log of cells whose objects or players changed, a new one
+	 *         after the map is reloaded
+	 */
+	public CellChanges getCellChanges();
+
 	public List<CellObject> getTemplatesWithProperty(String name);
 
+	/**
+	 * @param property
+	 *            the property name
+	 * @return the objects on the map with that property, in time
+	 *         proportional to their number after the first call for it
+	 */
+	public List<CellObject> getObjectsWithProperty(String property);
+
+	/**
+	 * @param property
+	 *            the property name
+	 * @return the cells holding an object with that property
+	 */
+	public Set<Cell> getCellsWithProperty(String property);
+
+	/**
+	 * @param property
+	 *            the property name
+	 * @return the number of objects on the map with that property
+	 */
+	public int countObjectsWithProperty(String property);
+
 	public String getCurrentMapName();
 	
 	public Cell getCell(int[] xy);
 
+	/**
+	 * @param xy
+	 *            a location packed with Xy
+	 */
+	public Cell getCell(int xy);
+
 }
@@ -2,9 +2,9 @@ package edu.umich.soar.gridmap2d.map;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -12,19 +12,27 @@ import org.apache.commons.logging.LogFactory;
 import edu.umich.soar.config.Config;
 import edu.umich.soar.config.ConfigFile;
 import edu.umich.soar.config.ParseError;
-import edu.umich.soar.gridmap2d.Gridmap2D;
-import edu.umich.soar.gridmap2d.Simulation;
+import edu.umich.soar.gridmap2d.Names;
+import edu.umich.soar.gridmap2d.SimulationContext;
+import edu.umich.soar.gridmap2d.Xy;
+import edu.umich.soar.gridmap2d.SimulationContext.RandomStream;
 
 abstract class GridMapBase implements GridMap, CellObjectObserver {
 	private static final Log logger = LogFactory.getLog(GridMapBase.class);
 	
+	private final SimulationContext context;
 	private GridMapData data;
 	private final String mapPath;
 
-	protected GridMapBase(String mapPath) {
+	protected GridMapBase(SimulationContext context, String mapPath) {
+		this.context = context;
 		this.mapPath = mapPath;
 	}
 	
+	protected SimulationContext getContext() {
+		return context;
+	}
+	
 	protected GridMapData getData() {
 		return data;
 	}
@@ -37,6 +45,10 @@ abstract class GridMapBase implements GridMap, CellObjectObserver {
 		return data.cells.isInBounds(xy);
 	}
 	
+	public boolean isInBounds(int xy) {
+		return data.cells.isInBounds(xy);
+	}
+	
 	public String getCurrentMapName() {
 		// can't just use system separator, could come from config file which needs to work across systems
 		int index = mapPath.lastIndexOf("/");
@@ -53,51 +65,79 @@ abstract class GridMapBase implements GridMap, CellObjectObserver {
 		return data.cells.size();
 	}
 
+	/**
+	 * Picks uniformly among the cells isAvailable accepts, from an index
+	 * kept up to date as cells change.
+	 */
 	public int[] getAvailableLocationAmortized() {
-		int size = size();
-		
-		// Loop in case there are no free spots, the 100 is totally arbitrary
-		int [] xy = new int [2];
-		for (int counter = 0; counter < 100; ++counter) {
-			xy[0] = Simulation.random.nextInt(size - 2) + 1;
-			xy[1] = Simulation.random.nextInt(size - 2) + 1;
-			
-			if (isAvailable(xy)) {
-				return xy;
-			}
-		}
-		List<int []> locations = new ArrayList<int []>();
-		for (xy[0] = 0; xy[0] < size; ++xy[0]) {
-			for (xy[1] = 0; xy[1] < size; ++ xy[1]) {
-				if (isAvailable(xy)) {
-					locations.add(xy);
-				}
-			}
-		}
-		if (locations.size() == 0) {
-			return null;
-		}
-		return locations.get(Simulation.random.nextInt(locations.size()));
+		int xy = data.free.random(context.random(RandomStream.SPAWN));
+		return xy == Xy.NONE ? null : Xy.toArray(xy);
+	}
+
+	public List<CellObject> getObjectsWithProperty(String property) {
+		return data.cells.index().getObjects(PropertyKey.intern(property));
+	}
+
+	public Set<Cell> getCellsWithProperty(String property) {
+		return data.cells.index().getCells(PropertyKey.intern(property));
+	}
+
+	public int countObjectsWithProperty(String property) {
+		return data.cells.index().count(PropertyKey.intern(property));
 	}
 
 	public CellObject createObjectByName(String name) {
 		return data.cellObjectManager.createObject(name);
 	}
 
+	public CellObject createTransientObject(String name) {
+		return data.cellObjectManager.createTransientObject(name);
+	}
+
+	public void recycleObject(CellObject object) {
+		data.cellObjectManager.recycle(object);
+	}
+
+	public void addEffect(int xy, Effect effect, int linger) {
+		data.effects.add(xy, effect, linger);
+	}
+
+	public int getEffects(int xy) {
+		return data.effects.get(xy);
+	}
+
+	/**
+	 * Counts off one update for the effects, call once per update where
+	 * lingering objects are updated.
+	 */
+	protected void expireEffects() {
+		data.effects.expire();
+	}
+
+	public CellChanges getCellChanges() {
+		return data.changes;
+	}
+
 	public List<CellObject> getTemplatesWithProperty(String name) {
 		return data.cellObjectManager.getTemplatesWithProperty(name);
 	}
 
 	protected boolean reload() {
+		if (data != null && data.cells != null) {
+			// the old grid must stop hearing about cell changes
+			data.cells.removeObservers();
+			context.cells().removeCellListener(data.free);
+			context.cells().removeCellListener(data.changes);
+		}
 		data = new GridMapData();
 		
 		File mapFile = new File(mapPath);
 		if (!mapFile.exists()) {
-			Gridmap2D.control.errorPopUp("Map file doesn't exist: " + mapFile.getAbsolutePath());
+			context.control().errorPopUp("Map file doesn't exist: " + mapFile.getAbsolutePath());
 			return false;
 		}
 
-		data.cellObjectManager = new CellObjectManager();
+		data.cellObjectManager = new CellObjectManager(context.random(RandomStream.MAP));
 		
 		String mapFilePath = mapFile.getAbsolutePath();
 		try {
@@ -117,23 +157,23 @@ abstract class GridMapBase implements GridMap, CellObjectObserver {
 		} 
 		catch (IOException e) {
 			e.printStackTrace();
-			Gridmap2D.control.errorPopUp(e.toString());
+			context.control().errorPopUp(e.toString());
 			return false;
 		} 
 		catch (ParseError e) {
 			e.printStackTrace();
-			Gridmap2D.control.errorPopUp(e.toString());
+			context.control().errorPopUp(e.toString());
 			return false;
 		}
 		catch (IllegalStateException e) {
 			e.printStackTrace();
-			Gridmap2D.control.errorPopUp(e.toString());
+			context.control().errorPopUp(e.toString());
 			return false;
 
 		} 
 		catch (IndexOutOfBoundsException e) {
 			e.printStackTrace();
-			Gridmap2D.control.errorPopUp(e.toString());
+			context.control().errorPopUp(e.toString());
 			return false;
 		}
 	}
@@ -146,7 +186,12 @@ abstract class GridMapBase implements GridMap, CellObjectObserver {
 	 * @throws IllegalArgumentException If encountered object that isn't registered
 	 */
 	private void cellsConfig(Config cellsConfig, Config objectsConfig) {
-		data.cells = new GridMapCells(cellsConfig.requireInt("size"), new CellObjectObserver[] { data, this });
+		data.cells = new GridMapCells(context.cells(), cellsConfig.requireInt("size"), new CellObjectObserver[] { data, this });
+		data.effects = new EffectLayer(data.cells);
+		data.free = new FreeCells(data.cells, this);
+		context.cells().addCellListener(data.free);
+		data.changes = new CellChanges(data.cells);
+		context.cells().addCellListener(data.changes);
 		
 		data.randomWalls = cellsConfig.getBoolean("random_walls", false);
 		data.randomFood = cellsConfig.getBoolean("random_food", false);
@@ -182,13 +227,15 @@ abstract class GridMapBase implements GridMap, CellObjectObserver {
 	}
 	
 	protected void lingerUpdate(CellObject cellObject, Cell cell) {
-		if (cellObject.hasProperty("update.linger")) {
-			int linger = cellObject.getProperty("update.linger", 0, Integer.class);
+		if (cellObject.hasProperty(Names.Keys.LINGER)) {
+			int linger = cellObject.getInt(Names.Keys.LINGER, 0);
 			linger -= 1;
 			if (linger <= 0) {
-				cell.removeObject(cellObject);
+				if (cell.removeObject(cellObject)) {
+					data.cellObjectManager.recycle(cellObject);
+				}
 			} else {
-				cellObject.setProperty("update.linger", linger);
+				cellObject.setInt(Names.Keys.LINGER, linger);
 			}
 		}
 	}
@@ -196,4 +243,8 @@ abstract class GridMapBase implements GridMap, CellObjectObserver {
 	public Cell getCell(int[] xy) {
 		return data.cells.getCell(xy);
 	}
+	
+	public Cell getCell(int xy) {
+		return data.cells.getCell(xy);
+	}
 }
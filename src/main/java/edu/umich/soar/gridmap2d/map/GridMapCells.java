@@ -1,24 +1,52 @@
 package edu.umich.soar.gridmap2d.map;
 
+import edu.umich.soar.gridmap2d.Xy;
+
 class GridMapCells {
 	private final Cell[][] cells;
+	private final Cells factory;
+	private final CellObjectObserver[] observers;
+	private final PropertyIndex index;
 
-	GridMapCells(int size, CellObjectObserver[] observers) {
+	GridMapCells(Cells factory, int size, CellObjectObserver[] observers) {
 		assert size > 0;
 
+		this.factory = factory;
+		this.observers = observers;
+		BitPlanes planes = factory.createPlanes(size);
 		cells = new Cell[size][];
 		int[] xy = new int[2];
 		for (xy[0] = 0; xy[0] < size; ++xy[0]) {
 			cells[xy[0]] = new Cell[size];
 			for (xy[1] = 0; xy[1] < size; ++xy[1]) {
-				Cell newCell = Cells.createCell(xy);
+				Cell newCell = factory.createCell(planes, xy);
 				setCell(xy, newCell);
 			}
 		}
 
 		for (CellObjectObserver observer : observers) {
-			Cells.addObserver(observer);
+			factory.addObserver(observer);
+		}
+		
+		index = new PropertyIndex(this);
+		factory.addObserver(index);
+		factory.addIndex(index);
+	}
+
+	/**
+	 * Unregisters the observers added at construction, call before this grid
+	 * is thrown away.
+	 */
+	void removeObservers() {
+		for (CellObjectObserver observer : observers) {
+			factory.removeObserver(observer);
 		}
+		factory.removeObserver(index);
+		factory.removeIndex(index);
+	}
+	
+	PropertyIndex index() {
+		return index;
 	}
 
 	void setCell(int[] xy, Cell cell) {
@@ -31,6 +59,10 @@ class GridMapCells {
 		return cells[xy[0]][xy[1]];
 	}
 
+	Cell getCell(int xy) {
+		return cells[Xy.x(xy)][Xy.y(xy)];
+	}
+
 	int size() {
 		return cells.length;
 	}
@@ -42,4 +74,10 @@ class GridMapCells {
 				&& (location[0] < size()) && (location[1] < size());
 	}
 
+	boolean isInBounds(int xy) {
+		int x = Xy.x(xy);
+		int y = Xy.y(xy);
+		return (x >= 0) && (y >= 0) && (x < cells.length) && (y < cells.length);
+	}
+
 }
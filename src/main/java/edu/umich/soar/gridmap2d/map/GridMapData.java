@@ -6,6 +6,9 @@ import java.util.Set;
 class GridMapData implements CellObjectObserver {
 	CellObjectManager cellObjectManager;
 	GridMapCells cells;
+	EffectLayer effects;
+	FreeCells free;
+	CellChanges changes;
 
 	Set<CellObject> updatables = new HashSet<CellObject>();
 
@@ -0,0 +1,173 @@
+package edu.umich.soar.gridmap2d.map;
+
+import edu.umich.soar.gridmap2d.Direction;
+import edu.umich.soar.gridmap2d.Names;
+import edu.umich.soar.gridmap2d.Xy;
+import edu.umich.soar.gridmap2d.players.Tank;
+import edu.umich.soar.gridmap2d.world.ObjectIntMap;
+import edu.umich.soar.gridmap2d.world.PlayersManager;
+
+/**
+ * Flying missiles by the row or column they fly along and tanks by the row
+ * and column they sit in, for the incoming sensor.
+ *
+ * A missile threatens the cells ahead of it up to the first wall or tank,
+ * and the tank it reaches is the one that senses it. So a tank senses
+ * missiles from a direction when one flying back toward it is in that
+ * direction before the nearest wall, or in the cell of the nearest tank
+ * that way if that comes first. Walls do not change after the map loads,
+ * so the distance to the nearest wall each way from each cell is computed
+ * once; the rest is a lookup either side of the tank in its row and column,
+ * however far the missiles have to fly.
+ *
+ * Missiles are tracked as they are added to and removed from cells. Tanks
+ * are indexed each time the sensors are resolved.
+ */
+class IncomingIndex {
+	private static final Direction[] SIDES = { Direction.NORTH,
+			Direction.EAST, Direction.SOUTH, Direction.WEST };
+
+	private final GridMapCells cells;
+	private final int size;
+	// [direction ordinal][y * size + x] open cells before a wall or the edge
+	private final int[][] reach;
+	// by direction of flight, rows for east and west, columns for north and
+	// south
+	private final LineIndex[] missiles;
+	private final ObjectIntMap<CellObject> missileXys = new ObjectIntMap<CellObject>();
+	private final LineIndex tankRows;
+	private final LineIndex tankColumns;
+
+	IncomingIndex(GridMapCells cells) {
+		this.cells = cells;
+		this.size = cells.size();
+
+		boolean[] blocked = new boolean[size * size];
+		for (int y = 0; y < size; ++y) {
+			for (int x = 0; x < size; ++x) {
+				blocked[y * size + x] = cells.getCell(Xy.pack(x, y)).hasObjectWithProperty(Names.kPropertyBlock);
+			}
+		}
+
+		reach = new int[Direction.values().length][];
+		missiles = new LineIndex[Direction.values().length];
+		for (Direction side : SIDES) {
+			reach[side.ordinal()] = reach(side, blocked);
+			missiles[side.ordinal()] = new LineIndex(size);
+		}
+		tankRows = new LineIndex(size);
+		tankColumns = new LineIndex(size);
+	}
+
+	private int[] reach(Direction side, boolean[] blocked) {
+		// sweep from the far side so the neighbour that way is done first
+		int[] result = new int[size * size];
+		int xFrom = side.dx() > 0 ? size - 1 : 0;
+		int xStep = side.dx() > 0 ? -1 : 1;
+		int yFrom = side.dy() > 0 ? size - 1 : 0;
+		int yStep = side.dy() > 0 ? -1 : 1;
+		for (int j = 0, y = yFrom; j < size; ++j, y += yStep) {
+			for (int i = 0, x = xFrom; i < size; ++i, x += xStep) {
+				int nx = x + side.dx();
+				int ny = y + side.dy();
+				if (nx < 0 || ny < 0 || nx >= size || ny >= size || blocked[ny * size + nx]) {
+					result[y * size + x] = 0;
+				} else {
+					result[y * size + x] = result[ny * size + nx] + 1;
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Starts tracking a missile at its current cell. Missiles without a
+	 * direction are ignored.
+	 */
+	void addMissile(CellObject missile, int xy) {
+		Direction direction = missile.getProperty(Names.Keys.DIRECTION, Direction.class);
+		if (direction == null || direction == Direction.NONE) {
+			return;
+		}
+		removeMissile(missile);
+		missileXys.put(missile, xy);
+		line(direction).add(lineOf(direction, xy), positionOf(direction, xy));
+	}
+
+	void removeMissile(CellObject missile) {
+		int xy = missileXys.get(missile, Xy.NONE);
+		if (xy == Xy.NONE) {
+			return;
+		}
+		missileXys.remove(missile);
+		Direction direction = missile.getProperty(Names.Keys.DIRECTION, Direction.class);
+		line(direction).remove(lineOf(direction, xy), positionOf(direction, xy));
+	}
+
+	/**
+	 * Sets the incoming sensor of each tank that is the first player in its
+	 * cell for every missile that will reach it.
+	 */
+	void resolve(PlayersManager<Tank> players) {
+		tankRows.clear();
+		tankColumns.clear();
+		for (int i = 0; i < players.numberOfPlayers(); ++i) {
+			Tank tank = players.get(i);
+			int xy = players.getXy(tank);
+			if (exposed(tank, xy)) {
+				tankRows.add(Xy.y(xy), Xy.x(xy));
+				tankColumns.add(Xy.x(xy), Xy.y(xy));
+			}
+		}
+
+		for (int i = 0; i < players.numberOfPlayers(); ++i) {
+			Tank tank = players.get(i);
+			int xy = players.getXy(tank);
+			if (!exposed(tank, xy)) {
+				continue;
+			}
+			for (Direction side : SIDES) {
+				if (threatened(xy, side)) {
+					tank.getState().setIncoming(side);
+				}
+			}
+		}
+	}
+
+	private boolean exposed(Tank tank, int xy) {
+		return Xy.x(xy) >= 0 && Xy.y(xy) >= 0 && Xy.x(xy) < size && Xy.y(xy) < size
+				&& cells.getCell(xy).getFirstPlayer() == tank;
+	}
+
+	/**
+	 * @return true if a missile flying back toward xy from side reaches it
+	 */
+	private boolean threatened(int xy, Direction side) {
+		Direction flight = side.backward();
+		int line = lineOf(flight, xy);
+		int position = positionOf(flight, xy);
+		LineIndex tanks = side.dx() != 0 ? tankRows : tankColumns;
+		int steps = reach[side.ordinal()][Xy.y(xy) * size + Xy.x(xy)];
+
+		if (side.dx() + side.dy() > 0) {
+			int end = position + steps;
+			end = Math.min(end, tanks.higher(line, position));
+			return line(flight).higher(line, position) <= end;
+		}
+		int end = position - steps;
+		end = Math.max(end, tanks.lower(line, position));
+		return line(flight).lower(line, position) >= end;
+	}
+
+	private LineIndex line(Direction flight) {
+		return missiles[flight.ordinal()];
+	}
+
+	private static int lineOf(Direction flight, int xy) {
+		return flight.dx() != 0 ? Xy.y(xy) : Xy.x(xy);
+	}
+
+	private static int positionOf(Direction flight, int xy) {
+		return flight.dx() != 0 ? Xy.x(xy) : Xy.y(xy);
+	}
+}
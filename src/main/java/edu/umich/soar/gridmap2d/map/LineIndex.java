@@ -0,0 +1,85 @@
+package edu.umich.soar.gridmap2d.map;
+
+import java.util.Arrays;
+
+/**
+ * Sorted positions along each row or column of a map, so the nearest thing
+ * on either side of a cell is a binary search instead of a walk. A position
+ * can be in a line more than once.
+ */
+class LineIndex {
+	private final int[][] positions;
+	private final int[] counts;
+
+	LineIndex(int lines) {
+		positions = new int[lines][4];
+		counts = new int[lines];
+	}
+
+	void add(int line, int position) {
+		int count = counts[line];
+		int[] values = positions[line];
+		if (count == values.length) {
+			values = Arrays.copyOf(values, count * 2);
+			positions[line] = values;
+		}
+		int i = count;
+		while (i > 0 && values[i - 1] > position) {
+			values[i] = values[i - 1];
+			--i;
+		}
+		values[i] = position;
+		counts[line] = count + 1;
+	}
+
+	/**
+	 * Removes one occurrence of position from the line, if there is one.
+	 */
+	void remove(int line, int position) {
+		int[] values = positions[line];
+		int i = Arrays.binarySearch(values, 0, counts[line], position);
+		if (i < 0) {
+			return;
+		}
+		System.arraycopy(values, i + 1, values, i, counts[line] - i - 1);
+		counts[line] -= 1;
+	}
+
+	void clear() {
+		Arrays.fill(counts, 0);
+	}
+
+	/**
+	 * @return the smallest position in the line greater than position, or
+	 *         Integer.MAX_VALUE if there is none
+	 */
+	int higher(int line, int position) {
+		int i = insertionPoint(line, position + 1);
+		return i < counts[line] ? positions[line][i] : Integer.MAX_VALUE;
+	}
+
+	/**
+	 * @return the largest position in the line less than position, or
+	 *         Integer.MIN_VALUE if there is none
+	 */
+	int lower(int line, int position) {
+		int i = insertionPoint(line, position);
+		return i > 0 ? positions[line][i - 1] : Integer.MIN_VALUE;
+	}
+
+	// index of the first value >= position
+	private int insertionPoint(int line, int position) {
+		int[] values = positions[line];
+		int low = 0;
+		int high = counts[line];
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (values[mid] < position) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
@@ -0,0 +1,12 @@
+package edu.umich.soar.gridmap2d.map;
+
+/**
+ * Cells that want to hear about changes to the objects they hold.
+ */
+interface ObservedCell extends Cell {
+	/**
+	 * Called by an object in this cell after a property key was added or
+	 * removed.
+	 */
+	void keysChanged(CellObject object);
+}
@@ -0,0 +1,107 @@
+package edu.umich.soar.gridmap2d.map;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tracks which objects on one grid have a given property, so "where are all
+ * the X" costs time proportional to the number of X instead of a scan of
+ * every cell. A property is indexed the first time it is asked for, with one
+ * scan of the grid, and kept up to date from then on by the add and remove
+ * callbacks and by objects reporting key changes.
+ * 
+ * Objects are kept in the order they were indexed, so queries answer in a
+ * reproducible order.
+ */
+class PropertyIndex implements CellObjectObserver {
+	private final GridMapCells cells;
+	
+	// guarded by this
+	private final Map<PropertyKey, Set<CellObject>> index = new HashMap<PropertyKey, Set<CellObject>>();
+	private PropertyKey[] indexed = new PropertyKey[0];
+	
+	PropertyIndex(GridMapCells cells) {
+		this.cells = cells;
+	}
+	
+	/**
+	 * @return the objects on the grid with property key
+	 */
+	synchronized List<CellObject> getObjects(PropertyKey key) {
+		return new ArrayList<CellObject>(objectsFor(key));
+	}
+	
+	/**
+	 * @return the cells holding at least one object with property key
+	 */
+	synchronized Set<Cell> getCells(PropertyKey key) {
+		Set<Cell> ret = new LinkedHashSet<Cell>();
+		for (CellObject object : objectsFor(key)) {
+			Cell cell = object.getCell();
+			if (cell != null) {
+				ret.add(cell);
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * @return the number of objects on the grid with property key
+	 */
+	synchronized int count(PropertyKey key) {
+		return objectsFor(key).size();
+	}
+	
+	private Set<CellObject> objectsFor(PropertyKey key) {
+		Set<CellObject> objects = index.get(key);
+		if (objects == null) {
+			objects = new LinkedHashSet<CellObject>();
+			
+			// same order the map file fills the grid in
+			int[] xy = new int[2];
+			for (xy[1] = 0; xy[1] < cells.size(); ++xy[1]) {
+				for (xy[0] = 0; xy[0] < cells.size(); ++xy[0]) {
+					List<CellObject> contents = new ArrayList<CellObject>(cells.getCell(xy).getAllObjectsWithProperty(key.name()));
+					Collections.sort(contents);
+					objects.addAll(contents);
+				}
+			}
+			
+			index.put(key, objects);
+			indexed = index.keySet().toArray(new PropertyKey[index.size()]);
+		}
+		return objects;
+	}
+
+	public synchronized void addStateUpdate(CellObject added) {
+		for (PropertyKey key : indexed) {
+			if (added.hasProperty(key)) {
+				index.get(key).add(added);
+			}
+		}
+	}
+
+	public synchronized void removalStateUpdate(CellObject removed) {
+		for (PropertyKey key : indexed) {
+			index.get(key).remove(removed);
+		}
+	}
+	
+	/**
+	 * Called when an object on the grid gains or loses keys.
+	 */
+	synchronized void keysChanged(CellObject object) {
+		for (PropertyKey key : indexed) {
+			if (object.getCell() != null && object.hasProperty(key)) {
+				index.get(key).add(object);
+			} else {
+				index.get(key).remove(object);
+			}
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package edu.umich.soar.gridmap2d.map;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An interned cell object property name. Each distinct name gets one key
+ * with a small fixed index, shared by every world in the JVM, which
+ * property layouts use to find an object's slot for the property without
+ * hashing. Hot code keeps keys in constants; the String overloads on
+ * CellObject intern on every call.
+ */
+public final class PropertyKey {
+	private static final ConcurrentMap<String, PropertyKey> keys = new ConcurrentHashMap<String, PropertyKey>();
+	private static final AtomicInteger nextIndex = new AtomicInteger();
+
+	/**
+	 * @param name the property name
+	 * @return the key for name, the same object for every call with an equal 
+	 *         name
+	 */
+	public static PropertyKey intern(String name) {
+		PropertyKey key = keys.get(name);
+		if (key != null) {
+			return key;
+		}
+		if (name == null) {
+			throw new NullPointerException();
+		}
+		synchronized (keys) {
+			key = keys.get(name);
+			if (key == null) {
+				key = new PropertyKey(name, nextIndex.getAndIncrement());
+				keys.put(name, key);
+			}
+			return key;
+		}
+	}
+
+	/**
+	 * @return the number of keys interned so far, all indices are below this
+	 */
+	static int count() {
+		return nextIndex.get();
+	}
+
+	private final String name;
+	private final int index;
+
+	private PropertyKey(String name, int index) {
+		this.name = name;
+		this.index = index;
+	}
+
+	public String name() {
+		return name;
+	}
+
+	int index() {
+		return index;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
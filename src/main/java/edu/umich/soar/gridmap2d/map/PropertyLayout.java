@@ -0,0 +1,91 @@
+package edu.umich.soar.gridmap2d.map;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The slot layout shared by cell objects with the same set of property
+ * keys: which slot of the object's value arrays holds which key. Objects
+ * cloned from a template share its layout. Adding a key to an object
+ * moves it to the layout with that key appended; those transitions are
+ * cached so objects that change the same way end up sharing layouts too.
+ * Removing a key only empties its slot.
+ * 
+ * Layouts are immutable apart from the transition cache.
+ */
+final class PropertyLayout {
+	static final PropertyLayout EMPTY = new PropertyLayout(new PropertyKey[0]);
+
+	/**
+	 * Slot by key index, -1 for keys not in this layout. Only as long as the
+	 * highest key index in the layout.
+	 */
+	private final int[] slotOf;
+	private final PropertyKey[] keys;
+	private final ConcurrentMap<PropertyKey, PropertyLayout> transitions = new ConcurrentHashMap<PropertyKey, PropertyLayout>();
+
+	private PropertyLayout(PropertyKey[] keys) {
+		this.keys = keys;
+		int length = 0;
+		for (PropertyKey key : keys) {
+			length = Math.max(length, key.index() + 1);
+		}
+		slotOf = new int[length];
+		Arrays.fill(slotOf, -1);
+		for (int slot = 0; slot < keys.length; ++slot) {
+			slotOf[keys[slot].index()] = slot;
+		}
+	}
+
+	/**
+	 * @return the slot for key, or -1 if this layout doesn't have it
+	 */
+	int slot(PropertyKey key) {
+		int index = key.index();
+		return index < slotOf.length ? slotOf[index] : -1;
+	}
+
+	PropertyKey key(int slot) {
+		return keys[slot];
+	}
+
+	int size() {
+		return keys.length;
+	}
+
+	/**
+	 * @return true if this is prefix or prefix with keys appended
+	 */
+	boolean startsWith(PropertyLayout prefix) {
+		if (prefix.keys.length > keys.length) {
+			return false;
+		}
+		for (int slot = 0; slot < prefix.keys.length; ++slot) {
+			if (keys[slot] != prefix.keys[slot]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the layout with key appended, this if it already has key
+	 */
+	PropertyLayout with(PropertyKey key) {
+		if (slot(key) >= 0) {
+			return this;
+		}
+		PropertyLayout next = transitions.get(key);
+		if (next == null) {
+			PropertyKey[] nextKeys = Arrays.copyOf(keys, keys.length + 1);
+			nextKeys[keys.length] = key;
+			next = new PropertyLayout(nextKeys);
+			PropertyLayout raced = transitions.putIfAbsent(key, next);
+			if (raced != null) {
+				next = raced;
+			}
+		}
+		return next;
+	}
+}
@@ -0,0 +1,99 @@
+package edu.umich.soar.gridmap2d.map;
+
+import java.util.Arrays;
+
+import edu.umich.soar.gridmap2d.Names;
+import edu.umich.soar.gridmap2d.Xy;
+import edu.umich.soar.gridmap2d.players.RadarCell;
+import edu.umich.soar.gridmap2d.players.Tank;
+
+/**
+ * What radar sees in each cell of the map for one frame, shared by every
+ * tank that probes during it. A cell's RadarCell is filled in the first
+ * time it is asked for in a frame and handed out as is after that, so
+ * tanks sweeping the same cells do not each look at their contents.
+ *
+ * The RadarCells belong to the frame and are refilled in later frames:
+ * callers must not change them, and should only rely on the ones from the
+ * current frame.
+ */
+class RadarFrame {
+	private final GridMapCells cells;
+	private final int size;
+	private final RadarCell[] radarCells;
+	private final int[] filled;
+	private int frame = 1;
+
+	private final RadarVisitor radarVisitor = new RadarVisitor();
+
+	RadarFrame(GridMapCells cells) {
+		this.cells = cells;
+		this.size = cells.size();
+		radarCells = new RadarCell[size * size];
+		filled = new int[size * size];
+	}
+
+	/**
+	 * Forgets what was seen, call when the map or the tanks on it may have
+	 * changed.
+	 */
+	void next() {
+		if (++frame == 0) {
+			// wrapped, old stamps could match again
+			Arrays.fill(filled, 0);
+			frame = 1;
+		}
+	}
+
+	/**
+	 * @param xy
+	 *            packed location on the map
+	 * @return what radar sees there this frame
+	 */
+	RadarCell get(int xy) {
+		int index = Xy.y(xy) * size + Xy.x(xy);
+		RadarCell radarCell = radarCells[index];
+		if (radarCell == null) {
+			// only cells radar reaches ever get one
+			radarCell = new RadarCell();
+			radarCells[index] = radarCell;
+		}
+		if (filled[index] != frame) {
+			fill(radarCell, cells.getCell(xy));
+			filled[index] = frame;
+		}
+		return radarCell;
+	}
+
+	private void fill(RadarCell radarCell, Cell cell) {
+		radarCell.player = (Tank) cell.getFirstPlayer();
+		radarCell.energy = false;
+		radarCell.health = false;
+		radarCell.missiles = false;
+		radarCell.obstacle = cell.hasObjectWithProperty(Names.kPropertyBlock);
+		if (!radarCell.obstacle) {
+			radarVisitor.radarCell = radarCell;
+			cell.visitObjectsWithProperty(Names.kPropertyMiniImage, radarVisitor);
+			radarVisitor.radarCell = null;
+		}
+	}
+
+	/**
+	 * Marks the radar cell it is pointed at with whatever the visited objects
+	 * are, so a radar sweep does not copy each cell's contents.
+	 */
+	private static class RadarVisitor implements CellObjectVisitor {
+		RadarCell radarCell;
+
+		public boolean visit(CellObject object) {
+			if (object.hasProperty(Names.Keys.ENERGY)) {
+				radarCell.energy = true;
+			} else if (object.hasProperty(Names.Keys.HEALTH)) {
+				radarCell.health = true;
+			} else if (object.hasProperty(Names.Keys.MISSILES)) {
+				radarCell.missiles = true;
+			}
+			return true;
+		}
+	}
+}
@@ -7,9 +7,10 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentSkipListSet;
 
+import edu.umich.soar.gridmap2d.Xy;
 import edu.umich.soar.gridmap2d.players.Player;
 
-class SetCell implements Cell {
+class SetCell implements ObservedCell {
 	private final List<Player> players = new ArrayList<Player>();
 	private final Set<CellObject> cellObjects = new ConcurrentSkipListSet<CellObject>();
 
@@ -17,14 +18,20 @@ class SetCell implements Cell {
 	// rendering.
 	private boolean modified = true;
 
-	private final int[] location;
+	private final int xy;
+	private final Cells owner;
 
-	protected SetCell(int[] location) {
-		this.location = new int[] { location[0], location[1] };
+	protected SetCell(Cells owner, int[] location) {
+		this.owner = owner;
+		this.xy = Xy.pack(location);
 	}
 
 	public int[] getLocation() {
-		return new int[] { location[0], location[1] };
+		return Xy.toArray(xy);
+	}
+
+	public int getXy() {
+		return xy;
 	}
 
 	public boolean isModified() {
@@ -54,19 +61,30 @@ class SetCell implements Cell {
 		synchronized (players) {
 			modified = players.add(player) || modified;
 		}
+		owner.fireCellChanged(this);
 	}
 
 	public void removePlayer(Player player) {
+		boolean removed;
 		synchronized (players) {
-			modified = players.remove(player) || modified;
+			removed = players.remove(player);
+			modified = removed || modified;
+		}
+		if (removed) {
+			owner.fireCellChanged(this);
 		}
 	}
 
 	public void clearPlayers() {
+		boolean cleared;
 		synchronized (players) {
-			modified = !players.isEmpty() || modified;
+			cleared = !players.isEmpty();
+			modified = cleared || modified;
 			players.clear();
 		}
+		if (cleared) {
+			owner.fireCellChanged(this);
+		}
 	}
 
 	public boolean hasPlayers() {
@@ -79,7 +97,7 @@ class SetCell implements Cell {
 		if (cellObjects.add(object)) {
 			modified = true;
 			object.setCell(this);
-			Cells.fireAddedCallbacks(object);
+			owner.fireAddedCallbacks(object);
 		}
 	}
 
@@ -96,15 +114,16 @@ class SetCell implements Cell {
 
 		for (CellObject object : removed) {
 			object.setCell(null);
-			Cells.fireRemovedCallbacks(object);
+			owner.fireRemovedCallbacks(this, object);
 		}
 		return removed;
 	}
 
 	public Set<CellObject> getAllObjectsWithProperty(String property) {
+		PropertyKey key = PropertyKey.intern(property);
 		Set<CellObject> ret = new HashSet<CellObject>();
 		for (CellObject object : cellObjects) {
-			if (object.hasProperty(property)) {
+			if (object.hasProperty(key)) {
 				ret.add(object);
 			}
 		}
@@ -112,14 +131,64 @@ class SetCell implements Cell {
 	}
 
 	public CellObject getFirstObjectWithProperty(String property) {
+		PropertyKey key = PropertyKey.intern(property);
 		for (CellObject object : cellObjects) {
-			if (object.hasProperty(property)) {
+			if (object.hasProperty(key)) {
 				return object;
 			}
 		}
 		return null;
 	}
 
+	public boolean visitObjects(CellObjectVisitor visitor) {
+		for (CellObject object : cellObjects) {
+			if (!visitor.visit(object)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public boolean visitObjectsWithProperty(String property, CellObjectVisitor visitor) {
+		PropertyKey key = PropertyKey.intern(property);
+		for (CellObject object : cellObjects) {
+			if (object.hasProperty(key) && !visitor.visit(object)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public int getObjectsWithProperty(String property, List<CellObject> into) {
+		PropertyKey key = PropertyKey.intern(property);
+		int added = 0;
+		for (CellObject object : cellObjects) {
+			if (object.hasProperty(key)) {
+				into.add(object);
+				added += 1;
+			}
+		}
+		return added;
+	}
+
+	public int removeAllObjectsByProperty(String property, List<CellObject> into) {
+		PropertyKey key = PropertyKey.intern(property);
+		int removed = 0;
+		Iterator<CellObject> iter = cellObjects.iterator();
+		while (iter.hasNext()) {
+			CellObject object = iter.next();
+			if (object.hasProperty(key)) {
+				into.add(object);
+				removed += 1;
+				iter.remove();
+				modified = true;
+				object.setCell(null);
+				owner.fireRemovedCallbacks(this, object);
+			}
+		}
+		return removed;
+	}
+
 	public boolean hasObjectWithProperty(String property) {
 		if (property == null) {
 			throw new NullPointerException();
@@ -128,16 +197,17 @@ class SetCell implements Cell {
 	}
 
 	public Set<CellObject> removeAllObjectsByProperty(String property) {
+		PropertyKey key = PropertyKey.intern(property);
 		Set<CellObject> ret = new HashSet<CellObject>();
 		Iterator<CellObject> iter = cellObjects.iterator();
 		while (iter.hasNext()) {
 			CellObject object = iter.next();
-			if (object.hasProperty(property)) {
+			if (object.hasProperty(key)) {
 				ret.add(object);
 				iter.remove();
 				modified = true;
 				object.setCell(null);
-				Cells.fireRemovedCallbacks(object);
+				owner.fireRemovedCallbacks(this, object);
 			}
 		}
 		return ret;
@@ -147,12 +217,16 @@ class SetCell implements Cell {
 		if (cellObjects.remove(object)) {
 			modified = true;
 			object.setCell(null);
-			Cells.fireRemovedCallbacks(object);
+			owner.fireRemovedCallbacks(this, object);
 			return true;
 		}
 		return false;
 	}
 
+	public void keysChanged(CellObject object) {
+		owner.fireKeysChanged(object);
+	}
+
 	public boolean hasObject(CellObject object) {
 		if (object == null) {
 			throw new NullPointerException();
@@ -0,0 +1,181 @@
+package edu.umich.soar.gridmap2d.map;
+
+import java.util.Arrays;
+
+import edu.umich.soar.gridmap2d.Direction;
+import edu.umich.soar.gridmap2d.Names;
+import edu.umich.soar.gridmap2d.Xy;
+
+/**
+ * A breadth first search workspace for one grid, reused for every search.
+ * Cells count as explored when they carry the current generation, so
+ * starting a search does not clear the map, and the frontier is a ring
+ * buffer of cell indexes. Each explored cell remembers the first step taken
+ * from the start to reach it, so there is no parent chain to walk back.
+ *
+ * Which cells block is read once when the workspace is made, so it is for
+ * terrain that does not change afterwards, like SoundTable.
+ *
+ * Cell indexes are y * size + x.
+ *
+ * Not thread safe, a map searches from one thread.
+ */
+class SoundSearch {
+	private static final Direction[] STEPS = { Direction.NORTH,
+			Direction.EAST, Direction.SOUTH, Direction.WEST };
+
+	private final int size;
+	private final boolean[] blocked;
+	private final int[] explored;
+	private final int[] distance;
+	private final byte[] firstStep;
+	private final int[] queue;
+	private int generation;
+	private int found;
+
+	/**
+	 * What a search is looking for, explore stops at the first cell that is
+	 * it.
+	 */
+	interface Goal {
+		boolean isGoal(int index);
+	}
+
+	SoundSearch(GridMapCells cells) {
+		this.size = cells.size();
+		blocked = new boolean[size * size];
+		for (int y = 0; y < size; ++y) {
+			for (int x = 0; x < size; ++x) {
+				blocked[index(x, y)] = cells.getCell(Xy.pack(x, y)).hasObjectWithProperty(Names.kPropertyBlock);
+			}
+		}
+		explored = new int[size * size];
+		distance = new int[size * size];
+		firstStep = new byte[size * size];
+		queue = new int[size * size];
+	}
+
+	/**
+	 * Explores outward from start through cells without a block, north,
+	 * east, south then west from each cell. Sound travels the same way.
+	 *
+	 * @param start
+	 *            the packed location to search from
+	 * @param maxDistance
+	 *            the farthest to explore, in moves
+	 * @return how many cells were reached, not counting start; they are
+	 *         reached(1) through reached(count) in the order found
+	 */
+	int explore(int start, int maxDistance) {
+		return explore(start, maxDistance, null);
+	}
+
+	/**
+	 * Same as explore(int, int) but stops as soon as it reaches a cell the
+	 * goal accepts, which is then found(). Cells are offered to the goal in
+	 * the order they are reached.
+	 *
+	 * @param goal
+	 *            null to explore everything
+	 */
+	int explore(int start, int maxDistance, Goal goal) {
+		if (++generation == 0) {
+			// wrapped, old stamps could match again
+			Arrays.fill(explored, 0);
+			generation = 1;
+		}
+
+		int head = 0;
+		int tail = 0;
+		int count = 0;
+		found = -1;
+		int startIndex = index(Xy.x(start), Xy.y(start));
+		explored[startIndex] = generation;
+		distance[startIndex] = 0;
+		queue[tail] = startIndex;
+		tail = next(tail);
+
+		while (head != tail) {
+			int parent = queue[head];
+			head = next(head);
+
+			// the queue is in distance order, everything left is as far
+			if (distance[parent] >= maxDistance) {
+				break;
+			}
+
+			int px = parent % size;
+			int py = parent / size;
+			for (Direction step : STEPS) {
+				int x = px + step.dx();
+				int y = py + step.dy();
+				if (x < 0 || y < 0 || x >= size || y >= size) {
+					continue;
+				}
+
+				int neighbor = index(x, y);
+				if (explored[neighbor] == generation) {
+					continue;
+				}
+				explored[neighbor] = generation;
+
+				if (blocked[neighbor]) {
+					continue;
+				}
+
+				distance[neighbor] = distance[parent] + 1;
+				firstStep[neighbor] = (byte) (parent == startIndex ? step.ordinal() : firstStep[parent]);
+
+				queue[tail] = neighbor;
+				tail = next(tail);
+				count += 1;
+
+				if (goal != null && goal.isGoal(neighbor)) {
+					found = neighbor;
+					return count;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return the cell the goal accepted in the last explore, -1 if none
+	 */
+	int found() {
+		return found;
+	}
+
+	/**
+	 * @return the index of the nth cell the last explore reached, from 1
+	 */
+	int reached(int n) {
+		return queue[n];
+	}
+
+	/**
+	 * @return moves from the last start to a cell it reached
+	 */
+	int distance(int index) {
+		return distance[index];
+	}
+
+	/**
+	 * @return the first move from the last start toward a cell it reached
+	 */
+	Direction firstStep(int index) {
+		return Direction.values()[firstStep[index]];
+	}
+
+	int size() {
+		return size;
+	}
+
+	private int index(int x, int y) {
+		return y * size + x;
+	}
+
+	private int next(int slot) {
+		return slot + 1 == queue.length ? 0 : slot + 1;
+	}
+}
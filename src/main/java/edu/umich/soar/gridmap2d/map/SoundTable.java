@@ -0,0 +1,322 @@
+package edu.umich.soar.gridmap2d.map;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import edu.umich.soar.gridmap2d.Direction;
+import edu.umich.soar.gridmap2d.Names;
+import edu.umich.soar.gridmap2d.Xy;
+
+/**
+ * Wall-aware paths between every pair of cells within maxDistance moves of
+ * each other, for terrain that does not change after the map loads.
+ *
+ * For each cell there is an entry for every offset in the diamond of radius
+ * maxDistance around it: the order a breadth first search from the cell
+ * reaches the other cell in (0 if it does not), the number of moves, and
+ * the first move. The order breaks ties between equally distant cells the
+ * same way a search does, so a lookup per pair gives the same answer.
+ *
+ * Tables can be cached on disk, keyed by a hash of the wall layout. Maps
+ * with the same layout, like the worlds of a tournament, share one table
+ * while any of them holds it.
+ */
+class SoundTable {
+	private static final Log logger = LogFactory.getLog(SoundTable.class);
+
+	private static final int MAGIC = 0x534e4431; // SND1
+
+	/** keeps the search order of every cell in the diamond within a short */
+	static final int MAX_DISTANCE = 127;
+
+	/**
+	 * entries in the largest table built, four bytes each; a 256x256 map at
+	 * the default sound distance fits
+	 */
+	static final long MAX_ENTRIES = 1L << 23;
+
+	// tables some map still holds, by layout hash and distance
+	private static final Map<String, WeakReference<SoundTable>> shared = new HashMap<String, WeakReference<SoundTable>>();
+
+	private final int size;
+	private final int maxDistance;
+	private final long layoutHash;
+	// offset (dx, dy) to diamond slot, -1 outside the diamond
+	private final int[] slots;
+	private final int slotCount;
+	private final short[] order;
+	// distance << 3 | first step ordinal
+	private final short[] routes;
+
+	private SoundTable(int size, int maxDistance, long layoutHash) {
+		this.size = size;
+		this.maxDistance = maxDistance;
+		this.layoutHash = layoutHash;
+
+		int width = 2 * maxDistance + 1;
+		slots = new int[width * width];
+		int slot = 0;
+		for (int dy = -maxDistance; dy <= maxDistance; ++dy) {
+			for (int dx = -maxDistance; dx <= maxDistance; ++dx) {
+				int offset = (dy + maxDistance) * width + dx + maxDistance;
+				slots[offset] = Math.abs(dx) + Math.abs(dy) <= maxDistance ? slot++ : -1;
+			}
+		}
+		slotCount = slot;
+		order = new short[size * size * slotCount];
+		routes = new short[size * size * slotCount];
+	}
+
+	/**
+	 * @return true if a table for a map this size is no more than
+	 *         MAX_ENTRIES
+	 */
+	static boolean fits(int size, int maxDistance) {
+		// cells in a diamond of radius d
+		long slots = 2L * maxDistance * (maxDistance + 1) + 1;
+		return (long) size * size * slots <= MAX_ENTRIES;
+	}
+
+	/**
+	 * The table another map with the same layout and distance is using, if
+	 * there is one, otherwise load.
+	 *
+	 * @param cacheDir
+	 *            where tables are kept, or null not to cache
+	 * @throws IllegalArgumentException
+	 *             if maxDistance is not between 1 and MAX_DISTANCE
+	 */
+	static SoundTable shared(GridMapCells cells, int maxDistance, File cacheDir) {
+		String key = String.format("%016x-%d", layoutHash(cells), maxDistance);
+		// one lock so worlds starting together build the table once
+		synchronized (shared) {
+			for (Iterator<WeakReference<SoundTable>> iter = shared.values().iterator(); iter.hasNext();) {
+				if (iter.next().get() == null) {
+					iter.remove();
+				}
+			}
+			WeakReference<SoundTable> ref = shared.get(key);
+			SoundTable table = ref != null ? ref.get() : null;
+			if (table == null) {
+				table = load(cells, maxDistance, cacheDir);
+				shared.put(key, new WeakReference<SoundTable>(table));
+			}
+			return table;
+		}
+	}
+
+	/**
+	 * Loads the table for these cells from the cache directory if it is
+	 * there, otherwise builds it and tries to save it there.
+	 *
+	 * @param cacheDir
+	 *            where tables are kept, or null not to cache
+	 * @throws IllegalArgumentException
+	 *             if maxDistance is not between 1 and MAX_DISTANCE
+	 */
+	static SoundTable load(GridMapCells cells, int maxDistance, File cacheDir) {
+		if (maxDistance < 1 || maxDistance > MAX_DISTANCE) {
+			throw new IllegalArgumentException("bad sound distance: " + maxDistance);
+		}
+		long layoutHash = layoutHash(cells);
+
+		File file = null;
+		if (cacheDir != null) {
+			file = new File(cacheDir, String.format("%016x-%d.sound", layoutHash, maxDistance));
+			if (file.exists()) {
+				try {
+					SoundTable table = read(file, cells.size(), maxDistance, layoutHash);
+					if (table != null) {
+						logger.debug("Loaded sound table " + file);
+						return table;
+					}
+				} catch (IOException e) {
+					logger.warn("Ignoring unreadable sound table " + file + ": " + e.getMessage());
+				}
+			}
+		}
+
+		SoundTable table = build(cells, maxDistance, layoutHash);
+
+		if (file != null) {
+			try {
+				cacheDir.mkdirs();
+				table.write(file);
+				logger.debug("Saved sound table " + file);
+			} catch (IOException e) {
+				logger.warn("Unable to save sound table " + file + ": " + e.getMessage());
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * @return a hash of the map size and which cells block, which is all
+	 *         the table depends on
+	 */
+	static long layoutHash(GridMapCells cells) {
+		// FNV-1a over the size and the block bits
+		long hash = 0xcbf29ce484222325L;
+		int size = cells.size();
+		hash = (hash ^ size) * 0x100000001b3L;
+		for (int y = 0; y < size; ++y) {
+			for (int x = 0; x < size; ++x) {
+				boolean block = cells.getCell(Xy.pack(x, y)).hasObjectWithProperty(Names.kPropertyBlock);
+				hash = (hash ^ (block ? 1 : 0)) * 0x100000001b3L;
+			}
+		}
+		return hash;
+	}
+
+	private static SoundTable build(GridMapCells cells, int maxDistance, long layoutHash) {
+		long start = System.nanoTime();
+		int size = cells.size();
+		SoundTable table = new SoundTable(size, maxDistance, layoutHash);
+		SoundSearch search = new SoundSearch(cells);
+
+		for (int y = 0; y < size; ++y) {
+			for (int x = 0; x < size; ++x) {
+				int from = y * size + x;
+				if (cells.getCell(Xy.pack(x, y)).hasObjectWithProperty(Names.kPropertyBlock)) {
+					continue;
+				}
+
+				int count = search.explore(Xy.pack(x, y), maxDistance);
+				for (int n = 1; n <= count; ++n) {
+					int to = search.reached(n);
+					int entry = table.entry(from, x, y, to % size, to / size);
+					table.order[entry] = (short) n;
+					table.routes[entry] = (short) (search.distance(to) << 3 | search.firstStep(to).ordinal());
+				}
+			}
+		}
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("Built sound table for " + size + "x" + size + " map in "
+					+ (System.nanoTime() - start) / 1000000 + " ms");
+		}
+		return table;
+	}
+
+	private int entry(int from, int fx, int fy, int tx, int ty) {
+		int width = 2 * maxDistance + 1;
+		int dx = tx - fx;
+		int dy = ty - fy;
+		if (dx < -maxDistance || dx > maxDistance || dy < -maxDistance || dy > maxDistance) {
+			return -1;
+		}
+		int slot = slots[(dy + maxDistance) * width + dx + maxDistance];
+		if (slot < 0) {
+			return -1;
+		}
+		return from * slotCount + slot;
+	}
+
+	private int entry(int from, int to) {
+		int fx = Xy.x(from);
+		int fy = Xy.y(from);
+		int tx = Xy.x(to);
+		int ty = Xy.y(to);
+		if (fx < 0 || fy < 0 || fx >= size || fy >= size) {
+			return -1;
+		}
+		return entry(fy * size + fx, fx, fy, tx, ty);
+	}
+
+	long getLayoutHash() {
+		return layoutHash;
+	}
+
+	int getMaxDistance() {
+		return maxDistance;
+	}
+
+	/**
+	 * @param from
+	 *            packed location
+	 * @param to
+	 *            packed location
+	 * @return the position to is reached in by a search from from, lower is
+	 *         found first, or 0 if it is not reachable within maxDistance
+	 */
+	int order(int from, int to) {
+		int entry = entry(from, to);
+		return entry < 0 ? 0 : order[entry];
+	}
+
+	/**
+	 * @return moves from one packed location to the other avoiding walls, or
+	 *         -1 if that is more than maxDistance
+	 */
+	int distance(int from, int to) {
+		if (from == to) {
+			return 0;
+		}
+		int entry = entry(from, to);
+		return entry < 0 || order[entry] == 0 ? -1 : routes[entry] >> 3;
+	}
+
+	/**
+	 * @return the first move from one packed location toward the other, or
+	 *         Direction.NONE if it is not reachable within maxDistance
+	 */
+	Direction firstStep(int from, int to) {
+		int entry = entry(from, to);
+		return entry < 0 || order[entry] == 0 ? Direction.NONE : Direction.values()[routes[entry] & 7];
+	}
+
+	private void write(File file) throws IOException {
+		File temp = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(size);
+			out.writeInt(maxDistance);
+			out.writeLong(layoutHash);
+			for (int i = 0; i < order.length; ++i) {
+				out.writeShort(order[i]);
+				out.writeShort(routes[i]);
+			}
+		} finally {
+			out.close();
+		}
+		if (!temp.renameTo(file)) {
+			temp.delete();
+			throw new IOException("rename failed");
+		}
+	}
+
+	/**
+	 * @return the table, or null if the file is for a different layout
+	 */
+	private static SoundTable read(File file, int size, int maxDistance, long layoutHash) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != size || in.readInt() != maxDistance
+					|| in.readLong() != layoutHash) {
+				return null;
+			}
+			SoundTable table = new SoundTable(size, maxDistance, layoutHash);
+			for (int i = 0; i < table.order.length; ++i) {
+				table.order[i] = in.readShort();
+				table.routes[i] = in.readShort();
+			}
+			return table;
+		} finally {
+			in.close();
+		}
+	}
+}
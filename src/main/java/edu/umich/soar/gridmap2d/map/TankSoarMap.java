@@ -1,11 +1,9 @@
 package edu.umich.soar.gridmap2d.map;
 
+import java.io.File;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
 import java.util.Set;
 
 import org.apache.commons.logging.Log;
@@ -13,31 +11,46 @@ import org.apache.commons.logging.LogFactory;
 
 import edu.umich.soar.gridmap2d.Direction;
 import edu.umich.soar.gridmap2d.Names;
+import edu.umich.soar.gridmap2d.SimulationContext;
+import edu.umich.soar.gridmap2d.SimulationContext.RandomStream;
+import edu.umich.soar.gridmap2d.Xy;
 import edu.umich.soar.gridmap2d.players.CommandInfo;
+import edu.umich.soar.gridmap2d.players.Player;
 import edu.umich.soar.gridmap2d.players.RadarCell;
 import edu.umich.soar.gridmap2d.players.Tank;
-import edu.umich.soar.gridmap2d.players.TankState;
 import edu.umich.soar.gridmap2d.world.PlayersManager;
 import edu.umich.soar.gridmap2d.world.TankSoarWorld;
 
 public class TankSoarMap extends GridMapBase implements GridMap,
 		CellObjectObserver {
 	private static final Log logger = LogFactory.getLog(TankSoarMap.class);
+	
+	// above this many tanks sound searches instead of using the table
+	static final int SOUND_TABLE_PLAYERS = 64;
 
-	public static TankSoarMap generateInstance(String mapPath,
-			int maxSoundDistance) {
-		return new TankSoarMap(mapPath, maxSoundDistance);
+	public static TankSoarMap generateInstance(SimulationContext context,
+			String mapPath, int maxSoundDistance) {
+		return new TankSoarMap(context, mapPath, maxSoundDistance);
 	}
 
-	SearchData[][] searchData;
+	SoundTable soundTable;
+	SoundSearch soundSearch;
+	private final SoundGoal soundGoal = new SoundGoal();
+	IncomingIndex incoming;
+	RadarFrame radarFrame;
 	boolean energy;
 	int missilePacks;
 	boolean health;
 	int maxSoundDistance;
 	boolean usingMissilePacks;
 
-	private TankSoarMap(String mapPath, int maxSoundDistance) {
-		super(mapPath);
+	private TankSoarMap(SimulationContext context, String mapPath,
+			int maxSoundDistance) {
+		super(context, mapPath);
+		if (maxSoundDistance > SoundTable.MAX_DISTANCE) {
+			logger.warn("Limiting sound distance to " + SoundTable.MAX_DISTANCE);
+			maxSoundDistance = SoundTable.MAX_DISTANCE;
+		}
 		this.maxSoundDistance = maxSoundDistance;
 
 		reset();
@@ -50,6 +63,11 @@ public class TankSoarMap extends GridMapBase implements GridMap,
 		super.reload();
 		usingMissilePacks = getData().cellObjectManager.hasTemplate("missiles");
 
+		// maps without rows are generated
+		if (getData().randomWalls) {
+			generateRandomWalls(getContext().config().tanksoarConfig().wall_probability);
+		}
+
 		// Add ground to cells that don't have a background.
 		int size = getData().cells.size();
 		int[] xy = new int[2];
@@ -65,7 +83,23 @@ public class TankSoarMap extends GridMapBase implements GridMap,
 			}
 		}
 
-		searchData = SearchData.newMap(getData().cells);
+		radarFrame = new RadarFrame(getData().cells);
+		incoming = new IncomingIndex(getData().cells);
+		for (CellObject missile : getData().cells.index().getObjects(Names.Keys.MISSILE)) {
+			incoming.addMissile(missile, missile.getCell().getXy());
+		}
+
+		// walls are fixed from here on, reuse the last table if they match;
+		// maps too big for a table search each time instead
+		soundSearch = maxSoundDistance < 1 ? null : new SoundSearch(getData().cells);
+		if (maxSoundDistance < 1 || !SoundTable.fits(size, maxSoundDistance)) {
+			soundTable = null;
+		} else if (soundTable == null
+				|| soundTable.getLayoutHash() != SoundTable.layoutHash(getData().cells)) {
+			String cache = getContext().config().tanksoarConfig().sound_table_cache;
+			soundTable = SoundTable.shared(getData().cells, maxSoundDistance,
+					cache != null ? new File(cache) : null);
+		}
 	}
 
 	private boolean cellHasBackground(Cell cell) {
@@ -79,6 +113,36 @@ public class TankSoarMap extends GridMapBase implements GridMap,
 		return false;
 	}
 
+	/**
+	 * Walls all the way around the edge and at random inside, for maps with
+	 * random_walls set.
+	 * 
+	 * @throws IllegalStateException
+	 *             If no blocking types are available.
+	 */
+	private void generateRandomWalls(double probability) {
+		if (!getData().cellObjectManager
+				.hasTemplatesWithProperty(Names.kPropertyBlock)) {
+			throw new IllegalStateException(
+					"tried to generate random walls with no blocking types");
+		}
+
+		int size = getData().cells.size();
+		for (int y = 0; y < size; ++y) {
+			for (int x = 0; x < size; ++x) {
+				boolean edge = x == 0 || y == 0 || x == size - 1 || y == size - 1;
+				if (!edge && getContext().random(RandomStream.MAP).nextDouble() >= probability) {
+					continue;
+				}
+				Cell cell = getData().cells.getCell(Xy.pack(x, y));
+				if (!cell.hasObjectWithProperty(Names.kPropertyBlock)) {
+					cell.addObject(getData().cellObjectManager
+							.createRandomObjectWithProperty(Names.kPropertyBlock));
+				}
+			}
+		}
+	}
+
 	public boolean isAvailable(int[] xy) {
 		Cell cell = getData().cells.getCell(xy);
 		boolean enterable = !cell
@@ -103,6 +167,9 @@ public class TankSoarMap extends GridMapBase implements GridMap,
 		if (added.hasProperty("missiles")) {
 			missilePacks += 1;
 		}
+		if (incoming != null && added.hasProperty(Names.Keys.MISSILE)) {
+			incoming.addMissile(added, added.getCell().getXy());
+		}
 	}
 
 	public void removalStateUpdate(CellObject removed) {
@@ -117,6 +184,9 @@ public class TankSoarMap extends GridMapBase implements GridMap,
 		if (removed.hasProperty("missiles")) {
 			missilePacks -= 1;
 		}
+		if (incoming != null && removed.hasProperty(Names.Keys.MISSILE)) {
+			incoming.removeMissile(removed);
+		}
 	}
 
 	public boolean usingMissilePacks() {
@@ -136,31 +206,32 @@ public class TankSoarMap extends GridMapBase implements GridMap,
 	}
 
 	private static class MissileData {
-		MissileData(int[] xy, CellObject missile) {
-			this.xy = Arrays.copyOf(xy, xy.length);
+		MissileData(int xy, CellObject missile) {
+			this.xy = xy;
 			this.missile = missile;
 		}
 
-		int[] xy;
-		CellObject missile;
+		final int xy;
+		final CellObject missile;
 	}
 
 	public void updateObjects(TankSoarWorld tsWorld) {
+		expireEffects();
 		Set<CellObject> copy = new HashSet<CellObject>(getData().updatables);
-		List<int[]> explosions = new ArrayList<int[]>();
+		List<Integer> explosions = new ArrayList<Integer>();
 		List<MissileData> newMissiles = new ArrayList<MissileData>();
 		for (CellObject cellObject : copy) {
 			Cell cell = cellObject.getCell();
-			int[] xy = cell.getLocation();
+			int xy = cell.getXy();
 
-			if (cellObject.hasProperty("update.fly-missile")) {
+			if (cellObject.hasProperty(Names.Keys.FLY_MISSILE)) {
 				// Remove it from the cell
 				cell.removeObject(cellObject);
 
 				// what direction is it going
-				Direction missileDir = Direction.valueOf(cellObject.getProperty(Names.kPropertyDirection));
+				Direction missileDir = cellObject.getProperty(Names.Keys.DIRECTION, Direction.class);
 
-				int phase = cellObject.getProperty("update.fly-missile", 0, Integer.class);
+				int phase = cellObject.getInt(Names.Keys.FLY_MISSILE, 0);
 
 				while (true) {
 					// increment its phase
@@ -173,20 +244,19 @@ public class TankSoarMap extends GridMapBase implements GridMap,
 					// we're in phase 3 when detected in phase 2
 
 					if (phase == 0) {
-						SearchData overlapCell = SearchData.getCell(searchData,
-								xy);
-						overlapCell = overlapCell.getNeighbor(missileDir
-								.backward());
-						overlapCell.getCell().setModified(true);
+						getCell(Direction.translate(xy, missileDir.backward()))
+								.setModified(true);
 					}
 
 					// move it
-					Direction.translate(xy, missileDir);
+					xy = Direction.translate(xy, missileDir);
 
-					logger.trace("Flying missile "
-							+ cellObject.getProperty("owner") + "-"
-							+ cellObject.getProperty("missile-id")
-							+ " entering " + Arrays.toString(xy));
+					if (logger.isTraceEnabled()) {
+						logger.trace("Flying missile "
+								+ cellObject.getProperty("owner") + "-"
+								+ cellObject.getProperty("missile-id")
+								+ " entering " + Xy.toString(xy));
+					}
 
 					// check destination
 					cell = getData().cells.getCell(xy);
@@ -220,16 +290,20 @@ public class TankSoarMap extends GridMapBase implements GridMap,
 					// phase 2 to phase 3
 				}
 
-				// done flying, update phase unless destroyed
-				if (phase >= 0) {
-					cellObject.setProperty("update.fly-missile", phase);
+				if (phase < 0) {
+					// destroyed, nothing refers to it any more
+					getData().cellObjectManager.recycle(cellObject);
+					continue;
 				}
+
+				// done flying, update phase
+				cellObject.setInt(Names.Keys.FLY_MISSILE, phase);
 			}
 
 			lingerUpdate(cellObject, cell);
 		}
 
-		for (int[] location : explosions) {
+		for (int location : explosions) {
 			tsWorld.setExplosion(location);
 		}
 
@@ -248,143 +322,93 @@ public class TankSoarMap extends GridMapBase implements GridMap,
 		return getData().cellObjectManager.getTemplatesWithProperty(name);
 	}
 
+	/**
+	 * The moving tank nearest by a path around walls, ties going to the one
+	 * a breadth first search would find first, is what the tank hears.
+	 * 
+	 * With the table each tank looks up every other tank, which stops paying
+	 * once there are many of them; then a search that stops at the nearest
+	 * one is cheaper, and gives the same answer.
+	 */
 	public Direction getSoundNear(Tank tank, PlayersManager<Tank> players) {
-		if (players.numberOfPlayers() < 2) {
+		if (players.numberOfPlayers() < 2 || soundSearch == null) {
 			return Direction.NONE;
 		}
-
-		// Set all cells unexplored.
-		int[] xy = new int[2];
-		for (xy[0] = 0; xy[0] < getData().cells.size(); ++xy[0]) {
-			for (xy[1] = 0; xy[1] < getData().cells.size(); ++xy[1]) {
-				SearchData.getCell(searchData, xy).setExplored(false);
-			}
-		}
-
-		Queue<SearchData> searchList = new LinkedList<SearchData>();
-		{
-			SearchData start = SearchData.getCell(searchData, players
-					.getLocation(tank));
-			start.setExplored(true);
-			start.setDistance(0);
-			start.setParent(null);
-			searchList.add(start);
+		if (soundTable == null || players.numberOfPlayers() > SOUND_TABLE_PLAYERS) {
+			return searchSoundNear(tank, players);
 		}
 
-		Direction finalDirection = Direction.NONE;
-
-		while (searchList.size() > 0) {
-			SearchData parentCell = searchList.poll();
-
-			if (logger.isTraceEnabled()) {
-				logger.trace("Sound: new parent " + parentCell);
-			}
-
-			// subtract 1 because we add one later (exploring neighbors)
-			if (parentCell.getDistance() >= maxSoundDistance) {
-				if (logger.isTraceEnabled()) {
-					logger.trace("Sound: parent distance "
-							+ parentCell.getDistance() + " is too far");
-				}
+		int from = players.getXy(tank);
+		int nearest = Integer.MAX_VALUE;
+		Direction direction = Direction.NONE;
+		for (int i = 0; i < players.numberOfPlayers(); ++i) {
+			Tank other = players.get(i);
+			if (other == tank) {
 				continue;
 			}
 
-			// Explore cell.
-			for (Direction exploreDir : Direction.values()) {
-				if (exploreDir == Direction.NONE) {
-					continue;
-				}
-
-				SearchData neighbor = parentCell.getNeighbor(exploreDir);
-				if (neighbor == null) {
-					continue;
-				}
-
-				if (neighbor.isExplored()) {
-					continue;
-				}
-
-				if (logger.isTraceEnabled()) {
-					logger.trace("Sound: exploring " + neighbor);
-				}
-				neighbor.setExplored(true);
-
-				if (neighbor.getCell().hasObjectWithProperty(
-						Names.kPropertyBlock)) {
-					logger.trace("Sound: blocked");
-					continue;
-				}
-
-				neighbor.setDistance(parentCell.getDistance() + 1);
-
+			// the table lookup is cheaper than the command lookup
+			int to = players.getXy(other);
+			int order = soundTable.order(from, to);
+			if (order > 0 && order < nearest
+					&& recentlyMovedOrRotated(other, players)) {
+				nearest = order;
+				direction = soundTable.firstStep(from, to);
 				if (logger.isTraceEnabled()) {
-					logger.trace("Sound: distance " + neighbor.getDistance());
-				}
-
-				Tank targetPlayer = (Tank) neighbor.getCell().getFirstPlayer();
-				if ((targetPlayer != null)
-						&& recentlyMovedOrRotated(targetPlayer, players)) {
-					if (logger.isTraceEnabled()) {
-						logger.trace("Sound: found recently moved player "
-								+ targetPlayer.getName());
-					}
-
-					// found a sound! walk home
-					// I'm its parent, so see if I'm the top here
-					while (parentCell.getParent() != null) {
-						// the new cell becomes me
-						neighbor = parentCell;
-
-						// I become my parent
-						parentCell = parentCell.getParent();
-					}
-
-					// Find direction to new sound
-					boolean found = false;
-					for (Direction dir : Direction.values()) {
-						if (dir == Direction.NONE) {
-							continue;
-						}
-						if (neighbor == parentCell.getNeighbor(dir)) {
-							finalDirection = dir;
-							found = true;
-							break;
-						}
-					}
-
-					// shouldn't happen
-					if (found) {
-						if (logger.isTraceEnabled()) {
-							logger.trace("Sound: done, originated from "
-									+ finalDirection.id());
-						}
-					} else {
-						// didn't find direction to new sound
-						logger
-								.trace("Sound: error: didn't find direction to sound!");
-						assert false;
-						finalDirection = Direction.NONE;
-					}
-
-				}
-
-				// end condition: this is not Direction.NONE if we found someone
-				if (finalDirection != Direction.NONE) {
-					break;
+					logger.trace("Sound: " + other + " is "
+							+ soundTable.distance(from, to) + " away");
 				}
+			}
+		}
+		return direction;
+	}
 
-				neighbor.setParent(parentCell);
+	/**
+	 * getSoundNear for maps without a table, the first moving tank a search
+	 * from the tank reaches is the same one the table picks. The search stops
+	 * there, so it only covers the whole sound distance when nothing nearer
+	 * is making noise.
+	 */
+	private Direction searchSoundNear(Tank tank, PlayersManager<Tank> players) {
+		soundGoal.tank = tank;
+		soundGoal.players = players;
+		soundSearch.explore(players.getXy(tank), maxSoundDistance, soundGoal);
+		soundGoal.players = null;
+
+		int index = soundSearch.found();
+		if (index < 0) {
+			return Direction.NONE;
+		}
+		if (logger.isTraceEnabled()) {
+			logger.trace("Sound: " + soundGoal.heard + " is "
+					+ soundSearch.distance(index) + " away");
+		}
+		return soundSearch.firstStep(index);
+	}
 
-				// add the new cell to the search list
-				searchList.add(neighbor);
+	/**
+	 * A cell with another tank in it that moved or rotated.
+	 */
+	private class SoundGoal implements SoundSearch.Goal {
+		Tank tank;
+		PlayersManager<Tank> players;
+		Tank heard;
+
+		public boolean isGoal(int index) {
+			int size = soundSearch.size();
+			Cell cell = getData().cells.getCell(Xy.pack(index % size, index / size));
+			if (!cell.hasPlayers()) {
+				return false;
 			}
-
-			// end condition: this is not Direction.NONE if we found someone
-			if (finalDirection != Direction.NONE) {
-				break;
+			for (Player player : cell.getAllPlayers()) {
+				Tank other = (Tank) player;
+				if (other != tank && recentlyMovedOrRotated(other, players)) {
+					heard = other;
+					return true;
+				}
 			}
+			return false;
 		}
-		return finalDirection;
 	}
 
 	private boolean recentlyMovedOrRotated(Tank tank,
@@ -398,40 +422,12 @@ public class TankSoarMap extends GridMapBase implements GridMap,
 				.createRandomObjectWithProperty(property);
 	}
 
-	public void handleIncoming() {
-		// note: a couple of optimizations possible here
-		// like marking cells that have been checked, depends on direction
-		// though
-		// probably more work than it is worth as this should only be slow when
-		// there are
-		// a ton of missiles flying
-
-		for (CellObject missile : getData().updatables) {
-			if (!missile.hasProperty(Names.kPropertyMissile)) {
-				continue;
-			}
-
-			SearchData threatenedCell = SearchData.getCell(searchData, missile
-					.getCell().getLocation());
-			Direction direction = Direction.valueOf(missile
-					.getProperty(Names.kPropertyDirection));
-			while (true) {
-				threatenedCell = threatenedCell.getNeighbor(direction);
-
-				// stops at wall
-				if (threatenedCell.getCell().hasObjectWithProperty(
-						Names.kPropertyBlock)) {
-					break;
-				}
-
-				Tank tank = (Tank) threatenedCell.getCell().getFirstPlayer();
-				if (tank != null) {
-					TankState state = tank.getState();
-					state.setIncoming(direction.backward());
-					break;
-				}
-			}
-		}
+	/**
+	 * Sets the incoming sensor of every tank a flying missile will reach
+	 * before it hits a wall or another tank.
+	 */
+	public void handleIncoming(PlayersManager<Tank> players) {
+		incoming.resolve(players);
 	}
 
 	public CellObject createRandomObjectWithProperties(String p1, String p2) {
@@ -439,143 +435,94 @@ public class TankSoarMap extends GridMapBase implements GridMap,
 				p2);
 	}
 
-	public int getRadar(RadarCell[][] radar, int[] newLocation,
-			Direction facing, int radarPower) {
-		if (radarPower == 0) {
-			return 0;
-		}
+	/**
+	 * Starts a new radar frame, what radar sees in each cell is looked at
+	 * again. Call before the tanks probe each update.
+	 */
+	public void nextRadarFrame() {
+		radarFrame.next();
+	}
 
+	/**
+	 * Fills radar with what the tank sees from newXy. Entries past where the
+	 * probe stopped are cleared, and the ones filled belong to the current
+	 * radar frame, they must not be changed.
+	 *
+	 * @return how far the probe reached
+	 */
+	public int getRadar(RadarCell[][] radar, int newXy,
+			Direction facing, int radarPower) {
 		assert radar.length == 3;
 
 		int distance = 0;
+		if (radarPower > 0) {
+			distance = radarProbe(radar, newXy, facing, radarPower);
+		}
 
-		distance = radarProbe(radar, newLocation, facing, distance, radarPower);
-
+		for (int i = distance; i < radar[0].length; ++i) {
+			radar[0][i] = null;
+			radar[2][i] = null;
+		}
+		for (int i = distance + 1; i < radar[1].length; ++i) {
+			radar[1][i] = null;
+		}
 		return distance;
 	}
 
-	private int radarProbe(RadarCell[][] radar, int[] myLocation,
-			Direction facing, int distance, int maxDistance) {
+	private int radarProbe(RadarCell[][] radar, int myXy,
+			Direction facing, int maxDistance) {
 		assert maxDistance < radar[1].length;
-		assert distance >= 0;
-		assert distance + 1 < radar[1].length;
-		assert distance < maxDistance;
 		assert facing != Direction.NONE;
 
-		int[] location;
+		int distance = 0;
+		while (true) {
+			radar[0][distance] = radarFrame.get(Direction.translate(myXy, facing.left()));
+			radarTouch(radar[0][distance], distance != 0 ? facing.backward() : facing.right());
 
-		location = Arrays.copyOf(myLocation, myLocation.length);
-		Direction.translate(location, facing.left());
-		radar[0][distance] = getRadarCell(location);
-		if (radar[0][distance].player != null) {
-			Tank tank = radar[0][distance].player;
+			radar[2][distance] = radarFrame.get(Direction.translate(myXy, facing.right()));
+			radarTouch(radar[2][distance], distance != 0 ? facing.backward() : facing.left());
 
-			if (distance != 0) {
-				tank.getState().radarTouch(facing.backward());
-			} else {
-				tank.getState().radarTouch(facing.right());
-			}
-		}
+			distance += 1;
 
-		location = Arrays.copyOf(myLocation, myLocation.length);
-		Direction.translate(location, facing.right());
-		radar[2][distance] = getRadarCell(location);
-		if (radar[2][distance].player != null) {
-			Tank tank = (Tank) radar[2][distance].player;
+			myXy = Direction.translate(myXy, facing);
+			RadarCell ahead = radarFrame.get(myXy);
+			radar[1][distance] = ahead;
+			radarTouch(ahead, facing.backward());
 
-			if (distance != 0) {
-				tank.getState().radarTouch(facing.backward());
-			} else {
-				tank.getState().radarTouch(facing.left());
+			if (ahead.obstacle || ahead.player != null) {
+				return distance;
 			}
-		}
-
-		distance += 1;
-
-		location = Arrays.copyOf(myLocation, myLocation.length);
-		Direction.translate(location, facing);
-		radar[1][distance] = getRadarCell(location);
-		if (radar[1][distance].player != null) {
-			Tank tank = radar[1][distance].player;
-			tank.getState().radarTouch(facing.backward());
-		}
-
-		boolean enterable = radar[1][distance].obstacle == false;
-		boolean noPlayer = radar[1][distance].player == null;
-
-		if (enterable && noPlayer) {
-			CellObject radarWaves = getData().cellObjectManager
-					.createObject("radar-" + facing.id());
-			radarWaves.setProperty(Names.kPropertyDirection, facing);
-			logger.trace("Adding " + radarWaves.getProperty("name") + " to "
-					+ Arrays.toString(location));
-			getCell(location).addObject(radarWaves);
-		}
 
-		if (distance == maxDistance) {
-			return distance;
-		}
+			if (logger.isTraceEnabled()) {
+				logger.trace("Adding radar-" + facing.id() + " to "
+						+ Xy.toString(myXy));
+			}
+			addEffect(myXy, Effect.radar(facing), 1);
 
-		if (enterable && noPlayer) {
-			return radarProbe(radar, location, facing, distance, maxDistance);
+			if (distance == maxDistance) {
+				return distance;
+			}
 		}
-
-		return distance;
 	}
 
-	private RadarCell getRadarCell(int[] xy) {
-		// note: cache these each frame!!
-
-		Cell cell;
-		RadarCell radarCell;
-
-		cell = getData().cells.getCell(xy);
-		radarCell = new RadarCell();
-		radarCell.player = (Tank) cell.getFirstPlayer();
-		if (!cell.hasObjectWithProperty(Names.kPropertyBlock)) {
-			for (CellObject object : cell
-					.getAllObjectsWithProperty(Names.kPropertyMiniImage)) {
-				if (object.hasProperty("energy")) {
-					radarCell.energy = true;
-				} else if (object.hasProperty("health")) {
-					radarCell.health = true;
-				} else if (object.hasProperty("missiles")) {
-					radarCell.missiles = true;
-				}
-			}
-		} else {
-			radarCell.obstacle = true;
+	private static void radarTouch(RadarCell radarCell, Direction fromDirection) {
+		if (radarCell.player != null) {
+			radarCell.player.getState().radarTouch(fromDirection);
 		}
-		return radarCell;
 	}
 
-	public int getBlocked(int[] location) {
-		Cell cell;
+	private static final Direction[] NEIGHBOURS = { Direction.EAST,
+			Direction.WEST, Direction.SOUTH, Direction.NORTH };
+
+	public int getBlocked(int xy) {
 		int blocked = 0;
 
-		cell = getData().cells
-				.getCell(new int[] { location[0] + 1, location[1] });
-		if (cell.hasObjectWithProperty(Names.kPropertyBlock)
-				|| cell.hasPlayers()) {
-			blocked |= Direction.EAST.indicator();
-		}
-		cell = getData().cells
-				.getCell(new int[] { location[0] - 1, location[1] });
-		if (cell.hasObjectWithProperty(Names.kPropertyBlock)
-				|| cell.hasPlayers()) {
-			blocked |= Direction.WEST.indicator();
-		}
-		cell = getData().cells
-				.getCell(new int[] { location[0], location[1] + 1 });
-		if (cell.hasObjectWithProperty(Names.kPropertyBlock)
-				|| cell.hasPlayers()) {
-			blocked |= Direction.SOUTH.indicator();
-		}
-		cell = getData().cells
-				.getCell(new int[] { location[0], location[1] - 1 });
-		if (cell.hasObjectWithProperty(Names.kPropertyBlock)
-				|| cell.hasPlayers()) {
-			blocked |= Direction.NORTH.indicator();
+		for (Direction direction : NEIGHBOURS) {
+			Cell cell = getData().cells.getCell(Direction.translate(xy, direction));
+			if (cell.hasObjectWithProperty(Names.kPropertyBlock)
+					|| cell.hasPlayers()) {
+				blocked |= direction.indicator();
+			}
 		}
 		return blocked;
 	}
@@ -1,22 +1,39 @@
 package edu.umich.soar.gridmap2d.map;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import edu.umich.soar.gridmap2d.Direction;
-import edu.umich.soar.gridmap2d.Simulation;
+import edu.umich.soar.gridmap2d.Names;
+import edu.umich.soar.gridmap2d.SimulationContext;
+import edu.umich.soar.gridmap2d.SimulationContext.RandomStream;
 
 public class TaxiMap extends GridMapBase implements GridMap, CellObjectObserver {
 	private static final Log logger = LogFactory.getLog(TaxiMap.class);
 
-	public static TaxiMap generateInstance(String mapPath) {
-		return new TaxiMap(mapPath);
+	/**
+	 * Looks for a wall on one side of a cell, stopping at the first match.
+	 */
+	private static class WallVisitor implements CellObjectVisitor {
+		Direction side;
+		boolean found;
+
+		public boolean visit(CellObject wall) {
+			if (side == wall.getProperty(Names.Keys.DIRECTION, Direction.class)) {
+				found = true;
+				return false;
+			}
+			return true;
+		}
+	}
+
+	private final WallVisitor wallVisitor = new WallVisitor();
+
+	public static TaxiMap generateInstance(SimulationContext context, String mapPath) {
+		return new TaxiMap(context, mapPath);
 	}
 
 	private CellObject passenger;
@@ -26,16 +43,13 @@ public class TaxiMap extends GridMapBase implements GridMap, CellObjectObserver
 	private String passengerDefaultDestination;
 	private boolean passengerDelivered;
 
-	private List<int[]> destinations = new ArrayList<int[]>();
-
-	private TaxiMap(String mapPath) {
-		super(mapPath);
+	private TaxiMap(SimulationContext context, String mapPath) {
+		super(context, mapPath);
 
 		reset();
 	}
 
 	public void reset() {
-		destinations.clear();
 		passengerDestination = null;
 		passengerSourceColor = null;
 		super.reload();
@@ -48,9 +62,7 @@ public class TaxiMap extends GridMapBase implements GridMap, CellObjectObserver
 		passengerDefaultDestination = passenger
 				.getProperty("passenger-destination");
 
-		int[] dest = destinations.get(Simulation.random.nextInt(destinations
-				.size()));
-		getCell(dest).addObject(passenger);
+		getRandomDestination().addObject(passenger);
 
 		setPassengerDestination();
 	}
@@ -59,14 +71,17 @@ public class TaxiMap extends GridMapBase implements GridMap, CellObjectObserver
 		if (passengerDefaultDestination != null) {
 			passengerDestination = passengerDefaultDestination;
 		} else {
-			int[] dest = destinations.get(Simulation.random
-					.nextInt(destinations.size()));
-			passengerDestination = getDestinationName(dest);
+			passengerDestination = getDestinationName(getRandomDestination().getLocation());
 		}
 
 		logger.info("passenger destination: " + passengerDestination);
 	}
 
+	private Cell getRandomDestination() {
+		List<CellObject> destinations = getObjectsWithProperty("destination");
+		return destinations.get(getContext().random(RandomStream.MAP).nextInt(destinations.size())).getCell();
+	}
+
 	private String getDestinationName(int[] location) {
 		CellObject object = getData().cells.getCell(location)
 				.getFirstObjectWithProperty("destination");
@@ -86,10 +101,6 @@ public class TaxiMap extends GridMapBase implements GridMap, CellObjectObserver
 
 	public void addStateUpdate(CellObject added) {
 		// Update state we keep track of specific to game type
-		if (added.hasProperty("destination")) {
-			destinations.add(added.getCell().getLocation());
-		}
-
 		if (added.hasProperty("passenger")) {
 			passengerLocation = added.getCell().getLocation();
 			if (passengerSourceColor == null) {
@@ -110,17 +121,6 @@ public class TaxiMap extends GridMapBase implements GridMap, CellObjectObserver
 	}
 
 	public void removalStateUpdate(CellObject removed) {
-		if (removed.hasProperty("destination")) {
-			Iterator<int[]> iter = destinations.iterator();
-			while (iter.hasNext()) {
-				int[] dest = iter.next();
-				if (Arrays.equals(dest, removed.getCell().getLocation())) {
-					iter.remove();
-					break;
-				}
-			}
-		}
-
 		if (removed.hasProperty("passenger")) {
 			this.passengerLocation = null;
 		}
@@ -151,18 +151,7 @@ public class TaxiMap extends GridMapBase implements GridMap, CellObjectObserver
 	}
 
 	public boolean exitable(int[] location, Direction direction) {
-		Set<CellObject> walls = getData().cells.getCell(location)
-				.getAllObjectsWithProperty("block");
-		if (walls.isEmpty()) {
-			return true;
-		}
-		for (CellObject wall : walls) {
-			if (direction
-					.equals(Direction.valueOf(wall.getProperty("direction")))) {
-				return false;
-			}
-		}
-		return true;
+		return !wall(location, direction);
 	}
 
 	public boolean isPassengerCarried() {
@@ -208,15 +197,9 @@ public class TaxiMap extends GridMapBase implements GridMap, CellObjectObserver
 	}
 
 	public boolean wall(int[] from, Direction to) {
-		Set<CellObject> walls = getData().cells.getCell(from)
-				.getAllObjectsWithProperty("block");
-		if (!walls.isEmpty()) {
-			for (CellObject wall : walls) {
-				if (Direction.valueOf(wall.getProperty("direction")).equals(to)) {
-					return true;
-				}
-			}
-		}
-		return false;
+		wallVisitor.side = to;
+		wallVisitor.found = false;
+		getData().cells.getCell(from).visitObjectsWithProperty("block", wallVisitor);
+		return wallVisitor.found;
 	}
 }
@@ -12,7 +12,6 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import edu.umich.soar.gridmap2d.Direction;
-import edu.umich.soar.gridmap2d.Gridmap2D;
 import edu.umich.soar.gridmap2d.Names;
 
 
@@ -57,6 +56,31 @@ public class CommandInfo {
 	public CommandInfo() {
 	}
 	
+	/**
+	 * Sets every field back to what a new CommandInfo has, for commanders that
+	 * reuse one each tick.
+	 */
+	public void clear() {
+		stopSim = false;
+		move = false;
+		moveDirection = Direction.NONE;
+		open = false;
+		jump = false;
+		dontEat = false;
+		rotate = false;
+		rotateDirection = null;
+		fire = false;
+		radar = false;
+		radarSwitch = false;
+		radarPower = false;
+		radarPowerSetting = -1;
+		shields = false;
+		shieldsSetting = false;
+		pickup = false;
+		putdown = false;
+		fillup = false;
+	}
+	
 	private static void parseError(Tokenizer t, String msg) {
 		logger.error("Command script parse error: " + msg);
 		logger.error("Near line " + t.lineNumber + ": " + t.line);
@@ -251,59 +275,42 @@ public class CommandInfo {
 	public String toString() {
 		String output = new String();
 		
-		switch(Gridmap2D.config.game()) {
-		case EATERS:
-			if (jump) {
-				output += "(" + Names.kJumpID + ")";
-			} 
-			if (move) {
-				output += "(" + Names.kMoveID + ": " + moveDirection.id() + ")";
-			}
-			
-			if (dontEat) {
-				output += "(" + Names.kDontEatID + ")";
-			}
-			if (open) {
-				output += "(" + Names.kOpenID + ")";
-			}
-			break;
-			
-		case TANKSOAR:
-			if (move) {
-				output += "(" + Names.kMoveID + ": " + moveDirection.id() + ")";
-			}
-			if (rotate) {
-				output += "(" + Names.kRotateID + ": " + rotateDirection + ")";			
-			}
-			if (fire) {
-				output += "(" + Names.kFireID + ")";
-			}
-			if (radar) {
-				output += "(" + Names.kRadarID + ": " + (radarSwitch ? "on" : "off") + ")";
-			}
-			if (radarPower) {
-				output += "(" + Names.kRadarPowerID + ": " + Integer.toString(radarPowerSetting) + ")";
-			}
-			if (shields) {
-				output += "(" + Names.kShieldsID + ": " + (shieldsSetting ? "on" : "off") + ")";
-			}
-			break;
-			
-		case TAXI:
-			if (move) {
-				output += "(" + Names.kMoveID + ": " + moveDirection.id() + ")";
-			}
-			if (pickup) {
-				output += "(" + Names.kPickUpID + ")";
-			}
-			if (putdown) {
-				output += "(" + Names.kPutDownID + ")";
-			}
-			if (fillup) {
-				output += "(" + Names.kFillUpID + ")";
-			}
-			break;
-			
+		// only the fields used by the current game are ever set
+		if (jump) {
+			output += "(" + Names.kJumpID + ")";
+		} 
+		if (move) {
+			output += "(" + Names.kMoveID + ": " + moveDirection.id() + ")";
+		}
+		if (dontEat) {
+			output += "(" + Names.kDontEatID + ")";
+		}
+		if (open) {
+			output += "(" + Names.kOpenID + ")";
+		}
+		if (rotate) {
+			output += "(" + Names.kRotateID + ": " + rotateDirection + ")";			
+		}
+		if (fire) {
+			output += "(" + Names.kFireID + ")";
+		}
+		if (radar) {
+			output += "(" + Names.kRadarID + ": " + (radarSwitch ? "on" : "off") + ")";
+		}
+		if (radarPower) {
+			output += "(" + Names.kRadarPowerID + ": " + Integer.toString(radarPowerSetting) + ")";
+		}
+		if (shields) {
+			output += "(" + Names.kShieldsID + ": " + (shieldsSetting ? "on" : "off") + ")";
+		}
+		if (pickup) {
+			output += "(" + Names.kPickUpID + ")";
+		}
+		if (putdown) {
+			output += "(" + Names.kPutDownID + ")";
+		}
+		if (fillup) {
+			output += "(" + Names.kFillUpID + ")";
 		}
 		
 		if (stopSim) {
@@ -1,14 +1,14 @@
 package edu.umich.soar.gridmap2d.players;
 
 
-import edu.umich.soar.gridmap2d.Gridmap2D;
+import edu.umich.soar.gridmap2d.SimulationContext;
 import edu.umich.soar.gridmap2d.map.EatersMap;
 
 public class Eater extends Player {	
 	private EaterCommander commander;
 
-	public Eater(String playerId) {
-		super(playerId);
+	public Eater(SimulationContext context, String playerId) {
+		super(context, playerId);
 	}
 	
 	public void setCommander(EaterCommander commander) {
@@ -20,7 +20,7 @@ public class Eater extends Player {
 		if (commander != null) {
 			command = commander.nextCommand();
 		} else {
-			command = Gridmap2D.control.getHumanCommand(this);
+			command = getContext().control().getHumanCommand(this);
 		}
 		
 		// the facing depends on the move
@@ -31,8 +31,8 @@ public class Eater extends Player {
 		return command;
 	}
 	
-	public void update(int[] newLocation, EatersMap eatersMap) {
-		super.update(newLocation);
+	public void update(int newXy, EatersMap eatersMap) {
+		super.update(newXy);
 		if (commander != null) {
 			commander.update(eatersMap);
 		}
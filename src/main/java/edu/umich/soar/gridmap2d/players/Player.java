@@ -1,19 +1,19 @@
 package edu.umich.soar.gridmap2d.players;
 
-import java.util.Arrays;
-
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import edu.umich.soar.gridmap2d.Direction;
-import edu.umich.soar.gridmap2d.Gridmap2D;
-import edu.umich.soar.gridmap2d.Simulation;
+import edu.umich.soar.gridmap2d.SimulationContext;
+import edu.umich.soar.gridmap2d.Xy;
+import edu.umich.soar.gridmap2d.SimulationContext.RandomStream;
 import edu.umich.soar.gridmap2d.config.PlayerConfig;
 
 
 public class Player {
 	private static final Log logger = LogFactory.getLog(Player.class);
 	
+	private final SimulationContext context;
 	private String playerID;
 	private PlayerConfig playerConfig;
 	private final String name;	// player name
@@ -22,13 +22,22 @@ public class Player {
 	private int pointsDelta;
 	private Direction facing;	// what direction I'm currently facing
 	private String color;	// valid color string
-	private int[] location;
+	private int xy;
 	protected boolean moved;
 	private boolean fragged;
 
-	public Player(String playerID) {
+	public Player(SimulationContext context, String playerID) {
+		this(context, playerID, context.config().playerConfigs().get(playerID));
+	}
+	
+	/**
+	 * For players whose configuration is not among the simulation's player
+	 * configs.
+	 */
+	public Player(SimulationContext context, String playerID, PlayerConfig playerConfig) {
+		this.context = context;
 		this.playerID = playerID;
-		this.playerConfig = Gridmap2D.config.playerConfigs().get(playerID);
+		this.playerConfig = playerConfig;
 		
 		assert playerConfig.name != null;
 		this.name = playerConfig.name;
@@ -40,18 +49,18 @@ public class Player {
 	}
 	
 	public void reset() {
-		location = new int[] { -1, -1 };
+		xy = Xy.NONE;
 		
 		if (playerConfig.facing != null) {
 			this.setFacing(Direction.parse(playerConfig.facing));
 		} else {
-			this.setFacing(Direction.values()[Simulation.random.nextInt(4) + 1]);
+			this.setFacing(Direction.values()[context.random(RandomStream.FACING).nextInt(4) + 1]);
 		}
 		
 		if (playerConfig.hasPoints()) {
 			this.points = playerConfig.points;
 		} else {
-			this.points = Gridmap2D.config.generalConfig().default_points;
+			this.points = context.config().generalConfig().default_points;
 		}
 
 		pointsChanged = true;
@@ -59,6 +68,10 @@ public class Player {
 		fragged = false;
 	}
 
+	protected SimulationContext getContext() {
+		return context;
+	}
+
 	public String getName() {
 		return this.name;
 	}
@@ -151,15 +164,20 @@ public class Player {
 		return playerID;
 	}
 
-	protected void update(int[] newLocation) {
-		moved = (newLocation[0] != this.location[0]) || (newLocation[1] != this.location[1]);
-		if (moved) {
-			this.location = Arrays.copyOf(newLocation, newLocation.length);
-		}
+	protected void update(int newXy) {
+		moved = newXy != this.xy;
+		this.xy = newXy;
 	}
 	
 	public int[] getLocation() {
-		return Arrays.copyOf(location, location.length);
+		return Xy.toArray(xy);
+	}
+	
+	/**
+	 * @return the location packed with Xy
+	 */
+	public int getXy() {
+		return xy;
 	}
 	
 	public boolean getMoved() {
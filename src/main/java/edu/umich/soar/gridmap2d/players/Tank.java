@@ -2,22 +2,29 @@ package edu.umich.soar.gridmap2d.players;
 
 
 import edu.umich.soar.gridmap2d.Direction;
-import edu.umich.soar.gridmap2d.Gridmap2D;
-import edu.umich.soar.gridmap2d.Simulation;
+import edu.umich.soar.gridmap2d.SimulationContext;
+import edu.umich.soar.gridmap2d.SimulationContext.RandomStream;
+import edu.umich.soar.gridmap2d.config.PlayerConfig;
 import edu.umich.soar.gridmap2d.map.TankSoarMap;
 
 public class Tank extends Player {
 	public static class Builder {
 		// Required parameters
+		final SimulationContext context;
 		final String id;
 		
 		// Optional parameters
-		int missiles = Gridmap2D.config.tanksoarConfig().max_missiles;
-		int energy = Gridmap2D.config.tanksoarConfig().max_energy;
-		int health = Gridmap2D.config.tanksoarConfig().max_health;
+		int missiles;
+		int energy;
+		int health;
+		PlayerConfig config;
 		
-		public Builder(String id) {
+		public Builder(SimulationContext context, String id) {
+			this.context = context;
 			this.id = id;
+			this.missiles = context.config().tanksoarConfig().max_missiles;
+			this.energy = context.config().tanksoarConfig().max_energy;
+			this.health = context.config().tanksoarConfig().max_health;
 		}
 		
 		public Builder missiles(int missiles) {
@@ -35,6 +42,15 @@ public class Tank extends Player {
 			return this;
 		}
 		
+		/**
+		 * Uses this configuration instead of looking the id up in the
+		 * simulation's player configs.
+		 */
+		public Builder config(PlayerConfig config) {
+			this.config = config;
+			return this;
+		}
+		
 		public Tank build() {
 			return new Tank(this);
 		}
@@ -44,9 +60,10 @@ public class Tank extends Player {
 	private TankState state;
 
 	private Tank(Builder builder) {
-		super(builder.id);
+		super(builder.context, builder.id, builder.config != null ? builder.config
+				: builder.context.config().playerConfigs().get(builder.id));
 
-		this.state = new TankState(getName(), builder);
+		this.state = new TankState(builder.context, getName(), builder);
 
 		state.clearRadar(); // creates the radar structure
 		reset();
@@ -61,7 +78,7 @@ public class Tank extends Player {
 		if (commander != null) {
 			command = commander.nextCommand();
 		} else {
-			command = Gridmap2D.control.getHumanCommand(this);
+			command = getContext().control().getHumanCommand(this);
 		}
 		
 		return command;
@@ -84,17 +101,17 @@ public class Tank extends Player {
 		return state;
 	}
 
-	public void update(int [] newLocation, TankSoarMap tankSoarMap) {
-		super.update(newLocation);
+	public void update(int newXy, TankSoarMap tankSoarMap) {
+		super.update(newXy);
 		
 		if (state.getRadarSwitch()) {
-			state.setObservedPower(tankSoarMap.getRadar(state.getRadar(), newLocation, getFacing(), state.getRadarPower()));
+			state.setObservedPower(tankSoarMap.getRadar(state.getRadar(), newXy, getFacing(), state.getRadarPower()));
 		} else {
 			state.clearRadar();
 			state.setObservedPower(0);
 		}
 		
-		state.setBlocked(tankSoarMap.getBlocked(newLocation));
+		state.setBlocked(tankSoarMap.getBlocked(newXy));
 		
 		if (commander != null) {
 			commander.update(tankSoarMap);
@@ -103,7 +120,7 @@ public class Tank extends Player {
 	
 	public void fragged() {
 		state.fragged();
-		setFacing(Direction.values()[Simulation.random.nextInt(4) + 1]);
+		setFacing(Direction.values()[getContext().random(RandomStream.FACING).nextInt(4) + 1]);
 		if (commander != null) {
 			commander.fragged();
 		}
@@ -115,7 +132,7 @@ public class Tank extends Player {
 		}
 	}
 
-	public void commit(int[] location) {
+	public void commit() {
 		if (commander != null) {
 			commander.commit();
 		}
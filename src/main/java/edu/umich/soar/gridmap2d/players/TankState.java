@@ -1,10 +1,12 @@
 package edu.umich.soar.gridmap2d.players;
 
+import java.util.Arrays;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import edu.umich.soar.gridmap2d.Direction;
-import edu.umich.soar.gridmap2d.Gridmap2D;
+import edu.umich.soar.gridmap2d.SimulationContext;
 
 
 public class TankState {
@@ -13,6 +15,7 @@ public class TankState {
 	public static final int RADAR_WIDTH = 3;
 	public static final int RADAR_HEIGHT = 15;
 
+	private final SimulationContext context;
 	private String name;
 	private int missiles;
 	private int energy;
@@ -35,8 +38,9 @@ public class TankState {
 	private int initialEnergy;
 	private int initialHealth;
 	
-	TankState(String name, Tank.Builder builder) {
+	TankState(SimulationContext context, String name, Tank.Builder builder) {
 		
+		this.context = context;
 		this.name = name;
 		
 		this.missiles = builder.missiles;
@@ -89,8 +93,8 @@ public class TankState {
 		if (energy < 0) {
 			energy = 0;
 		}
-		if (energy > Gridmap2D.config.tanksoarConfig().max_energy) {
-			energy = Gridmap2D.config.tanksoarConfig().max_energy;
+		if (energy > context.config().tanksoarConfig().max_energy) {
+			energy = context.config().tanksoarConfig().max_energy;
 		}
 		if (energy == previous) {
 			return;
@@ -171,8 +175,8 @@ public class TankState {
 		if (health < 0) {
 			health = 0;
 		}
-		if (health > Gridmap2D.config.tanksoarConfig().max_health) {
-			health = Gridmap2D.config.tanksoarConfig().max_health;
+		if (health > context.config().tanksoarConfig().max_health) {
+			health = context.config().tanksoarConfig().max_health;
 		}
 		if (health == previous) {
 			return;
@@ -240,7 +244,14 @@ public class TankState {
 		this.radar = radar;
 	}
 	public void clearRadar() {
-		this.radar = new RadarCell[RADAR_WIDTH][RADAR_HEIGHT];
+		// the same arrays are filled again by each probe
+		if (this.radar == null) {
+			this.radar = new RadarCell[RADAR_WIDTH][RADAR_HEIGHT];
+		} else {
+			for (RadarCell[] column : this.radar) {
+				Arrays.fill(column, null);
+			}
+		}
 	}
 	public int getRwaves() {
 		return rwaves;
@@ -301,32 +312,32 @@ public class TankState {
 		if (this.initialMissiles > 0) {
 			this.missiles = this.initialMissiles;
 		} else {
-			this.missiles = Gridmap2D.config.tanksoarConfig().max_missiles;
+			this.missiles = context.config().tanksoarConfig().max_missiles;
 		}
 		if (this.initialEnergy > 0) {
 			this.health = this.initialEnergy;
 		} else {
-			this.health = Gridmap2D.config.tanksoarConfig().max_health;
+			this.health = context.config().tanksoarConfig().max_health;
 		}
 		if (this.initialHealth > 0) {
 			this.energy = this.initialHealth;
 		} else {
-			this.energy = Gridmap2D.config.tanksoarConfig().max_energy;
+			this.energy = context.config().tanksoarConfig().max_energy;
 		}
 		
 		this.shieldsUp = false;
 		this.radarSwitch = false;
 		this.radarPower = 0;
-		this.resurrectFrame = Gridmap2D.simulation.getWorldCount();
+		this.resurrectFrame = context.simulation().getWorldCount();
 		this.clearRadar();
 		this.resetSensors();
 	}
 
 	public void fragged() {
-		this.energy = Gridmap2D.config.tanksoarConfig().max_energy;
-		this.health = Gridmap2D.config.tanksoarConfig().max_health;
-		this.missiles = Gridmap2D.config.tanksoarConfig().max_missiles;
-		this.resurrectFrame = Gridmap2D.simulation.getWorldCount(); 
+		this.energy = context.config().tanksoarConfig().max_energy;
+		this.health = context.config().tanksoarConfig().max_health;
+		this.missiles = context.config().tanksoarConfig().max_missiles;
+		this.resurrectFrame = context.simulation().getWorldCount(); 
 		this.clearRadar();
 		this.resetSensors();
 	}
@@ -3,8 +3,8 @@ package edu.umich.soar.gridmap2d.players;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
-import edu.umich.soar.gridmap2d.Gridmap2D;
-import edu.umich.soar.gridmap2d.Simulation;
+import edu.umich.soar.gridmap2d.SimulationContext;
+import edu.umich.soar.gridmap2d.SimulationContext.RandomStream;
 import edu.umich.soar.gridmap2d.map.TaxiMap;
 
 public class Taxi extends Player {	
@@ -18,8 +18,8 @@ public class Taxi extends Player {
 	private int refuel;
 	private boolean disableFuel;
 
-	public Taxi(String playerId, int fuelStartMin, int fuelStartMax, int refuel, boolean disableFuel) {
-		super(playerId);
+	public Taxi(SimulationContext context, String playerId, int fuelStartMin, int fuelStartMax, int refuel, boolean disableFuel) {
+		super(context, playerId);
 		
 		this.fuelStartMin = fuelStartMin;
 		this.fuelStartMax = fuelStartMax;
@@ -38,14 +38,14 @@ public class Taxi extends Player {
 		if (commander != null) {
 			command = commander.nextCommand();
 		} else {
-			command = Gridmap2D.control.getHumanCommand(this);
+			command = getContext().control().getHumanCommand(this);
 		}
 		
 		return command;
 	}
 	
-	public void update(int[] newLocation, TaxiMap taxiMap) {
-		super.update(newLocation);
+	public void update(int newXy, TaxiMap taxiMap) {
+		super.update(newXy);
 		if (commander != null) {
 			commander.update(taxiMap);
 		}
@@ -55,7 +55,7 @@ public class Taxi extends Player {
 	public void reset() {
 		super.reset();
 
-		fuel = Simulation.random.nextInt(1 + fuelStartMax - fuelStartMin);
+		fuel = getContext().random(RandomStream.PLAYERS).nextInt(1 + fuelStartMax - fuelStartMin);
 		fuel += fuelStartMin;
 		
 		if (commander != null) {
@@ -0,0 +1,75 @@
+package edu.umich.soar.gridmap2d.players.scripted;
+
+import java.util.Random;
+
+import edu.umich.soar.gridmap2d.Direction;
+import edu.umich.soar.gridmap2d.Names;
+import edu.umich.soar.gridmap2d.map.TankSoarMap;
+import edu.umich.soar.gridmap2d.players.CommandInfo;
+import edu.umich.soar.gridmap2d.players.Player;
+import edu.umich.soar.gridmap2d.players.Tank;
+import edu.umich.soar.gridmap2d.players.TankCommander;
+import edu.umich.soar.gridmap2d.players.TankState;
+
+/**
+ * A tank that needs no agent: it drives forward until something is in the
+ * way or it feels like turning, keeps its radar on, and fires now and then.
+ * Used to fill arenas with tanks.
+ */
+public class WanderingTank implements TankCommander {
+	private static final int RADAR_POWER = 5;
+
+	private final Tank tank;
+	private final Random random;
+	/** handed out by nextCommand, cleared each time */
+	private final CommandInfo command = new CommandInfo();
+
+	public WanderingTank(Tank tank, Random random) {
+		this.tank = tank;
+		this.random = random;
+	}
+
+	public CommandInfo nextCommand() {
+		command.clear();
+		TankState state = tank.getState();
+		Direction facing = tank.getFacing();
+
+		if ((state.getBlocked() & facing.indicator()) != 0 || random.nextInt(8) == 0) {
+			command.rotate = true;
+			command.rotateDirection = random.nextBoolean() ? Names.kRotateLeft : Names.kRotateRight;
+		} else {
+			command.move = true;
+			command.moveDirection = facing;
+		}
+
+		if (state.getMissiles() > 0 && random.nextInt(4) == 0) {
+			command.fire = true;
+		}
+
+		if (!state.getRadarSwitch()) {
+			command.radar = true;
+			command.radarSwitch = true;
+			command.radarPower = true;
+			command.radarPowerSetting = RADAR_POWER;
+		}
+		return command;
+	}
+
+	public void reset() {
+	}
+
+	public void shutdown() {
+	}
+
+	public void update(TankSoarMap tankSoarMap) {
+	}
+
+	public void playersChanged(Player[] players) {
+	}
+
+	public void commit() {
+	}
+
+	public void fragged() {
+	}
+}
@@ -0,0 +1,125 @@
+package edu.umich.soar.gridmap2d.soar;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import edu.umich.soar.gridmap2d.Names;
+
+import sml.Agent;
+import sml.Identifier;
+
+/**
+ * Reads an agent's output link commands once per tick for a commander: the
+ * number of commands, then each command's identifier and attribute, with the
+ * attribute looked up (ignoring case) as a Command. Parameters are read only
+ * when the commander asks for them.
+ * 
+ * The arrays are kept between ticks and grow as needed.
+ */
+class CommandDecoder {
+	enum Command {
+		MOVE(Names.kMoveID),
+		JUMP(Names.kJumpID),
+		STOP_SIM(Names.kStopSimID),
+		OPEN(Names.kOpenID),
+		DONT_EAT(Names.kDontEatID),
+		FIRE(Names.kFireID),
+		RADAR(Names.kRadarID),
+		RADAR_POWER(Names.kRadarPowerID),
+		SHIELDS(Names.kShieldsID),
+		ROTATE(Names.kRotateID),
+		PICK_UP(Names.kPickUpID),
+		PUT_DOWN(Names.kPutDownID),
+		FILL_UP(Names.kFillUpID),
+		/** not a command of any game */
+		UNKNOWN(null);
+		
+		private final String id;
+		
+		Command(String id) {
+			this.id = id;
+		}
+	}
+	
+	private static final Map<String, Command> commands = new TreeMap<String, Command>(String.CASE_INSENSITIVE_ORDER);
+	static {
+		for (Command command : Command.values()) {
+			if (command.id != null) {
+				commands.put(command.id, command);
+			}
+		}
+	}
+	
+	private final Agent agent;
+	private int count;
+	private Identifier[] ids = new Identifier[4];
+	private String[] names = new String[4];
+	private Command[] decoded = new Command[4];
+	
+	CommandDecoder(Agent agent) {
+		this.agent = agent;
+	}
+	
+	/**
+	 * Reads the commands on the output link now, dropping the last tick's.
+	 * 
+	 * @return the number of commands
+	 */
+	int decode() {
+		count = agent.GetNumberCommands();
+		if (count > ids.length) {
+			int length = Math.max(count, ids.length * 2);
+			ids = new Identifier[length];
+			names = new String[length];
+			decoded = new Command[length];
+		}
+		for (int i = 0; i < count; ++i) {
+			ids[i] = agent.GetCommand(i);
+			names[i] = ids[i].GetAttribute();
+			Command command = commands.get(names[i]);
+			decoded[i] = command == null ? Command.UNKNOWN : command;
+		}
+		for (int i = count; i < ids.length && ids[i] != null; ++i) {
+			// let go of old identifiers
+			ids[i] = null;
+			names[i] = null;
+		}
+		return count;
+	}
+	
+	/**
+	 * @return the number of commands read by the last decode
+	 */
+	int count() {
+		return count;
+	}
+	
+	Command command(int i) {
+		return decoded[i];
+	}
+	
+	/**
+	 * @return the command's attribute as the agent wrote it
+	 */
+	String name(int i) {
+		return names[i];
+	}
+	
+	Identifier id(int i) {
+		return ids[i];
+	}
+	
+	/**
+	 * @return the value of the command's parameter, null if it has none
+	 */
+	String parameter(int i, String attribute) {
+		return ids[i].GetParameterValue(attribute);
+	}
+	
+	/**
+	 * @return true if the command already has a status from an earlier tick
+	 */
+	boolean hasStatus(int i) {
+		return ids[i].GetParameterValue("status") != null;
+	}
+}
@@ -0,0 +1,442 @@
+package edu.umich.soar.gridmap2d.soar;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import sml.Agent;
+import sml.FloatElement;
+import sml.Identifier;
+import sml.IntElement;
+import sml.StringElement;
+import sml.WMElement;
+
+/**
+ * The part of an agent's input link a commander writes, kept on the Java side
+ * along with the value last sent for each WME, so a commit only goes to SML
+ * for what changed.
+ *
+ * A commander declares its sensors once as slots under the input link, in
+ * order, parents before children. Each tick it sets the value of every slot
+ * and calls flush, which creates the WMEs that are new, updates the ones whose
+ * value changed, and destroys the ones cleared. Comparing against the value
+ * kept here rather than asking the WME avoids a trip through SML for every
+ * sensor that stayed the same.
+ *
+ * Slots can be added and removed at any time. Subtrees too irregular for slots
+ * can be built by hand under a slot's identifier; they go away with it.
+ *
+ * The changes go to a Sink, an agent's through AgentSink. The mirror keeps
+ * the identifiers and WMEs the sink hands back without looking at them.
+ */
+class InputLinkMirror {
+
+	/**
+	 * Makes the changes a flush decides on. Identifiers and WMEs are whatever
+	 * the sink returns, handed back to it as they are.
+	 */
+	interface Sink {
+		Object root();
+		Object createId(Object parent, String attribute);
+		Object createInt(Object parent, String attribute, int value);
+		Object createFloat(Object parent, String attribute, float value);
+		Object createString(Object parent, String attribute, String value);
+		void update(Object wme, int value);
+		void update(Object wme, float value);
+		void update(Object wme, String value);
+		void destroy(Object wme);
+	}
+
+	/**
+	 * Sends the changes to an agent's input link.
+	 */
+	static class AgentSink implements Sink {
+		private final Agent agent;
+
+		AgentSink(Agent agent) {
+			this.agent = agent;
+		}
+
+		public Object root() {
+			return agent.GetInputLink();
+		}
+
+		public Object createId(Object parent, String attribute) {
+			return agent.CreateIdWME((Identifier)parent, attribute);
+		}
+
+		public Object createInt(Object parent, String attribute, int value) {
+			return agent.CreateIntWME((Identifier)parent, attribute, value);
+		}
+
+		public Object createFloat(Object parent, String attribute, float value) {
+			return agent.CreateFloatWME((Identifier)parent, attribute, value);
+		}
+
+		public Object createString(Object parent, String attribute, String value) {
+			return agent.CreateStringWME((Identifier)parent, attribute, value);
+		}
+
+		public void update(Object wme, int value) {
+			agent.Update((IntElement)wme, value);
+		}
+
+		public void update(Object wme, float value) {
+			agent.Update((FloatElement)wme, value);
+		}
+
+		public void update(Object wme, String value) {
+			agent.Update((StringElement)wme, value);
+		}
+
+		public void destroy(Object wme) {
+			agent.DestroyWME((WMElement)wme);
+		}
+	}
+
+	/**
+	 * One WME under the input link.
+	 */
+	abstract class Slot {
+		final Node parent;
+		final String attribute;
+		boolean present;
+		boolean dirty;
+		boolean blink;
+
+		private Slot(Node parent, String attribute, boolean present) {
+			this.parent = parent;
+			this.attribute = attribute;
+			this.present = present;
+		}
+
+		/**
+		 * Destroys and recreates the WME at the next flush even if its value
+		 * has not changed, so productions testing it match again.
+		 */
+		void blink() {
+			blink = true;
+		}
+
+		/**
+		 * Removes the WME at the next flush, until the slot is set again.
+		 */
+		void clear() {
+			present = false;
+		}
+
+		boolean isPresent() {
+			return present;
+		}
+
+		abstract Object element();
+		abstract void create(Object parentId);
+		abstract void update();
+		abstract void forget();
+	}
+
+	/**
+	 * An identifier, present until cleared.
+	 */
+	final class Node extends Slot {
+		private Object id;
+
+		private Node(Node parent, String attribute) {
+			super(parent, attribute, true);
+		}
+
+		/**
+		 * Shows the identifier again after clear.
+		 */
+		void show() {
+			present = true;
+		}
+
+		/**
+		 * @return the identifier, null if it is not on the input link yet
+		 */
+		Identifier identifier() {
+			return (Identifier)id;
+		}
+
+		Object element() {
+			return id;
+		}
+
+		void create(Object parentId) {
+			id = sink.createId(parentId, attribute);
+		}
+
+		void update() {
+		}
+
+		void forget() {
+			id = null;
+		}
+	}
+
+	final class IntSlot extends Slot {
+		private Object wme;
+		private int value;
+
+		private IntSlot(Node parent, String attribute) {
+			super(parent, attribute, false);
+		}
+
+		void set(int value) {
+			if (!present || this.value != value) {
+				this.value = value;
+				present = true;
+				dirty = true;
+			}
+		}
+
+		int get() {
+			return value;
+		}
+
+		Object element() {
+			return wme;
+		}
+
+		void create(Object parentId) {
+			wme = sink.createInt(parentId, attribute, value);
+		}
+
+		void update() {
+			sink.update(wme, value);
+		}
+
+		void forget() {
+			wme = null;
+		}
+	}
+
+	final class FloatSlot extends Slot {
+		private Object wme;
+		private float value;
+
+		private FloatSlot(Node parent, String attribute) {
+			super(parent, attribute, false);
+		}
+
+		void set(float value) {
+			if (!present || this.value != value) {
+				this.value = value;
+				present = true;
+				dirty = true;
+			}
+		}
+
+		float get() {
+			return value;
+		}
+
+		Object element() {
+			return wme;
+		}
+
+		void create(Object parentId) {
+			wme = sink.createFloat(parentId, attribute, value);
+		}
+
+		void update() {
+			sink.update(wme, value);
+		}
+
+		void forget() {
+			wme = null;
+		}
+	}
+
+	final class StringSlot extends Slot {
+		private Object wme;
+		private String value;
+
+		private StringSlot(Node parent, String attribute) {
+			super(parent, attribute, false);
+		}
+
+		/**
+		 * Values are compared with equals, passing the same constants each
+		 * tick (Names.kYes and so on) makes that a reference check.
+		 */
+		void set(String value) {
+			assert value != null;
+			if (!present || !this.value.equals(value)) {
+				this.value = value;
+				present = true;
+				dirty = true;
+			}
+		}
+
+		String get() {
+			return value;
+		}
+
+		Object element() {
+			return wme;
+		}
+
+		void create(Object parentId) {
+			wme = sink.createString(parentId, attribute, value);
+		}
+
+		void update() {
+			sink.update(wme, value);
+		}
+
+		void forget() {
+			wme = null;
+		}
+	}
+
+	private final Sink sink;
+	private final Node root;
+	// parents before children
+	private final List<Slot> slots = new ArrayList<Slot>();
+	private int sent;
+
+	InputLinkMirror(Agent agent) {
+		this(new AgentSink(agent));
+	}
+
+	InputLinkMirror(Sink sink) {
+		this.sink = sink;
+		this.root = new Node(null, null);
+		this.root.id = sink.root();
+	}
+
+	/**
+	 * @return the input link itself
+	 */
+	Node root() {
+		return root;
+	}
+
+	Node id(Node parent, String attribute) {
+		return add(new Node(parent, attribute));
+	}
+
+	IntSlot intSlot(Node parent, String attribute) {
+		return add(new IntSlot(parent, attribute));
+	}
+
+	FloatSlot floatSlot(Node parent, String attribute) {
+		return add(new FloatSlot(parent, attribute));
+	}
+
+	StringSlot stringSlot(Node parent, String attribute) {
+		return add(new StringSlot(parent, attribute));
+	}
+
+	private <T extends Slot> T add(T slot) {
+		assert slot.parent != null;
+		assert slot.attribute != null;
+		slots.add(slot);
+		return slot;
+	}
+
+	/**
+	 * Destroys the slot's WME now, if there is one, and forgets the slot. A
+	 * node's children are forgotten with it.
+	 */
+	void remove(Slot slot) {
+		if (slot.element() != null && slot.parent.element() != null) {
+			sink.destroy(slot.element());
+		}
+		slot.forget();
+		int index = slots.indexOf(slot);
+		if (index < 0) {
+			return;
+		}
+		slots.remove(index);
+		if (slot instanceof Node) {
+			// children come after their parent
+			for (int i = index; i < slots.size(); ) {
+				if (under(slots.get(i), slot)) {
+					slots.get(i).forget();
+					slots.remove(i);
+				} else {
+					++i;
+				}
+			}
+		}
+	}
+
+	private static boolean under(Slot slot, Slot node) {
+		for (Node parent = slot.parent; parent != null; parent = parent.parent) {
+			if (parent == node) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Sends the changes since the last flush to SML. The caller still
+	 * commits.
+	 */
+	void flush() {
+		sent = 0;
+		for (int i = 0; i < slots.size(); ++i) {
+			Slot slot = slots.get(i);
+			Object parentId = slot.parent.element();
+			if (parentId == null) {
+				// the parent is not there, or went away earlier in this flush
+				// and took the WME with it
+				slot.forget();
+				continue;
+			}
+			Object element = slot.element();
+
+			if (!slot.present) {
+				if (element != null) {
+					sink.destroy(element);
+					slot.forget();
+					sent += 1;
+				}
+			} else if (element == null) {
+				slot.create(parentId);
+				sent += 1;
+			} else if (slot.blink) {
+				sink.destroy(element);
+				slot.create(parentId);
+				sent += 2;
+				if (slot instanceof Node) {
+					// the children went with the old identifier
+					for (int j = i + 1; j < slots.size(); ++j) {
+						if (under(slots.get(j), slot)) {
+							slots.get(j).forget();
+						}
+					}
+				}
+			} else if (slot.dirty) {
+				slot.update();
+				sent += 1;
+			}
+			slot.dirty = false;
+			slot.blink = false;
+		}
+	}
+
+	/**
+	 * Takes every slot off the input link, keeping the slots and their values
+	 * so the next flush puts them back.
+	 */
+	void destroy() {
+		for (Slot slot : slots) {
+			Object element = slot.element();
+			if (element != null && slot.parent.element() != null) {
+				sink.destroy(element);
+			}
+			slot.forget();
+		}
+	}
+
+	/**
+	 * @return how many WMEs the last flush created, updated or destroyed
+	 */
+	int sent() {
+		return sent;
+	}
+}
@@ -0,0 +1,193 @@
+package edu.umich.soar.gridmap2d.soar;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import edu.umich.soar.gridmap2d.Names;
+
+/**
+ * Runs several kernels at once, each on its own thread, and meets them in
+ * their update events so the world sees one tick per step as with one
+ * kernel.
+ * <p>
+ * Each kernel's update event calls awaitTick, which waits until every running
+ * kernel has got to its update event or finished its run. The last one to get
+ * there updates the world while the others wait. A kernel whose run ends no
+ * longer counts, so the others do not wait on it.
+ */
+class ShardBarrier {
+	private static final Log logger = LogFactory.getLog(ShardBarrier.class);
+
+	/**
+	 * A kernel as the barrier sees it.
+	 */
+	interface Runner {
+		/**
+		 * Runs the kernel's agents, forever or one step, and returns when they
+		 * stop. The kernel's update events call awaitTick on this thread.
+		 */
+		void run(boolean forever);
+	}
+
+	/**
+	 * What the barrier tells the world, the controller's events.
+	 */
+	interface World {
+		void startEvent();
+		void tickEvent();
+		boolean isStopped();
+		void stopEvent();
+	}
+
+	private final World world;
+
+	// guards the fields below
+	private final Object lock = new Object();
+	private int running;
+	private int arrived;
+	private long generation;
+	private boolean stopRequested;
+
+	ShardBarrier(World world) {
+		this.world = world;
+	}
+
+	/**
+	 * Runs every runner on its own thread, the first of them on this one, and
+	 * returns when all of them have stopped. The world hears start before any
+	 * of them runs and stop after the last has finished.
+	 */
+	void run(List<? extends Runner> runners, final boolean forever) {
+		synchronized (lock) {
+			running = runners.size();
+			arrived = 0;
+			stopRequested = false;
+		}
+		if (runners.isEmpty()) {
+			return;
+		}
+
+		world.startEvent();
+
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 1; i < runners.size(); ++i) {
+			final Runner runner = runners.get(i);
+			Thread thread = new Thread("soar kernel " + i) {
+				@Override
+				public void run() {
+					ShardBarrier.this.run(runner, forever);
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		run(runners.get(0), forever);
+
+		// the world must not hear stop while a kernel is still running
+		boolean interrupted = false;
+		for (Thread thread : threads) {
+			while (true) {
+				try {
+					thread.join();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+					requestStop();
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		world.stopEvent();
+	}
+
+	private void run(Runner runner, boolean forever) {
+		try {
+			runner.run(forever);
+		} finally {
+			synchronized (lock) {
+				// the others no longer wait for this one
+				running -= 1;
+				if (arrived > 0 && arrived == running) {
+					tick();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Called from a kernel's update event, on the thread running it.
+	 *
+	 * @return true if the run is over: the caller stops its kernel, each
+	 *         kernel is stopped from its own thread
+	 */
+	boolean awaitTick() {
+		synchronized (lock) {
+			if (!stopRequested) {
+				long waitingFor = generation;
+				arrived += 1;
+				if (arrived == running) {
+					tick();
+				} else {
+					while (waitingFor == generation && !stopRequested) {
+						try {
+							lock.wait();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							requestStop();
+						}
+					}
+					if (waitingFor == generation) {
+						// left without a tick
+						arrived -= 1;
+					}
+				}
+			}
+			return stopRequested;
+		}
+	}
+
+	/**
+	 * Ends the run: every kernel stops itself at its next update event, those
+	 * waiting in one right away.
+	 */
+	void requestStop() {
+		synchronized (lock) {
+			stopRequested = true;
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * With lock held and every running kernel waiting or finished.
+	 * <p>
+	 * The world update reads output from and commits input to agents of every
+	 * kernel on this thread, whichever it is. That is safe because the kernels
+	 * are created with CreateKernelInCurrentThread, so SML calls run directly
+	 * on the calling thread with no thread of the kernel's own to hand them
+	 * to, and no kernel is running meanwhile: the others are parked in their
+	 * update events, between output and the next input phase, as the one
+	 * kernel is when it updates the world itself. Taking lock orders their
+	 * earlier writes before ours and ours before they go on.
+	 */
+	private void tick() {
+		arrived = 0;
+		generation += 1;
+		if (!stopRequested) {
+			// this updates the world
+			world.tickEvent();
+
+			if (world.isStopped()) {
+				// the world has asked us to kindly stop running
+				logger.debug(Names.Debug.stopRequested);
+				stopRequested = true;
+			}
+		}
+		lock.notifyAll();
+	}
+}
@@ -5,9 +5,13 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -15,8 +19,8 @@ import org.apache.commons.logging.LogFactory;
 import edu.umich.soar.SoarProperties;
 import edu.umich.soar.gridmap2d.CognitiveArchitecture;
 import edu.umich.soar.gridmap2d.Game;
-import edu.umich.soar.gridmap2d.Gridmap2D;
 import edu.umich.soar.gridmap2d.Names;
+import edu.umich.soar.gridmap2d.SimulationContext;
 import edu.umich.soar.gridmap2d.config.ClientConfig;
 import edu.umich.soar.gridmap2d.config.SoarConfig;
 import edu.umich.soar.gridmap2d.players.Eater;
@@ -39,18 +43,50 @@ import sml.smlRunFlags;
 public class Soar implements CognitiveArchitecture, Kernel.UpdateEventInterface, Kernel.SystemEventInterface {
 
 	private static final Log logger = LogFactory.getLog(Soar.class);
+	
+	// the production total at the start of the stats command's output
+	private static final Pattern PRODUCTION_COUNT = Pattern.compile("(\\d+) productions");
 
+	private final SimulationContext context;
 	private boolean runTilOutput = false;
+	/** the first kernel, the one clients and debuggers connect to */
 	private Kernel kernel = null;
 	
+	/**
+	 * A kernel and the agents placed in it. With more than one, each runs on
+	 * its own thread and they meet in their update events, see ShardBarrier.
+	 */
+	private class Shard implements ShardBarrier.Runner {
+		Shard(Kernel kernel) {
+			this.kernel = kernel;
+		}
+		
+		final Kernel kernel;
+		int agents;
+		long weight;
+		
+		public void run(boolean forever) {
+			Soar.this.run(kernel, forever);
+		}
+	}
+	
+	private final List<Shard> shards = new ArrayList<Shard>();
+	/** used only with more than one shard */
+	private final ShardBarrier barrier;
+	
 	private class AgentData {
-		AgentData(Agent agent, File productions) {
+		AgentData(Agent agent, File productions, Shard shard, long weight) {
 			this.agent = agent;
 			this.productions = productions;
+			this.shard = shard;
+			this.weight = weight;
 		}
 		
 		Agent agent;
 		File productions;
+		Shard shard;
+		/** what this agent added to shard.weight */
+		long weight;
 	}
 	
 	private Map<String, AgentData> agents = new HashMap<String, AgentData>();
@@ -58,8 +94,10 @@ public class Soar implements CognitiveArchitecture, Kernel.UpdateEventInterface,
 	private int maxMemoryUsage;
 	private boolean soarPrint;
 	private boolean debug;
+	private boolean kernelWeights;
 	
 	/**
+	 * @param context
 	 * @param config
 	 * @param clients
 	 * @param game
@@ -67,13 +105,38 @@ public class Soar implements CognitiveArchitecture, Kernel.UpdateEventInterface,
 	 * 
 	 * @throws IllegalStateException If there is an unrecoverable error initializing Soar
 	 */
-	public Soar(SoarConfig config, Map<String, ClientConfig> clients, Game game) {
+	public Soar(SimulationContext context, SoarConfig config, Map<String, ClientConfig> clients, Game game) {
+		this.context = context;
 		this.runTilOutput = config.runTilOutput(game);
 		
 		this.clients = clients;
 		this.maxMemoryUsage = config.max_memory_usage;
 		this.soarPrint = config.soar_print;
 		this.debug = config.spawn_debuggers;
+		this.kernelWeights = config.kernel_weights;
+		this.barrier = new ShardBarrier(new ShardBarrier.World() {
+			public void startEvent() {
+				context.control().startEvent();
+			}
+			
+			public void tickEvent() {
+				context.control().tickEvent();
+			}
+			
+			public boolean isStopped() {
+				return context.control().isStopped();
+			}
+			
+			public void stopEvent() {
+				context.control().stopEvent();
+			}
+		});
+		
+		int kernels = config.kernels;
+		if (kernels > 1 && (config.remote != null || this.debug || !config.optimized)) {
+			logger.warn("soar.kernels needs soar.optimized, no remote and no debuggers, using one kernel");
+			kernels = 1;
+		}
 		
 		if (config.remote != null) {
 			kernel = Kernel.CreateRemoteConnection(true, config.remote, config.port);
@@ -89,27 +152,45 @@ public class Soar implements CognitiveArchitecture, Kernel.UpdateEventInterface,
 			}
 		}
 
-		if (kernel.HadError()) {
-			throw new IllegalStateException(Names.Errors.kernelCreation + kernel.GetLastErrorDescription());
+		addShard(kernel);
+		for (int i = 1; i < kernels; ++i) {
+			addShard(Kernel.CreateKernelInCurrentThread(true, 0));
 		}
 		
-		// We want the most performance
-		logger.debug(Names.Debug.autoCommit);
-		kernel.SetAutoCommit(false);
-
 		// Register for events
 		logger.trace(Names.Trace.eventRegistration);
-		kernel.RegisterForSystemEvent(smlSystemEventId.smlEVENT_SYSTEM_START, this, null);
-		kernel.RegisterForSystemEvent(smlSystemEventId.smlEVENT_SYSTEM_STOP, this, null);
-		
-		if (runTilOutput) {
-			logger.debug(Names.Debug.runTilOutput);
-			kernel.RegisterForUpdateEvent(smlUpdateEventId.smlEVENT_AFTER_ALL_GENERATED_OUTPUT, this, null);
+		if (shards.size() == 1) {
+			kernel.RegisterForSystemEvent(smlSystemEventId.smlEVENT_SYSTEM_START, this, null);
+			kernel.RegisterForSystemEvent(smlSystemEventId.smlEVENT_SYSTEM_STOP, this, null);
 		} else {
-			logger.debug(Names.Debug.noRunTilOutput);
-			kernel.RegisterForUpdateEvent(smlUpdateEventId.smlEVENT_AFTER_ALL_OUTPUT_PHASES, this, null);
+			// runShards sends start and stop, no one kernel sees the whole run
+			logger.info("Spreading agents over " + shards.size() + " kernels");
+		}
+		
+		for (Shard shard : shards) {
+			if (runTilOutput) {
+				logger.debug(Names.Debug.runTilOutput);
+				shard.kernel.RegisterForUpdateEvent(smlUpdateEventId.smlEVENT_AFTER_ALL_GENERATED_OUTPUT, this, null);
+			} else {
+				logger.debug(Names.Debug.noRunTilOutput);
+				shard.kernel.RegisterForUpdateEvent(smlUpdateEventId.smlEVENT_AFTER_ALL_OUTPUT_PHASES, this, null);
+			}
+		}
+	}
+	
+	/**
+	 * @throws IllegalStateException If the kernel had an error being created
+	 */
+	private void addShard(Kernel created) {
+		if (created.HadError()) {
+			throw new IllegalStateException(Names.Errors.kernelCreation + created.GetLastErrorDescription());
 		}
 		
+		// We want the most performance
+		logger.debug(Names.Debug.autoCommit);
+		created.SetAutoCommit(false);
+		
+		shards.add(new Shard(created));
 	}
 	
 	public boolean debug() {
@@ -117,7 +198,10 @@ public class Soar implements CognitiveArchitecture, Kernel.UpdateEventInterface,
 	}
 	
 	public void seed(int seed) {
-		kernel.ExecuteCommandLine("srand " + seed, null) ;
+		// each kernel gets its own stream, the first the same as with one kernel
+		for (int i = 0; i < shards.size(); ++i) {
+			shards.get(i).kernel.ExecuteCommandLine("srand " + (seed + i), null) ;
+		}
 	}
 	
 	public void doBeforeClients() {
@@ -148,7 +232,7 @@ public class Soar implements CognitiveArchitecture, Kernel.UpdateEventInterface,
 				spawnClient(entry.getKey(), entry.getValue());
 			} else {
 				if (!waitForClient(entry.getKey(), entry.getValue())) {
-					Gridmap2D.control.errorPopUp(Names.Errors.clientSpawn + entry.getKey());
+					context.control().errorPopUp(Names.Errors.clientSpawn + entry.getKey());
 					return;
 				}
 			}
@@ -194,13 +278,13 @@ public class Soar implements CognitiveArchitecture, Kernel.UpdateEventInterface,
 			rd.start();
 			
 			if (!waitForClient(clientID, clientConfig)) {
-				Gridmap2D.control.errorPopUp(Names.Errors.clientSpawn + clientID);
+				context.control().errorPopUp(Names.Errors.clientSpawn + clientID);
 				return;
 			}
 			
 		} catch (IOException e) {
 			e.printStackTrace();
-			Gridmap2D.control.errorPopUp("IOException spawning client: " + clientID);
+			context.control().errorPopUp("IOException spawning client: " + clientID);
 			return;
 		}
 	}
@@ -239,21 +323,50 @@ public class Soar implements CognitiveArchitecture, Kernel.UpdateEventInterface,
 	}
 	
 	public void runForever() {
-		if (runTilOutput) {
-			kernel.RunAllAgentsForever(smlRunStepSize.sml_UNTIL_OUTPUT);
-		} else {
-			kernel.RunAllAgentsForever();
+		if (shards.size() > 1) {
+			runShards(true);
+			return;
 		}
-		
+		run(kernel, true);
 	}
 
 	public void runStep() {
-		if (runTilOutput) {
-			kernel.RunAllTilOutput(smlRunStepSize.sml_UNTIL_OUTPUT);
+		if (shards.size() > 1) {
+			runShards(false);
+			return;
+		}
+		run(kernel, false);
+	}
+	
+	private void run(Kernel runKernel, boolean forever) {
+		if (forever) {
+			if (runTilOutput) {
+				runKernel.RunAllAgentsForever(smlRunStepSize.sml_UNTIL_OUTPUT);
+			} else {
+				runKernel.RunAllAgentsForever();
+			}
 		} else {
-			kernel.RunAllAgents(1);
+			if (runTilOutput) {
+				runKernel.RunAllTilOutput(smlRunStepSize.sml_UNTIL_OUTPUT);
+			} else {
+				runKernel.RunAllAgents(1);
+			}
 		}
 	}
+	
+	/**
+	 * Runs every kernel that has agents on its own thread, the first of them
+	 * on this one, and returns when all of them have stopped.
+	 */
+	private void runShards(boolean forever) {
+		List<Shard> active = new ArrayList<Shard>();
+		for (Shard shard : shards) {
+			if (shard.agents > 0) {
+				active.add(shard);
+			}
+		}
+		barrier.run(active, forever);
+	}
 
 	public void destroyPlayer(String name) {
 		// get the agent (human agents return null here)
@@ -262,17 +375,20 @@ public class Soar implements CognitiveArchitecture, Kernel.UpdateEventInterface,
 			return;
 		}
 		// there was an agent, destroy it
-		kernel.DestroyAgent(agentData.agent);
+		Shard shard = agentData.shard;
+		shard.kernel.DestroyAgent(agentData.agent);
 		agentData.agent.delete();
+		shard.agents -= 1;
+		shard.weight -= agentData.weight;
 	}
 	
 	public void shutdown() {
-		if (kernel != null) {
+		for (Shard shard : shards) {
 			logger.trace(Names.Trace.kernelShutdown);
-			kernel.Shutdown();
-			kernel.delete();
+			shard.kernel.Shutdown();
+			shard.kernel.delete();
 		}
-
+		shards.clear();
 	}
 
 	/**
@@ -311,17 +427,56 @@ public class Soar implements CognitiveArchitecture, Kernel.UpdateEventInterface,
 		
 	} // Logger
 	
+	/**
+	 * @return the kernel with the fewest agents, or with kernel_weights the
+	 *         fewest productions loaded, the first on a tie
+	 */
+	private Shard placeAgent() {
+		Shard best = shards.get(0);
+		for (Shard shard : shards) {
+			if (load(shard) < load(best)) {
+				best = shard;
+			}
+		}
+		return best;
+	}
+	
+	private long load(Shard shard) {
+		return kernelWeights ? shard.weight : shard.agents;
+	}
+	
+	/**
+	 * @return how many productions the agent has loaded, read from stats, at
+	 *         least 1 so every agent counts for something
+	 */
+	private static long productionCount(Agent agent) {
+		String stats = agent.ExecuteCommandLine("stats");
+		if (stats != null) {
+			Matcher matcher = PRODUCTION_COUNT.matcher(stats);
+			if (matcher.find()) {
+				try {
+					return Math.max(1, Long.parseLong(matcher.group(1)));
+				} catch (NumberFormatException e) {
+					// too big to be real, fall through
+				}
+			}
+		}
+		logger.warn("No production count for " + agent.GetAgentName() + ", weighing it as 1");
+		return 1;
+	}
+	
 	private Agent createSoarAgent(String name, String productions, boolean debug) {
-		Agent agent = kernel.CreateAgent(name);
+		Shard shard = placeAgent();
+		Agent agent = shard.kernel.CreateAgent(name);
 		if (agent == null) {
-			Gridmap2D.control.errorPopUp("Error creating agent " + name + ", " + kernel.GetLastErrorDescription());
+			context.control().errorPopUp("Error creating agent " + name + ", " + shard.kernel.GetLastErrorDescription());
 			return null;
 		}
 		
 		// now load the productions
 		File productionsFile = new File(productions);
 		if (!agent.LoadProductions(productionsFile.getAbsolutePath())) {
-			Gridmap2D.control.errorPopUp("Error loading productions " + productionsFile + " for " + name + ", " + agent.GetLastErrorDescription());
+			context.control().errorPopUp("Error loading productions " + productionsFile + " for " + name + ", " + agent.GetLastErrorDescription());
 			return null;
 		}
 		
@@ -337,7 +492,10 @@ public class Soar implements CognitiveArchitecture, Kernel.UpdateEventInterface,
 		}
 		
 		// save the agent
-		agents.put(name, new AgentData(agent, productionsFile));
+		long weight = kernelWeights ? productionCount(agent) : 1;
+		agents.put(name, new AgentData(agent, productionsFile, shard, weight));
+		shard.agents += 1;
+		shard.weight += weight;
 		
 		// spawn the debugger if we're supposed to
 		if (debug && !isClientConnected(Names.kDebuggerClient)) {
@@ -375,6 +533,12 @@ public class Soar implements CognitiveArchitecture, Kernel.UpdateEventInterface,
 		}
 		
 		agentData.agent.LoadProductions(agentData.productions.getAbsolutePath());
+		if (kernelWeights) {
+			// the file may have changed since the agent was created
+			agentData.shard.weight -= agentData.weight;
+			agentData.weight = productionCount(agentData.agent);
+			agentData.shard.weight += agentData.weight;
+		}
 	}
 
 	public boolean haveAgents() {
@@ -387,7 +551,7 @@ public class Soar implements CognitiveArchitecture, Kernel.UpdateEventInterface,
 		if (agent == null) {
 			return null;
 		}
-		return new SoarEater(eater, agent, vision, shutdownCommands);
+		return new SoarEater(context, eater, agent, vision, shutdownCommands);
 	}
 
 	public TankCommander createTankCommander(Tank tank, String productions,
@@ -396,7 +560,7 @@ public class Soar implements CognitiveArchitecture, Kernel.UpdateEventInterface,
 		if (agent == null) {
 			return null;
 		}
-		return new SoarTank(tank, agent, shutdownCommands);
+		return new SoarTank(context, tank, agent, shutdownCommands);
 	}
 
 	public TaxiCommander createTaxiCommander(Taxi taxi, String productions,
@@ -405,7 +569,7 @@ public class Soar implements CognitiveArchitecture, Kernel.UpdateEventInterface,
 		if (agent == null) {
 			return null;
 		}
-		return new SoarTaxi(taxi, agent, shutdownCommands);
+		return new SoarTaxi(context, taxi, agent, shutdownCommands);
 	}
 	   
   	public void updateEventHandler(int eventID, Object data, Kernel kernel, int runFlags) {
@@ -417,11 +581,19 @@ public class Soar implements CognitiveArchitecture, Kernel.UpdateEventInterface,
   			return;
   		}
   		
+  		if (shards.size() > 1) {
+  			// each kernel is stopped from its own thread
+  			if (barrier.awaitTick()) {
+  				kernel.StopAllAgents();
+  			}
+  			return;
+  		}
+  		
   		// this updates the world
-  		Gridmap2D.control.tickEvent();
+  		context.control().tickEvent();
   		
 		// Test this after the world has been updated, in case it's asking us to stop
-		if (Gridmap2D.control.isStopped()) {
+		if (context.control().isStopped()) {
 			// the world has asked us to kindly stop running
   			logger.debug(Names.Debug.stopRequested);
   			
@@ -433,10 +605,10 @@ public class Soar implements CognitiveArchitecture, Kernel.UpdateEventInterface,
    public void systemEventHandler(int eventID, Object data, Kernel kernel) {
   		if (eventID == smlSystemEventId.smlEVENT_SYSTEM_START.swigValue()) {
   			// soar says go
-  			Gridmap2D.control.startEvent();
+  			context.control().startEvent();
   		} else if (eventID == smlSystemEventId.smlEVENT_SYSTEM_STOP.swigValue()) {
   			// soar says stop
-  			Gridmap2D.control.stopEvent();
+  			context.control().stopEvent();
   		} else {
   			// soar says something we weren't expecting
   			logger.warn(Names.Warn.unknownEvent + eventID);
@@ -4,12 +4,14 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import edu.umich.soar.gridmap2d.Direction;
-import edu.umich.soar.gridmap2d.Gridmap2D;
 import edu.umich.soar.gridmap2d.Names;
+import edu.umich.soar.gridmap2d.SimulationContext;
+import edu.umich.soar.gridmap2d.SimulationContext.RandomStream;
 import edu.umich.soar.gridmap2d.map.EatersMap;
 import edu.umich.soar.gridmap2d.players.CommandInfo;
 import edu.umich.soar.gridmap2d.players.Eater;
 import edu.umich.soar.gridmap2d.players.EaterCommander;
+import edu.umich.soar.gridmap2d.soar.CommandDecoder.Command;
 
 import sml.Agent;
 import sml.Identifier;
@@ -17,25 +19,31 @@ import sml.Identifier;
 public final class SoarEater implements EaterCommander {
 	private static final Log logger = LogFactory.getLog(SoarEater.class);
 
+	private final SimulationContext context;
 	private Eater player;
 	
 	private SoarEaterIL input;
 	private Agent agent;
 	private String[] shutdownCommands;
 	boolean fragged = false;
+	private final CommandDecoder decoder;
+	/** handed out by nextCommand, cleared each time */
+	private final CommandInfo move = new CommandInfo();
 	
-	public SoarEater(Eater player, Agent agent, int vision, String[] shutdownCommands) {
+	public SoarEater(SimulationContext context, Eater player, Agent agent, int vision, String[] shutdownCommands) {
+		this.context = context;
 		this.player = player;
 		this.agent = agent;
 		agent.SetBlinkIfNoChange(false);
+		this.decoder = new CommandDecoder(agent);
 		
 		this.shutdownCommands = shutdownCommands;
 		
-		input = new SoarEaterIL(agent, vision);
+		input = new SoarEaterIL(agent, vision, context.random(RandomStream.INPUT));
 		input.create(player.getName(), player.getPoints());
 		
 		if (!agent.Commit()) {
-			Gridmap2D.control.errorPopUp(Names.Errors.commitFail + player.getName());
+			context.control().errorPopUp(Names.Errors.commitFail + player.getName());
 		}
 	}
 	
@@ -44,30 +52,31 @@ public final class SoarEater implements EaterCommander {
 		
 		// commit everything
 		if (!agent.Commit()) {
-			Gridmap2D.control.errorPopUp(Names.Errors.commitFail + player.getName());
-			Gridmap2D.control.stopSimulation();
+			context.control().errorPopUp(Names.Errors.commitFail + player.getName());
+			context.control().stopSimulation();
 		}
 	}
 	
 	public CommandInfo nextCommand() {
+		move.clear();
+		
 		// if there was no command issued, that is kind of strange
-		if (agent.GetNumberCommands() == 0) {
+		if (decoder.decode() == 0) {
 			logger.debug(player.getName() + " issued no command.");
-			return new CommandInfo();
+			return move;
 		}
 
 		// go through the commands
 		// see move info for details
-		CommandInfo move = new CommandInfo();
 		boolean moveWait = false;
-		for (int i = 0; i < agent.GetNumberCommands(); ++i) {
-			Identifier commandId = agent.GetCommand(i);
-			String commandName = commandId.GetAttribute();
-			if (commandId.GetParameterValue("status") != null) {
+		for (int i = 0; i < decoder.count(); ++i) {
+			Identifier commandId = decoder.id(i);
+			Command command = decoder.command(i);
+			if (decoder.hasStatus(i)) {
 				//System.out.println("Status already processed.");
 				continue;
 			}
-			if (commandName.equalsIgnoreCase(Names.kMoveID)) {
+			if (command == Command.MOVE) {
 				if (move.move || moveWait) {
 					logger.debug(player.getName() + ": multiple move/jump commands detected (move)");
 					continue;
@@ -75,7 +84,7 @@ public final class SoarEater implements EaterCommander {
 				move.move = true;
 				move.jump = false;
 				
-				String direction = commandId.GetParameterValue(Names.kDirectionID);
+				String direction = decoder.parameter(i, Names.kDirectionID);
 				if (direction != null) {
 					if (direction.equals(Names.kNone)) {
 						// legal wait
@@ -90,21 +99,21 @@ public final class SoarEater implements EaterCommander {
 					}
 				}
 				
-			} else if (commandName.equalsIgnoreCase(Names.kJumpID)) {
+			} else if (command == Command.JUMP) {
 				if (move.move) {
 					logger.debug(player.getName() + ": multiple move/jump commands detected, ignoring (jump)");
 					continue;
 				}
 				move.move = true;
 				move.jump = true;
-				String direction = commandId.GetParameterValue(Names.kDirectionID);
+				String direction = decoder.parameter(i, Names.kDirectionID);
 				if (direction != null) {
 					move.moveDirection = Direction.parse(direction); 
 					commandId.AddStatusComplete();
 					continue;
 				}
 
-			} else if (commandName.equalsIgnoreCase(Names.kStopSimID)) {
+			} else if (command == Command.STOP_SIM) {
 				if (move.stopSim) {
 					logger.debug(player.getName() + ": multiple stop commands detected, ignoring");
 					continue;
@@ -113,7 +122,7 @@ public final class SoarEater implements EaterCommander {
 				commandId.AddStatusComplete();
 				continue;
 				
-			} else if (commandName.equalsIgnoreCase(Names.kOpenID)) {
+			} else if (command == Command.OPEN) {
 				if (move.open) {
 					logger.debug(player.getName() + ": multiple open commands detected, ignoring");
 					continue;
@@ -122,7 +131,7 @@ public final class SoarEater implements EaterCommander {
 				commandId.AddStatusComplete();
 				continue;
 				
-			} else if (commandName.equalsIgnoreCase(Names.kDontEatID)) {
+			} else if (command == Command.DONT_EAT) {
 				if (move.dontEat) {
 					logger.debug(player.getName() + ": multiple dont eat commands detected, ignoring");
 					continue;
@@ -132,18 +141,18 @@ public final class SoarEater implements EaterCommander {
 				continue;
 				
 			} else {
-				logger.warn("Unknown command: " + commandName);
+				logger.warn("Unknown command: " + decoder.name(i));
 				continue;
 			}
 			
-			logger.warn("Improperly formatted command: " + commandName);
+			logger.warn("Improperly formatted command: " + decoder.name(i));
 		}
 
 		agent.ClearOutputLinkChanges();
 
 		if (!agent.Commit()) {
-			Gridmap2D.control.errorPopUp(Names.Errors.commitFail + player.getName());
-			Gridmap2D.control.stopSimulation();
+			context.control().errorPopUp(Names.Errors.commitFail + player.getName());
+			context.control().stopSimulation();
 		}
 
 		return move;
@@ -157,7 +166,7 @@ public final class SoarEater implements EaterCommander {
 		input.destroy();
 
 		if (!agent.Commit()) {
-			Gridmap2D.control.errorPopUp(Names.Errors.commitFail + player.getName());
+			context.control().errorPopUp(Names.Errors.commitFail + player.getName());
 		}
 
 		agent.InitSoar();
@@ -165,7 +174,7 @@ public final class SoarEater implements EaterCommander {
 		input.create(player.getName(), player.getPoints());
 
 		if (!agent.Commit()) {
-			Gridmap2D.control.errorPopUp(Names.Errors.commitFail + player.getName());
+			context.control().errorPopUp(Names.Errors.commitFail + player.getName());
 		}
 	}
 
@@ -177,7 +186,7 @@ public final class SoarEater implements EaterCommander {
 				String result = player.getName() + ": result: " + agent.ExecuteCommandLine(command, true);
 				logger.info(player.getName() + ": shutdown command: " + command);
 				if (agent.HadError()) {
-					Gridmap2D.control.errorPopUp(result);
+					context.control().errorPopUp(result);
 				} else {
 					logger.info(player.getName() + ": result: " + result);
 				}
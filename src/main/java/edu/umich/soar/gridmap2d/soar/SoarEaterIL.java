@@ -1,60 +1,40 @@
 package edu.umich.soar.gridmap2d.soar;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.Random;
 import java.util.Map.Entry;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import edu.umich.soar.gridmap2d.Names;
-import edu.umich.soar.gridmap2d.Simulation;
+import edu.umich.soar.gridmap2d.Xy;
+import edu.umich.soar.gridmap2d.map.CellChanges;
 import edu.umich.soar.gridmap2d.map.CellObject;
 import edu.umich.soar.gridmap2d.map.EatersMap;
 import edu.umich.soar.gridmap2d.players.Player;
 
 import sml.Agent;
-import sml.FloatElement;
 import sml.Identifier;
-import sml.IntElement;
-import sml.StringElement;
-import sml.WMElement;
 
 class SoarEaterIL {
 	
-	private static StringElement myCreateStringWME(Agent agent, Identifier id, String attr, String val) {
-		for (int i=0; i<id.GetNumberChildren(); i++) {
-			WMElement w=id.GetChild(i);
-			if (w.ConvertToStringElement()!=null) {
-				if (w.GetAttribute().compareTo(attr)==0) {
-					if (w.ConvertToStringElement().GetValue().compareTo(val)==0) {
-						return null;
-					}
-				}
-			}
-		}
-		
-		return agent.CreateStringWME(id, attr, val);
-	}
-	
 	private static final Log logger = LogFactory.getLog(SoarEaterIL.class);
 	
 	private class RandomIL {
-		private FloatElement randomWME;
+		private final InputLinkMirror.FloatSlot randomWME = il.floatSlot(il.root(), Names.kRandomID);
 
 		private void create() {
-			randomWME = agent.CreateFloatWME(agent.GetInputLink(), Names.kRandomID, Simulation.random.nextFloat());
+			randomWME.set(randomSource.nextFloat());
 		}
 		
 		private void update() {
+			randomWME.set(randomSource.nextFloat());
 			// force a blink:
-			this.destroy();
-			this.create();
-		}
-		
-		private void destroy() {
-			agent.DestroyWME(randomWME);
+			randomWME.blink();
 		}
 	}
 	
@@ -63,21 +43,27 @@ class SoarEaterIL {
 			/** current cell id */
 			Identifier me;
 			
+			/** the string wmes under me */
+			final StringWmeIndex contents = new StringWmeIndex(sink);
+			
 			/** another eater in the cell */
-			StringElement eater;
-			StringElement eaterName;
+			Object eater;
+			Object eaterName;
 			
 			/** property: edible */
-			Map<String, StringElement> comestibles = new HashMap<String, StringElement>();
+			Map<String, Object> comestibles = new HashMap<String, Object>();
 			
 			/** static content of the cell */
-			Map<String, StringElement> staticContent = new HashMap<String, StringElement>();
+			Map<String, Object> staticContent = new HashMap<String, Object>();
 			
 			/** box in current cell, null if none */
 			Identifier box;
 			
 			/** properties on the box if there is one */
-			Map<String, StringElement> boxProperties = new HashMap<String, StringElement>();
+			Map<String, Object> boxProperties = new HashMap<String, Object>();
+			
+			/** the string wmes under box */
+			final StringWmeIndex boxContents = new StringWmeIndex(sink);
 
 			/** id (likely shared) to the cell/wme to the north */
 			Identifier north;
@@ -96,19 +82,19 @@ class SoarEaterIL {
 			
 			void clearContents() {
 				if (eater != null) {
-					agent.DestroyWME(eater);
-					agent.DestroyWME(eaterName);
+					contents.destroy(eater);
+					contents.destroy(eaterName);
 					eater = null;
 					eaterName = null;
 				}
 				
-				for (StringElement element : comestibles.values()) {
-					agent.DestroyWME(element);
+				for (Object element : comestibles.values()) {
+					contents.destroy(element);
 				}
 				comestibles.clear();
 				
-				for (StringElement element : staticContent.values()) {
-					agent.DestroyWME(element);
+				for (Object element : staticContent.values()) {
+					contents.destroy(element);
 				}
 				staticContent.clear();
 				
@@ -116,8 +102,8 @@ class SoarEaterIL {
 					agent.DestroyWME(box);
 					box = null;
 					
-					for (StringElement element : boxProperties.values()) {
-						agent.DestroyWME(element);
+					for (Object element : boxProperties.values()) {
+						boxContents.destroy(element);
 					}
 					boxProperties.clear();
 				}
@@ -126,6 +112,11 @@ class SoarEaterIL {
 		
 		/** the vision grid */
 		private Cell[][] cells;
+		/** reused by the map queries, cleared before each use */
+		private final List<CellObject> scratch = new ArrayList<CellObject>();
+		/** the map's change log and where in it the view is up to date, -1 for nowhere */
+		private CellChanges changes;
+		private long cursor = -1;
 		int size;
 		int center;
 		
@@ -136,6 +127,7 @@ class SoarEaterIL {
 		}
 		
 		private void create() {
+			cursor = -1;
 			cells = new Cell[size][size];
 			for (int i = 0; i < cells.length; ++i) {
 				for (int j = 0; j < cells.length; ++j) {
@@ -194,10 +186,9 @@ class SoarEaterIL {
 			createView(x, y + 1);
 		}
 		
-		private void createContent(Map<String, StringElement> map, Cell cell, String name) {
+		private void createContent(Map<String, Object> map, Cell cell, String name) {
 			// create the wme
-			//StringElement element = agent.CreateStringWME(cell.me, Names.kContentID, name);
-			StringElement element = myCreateStringWME(agent, cell.me, Names.kContentID, name);
+			Object element = cell.contents.createIfAbsent(cell.me, Names.kContentID, name);
 			assert element != null;
 			
 			// store the element
@@ -208,7 +199,7 @@ class SoarEaterIL {
 				{
 					logger.trace("createContent replaced something with same key: " + name);
 				}
-				agent.DestroyWME(element);
+				cell.contents.destroy(element);
 			}
 		}
 		
@@ -216,22 +207,22 @@ class SoarEaterIL {
 			Player playerContent = map.getCell(view).getFirstPlayer();
 			if (playerContent != null) {
 				if (cell.eater == null) {
-					cell.eater = cell.me.CreateStringWME(Names.kContentID, Names.kEaterID);
-					cell.eaterName = cell.me.CreateStringWME(Names.kContentNameID, playerContent.getName());
+					cell.eater = cell.contents.create(cell.me, Names.kContentID, Names.kEaterID);
+					cell.eaterName = cell.contents.create(cell.me, Names.kContentNameID, playerContent.getName());
 
-				} else if (!cell.eaterName.GetValue().equals(playerContent.getName())) {
+				} else if (!cell.contents.value(cell.eaterName).equals(playerContent.getName())) {
 					// blink eater
-					cell.eater.DestroyWME();
-					cell.eater = cell.me.CreateStringWME(Names.kContentID, Names.kEaterID);
+					cell.contents.destroy(cell.eater);
+					cell.eater = cell.contents.create(cell.me, Names.kContentID, Names.kEaterID);
 					
 					// update name
-					cell.eaterName.Update(playerContent.getName());
+					cell.contents.update(cell.eaterName, playerContent.getName());
 				}
 			} else {
 				// Remove any if there
 				if (cell.eater != null) {
-					agent.DestroyWME(cell.eater);
-					agent.DestroyWME(cell.eaterName);
+					cell.contents.destroy(cell.eater);
+					cell.contents.destroy(cell.eaterName);
 					cell.eater = null;
 					cell.eaterName = null;
 				}
@@ -240,9 +231,11 @@ class SoarEaterIL {
 		
 		private void updateFoodContent(int[] view, EatersMap map, Cell cell) {
 			// Food
-			Map<String, StringElement> remaining = new HashMap<String, StringElement>(cell.comestibles);
+			Map<String, Object> remaining = new HashMap<String, Object>(cell.comestibles);
 			// For each food type in the cell on the map
-			for (CellObject comestible : map.getCell(view).getAllObjectsWithProperty(Names.kPropertyEdible)) {
+			scratch.clear();
+			map.getCell(view).getObjectsWithProperty(Names.kPropertyEdible, scratch);
+			for (CellObject comestible : scratch) {
 				
 				String id = comestible.getProperty(Names.kPropertyID);
 				
@@ -258,18 +251,18 @@ class SoarEaterIL {
 			}
 			
 			// Remove all remaining
-			for (Entry<String, StringElement> entry : remaining.entrySet()) {
+			for (Entry<String, Object> entry : remaining.entrySet()) {
 				// Remove it from the main list
 				cell.comestibles.remove(entry.getKey());
 				
 				// Destroy the WME
-				agent.DestroyWME(entry.getValue());
+				cell.contents.destroy(entry.getValue());
 			}
 
 		}
 		
 		private void updateBoxProperties(CellObject box, Cell cell) {
-			Map<String, StringElement> remaining = new HashMap<String, StringElement>(cell.boxProperties);
+			Map<String, Object> remaining = new HashMap<String, Object>(cell.boxProperties);
 			// For each box property
 			for (String property : box.getProperties()) {
 				// don't list special ones
@@ -282,20 +275,19 @@ class SoarEaterIL {
 					// Keep it and remove it from the remaining
 					remaining.remove(property);
 				} else {
-					//StringElement element = agent.CreateStringWME(cell.box, property, box.getProperty(property));
-					StringElement element = myCreateStringWME(agent, cell.box, property, box.getProperty(property));
+					Object element = cell.boxContents.createIfAbsent(cell.box, property, box.getProperty(property));
 					assert element != null;
 					cell.boxProperties.put(property, element);
 				}
 			}
 			
 			// Remove all remaining
-			for (Entry<String, StringElement> entry : remaining.entrySet()) {
+			for (Entry<String, Object> entry : remaining.entrySet()) {
 				// Remove it from the main list
 				cell.boxProperties.remove(entry.getKey());
 				
 				// Destroy the WME
-				agent.DestroyWME(entry.getValue());
+				cell.boxContents.destroy(entry.getValue());
 			}
 		}
 		
@@ -317,8 +309,7 @@ class SoarEaterIL {
 							continue;
 						}
 
-						//StringElement element = agent.CreateStringWME(cell.box, property, box.getProperty(property));
-						StringElement element = myCreateStringWME(agent, cell.box, property, box.getProperty(property));
+						Object element = cell.boxContents.createIfAbsent(cell.box, property, box.getProperty(property));
 						assert element!=null;
 						cell.boxProperties.put(property, element);
 					}
@@ -331,8 +322,8 @@ class SoarEaterIL {
 					agent.DestroyWME(cell.box);
 					cell.box = null;
 					
-					for (StringElement property : cell.boxProperties.values()) {
-						agent.DestroyWME(property);
+					for (Object property : cell.boxProperties.values()) {
+						cell.boxContents.destroy(property);
 					}
 					cell.boxProperties.clear();
 				}
@@ -348,9 +339,9 @@ class SoarEaterIL {
 					createContent(cell.staticContent, cell, Names.kEmpty);
 				}
 			} else {
-				StringElement element = cell.staticContent.remove(Names.kEmpty);
+				Object element = cell.staticContent.remove(Names.kEmpty);
 				if (element != null) {
-					agent.DestroyWME(element);
+					cell.contents.destroy(element);
 				}
 			}
 		}
@@ -363,63 +354,90 @@ class SoarEaterIL {
 			}
 		}
 		
+		/**
+		 * Looks at every cell in view when the eater moved, or when the map
+		 * can't say what changed since the last update. Otherwise only the
+		 * cells in view the map logged as changed are looked at.
+		 */
 		private void update(boolean moved, int[] pos, EatersMap map) {
-			if (moved) {
-				clearView();
-			}
-
+			CellChanges latest = map.getCellChanges();
+			long from = cursor;
+			cursor = latest.cursor();
+			
 			int[] view = new int[2];
-			for (int i = 0; i < cells.length; ++i) {
-				view[0] = pos[0] - center + i;
-				for (int j = 0; j < cells.length; ++j, ++view[1]) {
-					view[1] = pos[1] - center + j;
-					
-					Cell cell = cells[i][j];
-					
-					if (moved) {
-						
-						// if out of bounds, create wall
-						if (!map.isInBounds(view)) {
-							createContent(cell.staticContent, cell, Names.kWallID);
-							
-							// nothing else to do
-							continue;
-						}
-						
-						// get all things that block
-						Set<CellObject> blockers = map.getCell(view).getAllObjectsWithProperty(Names.kPropertyBlock);
-
-						// Blocking cells are simple, put anything with IDs on the input link
-						if (!blockers.isEmpty()) {
-							for (CellObject object : blockers) {
-								// use the id property as its id on the input link
-								createContent(cell.staticContent, cell, object.getProperty(Names.kPropertyID));
-							}
-							continue;
-						}
-					} else {
-						
-						// Filter out locations that will not change:
-						if (!map.isInBounds(view) || map.getCell(view).hasObjectWithProperty(Names.kPropertyBlock)) {
-							continue;
-						}
+			if (moved || latest != changes || !latest.covers(from)) {
+				changes = latest;
+				if (moved) {
+					clearView();
+				}
+				
+				for (int i = 0; i < cells.length; ++i) {
+					view[0] = pos[0] - center + i;
+					for (int j = 0; j < cells.length; ++j) {
+						view[1] = pos[1] - center + j;
+						updateCell(moved, view, map, cells[i][j]);
 					}
+				}
+				return;
+			}
+			
+			for (long position = from; position < cursor; ++position) {
+				int xy = latest.xyAt(position);
+				int i = Xy.x(xy) - pos[0] + center;
+				int j = Xy.y(xy) - pos[1] + center;
+				if (i < 0 || j < 0 || i >= cells.length || j >= cells.length) {
+					continue;
+				}
+				view[0] = Xy.x(xy);
+				view[1] = Xy.y(xy);
+				updateCell(false, view, map, cells[i][j]);
+			}
+		}
+		
+		private void updateCell(boolean moved, int[] view, EatersMap map, Cell cell) {
+			if (moved) {
+				
+				// if out of bounds, create wall
+				if (!map.isInBounds(view)) {
+					createContent(cell.staticContent, cell, Names.kWallID);
 					
-					// Create/update content algorithm is not perfect. Items that have the same name will
-					// be detected as the same item and not blink even if they should.
-					
-					updatePlayerContent(view, map, cell);
-					updateFoodContent(view, map, cell);
-					
-					// TODO: there can only be one (as of right now)
-					CellObject box = map.getCell(view).getFirstObjectWithProperty(Names.kPropertyBox);
-					if (box != null) {
-						updateBox(box, cell);
+					// nothing else to do
+					return;
+				}
+				
+				// get all things that block
+				scratch.clear();
+				map.getCell(view).getObjectsWithProperty(Names.kPropertyBlock, scratch);
+
+				// Blocking cells are simple, put anything with IDs on the input link
+				if (!scratch.isEmpty()) {
+					for (CellObject object : scratch) {
+						// use the id property as its id on the input link
+						createContent(cell.staticContent, cell, object.getProperty(Names.kPropertyID));
 					}
-					
-					checkEmpty(cell);
+					return;
+				}
+			} else {
+				
+				// Filter out locations that will not change:
+				if (!map.isInBounds(view) || map.getCell(view).hasObjectWithProperty(Names.kPropertyBlock)) {
+					return;
 				}
 			}
+			
+			// Create/update content algorithm is not perfect. Items that have the same name will
+			// be detected as the same item and not blink even if they should.
+			
+			updatePlayerContent(view, map, cell);
+			updateFoodContent(view, map, cell);
+			
+			// TODO: there can only be one (as of right now)
+			CellObject box = map.getCell(view).getFirstObjectWithProperty(Names.kPropertyBox);
+			if (box != null) {
+				updateBox(box, cell);
+			}
+			
+			checkEmpty(cell);
 		}
 		
 		private void destroy() {
@@ -430,45 +448,43 @@ class SoarEaterIL {
 	}
 	
 	private class EaterIL {
-		Identifier eaterWME;
-		IntElement scoreWME;
-		IntElement[] posWMEs;
+		final InputLinkMirror.Node eaterWME = il.id(il.root(), Names.kEaterID);
+		final InputLinkMirror.IntSlot scoreWME = il.intSlot(eaterWME, Names.kScoreID);
+		final InputLinkMirror.IntSlot xWME = il.intSlot(eaterWME, Names.kXID);
+		final InputLinkMirror.IntSlot yWME = il.intSlot(eaterWME, Names.kYID);
+		final InputLinkMirror.StringSlot nameWME = il.stringSlot(eaterWME, Names.kNameID);
 		
 		void create(String name, int initialScore) {
-			eaterWME = agent.CreateIdWME(agent.GetInputLink(), Names.kEaterID);
-			scoreWME = agent.CreateIntWME(eaterWME, Names.kScoreID, initialScore);
-			posWMEs = new IntElement[] { 
-					agent.CreateIntWME(eaterWME, Names.kXID, 0), 
-					agent.CreateIntWME(eaterWME, Names.kYID, 0)
-			};
-			agent.CreateStringWME(eaterWME, Names.kNameID, name);
+			scoreWME.set(initialScore);
+			xWME.set(0);
+			yWME.set(0);
+			nameWME.set(name);
 		}
 		
 		void update(boolean moved, int[] pos, int points) {
-			agent.Update(scoreWME, points);
-			agent.Update(posWMEs[0], pos[0]);
-			agent.Update(posWMEs[1], pos[1]);
-			
-		}
-		
-		void destroy() {
-			if (!agent.DestroyWME(eaterWME)) {
-				logger.trace("destroy eaterWME failed");
-			}
-			
-			eaterWME = null;
-			scoreWME = null;
-			posWMEs = null;
+			scoreWME.set(points);
+			xWME.set(pos[0]);
+			yWME.set(pos[1]);
 		}
 	}
 	
 	private Agent agent;
-	private EaterIL eater = new EaterIL();
+	/** the agent's input link, shared by the mirror and the vision grid's indexes */
+	private final InputLinkMirror.Sink sink;
+	private final Random randomSource;
+	/** the eater and random sensors, the vision grid is built by hand */
+	private final InputLinkMirror il;
+	private final EaterIL eater;
 	private MyLocationIL myLocation;
-	private RandomIL random = new RandomIL();
+	private final RandomIL random;
 
-	SoarEaterIL(Agent agent, int vision) {
+	SoarEaterIL(Agent agent, int vision, Random randomSource) {
 		this.agent = agent;
+		this.randomSource = randomSource;
+		sink = new InputLinkMirror.AgentSink(agent);
+		il = new InputLinkMirror(sink);
+		eater = new EaterIL();
+		random = new RandomIL();
 		myLocation = new MyLocationIL(vision);
 	}
 	
@@ -476,17 +492,18 @@ class SoarEaterIL {
 		eater.create(name, initialScore);
 		myLocation.create();
 		random.create();
+		il.flush();
 	}
 	
 	void update(boolean moved, int[] pos, EatersMap map, int points) {
 		eater.update(moved, pos, points);
 		myLocation.update(moved, pos, map);
 		random.update();
+		il.flush();
 	}
 	
 	void destroy() {
-		eater.destroy();
+		il.destroy();
 		myLocation.destroy();
-		random.destroy();
 	}
 }
@@ -1,8 +1,8 @@
 package edu.umich.soar.gridmap2d.soar;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
@@ -10,9 +10,11 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import edu.umich.soar.gridmap2d.Direction;
-import edu.umich.soar.gridmap2d.Gridmap2D;
 import edu.umich.soar.gridmap2d.Names;
 import edu.umich.soar.gridmap2d.Simulation;
+import edu.umich.soar.gridmap2d.SimulationContext;
+import edu.umich.soar.gridmap2d.SimulationContext.RandomStream;
+import edu.umich.soar.gridmap2d.Xy;
 import edu.umich.soar.gridmap2d.map.TankSoarMap;
 import edu.umich.soar.gridmap2d.players.CommandInfo;
 import edu.umich.soar.gridmap2d.players.Player;
@@ -20,9 +22,9 @@ import edu.umich.soar.gridmap2d.players.RadarCell;
 import edu.umich.soar.gridmap2d.players.Tank;
 import edu.umich.soar.gridmap2d.players.TankCommander;
 import edu.umich.soar.gridmap2d.players.TankState;
+import edu.umich.soar.gridmap2d.soar.CommandDecoder.Command;
 
 import sml.Agent;
-import sml.FloatElement;
 import sml.Identifier;
 import sml.IntElement;
 import sml.StringElement;
@@ -31,13 +33,21 @@ import sml.smlRunEventId;
 
 public class SoarTank implements Agent.RunEventInterface, TankCommander {
 	private static final Log logger = LogFactory.getLog(SoarTank.class);
+	
+	// the colors that get a score, arena tanks have colors of their own
+	private static final Set<String> SCORE_COLORS = new HashSet<String>(Arrays.asList(Simulation.kColors));
 
+	private final SimulationContext context;
 	private Tank player;
 	private Agent agent;
 	private String [] shutdownCommands;
 	private boolean attemptedMove = false;
+	private final CommandDecoder decoder;
+	/** handed out by nextCommand, cleared each time */
+	private final CommandInfo move = new CommandInfo();
 
-	public SoarTank(Tank player, Agent agent, String[] shutdown_commands) {
+	public SoarTank(SimulationContext context, Tank player, Agent agent, String[] shutdown_commands) {
+		this.context = context;
 		this.player = player;
 		this.agent = agent;
 		this.shutdownCommands = shutdown_commands;
@@ -48,28 +58,77 @@ public class SoarTank implements Agent.RunEventInterface, TankCommander {
 
 		agent.RegisterForRunEvent(smlRunEventId.smlEVENT_AFTER_INTERRUPT, this, null);
 		agent.RegisterForRunEvent(smlRunEventId.smlEVENT_MAX_MEMORY_USAGE_EXCEEDED, this, null);
-		m_InputLink = agent.GetInputLink();
+		il = new InputLinkMirror(agent);
+		declareInputLink();
+		decoder = new CommandDecoder(agent);
 		
 		if (!agent.Commit()) {
-			Gridmap2D.control.errorPopUp(Names.Errors.commitFail + player.getName());
+			context.control().errorPopUp(Names.Errors.commitFail + player.getName());
 		}
 	}
 	
+	/**
+	 * The sensors, in the order they are created on the input link. Scores are
+	 * added under the score identifier as players come and go.
+	 */
+	private void declareInputLink() {
+		InputLinkMirror.Node root = il.root();
+		m_xWME = il.intSlot(root, Names.kXID);
+		m_yWME = il.intSlot(root, Names.kYID);
+		m_EnergyRechargerWME = il.stringSlot(root, Names.kEnergyRechargerID);
+		m_HealthRechargerWME = il.stringSlot(root, Names.kHealthRechargerID);
+		m_DirectionWME = il.stringSlot(root, Names.kDirectionID);
+		m_EnergyWME = il.intSlot(root, Names.kEnergyID);
+		m_HealthWME = il.intSlot(root, Names.kHealthID);
+		m_ShieldStatusWME = il.stringSlot(root, Names.kShieldStatusID);
+
+		InputLinkMirror.Node blocked = il.id(root, Names.kBlockedID);
+		m_BlockedForwardWME = il.stringSlot(blocked, Names.kForwardID);
+		m_BlockedBackwardWME = il.stringSlot(blocked, Names.kBackwardID);
+		m_BlockedLeftWME = il.stringSlot(blocked, Names.kLeftID);
+		m_BlockedRightWME = il.stringSlot(blocked, Names.kRightID);
+
+		m_CurrentScoreWME = il.id(root, Names.kCurrentScoreID);
+
+		InputLinkMirror.Node incoming = il.id(root, Names.kIncomingID);
+		m_IncomingBackwardWME = il.stringSlot(incoming, Names.kBackwardID);
+		m_IncomingForwardWME = il.stringSlot(incoming, Names.kForwardID);
+		m_IncomingLeftWME = il.stringSlot(incoming, Names.kLeftID);
+		m_IncomingRightWME = il.stringSlot(incoming, Names.kRightID);
+
+		InputLinkMirror.Node smell = il.id(root, Names.kSmellID);
+		m_SmellColorWME = il.stringSlot(smell, Names.kColorID);
+		// one or the other, the distance is none when nothing is smelled
+		m_SmellDistanceWME = il.intSlot(smell, Names.kDistanceID);
+		m_SmellDistanceStringWME = il.stringSlot(smell, Names.kDistanceID);
+
+		m_SoundWME = il.stringSlot(root, Names.kSoundID);
+		m_MissilesWME = il.intSlot(root, Names.kMissilesID);
+		m_MyColorWME = il.stringSlot(root, Names.kMyColorID);
+		m_ClockWME = il.intSlot(root, Names.kClockID);
+		m_ResurrectWME = il.stringSlot(root, Names.kResurrectID);
+		m_RadarStatusWME = il.stringSlot(root, Names.kRadarStatusID);
+		// the cells under it are built by hand, see generateNewRadar
+		m_RadarWME = il.id(root, Names.kRadarID);
+		m_RadarWME.clear();
+		m_RadarDistanceWME = il.intSlot(root, Names.kRadarDistanceID);
+		m_RadarSettingWME = il.intSlot(root, Names.kRadarSettingID);
+		m_RandomWME = il.floatSlot(root, Names.kRandomID);
+
+		InputLinkMirror.Node rwaves = il.id(root, Names.kRWavesID);
+		m_RWavesForwardWME = il.stringSlot(rwaves, Names.kForwardID);
+		m_RWavesBackwardWME = il.stringSlot(rwaves, Names.kBackwardID);
+		m_RWavesLeftWME = il.stringSlot(rwaves, Names.kLeftID);
+		m_RWavesRightWME = il.stringSlot(rwaves, Names.kRightID);
+	}
+	
 	public void commit() {
 		TankState state = player.getState();
 		Direction facing = player.getFacing();
 		String facingString = facing.id();
+		// on reset everything is created, nothing blinks
+		boolean rotated = !m_Reset && !m_DirectionWME.get().equalsIgnoreCase(facingString);
 
-		String shieldStatus = state.getShieldsUp() ? Names.kOn : Names.kOff;
-		String blockedForward = ((state.getBlocked() & facing.indicator()) > 0) ? Names.kYes : Names.kNo;
-		String blockedBackward = ((state.getBlocked() & facing.backward().indicator()) > 0) ? Names.kYes : Names.kNo;
-		String blockedLeft = ((state.getBlocked() & facing.left().indicator()) > 0) ? Names.kYes : Names.kNo;
-		String blockedRight = ((state.getBlocked() & facing.right().indicator()) > 0) ? Names.kYes : Names.kNo;
-		String incomingForward = ((state.getIncoming() & facing.indicator()) > 0) ? Names.kYes : Names.kNo;
-		String incomingBackward = ((state.getIncoming() & facing.backward().indicator()) > 0) ? Names.kYes : Names.kNo;
-		String incomingLeft = ((state.getIncoming() & facing.left().indicator()) > 0) ? Names.kYes : Names.kNo;
-		String incomingRight = ((state.getIncoming() & facing.right().indicator()) > 0) ? Names.kYes : Names.kNo;
-		String smellColorString = (state.getSmellColor() == null) ? Names.kNone : state.getSmellColor();
 		String soundString;
 		if (state.getSound() == facing) {
 			soundString = Names.kForwardID;
@@ -82,344 +141,199 @@ public class SoarTank implements Agent.RunEventInterface, TankCommander {
 		} else {
 			soundString = Names.kSilentID;
 		}
-		int worldCount = Gridmap2D.simulation.getWorldCount();
-		String radarStatus = state.getRadarSwitch() ? Names.kOn : Names.kOff;
+		int worldCount = context.simulation().getWorldCount();
 		float oldrandom = random;
 		do {
-			random = Simulation.random.nextFloat();
+			random = context.random(RandomStream.INPUT).nextFloat();
 		} while (random == oldrandom);
-		String rwavesForward = (state.getRwaves() & facing.indicator()) > 0 ? Names.kYes : Names.kNo;
-		String rwavesBackward = (state.getRwaves() & facing.backward().indicator()) > 0 ? Names.kYes : Names.kNo;;
-		String rwavesLeft = (state.getRwaves() & facing.left().indicator()) > 0 ? Names.kYes : Names.kNo;
-		String rwavesRight = (state.getRwaves() & facing.right().indicator()) > 0 ? Names.kYes : Names.kNo;
+
+		// location
+		m_xWME.set(Xy.x(player.getXy()));
+		m_yWME.set(Xy.y(player.getXy()));
+		
+		// charger detection
+		m_EnergyRechargerWME.set(state.getOnEnergyCharger() ? Names.kYes : Names.kNo);
+		m_HealthRechargerWME.set(state.getOnHealthCharger() ? Names.kYes : Names.kNo);
+
+		// facing
+		m_DirectionWME.set(facingString);
+
+		// energy and health status
+		m_EnergyWME.set(state.getEnergy());
+		m_HealthWME.set(state.getHealth());
+
+		// shield status
+		m_ShieldStatusWME.set(state.getShieldsUp() ? Names.kOn : Names.kOff);
+		
+		// blocked sensor, blinks when we tried to move or turned
+		int blocked = state.getBlocked();
+		m_BlockedForwardWME.set(yesNo(blocked, facing));
+		m_BlockedBackwardWME.set(yesNo(blocked, facing.backward()));
+		m_BlockedLeftWME.set(yesNo(blocked, facing.left()));
+		m_BlockedRightWME.set(yesNo(blocked, facing.right()));
+		if (attemptedMove || rotated) {
+			m_BlockedForwardWME.blink();
+			m_BlockedBackwardWME.blink();
+			m_BlockedLeftWME.blink();
+			m_BlockedRightWME.blink();
+		}
+
+		// scores
+		if (playersChanged) {
+			initScoreWMEs();
+		}
+		for (Player p : players) {
+			InputLinkMirror.IntSlot score = m_Scores.get(p.getColor());
+			if (score != null) {
+				score.set(p.getPoints());
+			}
+		}
+
+		// incoming sensor
+		int incoming = state.getIncoming();
+		m_IncomingForwardWME.set(yesNo(incoming, facing));
+		m_IncomingBackwardWME.set(yesNo(incoming, facing.backward()));
+		m_IncomingLeftWME.set(yesNo(incoming, facing.left()));
+		m_IncomingRightWME.set(yesNo(incoming, facing.right()));
+
+		// smell sensor
+		if (state.getSmellColor() == null) {
+			m_SmellColorWME.set(Names.kNone);
+			m_SmellDistanceWME.clear();
+			m_SmellDistanceStringWME.set(Names.kNone);
+		} else {
+			m_SmellColorWME.set(state.getSmellColor());
+			m_SmellDistanceWME.set(state.getSmellDistance());
+			m_SmellDistanceStringWME.clear();
+		}
+
+		// sound sensor
+		m_SoundWME.set(soundString);
+
+		// missile quantity indicator
+		m_MissilesWME.set(state.getMissiles());
+
+		// my color
+		m_MyColorWME.set(player.getColor());
+
+		// clock (world count)
+		m_ClockWME.set(worldCount);
+
+		// resurrect sensor, yes until the first update after the spawn
+		if (m_Reset) {
+			m_ResurrectWME.set(Names.kYes);
+		} else if (state.getResurrectFrame() != worldCount) {
+			m_ResurrectWME.set(Names.kNo);
+		}
+
+		// radar sensors
+		m_RadarStatusWME.set(state.getRadarSwitch() ? Names.kOn : Names.kOff);
+		boolean radarUp = m_RadarWME.identifier() != null;
+		if (state.getRadarSwitch()) {
+			m_RadarWME.show();
+		} else {
+			m_RadarWME.clear();
+		}
+		m_RadarDistanceWME.set(state.getObservedPower());
+		m_RadarSettingWME.set(state.getRadarPower());
+
+		// random indicator
+		m_RandomWME.set(random);
+
+		// rwaves sensor
+		int rwaves = state.getRwaves();
+		m_RWavesForwardWME.set(yesNo(rwaves, facing));
+		m_RWavesBackwardWME.set(yesNo(rwaves, facing.backward()));
+		m_RWavesLeftWME.set(yesNo(rwaves, facing.left()));
+		m_RWavesRightWME.set(yesNo(rwaves, facing.right()));
 
 		if (logger.isTraceEnabled()) {
 			logger.trace(player.getName() + " input dump: ");
-			logger.trace(player.getName() + ": x,y: " + player.getLocation()[0] + "," + player.getLocation()[1]);
-			logger.trace(player.getName() + ": " + Names.kEnergyRechargerID + ": " + (state.getOnEnergyCharger() ? Names.kYes : Names.kNo));
-			logger.trace(player.getName() + ": " + Names.kHealthRechargerID + ": " + (state.getOnHealthCharger() ? Names.kYes : Names.kNo));
+			logger.trace(player.getName() + ": x,y: " + m_xWME.get() + "," + m_yWME.get());
+			logger.trace(player.getName() + ": " + Names.kEnergyRechargerID + ": " + m_EnergyRechargerWME.get());
+			logger.trace(player.getName() + ": " + Names.kHealthRechargerID + ": " + m_HealthRechargerWME.get());
 			logger.trace(player.getName() + ": " + Names.kDirectionID + ": " + facingString);
 			logger.trace(player.getName() + ": " + Names.kEnergyID + ": " + state.getEnergy());
 			logger.trace(player.getName() + ": " + Names.kHealthID + ": " + state.getHealth());
-			logger.trace(player.getName() + ": " + Names.kShieldStatusID + ": " + shieldStatus);
-			logger.trace(player.getName() + ": blocked (forward): " + blockedForward);
-			logger.trace(player.getName() + ": blocked (backward): " + blockedBackward);
-			logger.trace(player.getName() + ": blocked (left): " + blockedLeft);
-			logger.trace(player.getName() + ": blocked (right): " + blockedRight);
+			logger.trace(player.getName() + ": " + Names.kShieldStatusID + ": " + m_ShieldStatusWME.get());
+			logger.trace(player.getName() + ": blocked (forward): " + m_BlockedForwardWME.get());
+			logger.trace(player.getName() + ": blocked (backward): " + m_BlockedBackwardWME.get());
+			logger.trace(player.getName() + ": blocked (left): " + m_BlockedLeftWME.get());
+			logger.trace(player.getName() + ": blocked (right): " + m_BlockedRightWME.get());
 			logger.trace(player.getName() + ": " + Names.kCurrentScoreID + ": " + player.getPoints());
-			logger.trace(player.getName() + ": incoming (forward): " + incomingForward);
-			logger.trace(player.getName() + ": incoming (backward): " + incomingBackward);
-			logger.trace(player.getName() + ": incoming (left): " + incomingLeft);
-			logger.trace(player.getName() + ": incoming (right): " + incomingRight);
-			logger.trace(player.getName() + ": smell (color): " + smellColorString);
+			logger.trace(player.getName() + ": incoming (forward): " + m_IncomingForwardWME.get());
+			logger.trace(player.getName() + ": incoming (backward): " + m_IncomingBackwardWME.get());
+			logger.trace(player.getName() + ": incoming (left): " + m_IncomingLeftWME.get());
+			logger.trace(player.getName() + ": incoming (right): " + m_IncomingRightWME.get());
+			logger.trace(player.getName() + ": smell (color): " + m_SmellColorWME.get());
 			logger.trace(player.getName() + ": smell (distance): " + state.getSmellDistance());
 			logger.trace(player.getName() + ": " + Names.kSoundID + ": " + soundString);
 			logger.trace(player.getName() + ": " + Names.kMissilesID + ": " + state.getMissiles());
 			logger.trace(player.getName() + ": " + Names.kMyColorID + ": " + player.getColor());
 			logger.trace(player.getName() + ": " + Names.kClockID + ": " + worldCount);
-			logger.trace(player.getName() + ": " + Names.kRadarStatusID + ": " + radarStatus);
+			logger.trace(player.getName() + ": " + Names.kRadarStatusID + ": " + m_RadarStatusWME.get());
 			logger.trace(player.getName() + ": " + Names.kRadarDistanceID + ": " + state.getObservedPower());
 			logger.trace(player.getName() + ": " + Names.kRadarSettingID + ": " + state.getRadarPower());
 			logger.trace(player.getName() + ": " + Names.kRandomID + "random: " + random);
-			logger.trace(player.getName() + ": rwaves (forward): " + rwavesForward);
-			logger.trace(player.getName() + ": rwaves (backward): " + rwavesBackward);
-			logger.trace(player.getName() + ": rwaves (left): " + rwavesLeft);
-			logger.trace(player.getName() + ": rwaves (right): " + rwavesRight);
+			logger.trace(player.getName() + ": rwaves (forward): " + m_RWavesForwardWME.get());
+			logger.trace(player.getName() + ": rwaves (backward): " + m_RWavesBackwardWME.get());
+			logger.trace(player.getName() + ": rwaves (left): " + m_RWavesLeftWME.get());
+			logger.trace(player.getName() + ": rwaves (right): " + m_RWavesRightWME.get());
 		}
 
-		if (m_Reset) {
-			// location
-			m_xWME = CreateIntWME(m_InputLink, Names.kXID, player.getLocation()[0]);
-			m_yWME = CreateIntWME(m_InputLink, Names.kYID, player.getLocation()[1]);
-			
-			// charger detection
-			String energyRecharger = state.getOnEnergyCharger() ? Names.kYes : Names.kNo;
-			m_EnergyRechargerWME = CreateStringWME(m_InputLink, Names.kEnergyRechargerID, energyRecharger);
-
-			String healthRecharger = state.getOnHealthCharger() ? Names.kYes : Names.kNo;
-			m_HealthRechargerWME = CreateStringWME(m_InputLink, Names.kHealthRechargerID, healthRecharger);
-
-			// facing
-			m_DirectionWME = CreateStringWME(m_InputLink, Names.kDirectionID, facingString);
-
-			// energy and health status
-			m_EnergyWME = CreateIntWME(m_InputLink, Names.kEnergyID, state.getEnergy());
-			m_HealthWME = CreateIntWME(m_InputLink, Names.kHealthID, state.getHealth());
-
-			// shield status
-			m_ShieldStatusWME = CreateStringWME(m_InputLink, Names.kShieldStatusID, shieldStatus);
-
-			// blocked sensor
-			m_BlockedWME = agent.CreateIdWME(m_InputLink, Names.kBlockedID);
-			m_BlockedForwardWME = CreateStringWME(m_BlockedWME, Names.kForwardID, blockedForward);
-			m_BlockedBackwardWME = CreateStringWME(m_BlockedWME, Names.kBackwardID, blockedBackward);
-			m_BlockedLeftWME = CreateStringWME(m_BlockedWME, Names.kLeftID, blockedLeft);
-			m_BlockedRightWME = CreateStringWME(m_BlockedWME, Names.kRightID, blockedRight);				
-
-			// score status
-			m_CurrentScoreWME = agent.CreateIdWME(m_InputLink, Names.kCurrentScoreID);
-			initScoreWMEs();
-
-			// incoming sensor
-			m_IncomingWME = agent.CreateIdWME(m_InputLink, Names.kIncomingID);
-			m_IncomingBackwardWME = CreateStringWME(m_IncomingWME, Names.kBackwardID, incomingForward);
-			m_IncomingForwardWME = CreateStringWME(m_IncomingWME, Names.kForwardID, incomingBackward);
-			m_IncomingLeftWME = CreateStringWME(m_IncomingWME, Names.kLeftID, incomingLeft);
-			m_IncomingRightWME = CreateStringWME(m_IncomingWME, Names.kRightID, incomingRight);
-			
-			// smell sensor
-			m_SmellWME = agent.CreateIdWME(m_InputLink, Names.kSmellID);
-			m_SmellColorWME = CreateStringWME(m_SmellWME, Names.kColorID, smellColorString);
-			if (state.getSmellColor() == null) {
-				m_SmellDistanceWME = null;
-				m_SmellDistanceStringWME = CreateStringWME(m_SmellWME, Names.kDistanceID, Names.kNone);
-			} else {
-				m_SmellDistanceWME = CreateIntWME(m_SmellWME, Names.kDistanceID, state.getSmellDistance());
-				m_SmellDistanceStringWME = null;
-			}
-
-			// sound sensor
-			m_SoundWME = CreateStringWME(m_InputLink, Names.kSoundID, soundString);			
-
-			// missile quantity indicator
-			m_MissilesWME = CreateIntWME(m_InputLink, Names.kMissilesID, state.getMissiles());
-
-			// my color
-			m_MyColorWME = CreateStringWME(m_InputLink, Names.kMyColorID, player.getColor());
-
-			// clock (world count)
-			m_ClockWME = CreateIntWME(m_InputLink, Names.kClockID, worldCount);
-
-			// resurrect sensor
-			m_ResurrectWME = CreateStringWME(m_InputLink, Names.kResurrectID, Names.kYes);
+		il.flush();
 
-			// radar sensors
-			m_RadarStatusWME = CreateStringWME(m_InputLink, Names.kRadarStatusID, radarStatus);
-			if (state.getRadarSwitch()) {
-				m_RadarWME = agent.CreateIdWME(m_InputLink, Names.kRadarID);
+		// the radar cells are not slots
+		if (state.getRadarSwitch()) {
+			if (!radarUp) {
 				generateNewRadar(state);
 			} else {
-				m_RadarWME = null;
-			}
-			m_RadarDistanceWME = CreateIntWME(m_InputLink, Names.kRadarDistanceID, state.getObservedPower());
-			m_RadarSettingWME = CreateIntWME(m_InputLink, Names.kRadarSettingID, state.getRadarPower());
-
-			// random indicator
-			m_RandomWME = CreateFloatWME(m_InputLink, Names.kRandomID, random);
-
-			// rwaves sensor
-			m_RWavesWME = agent.CreateIdWME(m_InputLink, Names.kRWavesID);
-			m_RWavesForwardWME = CreateStringWME(m_RWavesWME, Names.kForwardID, rwavesBackward);
-			m_RWavesBackwardWME = CreateStringWME(m_RWavesWME, Names.kBackwardID, rwavesForward);
-			m_RWavesLeftWME = CreateStringWME(m_RWavesWME, Names.kLeftID, rwavesLeft);
-			m_RWavesRightWME = CreateStringWME(m_RWavesWME, Names.kRightID, rwavesRight);
-
-		} else {
-			if (player.getMoved()) {
-				// location
-				if (player.getLocation()[0] != m_xWME.GetValue()) {
-					Update(m_xWME, player.getLocation()[0]);
-				}
-				
-				if (player.getLocation()[1] != m_yWME.GetValue()) {
-					Update(m_yWME, player.getLocation()[1]);
-				}
-				
-				// charger detection
-				// TODO: consider SetBlinkIfNoChange(false) in constructor
-				String energyRecharger = state.getOnEnergyCharger() ? Names.kYes : Names.kNo;
-				if ( !m_EnergyRechargerWME.GetValue().equals(energyRecharger) ) {
-					Update(m_EnergyRechargerWME, energyRecharger);
-				}
-
-				String healthRecharger = state.getOnHealthCharger() ? Names.kYes : Names.kNo;
-				if ( !m_HealthRechargerWME.GetValue().equals(healthRecharger) ) {
-					Update(m_HealthRechargerWME, healthRecharger);
-				}
-			}
-			
-			boolean rotated = !m_DirectionWME.GetValue().equalsIgnoreCase(facingString);
-			if (rotated) {
-				// facing
-				Update(m_DirectionWME, facingString);
-			}
-
-			// stats detection
-			if (m_EnergyWME.GetValue() != state.getEnergy()) {
-				Update(m_EnergyWME, state.getEnergy());
-			}
-			if (m_HealthWME.GetValue() != state.getHealth()) {
-				Update(m_HealthWME, state.getHealth());
-			}			
-
-			// shield status
-			if (!m_ShieldStatusWME.GetValue().equalsIgnoreCase(shieldStatus)) {
-				Update(m_ShieldStatusWME, shieldStatus);
-			}
-			
-			// blocked sensor
-			if (attemptedMove || rotated || !m_BlockedForwardWME.GetValue().equalsIgnoreCase(blockedForward)) {
-				Update(m_BlockedForwardWME, blockedForward);
-			}
-			if (attemptedMove || rotated || !m_BlockedBackwardWME.GetValue().equalsIgnoreCase(blockedBackward)) {
-				Update(m_BlockedBackwardWME, blockedBackward);
-			}
-			if (attemptedMove || rotated || !m_BlockedLeftWME.GetValue().equalsIgnoreCase(blockedLeft)) {
-				Update(m_BlockedLeftWME, blockedLeft);
-			}
-			if (attemptedMove || rotated || !m_BlockedRightWME.GetValue().equalsIgnoreCase(blockedRight)) {
-				Update(m_BlockedRightWME, blockedRight);
-			}
-
-			// scores
-			if (playersChanged) {
-				initScoreWMEs();
-			}
-			for (Player p : players) {
-				if (p.pointsChanged()) {
-					Update(m_Scores.get(p.getColor()), p.getPoints());
-				}
-			}
-
-			// incoming sensor
-			if (!m_IncomingForwardWME.GetValue().equalsIgnoreCase(incomingForward)) {
-				Update(m_IncomingForwardWME, incomingForward);
-			}
-			if (!m_IncomingBackwardWME.GetValue().equalsIgnoreCase(incomingBackward)) {
-				Update(m_IncomingBackwardWME, incomingBackward);
-			}
-			if (!m_IncomingLeftWME.GetValue().equalsIgnoreCase(incomingLeft)) {
-				Update(m_IncomingLeftWME, incomingLeft);
-			}
-			if (!m_IncomingRightWME.GetValue().equalsIgnoreCase(incomingRight)) {
-				Update(m_IncomingRightWME, incomingRight);
-			}
-
-			// smell sensor
-			if (!m_SmellColorWME.GetValue().equalsIgnoreCase(smellColorString)) {
-				Update(m_SmellColorWME, smellColorString);
-			}
-			if (state.getSmellColor() == null) {
-				if (m_SmellDistanceWME != null) {
-					DestroyWME(m_SmellDistanceWME);
-					m_SmellDistanceWME = null;
-				}
-				if (m_SmellDistanceStringWME == null) {
-					m_SmellDistanceStringWME = CreateStringWME(m_SmellWME, Names.kDistanceID, Names.kNone);
-				}
-			} else {
-				if (m_SmellDistanceWME == null) {
-					m_SmellDistanceWME = CreateIntWME(m_SmellWME, Names.kDistanceID, state.getSmellDistance());
-				} else {
-					if (m_SmellDistanceWME.GetValue() != state.getSmellDistance()) {
-						Update(m_SmellDistanceWME, state.getSmellDistance());
-					}
-				}
-				if (m_SmellDistanceStringWME != null) {
-					DestroyWME(m_SmellDistanceStringWME);
-					m_SmellDistanceStringWME = null;
-				}
-			}
-
-			// sound sensor
-			if (!m_SoundWME.GetValue().equalsIgnoreCase(soundString)) {
-				Update(m_SoundWME, soundString);
-			}
-
-			// missile quantity indicator
-			if (m_MissilesWME.GetValue() != state.getMissiles()) {
-				Update(m_MissilesWME, state.getMissiles());
-			}
-
-			// clock (world count)
-			Update(m_ClockWME, worldCount);
-
-			// resurrect sensor
-			if (state.getResurrectFrame() != Gridmap2D.simulation.getWorldCount()) {
-				if (!m_ResurrectWME.GetValue().equalsIgnoreCase(Names.kNo)) {
-					Update(m_ResurrectWME, Names.kNo);
-				}
-			}
-
-			// radar sensors
-			if (!m_RadarStatusWME.GetValue().equalsIgnoreCase(radarStatus)) {
-				Update(m_RadarStatusWME, radarStatus);
-			}
-			if (state.getRadarSwitch()) {
-				if (m_RadarWME == null) {
-					m_RadarWME = agent.CreateIdWME(m_InputLink, Names.kRadarID);
-					generateNewRadar(state);
-				} else {
-					updateRadar(player.getMoved() || rotated, state);
-				}
-			} else {
-				if (m_RadarWME != null) {
-					clearRadar(state);
-					DestroyWME(m_RadarWME);
-					m_RadarWME = null;
-				}
-			}
-			if (m_RadarDistanceWME.GetValue() != state.getObservedPower()) {
-				Update(m_RadarDistanceWME, state.getObservedPower());
-			}
-			if (m_RadarSettingWME.GetValue() != state.getRadarPower()) {
-				Update(m_RadarSettingWME, state.getRadarPower());
-			}
-
-			// random indicator
-			Update(m_RandomWME, random);
-
-			// rwaves sensor
-			if (!m_RWavesForwardWME.GetValue().equalsIgnoreCase(rwavesForward)) {
-				Update(m_RWavesForwardWME, rwavesForward);
-			}
-			if (!m_RWavesBackwardWME.GetValue().equalsIgnoreCase(rwavesBackward)) {
-				Update(m_RWavesBackwardWME, rwavesBackward);
-			}
-			if (!m_RWavesLeftWME.GetValue().equalsIgnoreCase(rwavesLeft)) {
-				Update(m_RWavesLeftWME, rwavesLeft);
-			}
-			if (!m_RWavesRightWME.GetValue().equalsIgnoreCase(rwavesRight)) {
-				Update(m_RWavesRightWME, rwavesRight);
+				updateRadar(player.getMoved() || rotated, state);
 			}
+		} else if (radarUp) {
+			clearRadar(state);
 		}
 		
 		m_Reset = false;
 		
 		if (!agent.Commit()) {
-			Gridmap2D.control.errorPopUp(Names.Errors.commitFail + player.getName());
-			Gridmap2D.control.stopSimulation();
+			context.control().errorPopUp(Names.Errors.commitFail + player.getName());
+			context.control().stopSimulation();
 		}
 	}
+	
+	private static String yesNo(int indicators, Direction direction) {
+		return (indicators & direction.indicator()) > 0 ? Names.kYes : Names.kNo;
+	}
 
 	public CommandInfo nextCommand() {
 		attemptedMove = false;
+		move.clear();
 
-		if (agent.GetNumberCommands() == 0) {
+		if (decoder.decode() == 0) {
 			logger.debug(player.getName() + " issued no command.");
-			return new CommandInfo();
+			return move;
 		}
 		
 		Identifier moveId = null;
-		CommandInfo move = new CommandInfo();
 		boolean moveWait = false;
-		for (int i = 0; i < agent.GetNumberCommands(); ++i) {
-			Identifier commandId = agent.GetCommand(i);
-			String commandName = commandId.GetAttribute();
+		for (int i = 0; i < decoder.count(); ++i) {
+			Identifier commandId = decoder.id(i);
+			Command command = decoder.command(i);
 
-			if (commandId.GetParameterValue("status") != null) {
+			if (decoder.hasStatus(i)) {
 				//System.out.println("Status already processed.");
 				continue;
 			}
 
-			if (commandName.equalsIgnoreCase(Names.kMoveID)) {
+			if (command == Command.MOVE) {
 				if (move.move || moveWait) {
 					logger.debug(player.getName() + ": extra move commands");
 					commandId.AddStatusError();
 					continue;
 				}
 
-				String moveDirection = commandId.GetParameterValue(Names.kDirectionID);
+				String moveDirection = decoder.parameter(i, Names.kDirectionID);
 				if (moveDirection == null) {
 					logger.warn(player.getName() + ": null move direction");
 					commandId.AddStatusError();
@@ -448,7 +362,7 @@ public class SoarTank implements Agent.RunEventInterface, TankCommander {
 				move.move = true;
 				attemptedMove = true;
 				
-			} else if (commandName.equalsIgnoreCase(Names.kFireID)) {
+			} else if (command == Command.FIRE) {
 				if (move.fire == true) {
 					logger.debug(player.getName() + ": extra fire commands");
 					commandId.AddStatusError();
@@ -458,14 +372,14 @@ public class SoarTank implements Agent.RunEventInterface, TankCommander {
 
 	 			// Weapon ignored
 				
-			} else if (commandName.equalsIgnoreCase(Names.kRadarID)) {
+			} else if (command == Command.RADAR) {
 				if (move.radar == true) {
 					logger.debug(player.getName() + ": extra radar commands");
 					commandId.AddStatusError();
 					continue;
 				}
 				
-				String radarSwitch = commandId.GetParameterValue(Names.kSwitchID);
+				String radarSwitch = decoder.parameter(i, Names.kSwitchID);
 				if (radarSwitch == null) {
 					logger.warn(player.getName() + ": null radar switch");
 					commandId.AddStatusError();
@@ -474,14 +388,14 @@ public class SoarTank implements Agent.RunEventInterface, TankCommander {
 				move.radar = true;
 				move.radarSwitch = radarSwitch.equalsIgnoreCase(Names.kOn) ? true : false;  
 				
-			} else if (commandName.equalsIgnoreCase(Names.kRadarPowerID)) {
+			} else if (command == Command.RADAR_POWER) {
 				if (move.radarPower == true) {
 					logger.debug(player.getName() + ": extra radar power commands");
 					commandId.AddStatusError();
 					continue;
 				}
 				
-				String powerValue = commandId.GetParameterValue(Names.kSettingID);
+				String powerValue = decoder.parameter(i, Names.kSettingID);
 				if (powerValue == null) {
 					logger.warn(player.getName() + ": null radar power");
 					commandId.AddStatusError();
@@ -498,14 +412,14 @@ public class SoarTank implements Agent.RunEventInterface, TankCommander {
 				}
 				move.radarPower = true;
 				
-			} else if (commandName.equalsIgnoreCase(Names.kShieldsID)) {
+			} else if (command == Command.SHIELDS) {
 				if (move.shields == true) {
 					logger.debug(player.getName() + ": extra shield commands");
 					commandId.AddStatusError();
 					continue;
 				}
 				
-				String shieldsSetting = commandId.GetParameterValue(Names.kSwitchID);
+				String shieldsSetting = decoder.parameter(i, Names.kSwitchID);
 				if (shieldsSetting == null) {
 					logger.warn(player.getName() + ": null shields setting");
 					commandId.AddStatusError();
@@ -514,14 +428,14 @@ public class SoarTank implements Agent.RunEventInterface, TankCommander {
 				move.shields = true;
 				move.shieldsSetting = shieldsSetting.equalsIgnoreCase(Names.kOn) ? true : false; 
 				
-			} else if (commandName.equalsIgnoreCase(Names.kRotateID)) {
+			} else if (command == Command.ROTATE) {
 				if (move.rotate == true) {
 					logger.debug(player.getName() + ": extra rotate commands");
 					commandId.AddStatusError();
 					continue;
 				}
 				
-				move.rotateDirection = commandId.GetParameterValue(Names.kDirectionID);
+				move.rotateDirection = decoder.parameter(i, Names.kDirectionID);
 				if (move.rotateDirection == null) {
 					logger.warn(player.getName() + ": null rotation direction");
 					commandId.AddStatusError();
@@ -531,7 +445,7 @@ public class SoarTank implements Agent.RunEventInterface, TankCommander {
 				move.rotate = true;
 				
 			} else {
-				logger.warn(player.getName() + ": unknown command: " + commandName);
+				logger.warn(player.getName() + ": unknown command: " + decoder.name(i));
 				commandId.AddStatusError();
 				continue;
 			}
@@ -541,8 +455,8 @@ public class SoarTank implements Agent.RunEventInterface, TankCommander {
     	agent.ClearOutputLinkChanges();
     	
 		if (!agent.Commit()) {
-			Gridmap2D.control.errorPopUp(Names.Errors.commitFail + this.player.getName());
-			Gridmap2D.control.stopSimulation();
+			context.control().errorPopUp(Names.Errors.commitFail + this.player.getName());
+			context.control().stopSimulation();
 		}
 		
 		// Do not allow a move if we rotated.
@@ -579,15 +493,15 @@ public class SoarTank implements Agent.RunEventInterface, TankCommander {
 //		clearWMEs();
 //
 //		if (!agent.Commit()) {
-//			Gridmap2D.control.errorPopUp(Names.Errors.commitFail + player.getName());
-//			Gridmap2D.control.stopSimulation();
+//			context.control().errorPopUp(Names.Errors.commitFail + player.getName());
+//			context.control().stopSimulation();
 //		}
 		
 		agent.InitSoar();
 		
 //		if (!agent.Commit()) {
-//			Gridmap2D.control.errorPopUp(Names.Errors.commitFail + player.getName());
-//			Gridmap2D.control.stopSimulation();
+//			context.control().errorPopUp(Names.Errors.commitFail + player.getName());
+//			context.control().stopSimulation();
 //		}
 	}
 	
@@ -599,7 +513,7 @@ public class SoarTank implements Agent.RunEventInterface, TankCommander {
 				String result = player.getName() + ": result: " + agent.ExecuteCommandLine(command, true);
 				logger.info(player.getName() + ": shutdown command: " + command);
 				if (agent.HadError()) {
-					Gridmap2D.control.errorPopUp(result);
+					context.control().errorPopUp(result);
 				} else {
 					logger.info(player.getName() + ": result: " + result);
 				}
@@ -612,48 +526,44 @@ public class SoarTank implements Agent.RunEventInterface, TankCommander {
 //////////////////////
 	
 
-	private Identifier m_InputLink;
-	private Identifier m_BlockedWME;
-	private StringElement m_BlockedBackwardWME;
-	private StringElement m_BlockedForwardWME;
-	private StringElement m_BlockedLeftWME;
-	private StringElement m_BlockedRightWME;
-	private IntElement m_ClockWME;
-	private Identifier m_CurrentScoreWME;
+	private final InputLinkMirror il;
+	private InputLinkMirror.StringSlot m_BlockedBackwardWME;
+	private InputLinkMirror.StringSlot m_BlockedForwardWME;
+	private InputLinkMirror.StringSlot m_BlockedLeftWME;
+	private InputLinkMirror.StringSlot m_BlockedRightWME;
+	private InputLinkMirror.IntSlot m_ClockWME;
+	private InputLinkMirror.Node m_CurrentScoreWME;
 	
-	private Map<String, IntElement> m_Scores = new HashMap<String, IntElement>(7);
+	private Map<String, InputLinkMirror.IntSlot> m_Scores = new HashMap<String, InputLinkMirror.IntSlot>(7);
 	
-	private StringElement m_DirectionWME;
-	private IntElement m_EnergyWME;
-	private StringElement m_EnergyRechargerWME;
-	private IntElement m_HealthWME;
-	private StringElement m_HealthRechargerWME;
-	private Identifier m_IncomingWME;
-	private StringElement m_IncomingBackwardWME;
-	private StringElement m_IncomingForwardWME;
-	private StringElement m_IncomingLeftWME;
-	private StringElement m_IncomingRightWME;
-	private IntElement m_MissilesWME;
-	private StringElement m_MyColorWME;
-	private StringElement m_RadarStatusWME;
-	private IntElement m_RadarDistanceWME;
-	private IntElement m_RadarSettingWME;
-	private Identifier m_RadarWME;
-	private FloatElement m_RandomWME;
-	private StringElement m_ResurrectWME;
-	private Identifier m_RWavesWME;
-	private StringElement m_RWavesBackwardWME;
-	private StringElement m_RWavesForwardWME;
-	private StringElement m_RWavesLeftWME;
-	private StringElement m_RWavesRightWME;
-	private StringElement m_ShieldStatusWME;
-	private Identifier m_SmellWME;
-	private StringElement m_SmellColorWME;
-	private IntElement m_SmellDistanceWME;
-	private StringElement m_SmellDistanceStringWME;
-	private StringElement m_SoundWME;
-	private IntElement m_xWME;
-	private IntElement m_yWME;			
+	private InputLinkMirror.StringSlot m_DirectionWME;
+	private InputLinkMirror.IntSlot m_EnergyWME;
+	private InputLinkMirror.StringSlot m_EnergyRechargerWME;
+	private InputLinkMirror.IntSlot m_HealthWME;
+	private InputLinkMirror.StringSlot m_HealthRechargerWME;
+	private InputLinkMirror.StringSlot m_IncomingBackwardWME;
+	private InputLinkMirror.StringSlot m_IncomingForwardWME;
+	private InputLinkMirror.StringSlot m_IncomingLeftWME;
+	private InputLinkMirror.StringSlot m_IncomingRightWME;
+	private InputLinkMirror.IntSlot m_MissilesWME;
+	private InputLinkMirror.StringSlot m_MyColorWME;
+	private InputLinkMirror.StringSlot m_RadarStatusWME;
+	private InputLinkMirror.IntSlot m_RadarDistanceWME;
+	private InputLinkMirror.IntSlot m_RadarSettingWME;
+	private InputLinkMirror.Node m_RadarWME;
+	private InputLinkMirror.FloatSlot m_RandomWME;
+	private InputLinkMirror.StringSlot m_ResurrectWME;
+	private InputLinkMirror.StringSlot m_RWavesBackwardWME;
+	private InputLinkMirror.StringSlot m_RWavesForwardWME;
+	private InputLinkMirror.StringSlot m_RWavesLeftWME;
+	private InputLinkMirror.StringSlot m_RWavesRightWME;
+	private InputLinkMirror.StringSlot m_ShieldStatusWME;
+	private InputLinkMirror.StringSlot m_SmellColorWME;
+	private InputLinkMirror.IntSlot m_SmellDistanceWME;
+	private InputLinkMirror.StringSlot m_SmellDistanceStringWME;
+	private InputLinkMirror.StringSlot m_SoundWME;
+	private InputLinkMirror.IntSlot m_xWME;
+	private InputLinkMirror.IntSlot m_yWME;			
 
 	private Identifier[][] radarCellIDs;
 	private StringElement[][] radarColors;
@@ -668,17 +578,17 @@ public class SoarTank implements Agent.RunEventInterface, TankCommander {
 
 	public void runEventHandler(int eventID, Object data, Agent agent, int phase) {
 		if (eventID == smlRunEventId.smlEVENT_AFTER_INTERRUPT.swigValue()) {
-			if (!Gridmap2D.control.isStopped()) {
+			if (!context.control().isStopped()) {
 				logger.warn(player.getName() + ": agent interrupted");
 				// only penalize interruptions when running headless
-				if (!Gridmap2D.wm.using()) {
-					Gridmap2D.simulation.interrupted(agent.GetAgentName());
+				if (!context.usingGUI()) {
+					context.simulation().interrupted(agent.GetAgentName());
 				}
 			}
 		} else if (!mem_exceeded && eventID == smlRunEventId.smlEVENT_MAX_MEMORY_USAGE_EXCEEDED.swigValue()) {
 			logger.warn(player.getName() + ": agent exceeded maximum memory usage");
-			Gridmap2D.simulation.interrupted(agent.GetAgentName());
-			Gridmap2D.control.stopSimulation();
+			context.simulation().interrupted(agent.GetAgentName());
+			context.control().stopSimulation();
 			mem_exceeded = true;
 		} else {
 			assert false;
@@ -690,22 +600,6 @@ public class SoarTank implements Agent.RunEventInterface, TankCommander {
 		agent.DestroyWME(wme);
 	}
 
-	private void Update(StringElement wme, String value) {
-		assert wme != null;
-		assert value != null;
-		agent.Update(wme, value);
-	}
-
-	private void Update(IntElement wme, int value) {
-		assert wme != null;
-		agent.Update(wme, value);
-	}
-
-	private void Update(FloatElement wme, float value) {
-		assert wme != null;
-		agent.Update(wme, value);
-	}
-	
 	private IntElement CreateIntWME(Identifier id, String attribute, int value) {
 		assert id != null;
 		assert attribute != null;
@@ -719,12 +613,6 @@ public class SoarTank implements Agent.RunEventInterface, TankCommander {
 		return agent.CreateStringWME(id, attribute, value);
 	}
 
-	private FloatElement CreateFloatWME(Identifier id, String attribute, float value) {
-		assert id != null;
-		assert attribute != null;
-		return agent.CreateFloatWME(id, attribute, value);
-	}
-
 	public void fragged() {
 		if (m_Reset == true) {
 			return;
@@ -736,111 +624,28 @@ public class SoarTank implements Agent.RunEventInterface, TankCommander {
 	}
 	
 	private void clearWMEs() {
-		DestroyWME(m_BlockedWME);
-		m_BlockedWME = null;
-		
-		DestroyWME(m_ClockWME);
-		m_ClockWME = null;
-		
-		DestroyWME(m_CurrentScoreWME);
-		m_CurrentScoreWME = null;
-		m_Scores = new HashMap<String, IntElement>(7);
-
-		DestroyWME(m_DirectionWME);
-		m_DirectionWME = null;
-		
-		DestroyWME(m_EnergyWME);
-		m_EnergyWME = null;
-		
-		DestroyWME(m_EnergyRechargerWME);
-		m_EnergyRechargerWME = null;
-		
-		DestroyWME(m_HealthWME);
-		m_HealthWME = null;
-		
-		DestroyWME(m_HealthRechargerWME);
-		m_HealthRechargerWME = null;
-		
-		DestroyWME(m_IncomingWME);
-		m_IncomingWME = null;
-		
-		DestroyWME(m_MissilesWME);
-		m_MissilesWME = null;
-		
-		DestroyWME(m_MyColorWME);
-		m_MyColorWME = null;
-		
-		DestroyWME(m_RadarStatusWME);
-		m_RadarStatusWME = null;
-		
-		DestroyWME(m_RadarDistanceWME);
-		m_RadarDistanceWME = null;
-		
-		DestroyWME(m_RadarSettingWME);
-		m_RadarSettingWME = null;
-		
-		if (m_RadarWME != null) {
-			DestroyWME(m_RadarWME);
-			m_RadarWME = null;
-		}
-		DestroyWME(m_RandomWME);
-		m_RandomWME = null;
-		
-		DestroyWME(m_ResurrectWME);
-		m_ResurrectWME = null;
-		
-		DestroyWME(m_RWavesWME);
-		m_RWavesWME = null;
-		
-		DestroyWME(m_ShieldStatusWME);
-		m_ShieldStatusWME = null;
-		
-		DestroyWME(m_SmellWME);
-		m_SmellWME = null;
-		
-		DestroyWME(m_SoundWME);
-		m_SoundWME = null;
-		
-		DestroyWME(m_xWME);
-		m_xWME = null;
-		
-		DestroyWME(m_yWME);
-		m_yWME = null;
+		// keeps the slots, the next commit puts them back
+		il.destroy();
 		
 		TankState state = player.getState();
 		clearRadar(state);
 	}
 	
 	private void initScoreWMEs() {
-		if (m_CurrentScoreWME == null) {
-			return;
-		}
-
-		Set<String> unseen = new HashSet<String>();
-		unseen.add("blue");
-		unseen.add("red");
-		unseen.add("yellow");
-		unseen.add("green");
-		unseen.add("purple");
-		unseen.add("orange");
-		unseen.add("black");
+		Set<String> unseen = new HashSet<String>(m_Scores.keySet());
 		
 		for (Player p : players) {
-			IntElement scoreElement = m_Scores.get(p.getColor());
 			unseen.remove(p.getColor());
-			if (scoreElement == null) {
-				scoreElement = agent.CreateIntWME(m_CurrentScoreWME, p.getColor(), p.getPoints());
-				m_Scores.put(p.getColor(), scoreElement);
+			if (!SCORE_COLORS.contains(p.getColor())) {
+				continue;
+			}
+			if (!m_Scores.containsKey(p.getColor())) {
+				m_Scores.put(p.getColor(), il.intSlot(m_CurrentScoreWME, p.getColor()));
 			}
 		}
 		
-		Iterator<String> unseenIter = unseen.iterator();
-		while (unseenIter.hasNext()) {
-			String color = unseenIter.next();
-			IntElement unseenElement = m_Scores.remove(color);
-			if (unseenElement != null) {
-				DestroyWME(unseenElement);
-			}
+		for (String color : unseen) {
+			il.remove(m_Scores.remove(color));
 		}
 		
 		playersChanged = false;
@@ -872,7 +677,7 @@ public class SoarTank implements Agent.RunEventInterface, TankCommander {
 					}
 				} else {
 					// Create a new WME
-					radarCellIDs[width][height] = agent.CreateIdWME(m_RadarWME, getCellID(state.getRadar()[width][height]));
+					radarCellIDs[width][height] = agent.CreateIdWME(m_RadarWME.identifier(), getCellID(state.getRadar()[width][height]));
 					CreateIntWME(radarCellIDs[width][height], Names.kDistanceID, height);
 					CreateStringWME(radarCellIDs[width][height], Names.kPositionID, getPositionID(width));
 					if (state.getRadar()[width][height].player != null) {
@@ -925,7 +730,7 @@ public class SoarTank implements Agent.RunEventInterface, TankCommander {
 				} else {
 					
 					if (radarCellIDs[width][height] == null) {
-						radarCellIDs[width][height] = agent.CreateIdWME(m_RadarWME, getCellID(state.getRadar()[width][height]));
+						radarCellIDs[width][height] = agent.CreateIdWME(m_RadarWME.identifier(), getCellID(state.getRadar()[width][height]));
 						CreateIntWME(radarCellIDs[width][height], Names.kDistanceID, height);
 						CreateStringWME(radarCellIDs[width][height], Names.kPositionID, getPositionID(width));
 						if (state.getRadar()[width][height].player != null) {
@@ -944,7 +749,7 @@ public class SoarTank implements Agent.RunEventInterface, TankCommander {
 						// Update if relevant change
 						if (movedOrRotated || changed) {
 							DestroyWME(radarCellIDs[width][height]);
-							radarCellIDs[width][height] = agent.CreateIdWME(m_RadarWME, getCellID(state.getRadar()[width][height]));
+							radarCellIDs[width][height] = agent.CreateIdWME(m_RadarWME.identifier(), getCellID(state.getRadar()[width][height]));
 							CreateIntWME(radarCellIDs[width][height], Names.kDistanceID, height);
 							CreateStringWME(radarCellIDs[width][height], Names.kPositionID, getPositionID(width));
 							if (state.getRadar()[width][height].player != null) {
@@ -4,12 +4,14 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import edu.umich.soar.gridmap2d.Direction;
-import edu.umich.soar.gridmap2d.Gridmap2D;
 import edu.umich.soar.gridmap2d.Names;
+import edu.umich.soar.gridmap2d.SimulationContext;
+import edu.umich.soar.gridmap2d.SimulationContext.RandomStream;
 import edu.umich.soar.gridmap2d.map.TaxiMap;
 import edu.umich.soar.gridmap2d.players.CommandInfo;
 import edu.umich.soar.gridmap2d.players.Taxi;
 import edu.umich.soar.gridmap2d.players.TaxiCommander;
+import edu.umich.soar.gridmap2d.soar.CommandDecoder.Command;
 
 import sml.Agent;
 import sml.Identifier;
@@ -17,23 +19,29 @@ import sml.Identifier;
 public class SoarTaxi implements TaxiCommander {
 	private static final Log logger = LogFactory.getLog(SoarTaxi.class);
 
+	private final SimulationContext context;
 	private Taxi player;
 	private Agent agent;
 	private String [] shutdownCommands;
 	private SoarTaxiIL input;
+	private final CommandDecoder decoder;
+	/** handed out by nextCommand, cleared each time */
+	private final CommandInfo move = new CommandInfo();
 
-	public SoarTaxi(Taxi taxi, Agent agent, String[] shutdown_commands) {
+	public SoarTaxi(SimulationContext context, Taxi taxi, Agent agent, String[] shutdown_commands) {
+		this.context = context;
 		this.player = taxi;
 		this.agent = agent;
 		this.shutdownCommands = shutdown_commands;
 		
 		agent.SetBlinkIfNoChange(false);
+		decoder = new CommandDecoder(agent);
 		
-		input = new SoarTaxiIL(agent);
+		input = new SoarTaxiIL(agent, context.random(RandomStream.INPUT));
 		input.create();
 
 		if (!agent.Commit()) {
-			Gridmap2D.control.errorPopUp(Names.Errors.commitFail + taxi.getName());
+			context.control().errorPopUp(Names.Errors.commitFail + taxi.getName());
 		}
 	}
 
@@ -41,33 +49,34 @@ public class SoarTaxi implements TaxiCommander {
 		input.update(player.getMoved(), player.getLocation(), taxiMap, player.getPointsDelta(), player.getFuel());
 		
 		if (!agent.Commit()) {
-			Gridmap2D.control.errorPopUp(Names.Errors.commitFail + player.getName());
-			Gridmap2D.control.stopSimulation();
+			context.control().errorPopUp(Names.Errors.commitFail + player.getName());
+			context.control().stopSimulation();
 		}
 	}
 
 	public CommandInfo nextCommand() {
+		move.clear();
+		
 		// if there was no command issued, that is kind of strange
-		if (agent.GetNumberCommands() == 0) {
+		if (decoder.decode() == 0) {
 			if (logger.isDebugEnabled()) {
 				logger.debug(player.getName() + " issued no command.");
 			}
-			return new CommandInfo();
+			return move;
 		}
 
 		// go through the commands
 		// see move info for details
-		CommandInfo move = new CommandInfo();
 		boolean moveWait = false;
-		if (agent.GetNumberCommands() > 1) {
-			logger.debug(player.getName() + ": " + agent.GetNumberCommands() 
+		if (decoder.count() > 1 && logger.isDebugEnabled()) {
+			logger.debug(player.getName() + ": " + decoder.count() 
 					+ " commands detected, all but the first will be ignored");
 		}
-		for (int i = 0; i < agent.GetNumberCommands(); ++i) {
-			Identifier commandId = agent.GetCommand(i);
-			String commandName = commandId.GetAttribute();
+		for (int i = 0; i < decoder.count(); ++i) {
+			Identifier commandId = decoder.id(i);
+			Command command = decoder.command(i);
 			
-			if (commandName.equalsIgnoreCase(Names.kMoveID)) {
+			if (command == Command.MOVE) {
 				if (move.move || moveWait) {
 					logger.debug(player.getName() + ": multiple move commands detected");
 					commandId.AddStatusError();
@@ -75,7 +84,7 @@ public class SoarTaxi implements TaxiCommander {
 				}
 				move.move = true;
 				
-				String direction = commandId.GetParameterValue(Names.kDirectionID);
+				String direction = decoder.parameter(i, Names.kDirectionID);
 				if (direction != null) {
 					if (direction.equals(Names.kNone)) {
 						// legal wait
@@ -90,7 +99,7 @@ public class SoarTaxi implements TaxiCommander {
 					}
 				}
 				
-			} else if (commandName.equalsIgnoreCase(Names.kStopSimID)) {
+			} else if (command == Command.STOP_SIM) {
 				if (move.stopSim) {
 					logger.debug(player.getName() + ": multiple stop commands detected, ignoring");
 					commandId.AddStatusError();
@@ -100,7 +109,7 @@ public class SoarTaxi implements TaxiCommander {
 				commandId.AddStatusComplete();
 				continue;
 				
-			} else if (commandName.equalsIgnoreCase(Names.kPickUpID)) {
+			} else if (command == Command.PICK_UP) {
 				if (move.pickup) {
 					logger.debug(player.getName() + ": multiple " + Names.kPickUpID + " commands detected, ignoring");
 					commandId.AddStatusError();
@@ -110,7 +119,7 @@ public class SoarTaxi implements TaxiCommander {
 				commandId.AddStatusComplete();
 				continue;
 				
-			} else if (commandName.equalsIgnoreCase(Names.kPutDownID)) {
+			} else if (command == Command.PUT_DOWN) {
 				if (move.putdown) {
 					logger.debug(player.getName() + ": multiple " + Names.kPutDownID + " commands detected, ignoring");
 					commandId.AddStatusError();
@@ -120,7 +129,7 @@ public class SoarTaxi implements TaxiCommander {
 				commandId.AddStatusComplete();
 				continue;
 				
-			} else if (commandName.equalsIgnoreCase(Names.kFillUpID)) {
+			} else if (command == Command.FILL_UP) {
 				if (move.fillup) {
 					logger.debug(player.getName() + ": multiple " + Names.kFillUpID + " commands detected, ignoring");
 					commandId.AddStatusError();
@@ -131,19 +140,19 @@ public class SoarTaxi implements TaxiCommander {
 				continue;
 				
 			} else {
-				logger.warn("Unknown command: " + commandName);
+				logger.warn("Unknown command: " + decoder.name(i));
 				commandId.AddStatusError();
 				continue;
 			}
 			
-			logger.warn("Improperly formatted command: " + commandName);
+			logger.warn("Improperly formatted command: " + decoder.name(i));
 			commandId.AddStatusError();
 		}
 		agent.ClearOutputLinkChanges();
 		
 		if (!agent.Commit()) {
-			Gridmap2D.control.errorPopUp(Names.Errors.commitFail + player.getName());
-			Gridmap2D.control.stopSimulation();
+			context.control().errorPopUp(Names.Errors.commitFail + player.getName());
+			context.control().stopSimulation();
 		}
 		
 		return move;
@@ -157,8 +166,8 @@ public class SoarTaxi implements TaxiCommander {
 		input.destroy();
 
 		if (!agent.Commit()) {
-			Gridmap2D.control.errorPopUp(Names.Errors.commitFail + player.getName());
-			Gridmap2D.control.stopSimulation();
+			context.control().errorPopUp(Names.Errors.commitFail + player.getName());
+			context.control().stopSimulation();
 		}
 
 		agent.InitSoar();
@@ -166,8 +175,8 @@ public class SoarTaxi implements TaxiCommander {
 		input.create();
 			 
 		if (!agent.Commit()) {
-			Gridmap2D.control.errorPopUp(Names.Errors.commitFail + player.getName());
-			Gridmap2D.control.stopSimulation();
+			context.control().errorPopUp(Names.Errors.commitFail + player.getName());
+			context.control().stopSimulation();
 		}
 
 	}
@@ -180,7 +189,7 @@ public class SoarTaxi implements TaxiCommander {
 				String result = player.getName() + ": result: " + agent.ExecuteCommandLine(command, true);
 				logger.info(player.getName() + ": shutdown command: " + command);
 				if (agent.HadError()) {
-					Gridmap2D.control.errorPopUp(result);
+					context.control().errorPopUp(result);
 				} else {
 					logger.info(player.getName() + ": result: " + result);
 				}
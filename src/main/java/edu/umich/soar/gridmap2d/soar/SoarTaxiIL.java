@@ -1,25 +1,29 @@
 package edu.umich.soar.gridmap2d.soar;
 
+import java.util.Random;
+
 import edu.umich.soar.gridmap2d.Direction;
 import edu.umich.soar.gridmap2d.Names;
-import edu.umich.soar.gridmap2d.Simulation;
 import edu.umich.soar.gridmap2d.map.TaxiMap;
 
 import sml.Agent;
-import sml.FloatElement;
-import sml.Identifier;
-import sml.IntElement;
-import sml.StringElement;
 
 class SoarTaxiIL {
-	private Agent agent;
-	private SelfIL self = new SelfIL();
-	private ViewIL view = new ViewIL();
-	private CellIL cell = new CellIL();
-	private CheatIL cheat = new CheatIL();
+	private final Random randomSource;
+	private final InputLinkMirror il;
+	private final SelfIL self;
+	private final ViewIL view;
+	private final CellIL cell;
+	private final CheatIL cheat;
 	
-	SoarTaxiIL(Agent agent) {
-		this.agent = agent;
+	SoarTaxiIL(Agent agent, Random randomSource) {
+		this.randomSource = randomSource;
+		this.il = new InputLinkMirror(agent);
+		// declared in the order they go on the input link
+		this.self = new SelfIL();
+		this.view = new ViewIL();
+		this.cell = new CellIL();
+		this.cheat = new CheatIL();
 	}
 
 	void create() {
@@ -27,6 +31,7 @@ class SoarTaxiIL {
 		view.create();
 		cell.create();
 		cheat.create();
+		il.flush();
 	}
 	
 	void update(boolean moved, int[] pos, TaxiMap map, int reward, int fuel) {
@@ -34,248 +39,161 @@ class SoarTaxiIL {
 		view.update(pos, map);
 		cell.update(pos, map);
 		cheat.update(map);
+		il.flush();
 	}
 	
 	void destroy() {
-		self.destroy();
-		view.destroy();
-		cell.destroy();
-		cheat.destroy();
+		il.destroy();
 	}
 	
 	private class SelfIL {
-		private class RandomIL {
-			private FloatElement randomWME;
-
-			private void create() {
-				randomWME = agent.CreateFloatWME(selfWME, Names.kRandomID, Simulation.random.nextFloat());
-			}
-			
-			private void update() {
-				assert randomWME != null;
-				
-				// force blink
-				this.destroy();
-				this.create();
-			}
-			
-			private void destroy() {
-				if (randomWME != null) {
-					agent.DestroyWME(randomWME);
-					randomWME = null;
-				}
-			}
-		}
-		
-		private Identifier selfWME;
-		private IntElement xWME;
-		private IntElement yWME;
-		private IntElement reward;
-		private StringElement passenger;
-		private StringElement destination;
-		private IntElement fuel;
-		
-		private RandomIL random = new RandomIL();
+		private final InputLinkMirror.Node selfWME = il.id(il.root(), "self");
+		private final InputLinkMirror.Node position = il.id(selfWME, "position");
+		private final InputLinkMirror.IntSlot xWME = il.intSlot(position, Names.kXID);
+		private final InputLinkMirror.IntSlot yWME = il.intSlot(position, Names.kYID);
+		private final InputLinkMirror.IntSlot reward = il.intSlot(selfWME, "reward");
+		private final InputLinkMirror.StringSlot passenger = il.stringSlot(selfWME, "passenger");
+		private final InputLinkMirror.StringSlot destination = il.stringSlot(selfWME, "destination");
+		private final InputLinkMirror.IntSlot fuel = il.intSlot(selfWME, "fuel");
+		private final InputLinkMirror.FloatSlot random = il.floatSlot(selfWME, Names.kRandomID);
 
 		private void create() {
-			selfWME = agent.CreateIdWME(agent.GetInputLink(), "self");
-
-			Identifier position = agent.CreateIdWME(selfWME, "position");
-			xWME = agent.CreateIntWME(position, Names.kXID, 0);
-			yWME = agent.CreateIntWME(position, Names.kYID, 0);
-
-			reward = agent.CreateIntWME(selfWME, "reward", 0);
-
-			passenger = agent.CreateStringWME(selfWME, "passenger", "false");
-			destination = null;
-
-			fuel = agent.CreateIntWME(selfWME, "fuel", 0);
-
-			random.create();
+			xWME.set(0);
+			yWME.set(0);
+			reward.set(0);
+			passenger.set("false");
+			destination.clear();
+			fuel.set(0);
+			random.set(randomSource.nextFloat());
 		}
 	
 		private void update(boolean moved, int[] pos, TaxiMap map, int reward, int fuel) {
-			assert selfWME != null;
-
 			if (moved) {
-				agent.Update(xWME, pos[0]);
-				agent.Update(yWME, map.size() - 1 - pos[1]);
+				xWME.set(pos[0]);
+				yWME.set(map.size() - 1 - pos[1]);
 			}
 			
 			// force blink
-			agent.DestroyWME(this.reward);
-			this.reward = agent.CreateIntWME(selfWME, "reward", reward);
+			this.reward.set(reward);
+			this.reward.blink();
 			
 			if (map.isPassengerCarried()) {
-				agent.Update(passenger, "true");
-				if (destination == null) {
-					destination = agent.CreateStringWME(selfWME, "destination", map.getPassengerDestination());
+				passenger.set("true");
+				if (!destination.isPresent()) {
+					destination.set(map.getPassengerDestination());
 				}
 				
 			} else {
-				agent.Update(passenger, "false");
-				if (destination != null) {
-					agent.DestroyWME(destination);
-					destination = null;
-				}
+				passenger.set("false");
+				destination.clear();
 			}
 
-			agent.Update(this.fuel, fuel);
+			this.fuel.set(fuel);
 
-			random.update();
-		}
-		
-		private void destroy() {
-			random.destroy();
-			if (selfWME != null) {
-				agent.DestroyWME(selfWME);
-				selfWME = null;
-			}
+			// force blink
+			random.set(randomSource.nextFloat());
+			random.blink();
 		}
 	}
 	
 	private class ViewIL {
-		private Identifier viewWME;
-		private StringElement northType;
-		private StringElement northWall;
-		private StringElement northPassenger;
-		private StringElement southType;
-		private StringElement southWall;
-		private StringElement southPassenger;
-		private StringElement eastType;
-		private StringElement eastWall;
-		private StringElement eastPassenger;
-		private StringElement westType;
-		private StringElement westWall;
-		private StringElement westPassenger;
+		private final InputLinkMirror.Node viewWME = il.id(il.root(), "view");
+		private final Neighbor north = new Neighbor("north");
+		private final Neighbor south = new Neighbor("south");
+		private final Neighbor east = new Neighbor("east");
+		private final Neighbor west = new Neighbor("west");
 		
-		private void create() {
-			viewWME = agent.CreateIdWME(agent.GetInputLink(), "view");
-
-			Identifier north = agent.CreateIdWME(viewWME, "north");
-			northType = agent.CreateStringWME(north, "type", "none");
-			northPassenger = agent.CreateStringWME(north, "passenger", "false");
-			northWall = agent.CreateStringWME(north, "wall", "false");
+		private class Neighbor {
+			private final InputLinkMirror.StringSlot type;
+			private final InputLinkMirror.StringSlot passenger;
+			private final InputLinkMirror.StringSlot wall;
 			
-			Identifier south = agent.CreateIdWME(viewWME, "south");
-			southType = agent.CreateStringWME(south, "type", "none");
-			southPassenger = agent.CreateStringWME(south, "passenger", "false");
-			southWall = agent.CreateStringWME(south, "wall", "false");
-
-			Identifier east = agent.CreateIdWME(viewWME, "east");
-			eastType = agent.CreateStringWME(east, "type", "none");
-			eastPassenger = agent.CreateStringWME(east, "passenger", "false");
-			eastWall = agent.CreateStringWME(east, "wall", "false");
-
-			Identifier west = agent.CreateIdWME(viewWME, "west");
-			westType = agent.CreateStringWME(west, "type", "none");
-			westPassenger = agent.CreateStringWME(west, "passenger", "false");
-			westWall = agent.CreateStringWME(west, "wall", "false");
+			private Neighbor(String direction) {
+				InputLinkMirror.Node id = il.id(viewWME, direction);
+				type = il.stringSlot(id, "type");
+				passenger = il.stringSlot(id, "passenger");
+				wall = il.stringSlot(id, "wall");
+			}
+			
+			private void create() {
+				type.set("none");
+				passenger.set("false");
+				wall.set("false");
+			}
+		}
+		
+		private void create() {
+			north.create();
+			south.create();
+			east.create();
+			west.create();
 		}
 		
 		private void update(int[] pos, TaxiMap map) {
-			assert viewWME != null;
-			
-			updateView(pos, map, Direction.NORTH, northType, northPassenger, northWall);
-			updateView(pos, map, Direction.SOUTH, southType, southPassenger, southWall);
-			updateView(pos, map, Direction.EAST, eastType, eastPassenger, eastWall);
-			updateView(pos, map, Direction.WEST, westType, westPassenger, westWall);
-
+			updateView(pos, map, Direction.NORTH, north);
+			updateView(pos, map, Direction.SOUTH, south);
+			updateView(pos, map, Direction.EAST, east);
+			updateView(pos, map, Direction.WEST, west);
 		}
 		
-		private void updateView(int [] pos, TaxiMap map, Direction direction, StringElement type, StringElement passenger, StringElement wall) {
+		private void updateView(int [] pos, TaxiMap map, Direction direction, Neighbor neighbor) {
 			int [] tempLocation = Direction.translate(pos, direction, new int[2]);
 			
-			agent.Update(type, map.getStringType(tempLocation));
+			neighbor.type.set(map.getStringType(tempLocation));
 			
 			if (map.isInBounds(tempLocation)) {
 				if (map.getCell(tempLocation).hasObjectWithProperty("passenger")) {
-					agent.Update(passenger, "true");
+					neighbor.passenger.set("true");
 				} else {
-					agent.Update(passenger, "false");
+					neighbor.passenger.set("false");
 				}
 			} else {
-				agent.Update(passenger, "false");
+				neighbor.passenger.set("false");
 			}
 
 			if (map.wall(pos, direction)) {
-				agent.Update(wall, "true");
+				neighbor.wall.set("true");
 			} else {
-				agent.Update(wall, "false");
-			}
-		}
-		
-		private void destroy() {
-			if (viewWME != null) {
-				agent.DestroyWME(viewWME);
-				viewWME = null;
+				neighbor.wall.set("false");
 			}
 		}
 	}
 	
 	private class CellIL {
-		private Identifier cellWME;
-		private StringElement cellType;
-		private StringElement cellPassenger;
+		private final InputLinkMirror.Node cellWME = il.id(il.root(), "cell");
+		private final InputLinkMirror.StringSlot cellType = il.stringSlot(cellWME, "type");
+		private final InputLinkMirror.StringSlot cellPassenger = il.stringSlot(cellWME, "passenger");
 		
 		private void create() {
-			cellWME = agent.CreateIdWME(agent.GetInputLink(), "cell");
-			cellType = agent.CreateStringWME(cellWME, "type", "none");
-			cellPassenger = agent.CreateStringWME(cellWME, "passenger", "false");
+			cellType.set("none");
+			cellPassenger.set("false");
 		}
 		
 		private void update(int[] pos, TaxiMap map) {
-			assert cellWME != null;
-			
-			agent.Update(cellType, map.getStringType(pos));
+			cellType.set(map.getStringType(pos));
 			
 			if (map.getCell(pos).hasObjectWithProperty("passenger")) {
-				agent.Update(cellPassenger, "true");
+				cellPassenger.set("true");
 			} else {
-				agent.Update(cellPassenger, "false");
-			}
-		}
-		
-		private void destroy() {
-			if (cellWME != null) {
-				agent.DestroyWME(cellWME);
-				cellWME = null;
+				cellPassenger.set("false");
 			}
 		}
 	}
 	
 	private class CheatIL {
-		private Identifier cheatWME;
-		private StringElement source;
-		private StringElement destination;
+		private final InputLinkMirror.Node cheatWME = il.id(il.root(), "cheat");
+		private final InputLinkMirror.Node oracle = il.id(cheatWME, "oracle");
+		private final InputLinkMirror.StringSlot source = il.stringSlot(oracle, "source");
+		private final InputLinkMirror.StringSlot destination = il.stringSlot(oracle, "destination");
 
 		private void create() {
-			cheatWME = agent.CreateIdWME(agent.GetInputLink(), "cheat");
-			
-			Identifier oracle = agent.CreateIdWME(cheatWME, "oracle");
-			source = agent.CreateStringWME(oracle, "source", "none");
-			destination = agent.CreateStringWME(oracle, "destination", "none");
+			source.set("none");
+			destination.set("none");
 		}
 		
 		private void update(TaxiMap map) {
-			assert cheatWME != null;
-			
-			String sourceColor = map.getPassengerSourceColor();
-			if (!sourceColor.equals(source.GetValue())) {
-				agent.Update(source, sourceColor);
-			}
-			
-			String destColor = map.getPassengerDestination();
-			if (!destColor.equals(destination.GetValue())) {
-				agent.Update(destination, destColor);
-			}
-		}
-		
-		private void destroy() {
-			if (cheatWME != null) {
-				agent.DestroyWME(cheatWME);
-				cheatWME = null;
-			}
+			source.set(map.getPassengerSourceColor());
+			destination.set(map.getPassengerDestination());
 		}
 	}
 }
@@ -0,0 +1,103 @@
+package edu.umich.soar.gridmap2d.soar;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The string WMEs under one identifier by attribute and value, kept on the
+ * Java side as they are created, updated and destroyed through it, so asking
+ * whether one is there costs no trip through SML.
+ * 
+ * Only WMEs that go through the index are in it; the caller creates every
+ * string WME under the identifier this way. The WMEs go to SML through a
+ * sink, identifiers and WMEs are whatever it hands back.
+ */
+class StringWmeIndex {
+	private static class Entry {
+		final String attribute;
+		String value;
+		
+		Entry(String attribute, String value) {
+			this.attribute = attribute;
+			this.value = value;
+		}
+	}
+	
+	/** attribute to value to how many WMEs have it */
+	private final Map<String, Map<String, Integer>> counts = new HashMap<String, Map<String, Integer>>();
+	private final Map<Object, Entry> entries = new IdentityHashMap<Object, Entry>();
+	private final InputLinkMirror.Sink sink;
+	
+	StringWmeIndex(InputLinkMirror.Sink sink) {
+		this.sink = sink;
+	}
+	
+	boolean contains(String attribute, String value) {
+		Map<String, Integer> values = counts.get(attribute);
+		return values != null && values.containsKey(value);
+	}
+	
+	/**
+	 * @return the new WME
+	 */
+	Object create(Object id, String attribute, String value) {
+		Object element = sink.createString(id, attribute, value);
+		entries.put(element, new Entry(attribute, value));
+		count(attribute, value, 1);
+		return element;
+	}
+	
+	/**
+	 * @return the new WME, null if there already is one with that attribute
+	 *         and value
+	 */
+	Object createIfAbsent(Object id, String attribute, String value) {
+		if (contains(attribute, value)) {
+			return null;
+		}
+		return create(id, attribute, value);
+	}
+	
+	/**
+	 * @return the value the WME was last given through the index, null if it
+	 *         is not in the index
+	 */
+	String value(Object element) {
+		Entry entry = entries.get(element);
+		return entry == null ? null : entry.value;
+	}
+	
+	void update(Object element, String value) {
+		Entry entry = entries.get(element);
+		if (entry != null) {
+			count(entry.attribute, entry.value, -1);
+			entry.value = value;
+			count(entry.attribute, value, 1);
+		}
+		sink.update(element, value);
+	}
+	
+	void destroy(Object element) {
+		Entry entry = entries.remove(element);
+		if (entry != null) {
+			count(entry.attribute, entry.value, -1);
+		}
+		sink.destroy(element);
+	}
+	
+	private void count(String attribute, String value, int delta) {
+		Map<String, Integer> values = counts.get(attribute);
+		if (values == null) {
+			values = new HashMap<String, Integer>();
+			counts.put(attribute, values);
+		}
+		Integer count = values.get(value);
+		int updated = (count == null ? 0 : count) + delta;
+		if (updated > 0) {
+			values.put(value, updated);
+		} else {
+			values.remove(value);
+		}
+	}
+}
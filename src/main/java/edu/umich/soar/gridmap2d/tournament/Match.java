@@ -0,0 +1,139 @@
+package edu.umich.soar.gridmap2d.tournament;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import edu.umich.soar.config.Config;
+import edu.umich.soar.config.ConfigFile;
+import edu.umich.soar.config.ParseError;
+import edu.umich.soar.gridmap2d.SimulationContext;
+import edu.umich.soar.gridmap2d.config.SimConfig;
+import edu.umich.soar.gridmap2d.world.RunResult;
+
+/**
+ * One cell of the tournament matrix: a map, a seed and a line-up of player
+ * ids. Running it builds a private headless SimulationContext from the base
+ * config with those values overridden, runs it to a terminal state and
+ * keeps what the world reported.
+ */
+public class Match {
+	private static final Log logger = LogFactory.getLog(Match.class);
+
+	private final int index;
+	private final String map;
+	private final int seed;
+	private final String[] lineup;
+
+	private RunResult result;
+	private Throwable error;
+	private long elapsedMillis;
+
+	Match(int index, String map, int seed, String[] lineup) {
+		this.index = index;
+		this.map = map;
+		this.seed = seed;
+		this.lineup = Arrays.copyOf(lineup, lineup.length);
+	}
+
+	/**
+	 * @param configPath the base config
+	 *
+	 * Runs the match in the calling thread. Failures are recorded, not thrown,
+	 * so one bad match does not take down the tournament.
+	 */
+	void run(String configPath) {
+		long start = System.currentTimeMillis();
+		try {
+			SimulationContext context = new SimulationContext(createConfig(configPath));
+			context.initialize();
+			context.control().startSimulation(false, false);
+			context.control().shutdown();
+
+			List<RunResult> results = context.getRunResults();
+			if (results.isEmpty()) {
+				error = new IllegalStateException("match stopped without a result");
+			} else {
+				result = results.get(results.size() - 1);
+			}
+		} catch (IOException e) {
+			error = e;
+		} catch (ParseError e) {
+			error = e;
+		} catch (RuntimeException e) {
+			error = e;
+		}
+		elapsedMillis = System.currentTimeMillis() - start;
+
+		if (error != null) {
+			logger.error(this + " failed: " + error);
+		}
+	}
+
+	private SimConfig createConfig(String configPath) throws ParseError, IOException {
+		Config config = new Config(new ConfigFile(configPath));
+
+		config.setString("general.map", map);
+		config.setInt("general.seed", seed);
+		config.setBoolean("general.headless", true);
+		config.setBoolean("general.force_human", false);
+		config.setInt("general.runs", 0);
+		config.setString("general.tick_mode", "max_throughput");
+
+		// a kernel in the calling thread and no debuggers, matches run side by side
+		config.setBoolean("soar.optimized", true);
+		config.setBoolean("soar.spawn_debuggers", false);
+
+		config.setStrings("players.active_players", lineup);
+		for (String playerId : lineup) {
+			// names default to colors, which are random; results are keyed on name
+			if (!config.hasKey("players." + playerId + ".name")) {
+				config.setString("players." + playerId + ".name", playerId);
+			}
+		}
+		return SimConfig.newInstance(config);
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public String getMap() {
+		return map;
+	}
+
+	public int getSeed() {
+		return seed;
+	}
+
+	public String[] getLineup() {
+		return Arrays.copyOf(lineup, lineup.length);
+	}
+
+	/**
+	 * @return what the world reported, or null if the match failed or has not
+	 *         run yet
+	 */
+	public RunResult getResult() {
+		return result;
+	}
+
+	/**
+	 * @return why the match failed, or null
+	 */
+	public Throwable getError() {
+		return error;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "match " + index + " (" + map + ", seed " + seed + ", " + Arrays.toString(lineup) + ")";
+	}
+}
@@ -0,0 +1,323 @@
+package edu.umich.soar.gridmap2d.tournament;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import edu.umich.soar.config.Config;
+import edu.umich.soar.config.ConfigFile;
+import edu.umich.soar.config.ParseError;
+import edu.umich.soar.gridmap2d.world.RunResult;
+
+/**
+ * Runs every combination of maps, seeds and player line-ups as independent
+ * headless worlds on a work-stealing pool and totals up the standings.
+ *
+ * The matrix comes from the tournament section of the base config, which
+ * also holds the player definitions the line-ups refer to:
+ *
+ * <pre>
+ * tournament.maps = [ "config/maps/tanksoar/default.txt", "config/maps/tanksoar/x.txt" ];
+ * tournament.seeds = [ 1, 2, 3 ];
+ * tournament.lineups = [ "a", "b" ];
+ * tournament.lineup.a = [ "tank1", "tank2" ];
+ * tournament.lineup.b = [ "tank1", "tank3" ];
+ * tournament.threads = 16;
+ * </pre>
+ *
+ * Missing maps default to general.map, missing seeds to general.seed (or 0)
+ * and missing line-ups to players.active_players. Each match runs until the
+ * world is terminal, so the config needs a terminal such as
+ * terminals.max_updates.
+ */
+public class Tournament {
+	private static final Log logger = LogFactory.getLog(Tournament.class);
+
+	/**
+	 * Totals for one player across all of the matches it played.
+	 */
+	public static class Record {
+		private final String name;
+		private int matches;
+		private int wins;
+		private int draws;
+		private int losses;
+		private long points;
+
+		Record(String name) {
+			this.name = name;
+		}
+
+		void add(RunResult.Standing standing) {
+			matches += 1;
+			points += standing.getPoints();
+			switch (standing.getStatus()) {
+			case WINNER:
+				wins += 1;
+				break;
+			case DRAW:
+				draws += 1;
+				break;
+			case LOSER:
+				losses += 1;
+				break;
+			}
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getMatches() {
+			return matches;
+		}
+
+		public int getWins() {
+			return wins;
+		}
+
+		public int getDraws() {
+			return draws;
+		}
+
+		public int getLosses() {
+			return losses;
+		}
+
+		public long getPoints() {
+			return points;
+		}
+
+		public double getMeanPoints() {
+			return matches > 0 ? (double) points / matches : 0;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: %d matches, %d wins, %d draws, %d losses, %.2f mean points",
+					name, matches, wins, draws, losses, getMeanPoints());
+		}
+	}
+
+	private final String configPath;
+	private final List<String> maps = new ArrayList<String>();
+	private final List<Integer> seeds = new ArrayList<Integer>();
+	private final List<String[]> lineups = new ArrayList<String[]>();
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private List<Match> matches = Collections.emptyList();
+
+	/**
+	 * @param configPath the base config every match is created from
+	 */
+	public Tournament(String configPath) {
+		this.configPath = configPath;
+	}
+
+	/**
+	 * Fills in the matrix from the tournament section of the base config.
+	 *
+	 * @throws ParseError If there is an error parsing the config file
+	 * @throws IOException If there is an error reading the config file
+	 */
+	public void loadMatrix() throws ParseError, IOException {
+		Config config = new Config(new ConfigFile(configPath));
+
+		String[] mapList = config.getStrings("tournament.maps", null);
+		if (mapList == null) {
+			mapList = new String[] { config.requireString("general.map") };
+		}
+		for (String map : mapList) {
+			addMap(map);
+		}
+
+		int[] seedList = config.getInts("tournament.seeds", null);
+		if (seedList == null) {
+			seedList = new int[] { config.getInt("general.seed", 0) };
+		}
+		for (int seed : seedList) {
+			addSeed(seed);
+		}
+
+		String[] lineupList = config.getStrings("tournament.lineups", null);
+		if (lineupList == null) {
+			addLineup(config.requireStrings("players.active_players"));
+		} else {
+			for (String lineup : lineupList) {
+				addLineup(config.requireStrings("tournament.lineup." + lineup));
+			}
+		}
+
+		setParallelism(config.getInt("tournament.threads", parallelism));
+	}
+
+	public void addMap(String map) {
+		maps.add(map);
+	}
+
+	public void addSeed(int seed) {
+		seeds.add(seed);
+	}
+
+	/**
+	 * @param playerIds ids of players defined in the base config
+	 */
+	public void addLineup(String... playerIds) {
+		if (playerIds.length == 0) {
+			throw new IllegalArgumentException("empty line-up");
+		}
+		lineups.add(playerIds.clone());
+	}
+
+	/**
+	 * @param parallelism the number of matches to run at once
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Runs every match in the matrix, blocking until they are all done.
+	 *
+	 * @return the matches, in matrix order (maps, then seeds, then line-ups)
+	 */
+	public List<Match> run() {
+		List<Match> all = new ArrayList<Match>(maps.size() * seeds.size() * lineups.size());
+		for (String map : maps) {
+			for (Integer seed : seeds) {
+				for (String[] lineup : lineups) {
+					all.add(new Match(all.size(), map, seed, lineup));
+				}
+			}
+		}
+		matches = Collections.unmodifiableList(all);
+
+		logger.info("Running " + matches.size() + " matches on " + parallelism + " threads.");
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			pool.invoke(new MatchTask(0, matches.size(), new AtomicInteger()));
+		} finally {
+			pool.shutdown();
+		}
+		return matches;
+	}
+
+	/**
+	 * Splits the match range in half until single matches are left, idle
+	 * workers steal the other halves.
+	 */
+	private class MatchTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final AtomicInteger finished;
+
+		MatchTask(int from, int to, AtomicInteger finished) {
+			this.from = from;
+			this.to = to;
+			this.finished = finished;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from == 1) {
+				Match match = matches.get(from);
+				match.run(configPath);
+				logger.info("Finished " + match + " (" + finished.incrementAndGet() + "/" + matches.size() + ")");
+			} else if (to - from > 1) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new MatchTask(from, mid, finished), new MatchTask(mid, to, finished));
+			}
+		}
+	}
+
+	/**
+	 * @return the matches from the last run
+	 */
+	public List<Match> getMatches() {
+		return matches;
+	}
+
+	/**
+	 * @return totals per player name over the last run, best first
+	 */
+	public List<Record> getRecords() {
+		Map<String, Record> records = new TreeMap<String, Record>();
+		for (Match match : matches) {
+			if (match.getResult() == null) {
+				continue;
+			}
+			for (RunResult.Standing standing : match.getResult().getStandings()) {
+				Record record = records.get(standing.getName());
+				if (record == null) {
+					record = new Record(standing.getName());
+					records.put(standing.getName(), record);
+				}
+				record.add(standing);
+			}
+		}
+
+		List<Record> sorted = new ArrayList<Record>(records.values());
+		Collections.sort(sorted, new Comparator<Record>() {
+			public int compare(Record a, Record b) {
+				if (a.getWins() != b.getWins()) {
+					return b.getWins() - a.getWins();
+				}
+				return Double.compare(b.getMeanPoints(), a.getMeanPoints());
+			}
+		});
+		return sorted;
+	}
+
+	public void printSummary(PrintStream out) {
+		int failed = 0;
+		for (Match match : matches) {
+			if (match.getError() != null) {
+				failed += 1;
+				out.println(match + " failed: " + match.getError());
+			}
+		}
+		out.println(matches.size() + " matches, " + failed + " failed");
+		for (Record record : getRecords()) {
+			out.println(record);
+			logger.info(record);
+		}
+	}
+
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println("usage: Tournament <config>");
+			System.exit(1);
+		}
+
+		Tournament tournament = new Tournament(args[0]);
+		try {
+			tournament.loadMatrix();
+		} catch (IOException e) {
+			System.err.println("Error loading configuration file: " + e.getMessage());
+			System.exit(1);
+		} catch (ParseError e) {
+			System.err.println("Error loading configuration file: " + e.getMessage());
+			System.exit(1);
+		}
+		tournament.run();
+		tournament.printSummary(System.out);
+
+		// Soar kernels can leave threads behind
+		System.exit(0);
+	}
+}
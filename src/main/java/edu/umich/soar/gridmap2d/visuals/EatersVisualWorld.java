@@ -1,7 +1,6 @@
 package edu.umich.soar.gridmap2d.visuals;
 
 import java.util.Arrays;
-import java.util.Set;
 
 import org.eclipse.swt.events.PaintEvent;
 import org.eclipse.swt.graphics.Color;
@@ -10,7 +9,9 @@ import org.eclipse.swt.widgets.Composite;
 
 import edu.umich.soar.gridmap2d.Gridmap2D;
 import edu.umich.soar.gridmap2d.Names;
+import edu.umich.soar.gridmap2d.Xy;
 import edu.umich.soar.gridmap2d.map.CellObject;
+import edu.umich.soar.gridmap2d.map.Effect;
 import edu.umich.soar.gridmap2d.players.Player;
 
 
@@ -101,7 +102,8 @@ public class EatersVisualWorld extends VisualWorld {
 					}
 				}
 				
-				Set<CellObject> drawList = this.map.getCell(location).getAllObjectsWithProperty(Names.kPropertyShape);
+				cellContents.clear();
+				this.map.getCell(location).getObjectsWithProperty(Names.kPropertyShape, cellContents);
 				
 				if (this.map.getCell(location).hasObjectWithProperty(Names.kPropertyBlock)) {
 				    gc.setBackground(WindowManager.black);
@@ -138,7 +140,7 @@ public class EatersVisualWorld extends VisualWorld {
 						}
 					}
 					
-					for (CellObject object : drawList) {
+					for (CellObject object : cellContents) {
 						if (empty) {
 							gc.setBackground(WindowManager.widget_background);
 							gc.fillRectangle(cellSize*xDraw, cellSize*yDraw, cellSize, cellSize);
@@ -174,7 +176,7 @@ public class EatersVisualWorld extends VisualWorld {
 					}
 				}
 				
-				if (this.map.getCell(location).hasObjectWithProperty(Names.kExplosion)) {
+				if (Effect.EXPLOSION.in(this.map.getEffects(Xy.pack(location)))) {
 					drawExplosion(gc, xDraw, yDraw);
 				}
 			}
@@ -14,7 +14,9 @@ import org.eclipse.swt.widgets.Composite;
 import edu.umich.soar.gridmap2d.Direction;
 import edu.umich.soar.gridmap2d.Gridmap2D;
 import edu.umich.soar.gridmap2d.Names;
+import edu.umich.soar.gridmap2d.Xy;
 import edu.umich.soar.gridmap2d.map.CellObject;
+import edu.umich.soar.gridmap2d.map.Effect;
 import edu.umich.soar.gridmap2d.map.GridMap;
 import edu.umich.soar.gridmap2d.players.Tank;
 import edu.umich.soar.gridmap2d.players.TankState;
@@ -22,6 +24,7 @@ import edu.umich.soar.gridmap2d.players.TankState;
 
 public class TankSoarVisualWorld extends VisualWorld {
 	Image[][] background = null;
+	private final List<CellObject> missiles = new ArrayList<CellObject>();
 
 	public TankSoarVisualWorld(Composite parent, int style, int cellSize) {
 		super(parent, style, cellSize);
@@ -59,6 +62,7 @@ public class TankSoarVisualWorld extends VisualWorld {
 		
 		// Draw world
 		List<DrawMissile> drawMissiles = new ArrayList<DrawMissile>();
+		String explosionImage = null;
 		int [] location = new int [2];
 		for(location[0] = 0; location[0] < map.size(); ++location[0]){
 			for(location[1] = 0; location[1] < map.size(); ++location[1]){
@@ -67,14 +71,14 @@ public class TankSoarVisualWorld extends VisualWorld {
 				}
 				this.map.getCell(location).setModified(false);
 				
-				CellObject explosion = null;
+				int effects = this.map.getEffects(Xy.pack(location));
 				CellObject object = null;
-				List<CellObject> missiles = new ArrayList<CellObject>();
+				missiles.clear();
 				
-				for (CellObject cellObject : this.map.getCell(location).getAllObjectsWithProperty(Names.kPropertyImage)) {
-					if (cellObject.hasProperty(Names.kExplosion)) {
-						explosion = cellObject;
-					} else if (cellObject.hasProperty("missiles")) {
+				cellContents.clear();
+				this.map.getCell(location).getObjectsWithProperty(Names.kPropertyImage, cellContents);
+				for (CellObject cellObject : cellContents) {
+					if (cellObject.hasProperty("missiles")) {
 						object = cellObject;
 					} else if (cellObject.hasProperty(Names.kPropertyMissile)) {
 						missiles.add(cellObject);
@@ -88,11 +92,13 @@ public class TankSoarVisualWorld extends VisualWorld {
 				gc.drawImage(background[location[0]][location[1]], location[0]*cellSize, location[1]*cellSize);
 				
 				// draw the explosion
-				if (explosion != null) {
-					String imageName = explosion.getProperty(Names.kPropertyImage);
-					Image image = images.get(imageName);
+				if (Effect.EXPLOSION.in(effects)) {
+					if (explosionImage == null) {
+						explosionImage = templateImage(Names.kExplosion);
+					}
+					Image image = images.get(explosionImage);
 					if (image == null) {
-						image = bootstrapImage(imageName);
+						image = bootstrapImage(explosionImage);
 					}
 					gc.drawImage(image, location[0]*cellSize, location[1]*cellSize);
 				}
@@ -179,8 +185,11 @@ public class TankSoarVisualWorld extends VisualWorld {
 				// Finally, draw the radar waves
 				gc.setForeground(WindowManager.getColor("white"));
 				
-				for (CellObject cellObject : this.map.getCell(location).getAllObjectsWithProperty(Names.kPropertyRadarWaves)) {
-					Direction direction = Direction.valueOf(cellObject.getProperty(Names.kPropertyDirection));
+				for (Effect effect : Effect.values()) {
+					if (!effect.in(effects) || effect.radarDirection() == Direction.NONE) {
+						continue;
+					}
+					Direction direction = effect.radarDirection();
 					int start = 0;
 					int xMod = 0;
 					int yMod = 0;
@@ -216,6 +225,18 @@ public class TankSoarVisualWorld extends VisualWorld {
 		painted = true;
 	}
 	
+	/**
+	 * @return the image of the named template, or null if it has none
+	 */
+	private String templateImage(String name) {
+		for (CellObject template : map.getTemplatesWithProperty(Names.kPropertyImage)) {
+			if (name.equals(template.getProperty("name"))) {
+				return template.getProperty(Names.kPropertyImage);
+			}
+		}
+		return null;
+	}
+	
 	private void generateBackground() {
 		background = new Image[map.size()][map.size()];
 		int [] location = new int [2];
@@ -234,7 +255,9 @@ public class TankSoarVisualWorld extends VisualWorld {
 	
 	public void updateBackground(int [] location) {
 		CellObject backgroundObject = null;
-		for (CellObject cellObject : this.map.getCell(location).getAllObjectsWithProperty(Names.kPropertyImage)) {
+		cellContents.clear();
+		this.map.getCell(location).getObjectsWithProperty(Names.kPropertyImage, cellContents);
+		for (CellObject cellObject : cellContents) {
 			if (cellObject.hasProperty(Names.kPropertyBlock)) {
 				backgroundObject = cellObject;
 			} else if (cellObject.hasProperty(Names.kGround)) {
@@ -116,7 +116,9 @@ public class TaxiVisualWorld extends VisualWorld {
 				}
 
 				// walls
-				for (CellObject wall : this.map.getCell(location).getAllObjectsWithProperty("block") ) {
+				cellContents.clear();
+				this.map.getCell(location).getObjectsWithProperty("block", cellContents);
+				for (CellObject wall : cellContents) {
 					switch(Direction.valueOf(wall.getProperty("direction"))) {
 					case NORTH:
 						gc.drawLine(cellSize*location[0], cellSize*location[1], cellSize*location[0] + cellSize-1, cellSize*location[1]);
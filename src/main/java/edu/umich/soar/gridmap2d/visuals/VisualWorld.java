@@ -1,7 +1,9 @@
 package edu.umich.soar.gridmap2d.visuals;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.swt.SWT;
@@ -49,6 +51,8 @@ public abstract class VisualWorld extends Canvas implements PaintListener {
 	protected int lastY = 0;
 	
 	protected GridMap map;
+	/** reused by paintControl for each cell's contents, cleared before each use */
+	protected final List<CellObject> cellContents = new ArrayList<CellObject>();
 	
 	protected Font font;
 	
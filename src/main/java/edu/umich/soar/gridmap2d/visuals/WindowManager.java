@@ -42,6 +42,7 @@ import edu.umich.soar.gridmap2d.Names;
 import edu.umich.soar.gridmap2d.map.EatersMap;
 import edu.umich.soar.gridmap2d.players.CommandInfo;
 import edu.umich.soar.gridmap2d.players.Player;
+import edu.umich.soar.gridmap2d.world.TankSoarWorld;
 import edu.umich.soar.gridmap2d.world.World;
 
 
@@ -156,6 +157,10 @@ public class WindowManager {
 		if (color.equalsIgnoreCase("darkGray")) {
 			return darkGray;
 		}
+		if (color.startsWith(TankSoarWorld.ARENA_PREFIX)) {
+			// arena tanks each have their own color name, draw them alike
+			return darkGray;
+		}
 		return null;
 	}
 
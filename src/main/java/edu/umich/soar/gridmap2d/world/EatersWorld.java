@@ -2,7 +2,6 @@ package edu.umich.soar.gridmap2d.world;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -17,10 +16,12 @@ import com.commsen.stopwatch.Stopwatch;
 
 import edu.umich.soar.gridmap2d.CognitiveArchitecture;
 import edu.umich.soar.gridmap2d.Direction;
-import edu.umich.soar.gridmap2d.Gridmap2D;
 import edu.umich.soar.gridmap2d.Names;
+import edu.umich.soar.gridmap2d.SimulationContext;
+import edu.umich.soar.gridmap2d.Xy;
 import edu.umich.soar.gridmap2d.config.PlayerConfig;
 import edu.umich.soar.gridmap2d.map.CellObject;
+import edu.umich.soar.gridmap2d.map.Effect;
 import edu.umich.soar.gridmap2d.map.EatersMap;
 import edu.umich.soar.gridmap2d.map.GridMap;
 import edu.umich.soar.gridmap2d.players.CommandInfo;
@@ -29,22 +30,33 @@ import edu.umich.soar.gridmap2d.players.EaterCommander;
 import edu.umich.soar.gridmap2d.players.Player;
 import edu.umich.soar.gridmap2d.players.scripted.ScriptedEater;
 
-
 public class EatersWorld implements World {
 	private static final Log logger = LogFactory.getLog(EatersWorld.class);
+	
+	/**
+	 * The stages of update, in order, for the profiler.
+	 */
+	public enum Phase {
+		INPUT, MOVE, EAT, COLLISION, SENSORS, MAP
+	}
 
+	private final SimulationContext context;
 	private EatersMap map;
 	private final PlayersManager<Eater> players = new PlayersManager<Eater>();
+	private final PhaseProfiler<Phase> profiler = new PhaseProfiler<Phase>(Phase.class);
 	private final List<String> stopMessages = new ArrayList<String>();
 	private final CognitiveArchitecture cogArch;
 	private boolean forceHuman = false;
+	// reused by the per-tick cell queries, cleared before each use
+	private final List<CellObject> scratch = new ArrayList<CellObject>();
 	
-	public EatersWorld(CognitiveArchitecture cogArch) {
-		this.cogArch = cogArch;
+	public EatersWorld(SimulationContext context) {
+		this.context = context;
+		this.cogArch = context.cogArch();
 	}
 	
 	public void setAndResetMap(String mapPath) {
-		EatersMap newMap = EatersMap.generateInstance(mapPath, Gridmap2D.config.terminalsConfig().unopened_boxes, Gridmap2D.config.eatersConfig().low_probability, Gridmap2D.config.eatersConfig().high_probability); 
+		EatersMap newMap = EatersMap.generateInstance(context, mapPath, context.config().terminalsConfig().unopened_boxes, context.config().eatersConfig().low_probability, context.config().eatersConfig().high_probability); 
 		if (newMap == null) {
 			return;
 		}
@@ -92,7 +104,7 @@ public class EatersWorld implements World {
 	}
 
 	private void checkPointsRemaining() {
-		if (Gridmap2D.config.terminalsConfig().points_remaining) {
+		if (context.config().terminalsConfig().points_remaining) {
 			if (map.getScoreCount() <= 0) {
 				stopMessages.add("There are no points remaining.");
 			}
@@ -100,7 +112,7 @@ public class EatersWorld implements World {
 	}
 	
 	private void checkFoodRemaining() {
-		if (Gridmap2D.config.terminalsConfig().food_remaining) {
+		if (context.config().terminalsConfig().food_remaining) {
 			if (map.getFoodCount() <= 0) {
 				stopMessages.add("All the food is gone.");
 			}
@@ -108,7 +120,7 @@ public class EatersWorld implements World {
 	}
 	
 	private void checkUnopenedBoxes() {
-		if (Gridmap2D.config.terminalsConfig().unopened_boxes) {
+		if (context.config().terminalsConfig().unopened_boxes) {
 			if (map.getUnopenedBoxCount() <= 0) {
 				stopMessages.add("All of the boxes are open.");
 			}
@@ -116,37 +128,45 @@ public class EatersWorld implements World {
 	}
 
 	public void update(int worldCount) {
-		WorldUtil.checkNumPlayers(players.numberOfPlayers());
+		WorldUtil.checkNumPlayers(context, players.numberOfPlayers());
+		profiler.start();
 
 		// Collect input
 		for (Eater eater : players.getAll()) {
 			eater.resetPointsChanged();
 
-			CommandInfo command = forceHuman ? Gridmap2D.control.getHumanCommand(eater) : eater.getCommand();
+			CommandInfo command = forceHuman ? context.control().getHumanCommand(eater) : eater.getCommand();
 			if (command == null) {
-				Gridmap2D.control.stopSimulation();
+				context.control().stopSimulation();
 				return;
 			}
 			players.setCommand(eater, command);
-			WorldUtil.checkStopSim(stopMessages, command, eater);
+			WorldUtil.checkStopSim(context, stopMessages, command, eater);
 		}
+		profiler.mark(Phase.INPUT);
 		
 		moveEaters();
-		if (Gridmap2D.control.isShuttingDown()) {
+		if (context.control().isShuttingDown()) {
 			return;
 		}
+		profiler.mark(Phase.MOVE);
 		
 		updateMapAndEatFood();
+		profiler.mark(Phase.EAT);
 		
 		handleEatersCollisions(findCollisions(players));	
+		profiler.mark(Phase.COLLISION);
 		updatePlayers();
+		profiler.mark(Phase.SENSORS);
 		map.updateObjects();
+		profiler.mark(Phase.MAP);
+		profiler.end();
 
 		checkPointsRemaining();
 		checkFoodRemaining();
 		checkUnopenedBoxes();
-		WorldUtil.checkMaxUpdates(stopMessages, worldCount);
-		WorldUtil.checkWinningScore(stopMessages, players.getSortedScores());
+		WorldUtil.checkMaxUpdates(context, stopMessages, worldCount);
+		WorldUtil.checkWinningScore(context, stopMessages, players.getSortedScores());
 		
 		if (stopMessages.size() > 0) {
 
@@ -154,15 +174,15 @@ public class EatersWorld implements World {
 				System.out.println(report);
 			}
 
-			Gridmap2D.control.stopSimulation();
-			boolean stopping = Gridmap2D.control.getRunsTerminal() <= 0;
-			WorldUtil.dumpStats(players.getSortedScores(), players.getAllAsPlayers(), stopping, stopMessages);
+			context.control().stopSimulation();
+			boolean stopping = context.control().getRunsTerminal() <= 0;
+			WorldUtil.dumpStats(context, worldCount, players.getSortedScores(), players.getAllAsPlayers(), stopping, stopMessages);
 		}
 	}
 	
 	private void updatePlayers() {
 		for (Eater eater : players.getAll()) {
-			eater.update(players.getLocation(eater), map);
+			eater.update(players.getXy(eater), map);
 		}
 	}
 
@@ -175,11 +195,10 @@ public class EatersWorld implements World {
 			}
 
 			// Calculate new location
-			int [] oldLocation = players.getLocation(eater);
-			int [] newLocation = Arrays.copyOf(oldLocation, oldLocation.length);
-			Direction.translate(newLocation, command.moveDirection);
+			int oldLocation = players.getXy(eater);
+			int newLocation = Direction.translate(oldLocation, command.moveDirection);
 			if (command.jump) {
-				Direction.translate(newLocation, command.moveDirection);
+				newLocation = Direction.translate(newLocation, command.moveDirection);
 			}
 			
 			// Verify legal move and commit move
@@ -188,12 +207,12 @@ public class EatersWorld implements World {
 				map.getCell(oldLocation).clearPlayers();
 				
 				if (command.jump) {
-					eater.adjustPoints(Gridmap2D.config.eatersConfig().jump_penalty, "jump penalty");
+					eater.adjustPoints(context.config().eatersConfig().jump_penalty, "jump penalty");
 				}
-				players.setLocation(eater, newLocation);
+				players.setXy(eater, newLocation);
 				
 			} else {
-				eater.adjustPoints(Gridmap2D.config.eatersConfig().wall_penalty, "wall collision");
+				eater.adjustPoints(context.config().eatersConfig().wall_penalty, "wall collision");
 			}
 		}
 	}
@@ -201,14 +220,15 @@ public class EatersWorld implements World {
 	private void updateMapAndEatFood() {
 		for (Eater eater : players.getAll()) {
 			CommandInfo lastCommand = players.getCommand(eater);
-			int [] location = players.getLocation(eater);
+			int location = players.getXy(eater);
 			
 			if (lastCommand.move || lastCommand.jump) {
 				assert map.getCell(location).hasPlayers() == false;
 				map.getCell(location).addPlayer(eater);
 
-				Set<CellObject> moveApply = map.getCell(location).getAllObjectsWithProperty(Names.kPropertyMoveApply);
-				for (CellObject object : moveApply) {
+				scratch.clear();
+				map.getCell(location).getObjectsWithProperty(Names.kPropertyMoveApply, scratch);
+				for (CellObject object : scratch) {
 					if (apply(object, eater)) {
 						map.getCell(location).removeObject(object);
 					}
@@ -228,28 +248,28 @@ public class EatersWorld implements World {
 	private boolean apply(CellObject object, Eater eater) {
 		object.doApplyProperties();
 		
-		if (object.hasProperty("apply.points")) {
-			int points = object.getProperty("apply.points", 0, Integer.class);
-			eater.adjustPoints(points, object.getProperty("name"));
+		if (object.hasProperty(Names.Keys.APPLY_POINTS)) {
+			int points = object.getInt(Names.Keys.APPLY_POINTS, 0);
+			eater.adjustPoints(points, object.getProperty(Names.Keys.NAME));
 		}
-		if (object.getProperty("apply.reward", false, Boolean.class)) {
+		if (object.getBoolean(Names.Keys.APPLY_REWARD, false)) {
 			// am I the positive box
-			if (object.getProperty("apply.reward.correct", false, Boolean.class)) {
+			if (object.getBoolean(Names.Keys.APPLY_REWARD_CORRECT, false)) {
 				// reward positively
-				eater.adjustPoints(object.getProperty("apply.reward.positive", 0, Integer.class), "positive reward");
+				eater.adjustPoints(object.getInt(Names.Keys.APPLY_REWARD_POSITIVE, 0), "positive reward");
 			} else {
 				// I'm  not the positive box, set resetApply false
-				object.removeProperty("apply.reset");
+				object.removeProperty(Names.Keys.APPLY_RESET);
 				
 				// reward negatively
-				eater.adjustPoints(-1 * object.getProperty("apply.reward.positive", 0, Integer.class), "negative reward (wrong box)");
+				eater.adjustPoints(-1 * object.getInt(Names.Keys.APPLY_REWARD_POSITIVE, 0), "negative reward (wrong box)");
 			}
 		}
 		
-		return object.getProperty("apply.remove", false, Boolean.class);
+		return object.getBoolean(Names.Keys.APPLY_REMOVE, false);
 	}
 	
-	private void open(Eater eater, int [] location) {
+	private void open(Eater eater, int location) {
 		CellObject box = map.getCell(location).getFirstObjectWithProperty(Names.kPropertyBox);
 		if (box == null) {
 			logger.warn(eater.getName() + " tried to open but there is no box.");
@@ -273,8 +293,10 @@ public class EatersWorld implements World {
 		}
 	}
 	
-	private void eat(Eater eater, int [] location) {
-		for (CellObject food : map.getCell(location).getAllObjectsWithProperty(Names.kPropertyEdible)) {
+	private void eat(Eater eater, int location) {
+		scratch.clear();
+		map.getCell(location).getObjectsWithProperty(Names.kPropertyEdible, scratch);
+		for (CellObject food : scratch) {
 			if (apply(food, eater)) {
 				// if this returns true, it is consumed
 				map.getCell(location).removeObject(food);
@@ -316,7 +338,7 @@ public class EatersWorld implements World {
 				}
 				
 				// If the locations match, we have a collision
-				if (Arrays.equals(players.getLocation(left), players.getLocation(right))) {
+				if (players.getXy(left) == players.getXy(right)) {
 					
 					// Add to this set to avoid checking same player again
 					colliding.add(left);
@@ -326,7 +348,7 @@ public class EatersWorld implements World {
 					if (collision.size() == 0) {
 						collision.add(left);
 						
-						logger.debug("collision at " + players.getLocation(left));
+						logger.debug("collision at " + Xy.toString(players.getXy(left)));
 					}
 					// Add each right as it is detected
 					collision.add(right);
@@ -380,7 +402,7 @@ public class EatersWorld implements World {
 				logger.debug("Sum of cash is negative.");
 			}
 			
-			int [] collisionLocation = players.getLocation(collision.get(0));
+			int collisionLocation = players.getXy(collision.get(0));
 
 			// Add the boom on the map
 			setExplosion(collisionLocation);
@@ -406,18 +428,15 @@ public class EatersWorld implements World {
 				
 				eater.setFragged(true);
 				if (!players.getCommand(eater).dontEat) {
-					eat(eater, location);
+					eat(eater, Xy.pack(location));
 				}
 			}
 		}
 	}
 
-	private void setExplosion(int[] xy) {
-		CellObject explosion = map.createObjectByName(Names.kExplosion);
-		explosion.setProperty("update.linger", 2);
-		map.getCell(xy).addObject(explosion);
+	private void setExplosion(int xy) {
+		map.addEffect(xy, Effect.EXPLOSION, 2);
 	}
-	
 
 	public boolean isTerminal() {
 		return stopMessages.size() > 0;
@@ -425,7 +444,7 @@ public class EatersWorld implements World {
 
 	public void removePlayer(String name) {
 		Eater eater = players.get(name);
-		map.getCell(players.getLocation(eater)).clearPlayers();
+		map.getCell(players.getXy(eater)).clearPlayers();
 		players.remove(eater);
 		eater.shutdownCommander();
 		updatePlayers();
@@ -447,7 +466,7 @@ public class EatersWorld implements World {
 	public boolean addPlayer(String id, PlayerConfig cfg, boolean debug) {
 		int [] location = WorldUtil.getStartingLocation(map, cfg.pos);
 		if (location == null) {
-			Gridmap2D.control.errorPopUp("There are no suitable starting locations.");
+			context.control().errorPopUp("There are no suitable starting locations.");
 			return false;
 		}
 		
@@ -456,16 +475,16 @@ public class EatersWorld implements World {
 			try {
 				script = CommandInfo.loadScript(cfg.script);
 			} catch (IOException e) {
-				Gridmap2D.control.errorPopUp("IOException loading script " + cfg.script);
+				context.control().errorPopUp("IOException loading script " + cfg.script);
 				return false;
 			}
 		}
 		
-		Eater player = new Eater(id);  
+		Eater player = new Eater(context, id);  
 		players.add(player, cfg.pos);
 		
 		if (cfg.productions != null) {
-			EaterCommander cmdr = cogArch.createEaterCommander(player, cfg.productions, Gridmap2D.config.eatersConfig().vision, cfg.shutdown_commands, debug);
+			EaterCommander cmdr = cogArch.createEaterCommander(player, cfg.productions, context.config().eatersConfig().vision, cfg.shutdown_commands, debug);
 			if (cmdr == null) {
 				players.remove(player);
 				return false;
@@ -496,6 +515,10 @@ public class EatersWorld implements World {
 		return map;
 	}
 
+	public PhaseProfiler<Phase> getProfiler() {
+		return profiler;
+	}
+
 	public Player[] getPlayers() {
 		return players.getAllAsPlayers();
 	}
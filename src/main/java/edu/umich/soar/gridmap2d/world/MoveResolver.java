@@ -0,0 +1,243 @@
+package edu.umich.soar.gridmap2d.world;
+
+import java.util.Arrays;
+
+import edu.umich.soar.gridmap2d.Xy;
+
+/**
+ * Settles TankSoar moves once walls and cross collisions are out of the
+ * way. Tanks are numbered as in PlayersManager.get and take turns in that
+ * order; each goes into the group of tanks trying to be in its destination
+ * cell. A tank that joins a group that already has someone in it stays
+ * where it was, and so does a lone mover that somebody joins, which can
+ * push them into the group at their old cell in turn. Every tank ends up in
+ * one or two groups, and a group of more than one is a collision.
+ *
+ * Groups are found through an array over the map cells stamped with the
+ * current generation, and the pushes back are a worklist rather than a
+ * recursion, so the work is linear in the number of tanks.
+ */
+class MoveResolver {
+	private int size;
+	private int generation;
+	// per cell, the group there if stamped with this generation
+	private int[] stamps = new int[0];
+	private int[] groupAt = new int[0];
+
+	private int count;
+	private int[] oldXys = new int[0];
+	private int[] xys = new int[0];
+	private int[] placedXys = new int[0];
+	private boolean[] moving = new boolean[0];
+
+	private int groupCount;
+	private int[] groupXys = new int[0];
+	private int[] groupSizes = new int[0];
+	private int[] groupFirst = new int[0];
+	private int[] groupLast = new int[0];
+	private int entryCount;
+	private int[] entryTanks = new int[0];
+	private int[] entryNext = new int[0];
+	// members of group g are members[groupStart[g]] onward
+	private int[] groupStart = new int[0];
+	private int[] members = new int[0];
+
+	private int[] stackTanks = new int[0];
+	private int[] stackStages = new int[0];
+
+	/**
+	 * Clears the last resolution and makes room for tanks on a map of the
+	 * given size. Every tank must then be given with setTank.
+	 */
+	void begin(int mapSize, int tanks) {
+		if (mapSize != size) {
+			size = mapSize;
+			stamps = new int[size * size];
+			groupAt = new int[size * size];
+			generation = 0;
+		}
+		if (++generation == 0) {
+			// wrapped, old stamps could match again
+			Arrays.fill(stamps, 0);
+			generation = 1;
+		}
+
+		count = tanks;
+		if (oldXys.length < tanks) {
+			oldXys = new int[tanks];
+			xys = new int[tanks];
+			placedXys = new int[tanks];
+			moving = new boolean[tanks];
+			// a tank is in at most two groups
+			groupXys = new int[2 * tanks];
+			groupSizes = new int[2 * tanks];
+			groupFirst = new int[2 * tanks];
+			groupLast = new int[2 * tanks];
+			groupStart = new int[2 * tanks];
+			entryTanks = new int[2 * tanks];
+			entryNext = new int[2 * tanks];
+			members = new int[2 * tanks];
+			stackTanks = new int[2 * tanks + 1];
+			stackStages = new int[2 * tanks + 1];
+		}
+		groupCount = 0;
+		entryCount = 0;
+	}
+
+	/**
+	 * @param oldXy
+	 *            where the tank is
+	 * @param newXy
+	 *            where it is going, oldXy if it is not moving
+	 * @param moves
+	 *            if it is moving
+	 */
+	void setTank(int tank, int oldXy, int newXy, boolean moves) {
+		oldXys[tank] = oldXy;
+		xys[tank] = newXy;
+		placedXys[tank] = newXy;
+		moving[tank] = moves;
+	}
+
+	void resolve() {
+		for (int tank = 0; tank < count; ++tank) {
+			settle(tank);
+			placedXys[tank] = xys[tank];
+		}
+
+		int start = 0;
+		for (int g = 0; g < groupCount; ++g) {
+			groupStart[g] = start;
+			for (int e = groupFirst[g]; e >= 0; e = entryNext[e]) {
+				members[start++] = entryTanks[e];
+			}
+		}
+	}
+
+	private void settle(int first) {
+		int top = 0;
+		stackTanks[top] = first;
+		stackStages[top] = 0;
+		++top;
+
+		while (top > 0) {
+			int tank = stackTanks[top - 1];
+			int group = groupAt(xys[tank]);
+
+			if (stackStages[top - 1] == 0) {
+				if (group < 0) {
+					// nobody else is going here
+					add(newGroup(xys[tank]), tank);
+					--top;
+					continue;
+				}
+
+				// join once the lone mover already there has gone back
+				stackStages[top - 1] = 1;
+				if (groupSizes[group] == 1) {
+					int other = entryTanks[groupFirst[group]];
+					if (moving[other]) {
+						cancel(other);
+						stackTanks[top] = other;
+						stackStages[top] = 0;
+						++top;
+					}
+				}
+				continue;
+			}
+
+			add(group, tank);
+			--top;
+			if (moving[tank]) {
+				// go back to where we were
+				cancel(tank);
+				stackTanks[top] = tank;
+				stackStages[top] = 0;
+				++top;
+			}
+		}
+	}
+
+	private void cancel(int tank) {
+		moving[tank] = false;
+		xys[tank] = oldXys[tank];
+	}
+
+	private int cell(int xy) {
+		return Xy.y(xy) * size + Xy.x(xy);
+	}
+
+	private int groupAt(int xy) {
+		int cell = cell(xy);
+		return stamps[cell] == generation ? groupAt[cell] : -1;
+	}
+
+	private int newGroup(int xy) {
+		int cell = cell(xy);
+		int group = groupCount++;
+		stamps[cell] = generation;
+		groupAt[cell] = group;
+		groupXys[group] = xy;
+		groupSizes[group] = 0;
+		groupFirst[group] = -1;
+		groupLast[group] = -1;
+		return group;
+	}
+
+	private void add(int group, int tank) {
+		int entry = entryCount++;
+		entryTanks[entry] = tank;
+		entryNext[entry] = -1;
+		if (groupLast[group] < 0) {
+			groupFirst[group] = entry;
+		} else {
+			entryNext[groupLast[group]] = entry;
+		}
+		groupLast[group] = entry;
+		groupSizes[group] += 1;
+	}
+
+	/**
+	 * @return false if the tank's move was cancelled or it was not moving
+	 */
+	boolean moving(int tank) {
+		return moving[tank];
+	}
+
+	/**
+	 * @return where the tank ends up
+	 */
+	int xy(int tank) {
+		return xys[tank];
+	}
+
+	/**
+	 * @return where the tank was when its own turn finished, a later tank
+	 *         can still send it back
+	 */
+	int placedXy(int tank) {
+		return placedXys[tank];
+	}
+
+	/**
+	 * @return the number of groups, in the order they were started
+	 */
+	int groups() {
+		return groupCount;
+	}
+
+	int groupXy(int group) {
+		return groupXys[group];
+	}
+
+	int groupSize(int group) {
+		return groupSizes[group];
+	}
+
+	/**
+	 * @return the tank that was nth to join the group
+	 */
+	int member(int group, int n) {
+		return members[groupStart[group] + n];
+	}
+}
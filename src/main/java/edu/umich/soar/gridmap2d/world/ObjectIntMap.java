@@ -0,0 +1,112 @@
+package edu.umich.soar.gridmap2d.world;
+
+import java.util.Arrays;
+
+/**
+ * An identity keyed map from objects to primitive ints, open addressed with
+ * linear probing, so lookups and updates neither box the value nor
+ * allocate an entry.
+ */
+public class ObjectIntMap<K> {
+	private Object[] keys;
+	private int[] values;
+	private int size;
+
+	public ObjectIntMap() {
+		this(8);
+	}
+
+	public ObjectIntMap(int expected) {
+		int capacity = 4;
+		while (capacity < expected * 2) {
+			capacity <<= 1;
+		}
+		keys = new Object[capacity];
+		values = new int[capacity];
+	}
+
+	private int slot(Object key) {
+		int h = System.identityHashCode(key);
+		h ^= h >>> 16;
+		int mask = keys.length - 1;
+		int i = h & mask;
+		while (keys[i] != null && keys[i] != key) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean containsKey(K key) {
+		return keys[slot(key)] != null;
+	}
+
+	/**
+	 * @return the value for key, or missing if there is none
+	 */
+	public int get(K key, int missing) {
+		int i = slot(key);
+		return keys[i] != null ? values[i] : missing;
+	}
+
+	/**
+	 * @throws NullPointerException if key is null
+	 */
+	public void put(K key, int value) {
+		if (key == null) {
+			throw new NullPointerException();
+		}
+		int i = slot(key);
+		if (keys[i] == null) {
+			if ((size + 1) * 2 > keys.length) {
+				grow();
+				i = slot(key);
+			}
+			keys[i] = key;
+			size += 1;
+		}
+		values[i] = value;
+	}
+
+	public void remove(K key) {
+		int i = slot(key);
+		if (keys[i] == null) {
+			return;
+		}
+		keys[i] = null;
+		size -= 1;
+
+		// shift back the rest of the run so probes still find them
+		int mask = keys.length - 1;
+		for (int j = (i + 1) & mask; keys[j] != null; j = (j + 1) & mask) {
+			Object moved = keys[j];
+			int value = values[j];
+			keys[j] = null;
+			int k = slot(moved);
+			keys[k] = moved;
+			values[k] = value;
+		}
+	}
+
+	public void clear() {
+		Arrays.fill(keys, null);
+		size = 0;
+	}
+
+	private void grow() {
+		Object[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new Object[oldKeys.length * 2];
+		values = new int[oldKeys.length * 2];
+		for (int i = 0; i < oldKeys.length; ++i) {
+			if (oldKeys[i] != null) {
+				int k = slot(oldKeys[i]);
+				keys[k] = oldKeys[i];
+				values[k] = oldValues[i];
+			}
+		}
+	}
+}
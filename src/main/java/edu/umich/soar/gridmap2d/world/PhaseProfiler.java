@@ -0,0 +1,242 @@
+package edu.umich.soar.gridmap2d.world;
+
+import java.util.Arrays;
+
+/**
+ * Times the phases of a world update with System.nanoTime. A world calls
+ * start at the top of update, mark at the end of each phase, and end once
+ * the tick is done; mark charges the time since the previous mark to the
+ * phase given, so a phase can be marked more than once in a tick. When
+ * disabled, which is the default, these return right away.
+ *
+ * Per tick times go into histograms with power of two nanosecond buckets,
+ * bucket b holding times from 2^b up to 2^(b+1) ns, so percentiles are
+ * upper bounds good to a factor of two.
+ *
+ * Not thread safe, the world update thread owns it.
+ */
+public class PhaseProfiler<E extends Enum<E>> {
+	private static final int BUCKETS = 64;
+
+	private final E[] phases;
+	private boolean enabled;
+	// in a tick started while enabled
+	private boolean ticking;
+	private long last;
+	private long tickStart;
+
+	private final long[] current;
+	private final boolean[] marked;
+
+	private final long[] counts;
+	private final long[] totals;
+	private final long[][] histograms;
+	private long ticks;
+	private long tickTotal;
+	private final long[] tickHistogram = new long[BUCKETS];
+
+	public PhaseProfiler(Class<E> phaseClass) {
+		this.phases = phaseClass.getEnumConstants();
+		this.current = new long[phases.length];
+		this.marked = new boolean[phases.length];
+		this.counts = new long[phases.length];
+		this.totals = new long[phases.length];
+		this.histograms = new long[phases.length][BUCKETS];
+	}
+
+	/**
+	 * Can be called at any time, a tick in progress when this is called is
+	 * not counted.
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		ticking = false;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void start() {
+		if (!enabled) {
+			return;
+		}
+		Arrays.fill(current, 0);
+		Arrays.fill(marked, false);
+		ticking = true;
+		last = System.nanoTime();
+		tickStart = last;
+	}
+
+	public void mark(E phase) {
+		if (!ticking) {
+			return;
+		}
+		long now = System.nanoTime();
+		current[phase.ordinal()] += now - last;
+		marked[phase.ordinal()] = true;
+		last = now;
+	}
+
+	public void end() {
+		if (!ticking) {
+			return;
+		}
+		ticking = false;
+		for (int p = 0; p < phases.length; ++p) {
+			if (marked[p]) {
+				counts[p] += 1;
+				totals[p] += current[p];
+				histograms[p][bucket(current[p])] += 1;
+			}
+		}
+		long elapsed = last - tickStart;
+		ticks += 1;
+		tickTotal += elapsed;
+		tickHistogram[bucket(elapsed)] += 1;
+	}
+
+	private static int bucket(long nanos) {
+		return nanos <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+	}
+
+	private static long upper(int bucket) {
+		// 2^63 does not fit
+		return bucket >= 62 ? Long.MAX_VALUE : 1L << (bucket + 1);
+	}
+
+	/**
+	 * Drops everything counted so far.
+	 */
+	public void reset() {
+		ticking = false;
+		ticks = 0;
+		tickTotal = 0;
+		Arrays.fill(tickHistogram, 0);
+		Arrays.fill(counts, 0);
+		Arrays.fill(totals, 0);
+		for (long[] histogram : histograms) {
+			Arrays.fill(histogram, 0);
+		}
+	}
+
+	/**
+	 * @return the number of ticks counted
+	 */
+	public long ticks() {
+		return ticks;
+	}
+
+	/**
+	 * @return the nanoseconds spent in counted ticks, from start to the last
+	 *         mark
+	 */
+	public long totalNanos() {
+		return tickTotal;
+	}
+
+	/**
+	 * @return the number of ticks the phase was marked in
+	 */
+	public long count(E phase) {
+		return counts[phase.ordinal()];
+	}
+
+	public long totalNanos(E phase) {
+		return totals[phase.ordinal()];
+	}
+
+	/**
+	 * @return the mean nanoseconds per tick the phase was marked in, 0 if it
+	 *         never was
+	 */
+	public double meanNanos(E phase) {
+		long count = counts[phase.ordinal()];
+		return count == 0 ? 0 : totals[phase.ordinal()] / (double)count;
+	}
+
+	/**
+	 * @return a copy of the phase's histogram, element b is the number of
+	 *         ticks it took from 2^b up to 2^(b+1) ns
+	 */
+	public long[] histogram(E phase) {
+		return histograms[phase.ordinal()].clone();
+	}
+
+	/**
+	 * @param fraction
+	 *            0 to 1, 0.5 for the median
+	 * @return an upper bound on that percentile of the phase's per tick
+	 *         nanoseconds, 0 if it was never marked
+	 * @throws IllegalArgumentException
+	 *             if fraction is not between 0 and 1
+	 */
+	public long percentileNanos(E phase, double fraction) {
+		return percentile(histograms[phase.ordinal()], counts[phase.ordinal()], fraction);
+	}
+
+	private static long percentile(long[] histogram, long count, double fraction) {
+		if (fraction < 0 || fraction > 1) {
+			throw new IllegalArgumentException("fraction must be between 0 and 1: " + fraction);
+		}
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long)Math.ceil(fraction * count));
+		long seen = 0;
+		for (int b = 0; b < BUCKETS; ++b) {
+			seen += histogram[b];
+			if (seen >= rank) {
+				return upper(b);
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+	/**
+	 * @return one line per phase with its mean, median, 99th percentile and
+	 *         share of the tick, then its non-empty histogram buckets
+	 */
+	public String report() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("phase timings over %d ticks, mean %.1f us/tick%n",
+				ticks, ticks == 0 ? 0 : tickTotal / (double)ticks / 1000));
+		for (int p = 0; p < phases.length; ++p) {
+			appendLine(sb, phases[p].name().toLowerCase(), counts[p], totals[p], histograms[p]);
+		}
+		appendLine(sb, "tick", ticks, tickTotal, tickHistogram);
+		return sb.toString();
+	}
+
+	private void appendLine(StringBuilder sb, String name, long count, long total, long[] histogram) {
+		double share = tickTotal == 0 ? 0 : 100.0 * total / tickTotal;
+		sb.append(String.format("  %-16s %8d %10.1f us %10s p50 %10s p99 %5.1f%%%n", name, count,
+				count == 0 ? 0 : total / (double)count / 1000,
+				formatNanos(percentile(histogram, count, 0.5)),
+				formatNanos(percentile(histogram, count, 0.99)), share));
+		if (count == 0) {
+			return;
+		}
+		sb.append("   ");
+		for (int b = 0; b < BUCKETS; ++b) {
+			if (histogram[b] > 0) {
+				sb.append(" <").append(formatNanos(upper(b)));
+				sb.append(':').append(histogram[b]);
+			}
+		}
+		sb.append(String.format("%n"));
+	}
+
+	private static String formatNanos(long nanos) {
+		if (nanos == Long.MAX_VALUE) {
+			return "inf";
+		}
+		if (nanos < 1000) {
+			return nanos + "ns";
+		}
+		if (nanos < 1000000) {
+			return (nanos / 1000) + "us";
+		}
+		return (nanos / 1000000) + "ms";
+	}
+}
@@ -10,6 +10,7 @@ import java.util.Map;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import edu.umich.soar.gridmap2d.Xy;
 import edu.umich.soar.gridmap2d.players.CommandInfo;
 import edu.umich.soar.gridmap2d.players.Player;
 
@@ -20,7 +21,7 @@ public class PlayersManager<P extends Player> {
 	private List<P> players = new ArrayList<P>(7);
 	private Map<String, P> playersMap = new HashMap<String, P>(7);
 	private Map<P, int []> initialLocations = new HashMap<P, int []>(7);
-	private Map<P, int []> locations = new HashMap<P, int []>(7);
+	private ObjectIntMap<P> locations = new ObjectIntMap<P>(7);
 	private Map<P, CommandInfo> lastCommands = new HashMap<P, CommandInfo>(7);
 	
 	public int numberOfPlayers() {
@@ -43,12 +44,27 @@ public class PlayersManager<P extends Player> {
 		return players.listIterator(index);
 	}
 	
+	/**
+	 * @return a copy of the player's location, see getXy to avoid allocating
+	 */
 	public int [] getLocation(P player) {
-		return locations.get(player);
+		return Xy.toArray(getXy(player));
 	}
 	
 	void setLocation(P player, int [] location) {
-		locations.put(player, location);
+		setXy(player, Xy.pack(location));
+	}
+	
+	/**
+	 * @return the player's location packed with Xy, or Xy.NONE if it has not
+	 *         been placed
+	 */
+	public int getXy(P player) {
+		return locations.get(player, Xy.NONE);
+	}
+	
+	void setXy(P player, int xy) {
+		locations.put(player, xy);
 	}
 	
 	public CommandInfo getCommand(P player) {
@@ -58,9 +74,11 @@ public class PlayersManager<P extends Player> {
 	void setCommand(P player, CommandInfo move) {
 		lastCommands.put(player, move);
 
-		String moveString = move.toString();
-		if (moveString.length() > 0) {
-			logger.info(player.getName() + ": " + moveString);
+		if (logger.isInfoEnabled()) {
+			String moveString = move.toString();
+			if (moveString.length() > 0) {
+				logger.info(player.getName() + ": " + moveString);
+			}
 		}
 	}
 	
@@ -68,7 +86,7 @@ public class PlayersManager<P extends Player> {
 		return playersMap.get(name);
 	}
 	
-	P get(int index) {
+	public P get(int index) {
 		return players.get(index);
 	}
 	
@@ -0,0 +1,84 @@
+package edu.umich.soar.gridmap2d.world;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What a world reports when a run ends: the stop messages and each player's
+ * final score and standing. This is the same information dumpStats prints.
+ */
+public class RunResult {
+	public enum Status {
+		WINNER,
+		DRAW,
+		LOSER;
+
+		public String id() {
+			return this.toString().toLowerCase();
+		}
+	}
+
+	public static class Standing {
+		private final String playerId;
+		private final String name;
+		private final int points;
+		private final Status status;
+
+		Standing(String playerId, String name, int points, Status status) {
+			this.playerId = playerId;
+			this.name = name;
+			this.points = points;
+			this.status = status;
+		}
+
+		public String getPlayerId() {
+			return playerId;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getPoints() {
+			return points;
+		}
+
+		public Status getStatus() {
+			return status;
+		}
+
+		@Override
+		public String toString() {
+			return name + ": " + points + " (" + status.id() + ")";
+		}
+	}
+
+	private final int worldCount;
+	private final List<String> messages;
+	private final List<Standing> standings = new ArrayList<Standing>();
+
+	RunResult(int worldCount, List<String> messages) {
+		this.worldCount = worldCount;
+		this.messages = Collections.unmodifiableList(new ArrayList<String>(messages));
+	}
+
+	void addStanding(Standing standing) {
+		standings.add(standing);
+	}
+
+	/**
+	 * @return the world count when the run stopped
+	 */
+	public int getWorldCount() {
+		return worldCount;
+	}
+
+	public List<String> getMessages() {
+		return messages;
+	}
+
+	public List<Standing> getStandings() {
+		return Collections.unmodifiableList(standings);
+	}
+}
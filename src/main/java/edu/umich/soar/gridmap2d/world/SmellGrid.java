@@ -0,0 +1,149 @@
+package edu.umich.soar.gridmap2d.world;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import edu.umich.soar.gridmap2d.Xy;
+import edu.umich.soar.gridmap2d.players.Player;
+
+/**
+ * Players bucketed by square blocks of the map, for finding each one's
+ * nearest opponent without measuring the distance to every other player.
+ * The search looks at the blocks in rings around the player's own block and
+ * stops once the next ring is farther away than the best found so far, so
+ * with players spread over the map each search looks at a few blocks.
+ *
+ * Distance is Manhattan distance, walls are ignored.
+ */
+class SmellGrid<P extends Player> {
+	static final int BLOCK = 8;
+
+	private int blocksPerSide;
+	// player indexes sorted by block, block b holds entries[start[b]] up to
+	// entries[start[b + 1]]
+	private int[] start = new int[0];
+	private int[] next = new int[0];
+	private int[] entries = new int[0];
+	private int[] xys = new int[0];
+	private int distance;
+
+	/**
+	 * Buckets the players where they are now, call again after they move.
+	 * Players not on the map are left out.
+	 */
+	void rebuild(PlayersManager<P> players, int mapSize) {
+		int count = players.numberOfPlayers();
+		blocksPerSide = Math.max(1, (mapSize + BLOCK - 1) / BLOCK);
+		int blocks = blocksPerSide * blocksPerSide;
+		if (start.length < blocks + 1) {
+			start = new int[blocks + 1];
+			next = new int[blocks];
+		} else {
+			Arrays.fill(start, 0);
+		}
+		if (entries.length < count) {
+			entries = new int[count];
+			xys = new int[count];
+		}
+
+		// counting sort by block
+		for (int i = 0; i < count; ++i) {
+			int xy = players.getXy(players.get(i));
+			xys[i] = xy;
+			int block = block(xy, mapSize);
+			if (block >= 0) {
+				start[block + 1] += 1;
+			}
+		}
+		for (int b = 0; b < blocks; ++b) {
+			start[b + 1] += start[b];
+		}
+		System.arraycopy(start, 0, next, 0, blocks);
+		for (int i = 0; i < count; ++i) {
+			int block = block(xys[i], mapSize);
+			if (block >= 0) {
+				entries[next[block]++] = i;
+			}
+		}
+	}
+
+	private int block(int xy, int mapSize) {
+		int x = Xy.x(xy);
+		int y = Xy.y(xy);
+		if (x < 0 || y < 0 || x >= mapSize || y >= mapSize) {
+			return -1;
+		}
+		return (y / BLOCK) * blocksPerSide + x / BLOCK;
+	}
+
+	/**
+	 * Finds the player nearest to player index, ties broken uniformly at
+	 * random.
+	 *
+	 * @param index
+	 *            the player searching, as in PlayersManager.get
+	 * @param maxDistance
+	 *            players farther than this are not found
+	 * @return the index of the nearest other player, or -1 if there is none
+	 *         within maxDistance; its distance is then distance()
+	 */
+	int nearest(int index, int maxDistance, Random random) {
+		int xy = xys[index];
+		int x = Xy.x(xy);
+		int y = Xy.y(xy);
+		int bx = x / BLOCK;
+		int by = y / BLOCK;
+
+		int best = -1;
+		int bestDistance = maxDistance;
+		int ties = 0;
+		for (int ring = 0; ring < blocksPerSide; ++ring) {
+			// every block in this ring is at least this far along one axis
+			if (ring > 0 && (ring - 1) * BLOCK + 1 > bestDistance) {
+				break;
+			}
+			for (int ry = by - ring; ry <= by + ring; ++ry) {
+				if (ry < 0 || ry >= blocksPerSide) {
+					continue;
+				}
+				boolean edge = ry == by - ring || ry == by + ring;
+				// the whole row on the top and bottom, the two ends between
+				int step = edge ? 1 : 2 * ring;
+				for (int rx = bx - ring; rx <= bx + ring; rx += step) {
+					if (rx < 0 || rx >= blocksPerSide) {
+						continue;
+					}
+					int block = ry * blocksPerSide + rx;
+					for (int e = start[block]; e < start[block + 1]; ++e) {
+						int other = entries[e];
+						if (other == index) {
+							continue;
+						}
+						int d = Xy.manhattan(xy, xys[other]);
+						if (d < bestDistance || (d == bestDistance && best < 0)) {
+							best = other;
+							bestDistance = d;
+							ties = 1;
+						} else if (d == bestDistance) {
+							// reservoir sample of one, each tie equally likely
+							ties += 1;
+							if (random.nextInt(ties) == 0) {
+								best = other;
+							}
+						}
+					}
+				}
+			}
+		}
+		distance = best < 0 ? maxDistance : bestDistance;
+		return best;
+	}
+
+	/**
+	 * @return the distance to the player the last nearest call found, or its
+	 *         maxDistance if it found none
+	 */
+	int distance() {
+		return distance;
+	}
+}
@@ -1,7 +1,6 @@
 package edu.umich.soar.gridmap2d.world;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -13,11 +12,13 @@ import org.apache.commons.logging.LogFactory;
 
 import edu.umich.soar.gridmap2d.CognitiveArchitecture;
 import edu.umich.soar.gridmap2d.Direction;
-import edu.umich.soar.gridmap2d.Gridmap2D;
 import edu.umich.soar.gridmap2d.Names;
-import edu.umich.soar.gridmap2d.Simulation;
+import edu.umich.soar.gridmap2d.SimulationContext;
+import edu.umich.soar.gridmap2d.SimulationContext.RandomStream;
+import edu.umich.soar.gridmap2d.Xy;
 import edu.umich.soar.gridmap2d.config.PlayerConfig;
 import edu.umich.soar.gridmap2d.map.CellObject;
+import edu.umich.soar.gridmap2d.map.Effect;
 import edu.umich.soar.gridmap2d.map.GridMap;
 import edu.umich.soar.gridmap2d.map.TankSoarMap;
 import edu.umich.soar.gridmap2d.players.CommandInfo;
@@ -25,25 +26,46 @@ import edu.umich.soar.gridmap2d.players.Player;
 import edu.umich.soar.gridmap2d.players.Tank;
 import edu.umich.soar.gridmap2d.players.TankCommander;
 import edu.umich.soar.gridmap2d.players.TankState;
-
+import edu.umich.soar.gridmap2d.players.scripted.WanderingTank;
 
 public class TankSoarWorld implements World {
 	private static final Log logger = LogFactory.getLog(TankSoarWorld.class);
+	
+	/** the ids, and colors, of arena tanks start with this */
+	public static final String ARENA_PREFIX = "arena";
+	
+	/**
+	 * The stages of update, in order, for the profiler.
+	 */
+	public enum Phase {
+		INPUT, COMMANDS, CROSS_COLLISION, MOVE_COLLISION, MISSILE_FLIGHT,
+		SPAWNS, INCOMING, RESPAWNS, SENSORS, COMMIT
+	}
+
+	/** tanks farther apart than this do not smell each other */
+	private static final int MAX_SMELL_DISTANCE = 99;
 
+	private final SimulationContext context;
 	private TankSoarMap map;
 	private PlayersManager<Tank> players = new PlayersManager<Tank>();
+	private final SmellGrid<Tank> smellGrid = new SmellGrid<Tank>();
+	private final MoveResolver moves = new MoveResolver();
+	private final PhaseProfiler<Phase> profiler = new PhaseProfiler<Phase>(Phase.class);
 	private int maxMissilePacks;
 	private List<String> stopMessages = new ArrayList<String>();
 	private CognitiveArchitecture cogArch;
 	private boolean forceHuman = false;
+	// reused by the per-tick cell queries, cleared before each use
+	private final List<CellObject> scratch = new ArrayList<CellObject>();
 
-	public TankSoarWorld(int maxMissilePacks, CognitiveArchitecture cogArch) {
-		this.maxMissilePacks = maxMissilePacks;
-		this.cogArch = cogArch;
+	public TankSoarWorld(SimulationContext context) {
+		this.context = context;
+		this.maxMissilePacks = context.config().tanksoarConfig().max_missile_packs;
+		this.cogArch = context.cogArch();
 	}
 	
 	public void setAndResetMap(String mapPath) {
-		TankSoarMap newMap = TankSoarMap.generateInstance(mapPath, Gridmap2D.config.tanksoarConfig().max_sound_distance);
+		TankSoarMap newMap = TankSoarMap.generateInstance(context, mapPath, context.config().tanksoarConfig().max_sound_distance);
 		if (newMap == null) {
 			return;
 		}
@@ -63,7 +85,7 @@ public class TankSoarWorld implements World {
 		missileReset = 0;
 
 		// Spawn missile packs
-		while (map.numberMissilePacks() < Gridmap2D.config.tanksoarConfig().max_missile_packs) {
+		while (map.numberMissilePacks() < context.config().tanksoarConfig().max_missile_packs) {
 			spawnMissilePack(map, true);
 		}
 		stopMessages.clear();
@@ -101,7 +123,11 @@ public class TankSoarWorld implements World {
 	}
 	
 	private void updatePlayers(boolean playersChanged) {
-		for (Tank tank : players.getAll()) {
+		map.nextRadarFrame();
+		smellGrid.rebuild(players, map.size());
+		
+		for (int i = 0; i < players.numberOfPlayers(); ++i) {
+			Tank tank = players.get(i);
 			TankState state = tank.getState();
 			
 			if (playersChanged) {
@@ -113,35 +139,13 @@ public class TankSoarWorld implements World {
 				state.setSmellColor(null);
 				state.setSound(Direction.NONE);
 			} else {
-				int distance = 99;
-				String color = null;
-				
-				for (Tank otherTank : players.getAll()) {
-					
-					if (otherTank.equals(tank)) {
-						continue;
-					}
-					
-					int [] playerLoc = players.getLocation(tank);
-					int [] otherLoc = players.getLocation(otherTank);
-					int newDistance = Math.abs(playerLoc[0] - otherLoc[0]) + Math.abs(playerLoc[1] - otherLoc[1]);
-					
-					if (newDistance < distance) {
-						distance = newDistance;
-						color = otherTank.getColor();
-					} else if (newDistance == distance) {
-						if (Simulation.random.nextBoolean()) {
-							// BUGBUG: note that this is not random, later ones are biased
-							// not determined important
-							distance = newDistance;
-							color = otherTank.getColor();
-						}
-					}
-				}
+				int nearest = smellGrid.nearest(i, MAX_SMELL_DISTANCE, context.random(RandomStream.INPUT));
+				int distance = smellGrid.distance();
+				String color = nearest < 0 ? null : players.get(nearest).getColor();
 				state.setSmellDistance(distance);
 				state.setSmellColor(color);
 
-				if (distance > Gridmap2D.config.tanksoarConfig().max_sound_distance) {
+				if (distance > context.config().tanksoarConfig().max_sound_distance) {
 					if (logger.isTraceEnabled()) {
 						logger.trace("Skipping sound check, smell was " + distance);
 					}
@@ -151,20 +155,21 @@ public class TankSoarWorld implements World {
 				}
 			}
 				
-			tank.update(players.getLocation(tank), map);
+			tank.update(players.getXy(tank), map);
 		}
+		profiler.mark(Phase.SENSORS);
 		
 		for (Tank tank : players.getAll()) {
-			tank.commit(players.getLocation(tank));
+			tank.commit();
 		}
 		for (Tank tank : players.getAll()) {
 			tank.resetPointsChanged();
 		}
+		profiler.mark(Phase.COMMIT);
 	}
 
-	public void setExplosion(int [] xy) {
-		CellObject explosion = map.createObjectByName(Names.kExplosion);
-		map.getCell(xy).addObject(explosion);
+	public void setExplosion(int xy) {
+		map.addEffect(xy, Effect.EXPLOSION, 1);
 	}
 
 	private Map<Tank, Set<Tank> > killedTanks = new HashMap<Tank, Set<Tank> >(7);
@@ -172,26 +177,25 @@ public class TankSoarWorld implements World {
 	private int missileReset = 0;
 
 	public void update(int worldCount) {
-		WorldUtil.checkNumPlayers(players.numberOfPlayers());
+		WorldUtil.checkNumPlayers(context, players.numberOfPlayers());
+		profiler.start();
 
 		// Reset sensors, collect input
 		for (Tank tank : players.getAll()) {
 			tank.getState().resetSensors(); // TODO: can this go somewhere else?
 			
-			CommandInfo command = forceHuman ? Gridmap2D.control.getHumanCommand(tank) : tank.getCommand();
+			CommandInfo command = forceHuman ? context.control().getHumanCommand(tank) : tank.getCommand();
 			if (command == null) {
-				Gridmap2D.control.stopSimulation();
+				context.control().stopSimulation();
 				return;
 			}
 			players.setCommand(tank, command);
-			WorldUtil.checkStopSim(stopMessages, command, tank);
+			WorldUtil.checkStopSim(context, stopMessages, command, tank);
 		}
+		profiler.mark(Phase.INPUT);
 
 		// We'll cache the tank new locations
-		Map<Tank, int []> newLocations = new HashMap<Tank, int []>();
-		
-		// And we'll cache tanks that moved
-		List<Tank> movedTanks = new ArrayList<Tank>(players.numberOfPlayers());
+		ObjectIntMap<Tank> newLocations = new ObjectIntMap<Tank>(players.numberOfPlayers());
 		
 		// And we'll cache tanks that fired
 		List<Tank> firedTanks = new ArrayList<Tank>(players.numberOfPlayers());
@@ -203,10 +207,6 @@ public class TankSoarWorld implements World {
 		// Rotate players (never fails)
 		// Update shields & consume shield energy
 		// Update radar & consume radar energy
-		// Do cross checks (and only cross checks) first
-		// Cross-check:
-		// If moving in to a cell with a tank, check that tank for 
-		// a move in the opposite direction
 		for (Tank tank : players.getAll()) {
 			TankState state = tank.getState();
 			
@@ -222,7 +222,7 @@ public class TankSoarWorld implements World {
 				}
 			}
 			
-			int [] oldLocation = players.getLocation(tank);
+			int oldLocation = players.getXy(tank);
 			
 			// Check for rotate
 			if (playerMove.rotate) {
@@ -250,6 +250,17 @@ public class TankSoarWorld implements World {
 			if (playerMove.radarPower) {
 				state.setRadarPower(playerMove.radarPowerSetting);
 			}
+		}
+		profiler.mark(Phase.COMMANDS);
+		
+		// Do cross checks (and only cross checks) first
+		// Cross-check:
+		// If moving in to a cell with a tank, check that tank for 
+		// a move in the opposite direction
+		for (Tank tank : players.getAll()) {
+			TankState state = tank.getState();
+			CommandInfo playerMove = players.getCommand(tank);
+			int oldLocation = players.getXy(tank);
 
 			// if we exist in the new locations, we can skip ourselves
 			if (newLocations.containsKey(tank)) {
@@ -266,8 +277,7 @@ public class TankSoarWorld implements World {
 			}
 			
 			// we moved, calcuate new location
-			int [] newLocation = Arrays.copyOf(oldLocation, oldLocation.length);
-			Direction.translate(newLocation, playerMove.moveDirection);
+			int newLocation = Direction.translate(oldLocation, playerMove.moveDirection);
 			
 			//Cell dest = map.getCell(newLocation);
 			
@@ -277,11 +287,11 @@ public class TankSoarWorld implements World {
 
 				// Cancel the move
 				playerMove.move = false;
-				newLocations.put(tank, players.getLocation(tank));
+				newLocations.put(tank, players.getXy(tank));
 				
 				// take damage
 				String name = map.getCell(newLocation).getFirstObjectWithProperty(Names.kPropertyBlock).getProperty("name");
-				state.adjustHealth(Gridmap2D.config.tanksoarConfig().collision_penalty, name);
+				state.adjustHealth(context.config().tanksoarConfig().collision_penalty, name);
 				
 				if (state.getHealth() <= 0) {
 					Set<Tank> assailants = killedTanks.get(tank);
@@ -300,7 +310,6 @@ public class TankSoarWorld implements World {
 			if (other == null) {
 				// No tank, cross collision impossible
 				newLocations.put(tank, newLocation);
-				movedTanks.add(tank);
 				continue;
 			}
 			
@@ -310,7 +319,6 @@ public class TankSoarWorld implements World {
 			if (!otherMove.move) {
 				// they didn't move, cross collision impossible
 				newLocations.put(tank, newLocation);
-				movedTanks.add(tank);
 				continue;
 			}
 			
@@ -319,7 +327,6 @@ public class TankSoarWorld implements World {
 			if (playerMove.moveDirection != otherMove.moveDirection.backward()) {
 				// we moved but not toward each other, cross collision impossible
 				newLocations.put(tank, newLocation);
-				movedTanks.add(tank);
 				continue;
 			}
 
@@ -327,20 +334,19 @@ public class TankSoarWorld implements World {
 			
 			// take damage
 			
-			state.adjustHealth(Gridmap2D.config.tanksoarConfig().collision_penalty, "cross collision " + other);
+			state.adjustHealth(context.config().tanksoarConfig().collision_penalty, "cross collision " + other);
 			// Getting rammed on a charger is deadly
-			if (map.getCell(players.getLocation(tank)).hasObjectWithProperty(Names.kPropertyCharger)) {
+			if (map.getCell(players.getXy(tank)).hasObjectWithProperty(Names.kPropertyCharger)) {
 				state.adjustHealth(state.getHealth() * -1, "hit on charger");
 			}
 			
 			TankState otherState = other.getState();
-			otherState.adjustHealth(Gridmap2D.config.tanksoarConfig().collision_penalty, "cross collision " + tank);
+			otherState.adjustHealth(context.config().tanksoarConfig().collision_penalty, "cross collision " + tank);
 			// Getting rammed on a charger is deadly
-			if (map.getCell(players.getLocation(other)).hasObjectWithProperty(Names.kPropertyCharger)) {
+			if (map.getCell(players.getXy(other)).hasObjectWithProperty(Names.kPropertyCharger)) {
 				otherState.adjustHealth(otherState.getHealth() * -1, "hit on charger");
 			}
 			
-			
 			if (state.getHealth() <= 0) {
 				Set<Tank> assailants = killedTanks.get(tank);
 				if (assailants == null) {
@@ -363,31 +369,41 @@ public class TankSoarWorld implements World {
 			otherMove.move = false;
 			
 			// store new locations
-			newLocations.put(tank, players.getLocation(tank));
-			newLocations.put(other, players.getLocation(other));
+			newLocations.put(tank, players.getXy(tank));
+			newLocations.put(other, players.getXy(other));
 		}
+		profiler.mark(Phase.CROSS_COLLISION);
 		
 		// We've eliminated all cross collisions and walls
 		
-		// We'll need to save where people move, indexed by location
-		Map<Integer, List<Tank> > collisionMap = new HashMap<Integer, List<Tank> >();
+		// Settle the rest in player order, moving into an occupied cell
+		// sends tanks back
+		int count = players.numberOfPlayers();
+		moves.begin(map.size(), count);
+		for (int i = 0; i < count; ++i) {
+			Tank tank = players.get(i);
+			moves.setTank(i, players.getXy(tank), newLocations.get(tank, Xy.NONE), players.getCommand(tank).move);
+		}
+		moves.resolve();
 		
-		// Iterate through players, checking for all other types of collisions
-		// Also, moves are committed at this point and they won't respawn on
+		// Moves are committed at this point and they won't respawn on
 		// a charger, so do charging here too
 		// and shields and radar
-		for (Tank tank : players.getAll()) {
+		for (int i = 0; i < count; ++i) {
+			Tank tank = players.get(i);
 			TankState state = tank.getState();
 			
-			doMoveCollisions(tank, newLocations, collisionMap, movedTanks);
+			if (!moves.moving(i)) {
+				players.getCommand(tank).move = false;
+			}
 
-			// chargers
-			chargeUp(tank, newLocations.get(tank));
+			// chargers, where the tank was when its turn to move settled
+			chargeUp(tank, moves.placedXy(i));
 
 			// Shields
 			if (state.getShieldsUp()) {
 				if (state.getEnergy() > 0) {
-					state.adjustEnergy(Gridmap2D.config.tanksoarConfig().shield_energy_usage, "shields");
+					state.adjustEnergy(context.config().tanksoarConfig().shield_energy_usage, "shields");
 				} else {
 					logger.debug(tank + ": shields ran out of energy");
 					state.setShieldsUp(false);
@@ -401,23 +417,25 @@ public class TankSoarWorld implements World {
 		}			
 		
 		// figure out collision damage
-		for (List<Tank> collision : collisionMap.values()) {
+		for (int g = 0; g < moves.groups(); ++g) {
+			int size = moves.groupSize(g);
 			
 			// if there is more than one player, have them all take damage
-			if (collision.size() > 1) {
+			if (size > 1) {
 				
-				int damage = collision.size() - 1;
-				damage *= Gridmap2D.config.tanksoarConfig().collision_penalty;
+				int damage = size - 1;
+				damage *= context.config().tanksoarConfig().collision_penalty;
 				
 				logger.debug("Collision, " + (damage * -1) + " damage:");
 				
-				for (Tank tank : collision) {
+				for (int k = 0; k < size; ++k) {
+					Tank tank = players.get(moves.member(g, k));
 					TankState state = tank.getState();
 
 					state.adjustHealth(damage, "collision");
 					
 					// Getting rammed on a charger is deadly
-					if (map.getCell(players.getLocation(tank)).hasObjectWithProperty(Names.kPropertyCharger)) {
+					if (map.getCell(players.getXy(tank)).hasObjectWithProperty(Names.kPropertyCharger)) {
 						state.adjustHealth(state.getHealth() * -1, "hit on charger");
 					}
 					
@@ -428,7 +446,8 @@ public class TankSoarWorld implements World {
 							assailants = new HashSet<Tank>();
 						}
 						// give everyone else involved credit for the kill
-						for (Tank other : collision) {
+						for (int j = 0; j < size; ++j) {
+							Tank other = players.get(moves.member(g, j));
 							if (other.equals(tank)) {
 								continue;
 							}
@@ -441,37 +460,46 @@ public class TankSoarWorld implements World {
 		}
 		
 		// Commit tank moves in two steps, remove from old, place in new
-		for (Tank tank : movedTanks) {
-			// remove from past cell
-			map.getCell(players.getLocation(tank)).clearPlayers();
+		for (int i = 0; i < count; ++i) {
+			if (moves.moving(i)) {
+				// remove from past cell
+				map.getCell(players.getXy(players.get(i))).clearPlayers();
+			}
 		}
 		
 		// commit the new move, grabbing the missile pack if applicable
-		for (Tank tank : movedTanks) {
+		for (int i = 0; i < count; ++i) {
+			if (!moves.moving(i)) {
+				continue;
+			}
+			Tank tank = players.get(i);
+			
 			// put in new cell
-			int [] location = newLocations.get(tank);
-			players.setLocation(tank, location);
+			int location = moves.xy(i);
+			players.setXy(tank, location);
 			map.getCell(location).addPlayer(tank);
 			
 			// get missile pack
-			Set<CellObject> missilePacks = map.getCell(location).removeAllObjectsByProperty("missiles");
-			for (CellObject pack : missilePacks) {
+			scratch.clear();
+			map.getCell(location).removeAllObjectsByProperty("missiles", scratch);
+			for (CellObject pack : scratch) {
 				apply(pack, tank);
 			}
 			
 			// is there a missile in the cell?
-			Set<CellObject> missiles = map.getCell(location).getAllObjectsWithProperty(Names.kPropertyMissile);
-			if (missiles.isEmpty()) {
+			scratch.clear();
+			if (map.getCell(location).getObjectsWithProperty(Names.kPropertyMissile, scratch) == 0) {
 				// No, can't collide
 				continue;
 			}
 
 			// are any flying toward me?
 			CommandInfo move = players.getCommand(tank);
-			for (CellObject missile : missiles) {
-				if (move.moveDirection == Direction.valueOf(missile.getProperty(Names.kPropertyDirection)).backward()) {
+			for (CellObject missile : scratch) {
+				if (move.moveDirection == missile.getProperty(Names.Keys.DIRECTION, Direction.class).backward()) {
 					missileHit(tank, missile);
 					map.getCell(location).removeObject(missile);
+					map.recycleObject(missile);
 
 					// explosion
 					setExplosion(location);
@@ -479,8 +507,11 @@ public class TankSoarWorld implements World {
 			}
 		}
 		
+		profiler.mark(Phase.MOVE_COLLISION);
+		
 		// move missiles to new cells, checking for new victims
 		map.updateObjects(this);
+		profiler.mark(Phase.MISSILE_FLIGHT);
 		
 		// If there is more than one player out there, keep track of how
 		// many updates go by before resetting everything to prevent oscillations
@@ -496,10 +527,8 @@ public class TankSoarWorld implements World {
 		
 		// Spawn new Missiles in front of Tanks
 		for (Tank tank : firedTanks) {
-			int [] missileLoc = Arrays.copyOf(players.getLocation(tank), players.getLocation(tank).length);
-			
 			Direction direction = tank.getFacing();
-			Direction.translate(missileLoc, direction);
+			int missileLoc = Direction.translate(players.getXy(tank), direction);
 			
 			if (!map.isInBounds(missileLoc)) {
 				continue;
@@ -510,7 +539,7 @@ public class TankSoarWorld implements World {
 				continue;
 			}
 			
-			CellObject missile = map.createObjectByName(Names.kPropertyMissile);
+			CellObject missile = map.createTransientObject(Names.kPropertyMissile);
 			missile.setProperty(Names.kPropertyDirection, direction);
 			missile.setProperty(Names.kPropertyFlyPhase, 0);
 			missile.setProperty(Names.kPropertyOwner, tank.getName());
@@ -521,6 +550,7 @@ public class TankSoarWorld implements World {
 			Tank other = (Tank)map.getCell(missileLoc).getFirstPlayer();
 			if (other != null) {
 				missileHit(other, missile);
+				map.recycleObject(missile);
 				
 				// explosion
 				setExplosion(missileLoc);
@@ -529,25 +559,28 @@ public class TankSoarWorld implements World {
 				map.getCell(missileLoc).addObject(missile);
 			}
 		}
+		profiler.mark(Phase.SPAWNS);
 		
 		// Handle incoming sensors now that all missiles are flying
-		map.handleIncoming();
+		map.handleIncoming(players);
+		profiler.mark(Phase.INCOMING);
 		
 		// Spawn missile packs
 		if (map.usingMissilePacks() && map.numberMissilePacks() < maxMissilePacks) {
 			spawnMissilePack(map, false);
 		}
+		profiler.mark(Phase.SPAWNS);
 		
 		// Respawn killed Tanks in safe squares
 		for (Tank tank : killedTanks.keySet()) {
 			// apply points
-			tank.adjustPoints(Gridmap2D.config.tanksoarConfig().frag_penalty, "fragged");
+			tank.adjustPoints(context.config().tanksoarConfig().frag_penalty, "fragged");
 			assert killedTanks.containsKey(tank);
 			for (Tank assailant : killedTanks.get(tank)) {
 				if (assailant.equals(tank)) {
 					continue;
 				}
-				assailant.adjustPoints(Gridmap2D.config.tanksoarConfig().frag_award, "fragged " + tank);
+				assailant.adjustPoints(context.config().tanksoarConfig().frag_award, "fragged " + tank);
 			}
 			
 			frag(tank);
@@ -555,24 +588,26 @@ public class TankSoarWorld implements World {
 		
 		// if the missile reset counter is 100 and there were no killed tanks
 		// this turn, reset all tanks
-		if ((missileReset >= Gridmap2D.config.tanksoarConfig().missile_reset_threshold) && (killedTanks.size() == 0)) {
+		if ((missileReset >= context.config().tanksoarConfig().missile_reset_threshold) && (killedTanks.size() == 0)) {
 			logger.info("missile reset threshold exceeded, resetting all tanks");
 			missileReset = 0;
 			for (Tank tank : players.getAll()) {
 				frag(tank);
 			}
 		}
+		profiler.mark(Phase.RESPAWNS);
 		
 		// Update tanks
 		updatePlayers(false);
+		profiler.end();
 		
-		WorldUtil.checkMaxUpdates(stopMessages, worldCount);
-		WorldUtil.checkWinningScore(stopMessages, players.getSortedScores());
+		WorldUtil.checkMaxUpdates(context, stopMessages, worldCount);
+		WorldUtil.checkWinningScore(context, stopMessages, players.getSortedScores());
 		
 		if (stopMessages.size() > 0) {
-			Gridmap2D.control.stopSimulation();
-			boolean stopping = Gridmap2D.control.getRunsTerminal() <= 0;
-			WorldUtil.dumpStats(players.getSortedScores(), players.getAllAsPlayers(), stopping, stopMessages);
+			context.control().stopSimulation();
+			boolean stopping = context.control().getRunsTerminal() <= 0;
+			WorldUtil.dumpStats(context, worldCount, players.getSortedScores(), players.getAllAsPlayers(), stopping, stopMessages);
 		}
 	}
 	
@@ -582,7 +617,7 @@ public class TankSoarWorld implements World {
 	 */
 	private void frag(Tank tank) {
 		// remove from past cell
-		int [] oldLocation = players.getLocation(tank);
+		int oldLocation = players.getXy(tank);
 		setExplosion(oldLocation);
 		map.getCell(oldLocation).clearPlayers();
 
@@ -614,26 +649,26 @@ public class TankSoarWorld implements World {
 
 		object.doApplyProperties();
 
-		if (object.hasProperty("apply.missiles")) {
-			int missiles = object.getProperty("apply.missiles", 0, Integer.class);
-			state.adjustMissiles(missiles, object.getProperty("name"));
+		if (object.hasProperty(Names.Keys.APPLY_MISSILES)) {
+			int missiles = object.getInt(Names.Keys.APPLY_MISSILES, 0);
+			state.adjustMissiles(missiles, object.getProperty(Names.Keys.NAME));
 		}
 		
-		if (object.hasProperty("apply.health")) {
-			if (!object.getProperty("apply.health.shields-down", false, Boolean.class) || !state.getShieldsUp()) {
-				int health = object.getProperty("apply.health", 0, Integer.class);
-				state.adjustHealth(health, object.getProperty("name"));
+		if (object.hasProperty(Names.Keys.APPLY_HEALTH)) {
+			if (!object.getBoolean(Names.Keys.APPLY_HEALTH_SHIELDS_DOWN, false) || !state.getShieldsUp()) {
+				int health = object.getInt(Names.Keys.APPLY_HEALTH, 0);
+				state.adjustHealth(health, object.getProperty(Names.Keys.NAME));
 			}
 		}
 		
-		if (object.hasProperty("apply.energy")) {
-			if (!object.getProperty("apply.energy.shields", false, Boolean.class) || state.getShieldsUp()) {
-				int energy = object.getProperty("apply.energy", 0, Integer.class);
-				state.adjustEnergy(energy, object.getProperty("name"));
+		if (object.hasProperty(Names.Keys.APPLY_ENERGY)) {
+			if (!object.getBoolean(Names.Keys.APPLY_ENERGY_SHIELDS, false) || state.getShieldsUp()) {
+				int energy = object.getInt(Names.Keys.APPLY_ENERGY, 0);
+				state.adjustEnergy(energy, object.getProperty(Names.Keys.NAME));
 			}
 		}
 
-		return object.getProperty("apply.remove", false, Boolean.class);
+		return object.getBoolean(Names.Keys.APPLY_REMOVE, false);
 	}
 			
 	private void handleRadarEnergy(Tank tank) {
@@ -652,21 +687,22 @@ public class TankSoarWorld implements World {
 		state.adjustEnergy(state.getRadarPower() * -1, "radar");
 	}
 	
-	private void chargeUp(Tank tank, int [] location) {
+	private void chargeUp(Tank tank, int location) {
 		TankState state = tank.getState();
 		// Charge up
-		Set<CellObject> chargers = map.getCell(location).getAllObjectsWithProperty(Names.kPropertyCharger);
+		scratch.clear();
+		map.getCell(location).getObjectsWithProperty(Names.kPropertyCharger, scratch);
 		
-		for (CellObject charger : chargers) {
+		for (CellObject charger : scratch) {
 			if (charger.hasProperty(Names.kPropertyHealth)) {
 				state.setOnHealthCharger(true);
-				if (state.getHealth() < Gridmap2D.config.tanksoarConfig().max_health) {
+				if (state.getHealth() < context.config().tanksoarConfig().max_health) {
 					state.adjustHealth(charger.getProperty(Names.kPropertyHealth, 0, Integer.class), "charger");
 				}
 			}
 			if (charger.hasProperty(Names.kPropertyEnergy)) {
 				state.setOnEnergyCharger(true);
-				if (state.getEnergy() < Gridmap2D.config.tanksoarConfig().max_energy) {
+				if (state.getEnergy() < context.config().tanksoarConfig().max_energy) {
 					state.adjustEnergy(charger.getProperty(Names.kPropertyEnergy, 0, Integer.class), "charger");
 				}
 			}
@@ -676,7 +712,7 @@ public class TankSoarWorld implements World {
 	private void addCharger(boolean health) {
 		int [] location = map.getAvailableLocationAmortized();
 		if (location == null) {
-			Gridmap2D.control.errorPopUp("no available location for charger spawn");
+			context.control().errorPopUp("no available location for charger spawn");
 			return;
 		}
 
@@ -700,7 +736,7 @@ public class TankSoarWorld implements World {
 	}
 	
 	private void spawnMissilePack(TankSoarMap theMap, boolean force) {
-		if (force || (Simulation.random.nextInt(100) < Gridmap2D.config.tanksoarConfig().missile_pack_respawn_chance)) {
+		if (force || (context.random(RandomStream.OBJECTS).nextInt(100) < context.config().tanksoarConfig().missile_pack_respawn_chance)) {
 			// I used to call getAvailableLocations but that is slow. Brute force find a spot. Time out in case of crazyness.
 			int [] spot = theMap.getAvailableLocationAmortized();
 			if (spot == null) {
@@ -723,15 +759,15 @@ public class TankSoarWorld implements World {
 		
 		// apply points
 		String owner = missile.getProperty(Names.kPropertyOwner);
-		tank.adjustPoints(Gridmap2D.config.tanksoarConfig().missile_hit_penalty, owner + "-" + missile.getProperty("missile-id"));
+		tank.adjustPoints(context.config().tanksoarConfig().missile_hit_penalty, owner + "-" + missile.getProperty("missile-id"));
 		Tank other = players.get(owner);
 		// can be null if the player was deleted after he fired but before the missile hit
 		if (other != null) {
-			other.adjustPoints(Gridmap2D.config.tanksoarConfig().missile_hit_award, owner + "-" + missile.getProperty("missile-id"));
+			other.adjustPoints(context.config().tanksoarConfig().missile_hit_award, owner + "-" + missile.getProperty("missile-id"));
 		}
 		
 		// charger insta-kill
-		if (map.getCell(players.getLocation(tank)).hasObjectWithProperty(Names.kPropertyCharger)) {
+		if (map.getCell(players.getXy(tank)).hasObjectWithProperty(Names.kPropertyCharger)) {
 			state.adjustHealth(state.getHealth() * -1, "hit on charger");
 		}
 		
@@ -748,61 +784,6 @@ public class TankSoarWorld implements World {
 		}
 	}
 	
-	private void doMoveCollisions(Tank player, 
-			Map<Tank, int []> newLocations, 
-			Map<Integer, List<Tank> > collisionMap, 
-			List<Tank> movedTanks) {
-		
-		// Get destination location
-		int [] newLocation = newLocations.get(player);
-		
-		// Wall collisions checked for earlier
-		
-		// is there a collision in the cell
-		List<Tank> collision = collisionMap.get(Arrays.hashCode(newLocation));
-		if (collision != null) {
-			
-			// there is a collision
-
-			// if there is only one player here, cancel its move
-			if (collision.size() == 1) {
-				Tank other = collision.get(0);
-				if (players.getCommand(other).move) {
-					cancelMove(other, newLocations, movedTanks);
-					doMoveCollisions(other, newLocations, collisionMap, movedTanks);
-				}
-			} 
-
-			// If there is more than one guy here, they've already been cancelled
-			
-			
-			// Add ourselves to this cell's collision list
-			collision.add(player);
-			collisionMap.put(Arrays.hashCode(newLocation), collision);
-			
-			// cancel my move
-			if (players.getCommand(player).move) {
-				cancelMove(player, newLocations, movedTanks);
-				doMoveCollisions(player, newLocations, collisionMap, movedTanks);
-			}
-			return;
-
-		}
-
-		// There is nothing in this cell, create a new list and add ourselves
-		collision = new ArrayList<Tank>(4);
-		collision.add(player);
-		collisionMap.put(Arrays.hashCode(newLocation), collision);
-	}
-	
-	private void cancelMove(Tank tank, Map<Tank, int []> newLocations, 
-			List<Tank> movedTanks) {
-		CommandInfo move = players.getCommand(tank);
-		move.move = false;
-		movedTanks.remove(tank);
-		newLocations.put(tank, players.getLocation(tank));
-	}
-	
 	public boolean hasPlayer(String name) {
 		return players.get(name) != null;
 	}
@@ -810,11 +791,11 @@ public class TankSoarWorld implements World {
 	public boolean addPlayer(String id, PlayerConfig cfg, boolean debug) {
 		int [] location = WorldUtil.getStartingLocation(map, cfg.pos);
 		if (location == null) {
-			Gridmap2D.control.errorPopUp("There are no suitable starting locations.");
+			context.control().errorPopUp("There are no suitable starting locations.");
 			return false;
 		}
 
-		Tank.Builder builder = new Tank.Builder(id);
+		Tank.Builder builder = new Tank.Builder(context, id);
 		Tank player = builder.missiles(cfg.missiles).energy(cfg.energy).health(cfg.health).build();
 		players.add(player, cfg.pos);
 		
@@ -841,10 +822,57 @@ public class TankSoarWorld implements World {
 		return true;
 	}
 
+	/**
+	 * Adds wandering tanks with ids arena0, arena1 and so on, for filling
+	 * large maps. Their color is their id, outside Simulation.kColors, so any
+	 * number can be added and none of them share a color with each other or
+	 * with a player taking colors from the simulation. Their configurations
+	 * are not added to the simulation's player configs.
+	 * 
+	 * @return how many were added, fewer than count if the map ran out of
+	 *         room
+	 */
+	public int addArenaTanks(int count) {
+		int added = 0;
+		for (int i = 0; i < count; ++i) {
+			String id = ARENA_PREFIX + i;
+			if (players.get(id) != null) {
+				continue;
+			}
+			
+			PlayerConfig cfg = new PlayerConfig();
+			cfg.name = id;
+			cfg.color = id;
+			
+			int [] location = WorldUtil.getStartingLocation(map, cfg.pos);
+			if (location == null) {
+				logger.warn("No room for " + (count - i) + " more arena tanks");
+				break;
+			}
+			
+			Tank tank = new Tank.Builder(context, id).config(cfg).build();
+			players.add(tank, cfg.pos);
+			tank.setCommander(new WanderingTank(tank, context.random(RandomStream.PLAYERS)));
+			players.setLocation(tank, location);
+			map.getCell(location).addPlayer(tank);
+			added += 1;
+		}
+		
+		// once for all of them
+		if (added > 0) {
+			updatePlayers(true);
+		}
+		return added;
+	}
+
 	public GridMap getMap() {
 		return map;
 	}
 
+	public PhaseProfiler<Phase> getProfiler() {
+		return profiler;
+	}
+
 	public Player[] getPlayers() {
 		return players.getAllAsPlayers();
 	}
@@ -864,7 +892,7 @@ public class TankSoarWorld implements World {
 
 	public void removePlayer(String name) {
 		Tank tank = players.get(name);
-		map.getCell(players.getLocation(tank)).clearPlayers();
+		map.getCell(players.getXy(tank)).clearPlayers();
 		players.remove(tank);
 		tank.shutdownCommander();
 		updatePlayers(true);
@@ -1,7 +1,6 @@
 package edu.umich.soar.gridmap2d.world;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 import org.apache.commons.logging.Log;
@@ -9,8 +8,9 @@ import org.apache.commons.logging.LogFactory;
 
 import edu.umich.soar.gridmap2d.CognitiveArchitecture;
 import edu.umich.soar.gridmap2d.Direction;
-import edu.umich.soar.gridmap2d.Gridmap2D;
+import edu.umich.soar.gridmap2d.SimulationContext;
 import edu.umich.soar.gridmap2d.config.PlayerConfig;
+import edu.umich.soar.gridmap2d.config.TaxiConfig;
 import edu.umich.soar.gridmap2d.map.GridMap;
 import edu.umich.soar.gridmap2d.map.TaxiMap;
 import edu.umich.soar.gridmap2d.players.CommandInfo;
@@ -20,9 +20,18 @@ import edu.umich.soar.gridmap2d.players.TaxiCommander;
 
 public class TaxiWorld implements World {
 	private static final Log logger = LogFactory.getLog(TaxiWorld.class);
+	
+	/**
+	 * The stages of update, in order, for the profiler.
+	 */
+	public enum Phase {
+		INPUT, MOVE, SENSORS
+	}
 
+	private final SimulationContext context;
 	private TaxiMap map;
 	private PlayersManager<Taxi> players = new PlayersManager<Taxi>();
+	private final PhaseProfiler<Phase> profiler = new PhaseProfiler<Phase>(Phase.class);
 	private List<String> stopMessages = new ArrayList<String>();
 	private CognitiveArchitecture cogArch;
 	private int fuelStartMin;
@@ -31,16 +40,18 @@ public class TaxiWorld implements World {
 	private boolean disableFuel;
 	private boolean forceHuman = false;
 
-	public TaxiWorld(CognitiveArchitecture cogArch, int fuelStartMin, int fuelStartMax, int refuel, boolean disableFuel) {
-		this.cogArch = cogArch;
-		this.fuelStartMin = fuelStartMin;
-		this.fuelStartMax = fuelStartMax;
-		this.refuel = refuel;
-		this.disableFuel = disableFuel;
+	public TaxiWorld(SimulationContext context) {
+		this.context = context;
+		this.cogArch = context.cogArch();
+		TaxiConfig tc = context.config().taxiConfig();
+		this.fuelStartMin = tc.fuel_starting_minimum;
+		this.fuelStartMax = tc.fuel_starting_maximum;
+		this.refuel = tc.fuel_maximum;
+		this.disableFuel = tc.disable_fuel;
 	}
 	
 	public void setAndResetMap(String mapPath) {
-		TaxiMap newMap = TaxiMap.generateInstance(mapPath);
+		TaxiMap newMap = TaxiMap.generateInstance(context, mapPath);
 		if (newMap == null) {
 			return;
 		}
@@ -80,7 +91,7 @@ public class TaxiWorld implements World {
 
 	private void updatePlayers() {
 		for (Taxi taxi : players.getAll()) {
-			taxi.update(players.getLocation(taxi), map);
+			taxi.update(players.getXy(taxi), map);
 		}
 	}
 
@@ -91,8 +102,7 @@ public class TaxiWorld implements World {
 			int [] location = players.getLocation(taxi);
 			if (command.move) {
 				// Calculate new location
-				int [] newLocation = Arrays.copyOf(location, location.length);
-				Direction.translate(newLocation, command.moveDirection);
+				int newLocation = Direction.translate(players.getXy(taxi), command.moveDirection);
 				
 				// Verify legal move and commit move
 				if (map.isInBounds(newLocation) && map.exitable(location, command.moveDirection)) {
@@ -102,7 +112,7 @@ public class TaxiWorld implements World {
 					} else {
 						// remove from cell
 						map.getCell(newLocation).clearPlayers();
-						players.setLocation(taxi, newLocation);
+						players.setXy(taxi, newLocation);
 						
 						map.getCell(newLocation).addPlayer(taxi);
 						taxi.adjustPoints(-1, "legal move");
@@ -143,41 +153,46 @@ public class TaxiWorld implements World {
 	}
 	
 	public void update(int worldCount) {
-		WorldUtil.checkNumPlayers(players.numberOfPlayers());
+		WorldUtil.checkNumPlayers(context, players.numberOfPlayers());
+		profiler.start();
 
 		// Collect input
 		for (Taxi taxi : players.getAll()) {
 			taxi.resetPointsChanged();
-			CommandInfo command = forceHuman ? Gridmap2D.control.getHumanCommand(taxi) : taxi.getCommand();
+			CommandInfo command = forceHuman ? context.control().getHumanCommand(taxi) : taxi.getCommand();
 			if (command == null) {
-				Gridmap2D.control.stopSimulation();
+				context.control().stopSimulation();
 				return;
 			}
 			players.setCommand(taxi, command);
-			WorldUtil.checkStopSim(stopMessages, command, taxi);
+			WorldUtil.checkStopSim(context, stopMessages, command, taxi);
 		}
+		profiler.mark(Phase.INPUT);
 
 		moveTaxis();
-		if (Gridmap2D.control.isShuttingDown()) {
+		if (context.control().isShuttingDown()) {
 			return;
 		}
+		profiler.mark(Phase.MOVE);
 		updatePlayers();
+		profiler.mark(Phase.SENSORS);
+		profiler.end();
 		
 		checkFuelRemaining();
 		checkPassengerDelivered();
 		checkPassengerPickedUp();
-		WorldUtil.checkMaxUpdates(stopMessages, worldCount);
-		WorldUtil.checkWinningScore(stopMessages, players.getSortedScores());
+		WorldUtil.checkMaxUpdates(context, stopMessages, worldCount);
+		WorldUtil.checkWinningScore(context, stopMessages, players.getSortedScores());
 		
 		if (stopMessages.size() > 0) {
-			Gridmap2D.control.stopSimulation();
-			boolean stopping = Gridmap2D.control.getRunsTerminal() <= 0;
-			WorldUtil.dumpStats(players.getSortedScores(), players.getAllAsPlayers(), stopping, stopMessages);
+			context.control().stopSimulation();
+			boolean stopping = context.control().getRunsTerminal() <= 0;
+			WorldUtil.dumpStats(context, worldCount, players.getSortedScores(), players.getAllAsPlayers(), stopping, stopMessages);
 		}
 	}
 	
 	private void checkFuelRemaining() {
-		if (Gridmap2D.config.terminalsConfig().fuel_remaining) {
+		if (context.config().terminalsConfig().fuel_remaining) {
 			for (Taxi taxi : players.getAll()) {
 				if (taxi.getFuel() < 0) {
 					stopMessages.add("Fuel is negative.");
@@ -187,7 +202,7 @@ public class TaxiWorld implements World {
 	}
 	
 	private void checkPassengerDelivered() {
-		if (Gridmap2D.config.terminalsConfig().passenger_delivered) {
+		if (context.config().terminalsConfig().passenger_delivered) {
 			if (map.isPassengerDelivered()) {
 				stopMessages.add("Passenger delivered.");
 			}
@@ -195,7 +210,7 @@ public class TaxiWorld implements World {
 	}
 	
 	private void checkPassengerPickedUp() {
-		if (Gridmap2D.config.terminalsConfig().passenger_pick_up) {
+		if (context.config().terminalsConfig().passenger_pick_up) {
 			if (map.isPassengerCarried()) {
 				stopMessages.add("There are no points remaining.");
 			}
@@ -214,11 +229,11 @@ public class TaxiWorld implements World {
 	public boolean addPlayer(String id, PlayerConfig cfg, boolean debug) {
 		int [] location = WorldUtil.getStartingLocation(map, cfg.pos);
 		if (location == null) {
-			Gridmap2D.control.errorPopUp("There are no suitable starting locations.");
+			context.control().errorPopUp("There are no suitable starting locations.");
 			return false;
 		}
 
-		Taxi player = new Taxi(id, fuelStartMin, fuelStartMax, refuel, disableFuel);
+		Taxi player = new Taxi(context, id, fuelStartMin, fuelStartMax, refuel, disableFuel);
 		players.add(player, cfg.pos);
 		
 		if (cfg.productions != null) {
@@ -245,6 +260,10 @@ public class TaxiWorld implements World {
 		return map;
 	}
 
+	public PhaseProfiler<Phase> getProfiler() {
+		return profiler;
+	}
+
 	public Player[] getPlayers() {
 		return players.getAllAsPlayers();
 	}
@@ -264,7 +283,7 @@ public class TaxiWorld implements World {
 
 	public void removePlayer(String name) {
 		Taxi taxi = players.get(name);
-		map.getCell(players.getLocation(taxi)).clearPlayers();
+		map.getCell(players.getXy(taxi)).clearPlayers();
 		players.remove(taxi);
 		taxi.shutdownCommander();
 		updatePlayers();
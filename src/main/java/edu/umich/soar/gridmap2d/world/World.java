@@ -11,6 +11,7 @@ public interface World {
 	public void reset();
 	public void setAndResetMap(String mapPath);
 	public GridMap getMap();
+	public PhaseProfiler<?> getProfiler();
 	
 	// player management
 	public int numberOfPlayers();
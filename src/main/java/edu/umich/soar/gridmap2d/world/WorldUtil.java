@@ -6,7 +6,7 @@ import java.util.List;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
-import edu.umich.soar.gridmap2d.Gridmap2D;
+import edu.umich.soar.gridmap2d.SimulationContext;
 import edu.umich.soar.gridmap2d.map.GridMap;
 import edu.umich.soar.gridmap2d.players.CommandInfo;
 import edu.umich.soar.gridmap2d.players.Player;
@@ -15,7 +15,11 @@ import edu.umich.soar.gridmap2d.players.Player;
 public class WorldUtil {
 	private static final Log logger = LogFactory.getLog(WorldUtil.class);
 
-	static void dumpStats(int[] sortedScores, Player[] players, boolean stopping, List<String> messages) {
+	/**
+	 * Prints the stop messages and final standings, and records them on the
+	 * context as a RunResult.
+	 */
+	static void dumpStats(SimulationContext context, int worldCount, int[] sortedScores, Player[] players, boolean stopping, List<String> messages) {
 		StringBuilder bigMessage = new StringBuilder(); 
 		for (String message : messages) {
 			System.out.println(message);
@@ -26,7 +30,7 @@ public class WorldUtil {
 			}
 		}
 		if (stopping) {
-			Gridmap2D.control.infoPopUp(bigMessage.toString());
+			context.control().infoPopUp(bigMessage.toString());
 		}
 		
 		boolean draw = false;
@@ -37,30 +41,35 @@ public class WorldUtil {
 			}
 		}
 		
+		RunResult result = new RunResult(worldCount, messages);
 		for (Player player : players) {
-			String status = null;
+			RunResult.Status status = null;
 			if (player.getPoints() == sortedScores[sortedScores.length - 1]) {
-				status = draw ? "draw" : "winner";
+				status = draw ? RunResult.Status.DRAW : RunResult.Status.WINNER;
 			} else {
-				status = "loser";
+				status = RunResult.Status.LOSER;
 			}
-			String statline = player.getName() + ": " + player.getPoints() + " (" + status + ")";
+			RunResult.Standing standing = new RunResult.Standing(player.getID(), player.getName(), player.getPoints(), status);
+			result.addStanding(standing);
+			
+			String statline = standing.toString();
 			logger.info(statline);
 			System.out.println(statline);
 		}
+		context.addRunResult(result);
 	}
 
-	static void checkMaxUpdates(List<String> stopMessages, int worldCount) {
-		if (Gridmap2D.config.terminalsConfig().max_updates > 0) {
-			if (worldCount >= Gridmap2D.config.terminalsConfig().max_updates) {
+	static void checkMaxUpdates(SimulationContext context, List<String> stopMessages, int worldCount) {
+		if (context.config().terminalsConfig().max_updates > 0) {
+			if (worldCount >= context.config().terminalsConfig().max_updates) {
 				stopMessages.add("Reached maximum updates, stopping.");
 			}
 		}
 	}
 	
-	static void checkStopSim(List<String> stopMessages, CommandInfo command, Player player) {
+	static void checkStopSim(SimulationContext context, List<String> stopMessages, CommandInfo command, Player player) {
 		if (command.stopSim) {
-			if (Gridmap2D.config.terminalsConfig().agent_command) {
+			if (context.config().terminalsConfig().agent_command) {
 				stopMessages.add(player.getName() + " issued simulation stop command.");
 			} else {
 				logger.warn(player.getName() + " issued illegal simulation stop command.");
@@ -68,18 +77,18 @@ public class WorldUtil {
 		}
 	}
 
-	static void checkWinningScore(List<String> stopMessages, int[] scores) {
-		if (Gridmap2D.config.terminalsConfig().winning_score > 0) {
-			if (scores[scores.length - 1] >= Gridmap2D.config.terminalsConfig().winning_score) {
-				stopMessages.add("At least one player has achieved at least " + Gridmap2D.config.terminalsConfig().winning_score + " points.");
+	static void checkWinningScore(SimulationContext context, List<String> stopMessages, int[] scores) {
+		if (context.config().terminalsConfig().winning_score > 0) {
+			if (scores[scores.length - 1] >= context.config().terminalsConfig().winning_score) {
+				stopMessages.add("At least one player has achieved at least " + context.config().terminalsConfig().winning_score + " points.");
 			}
 		}
 	}
 	
-	static void checkNumPlayers(int numPlayers) {
+	static void checkNumPlayers(SimulationContext context, int numPlayers) {
 		if (numPlayers == 0) {
-			Gridmap2D.control.stopSimulation();
-			Gridmap2D.control.errorPopUp("Update called with no players.");
+			context.control().stopSimulation();
+			context.control().errorPopUp("Update called with no players.");
 		}
 	}
 	
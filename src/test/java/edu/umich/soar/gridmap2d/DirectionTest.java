@@ -83,6 +83,29 @@ public class DirectionTest {
 		assertTrue(Arrays.equals(target, new int[] {6, 5}));
 	}
 
+	@Test
+	public void testPackedTranslation() {
+		int xy = Xy.pack(5, 5);
+		
+		xy = Direction.translate(xy, Direction.NORTH);
+		assertTrue(xy == Xy.pack(5, 4));
+		xy = Direction.translate(xy, Direction.EAST);
+		assertTrue(xy == Xy.pack(6, 4));
+		xy = Direction.translate(xy, Direction.SOUTH);
+		assertTrue(xy == Xy.pack(6, 5));
+		xy = Direction.translate(xy, Direction.WEST);
+		assertTrue(xy == Xy.pack(5, 5));
+		
+		// edges step off the map without carrying into the other half
+		int corner = Xy.pack(0, 0);
+		assertTrue(Direction.translate(corner, Direction.NORTH) == Xy.pack(0, -1));
+		assertTrue(Direction.translate(corner, Direction.WEST) == Xy.pack(-1, 0));
+		assertTrue(Xy.y(Direction.translate(corner, Direction.NORTH)) == -1);
+		assertTrue(Xy.x(Direction.translate(corner, Direction.NORTH)) == 0);
+		assertTrue(Xy.x(Xy.NONE) == -1 && Xy.y(Xy.NONE) == -1);
+		assertTrue(Arrays.equals(Xy.toArray(Xy.pack(7, 3)), new int[] {7, 3}));
+	}
+
 	@Test
 	public void testNoneIs0() {
 		assertTrue(Direction.values()[0] == Direction.NONE);
@@ -0,0 +1,46 @@
+package edu.umich.soar.gridmap2d;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class TickSchedulerTest {
+
+	@Test
+	public void testPeriodUnusedOutsideFixedRate() {
+		for (TickMode mode : new TickMode[] { TickMode.FREE, TickMode.MAX_THROUGHPUT, TickMode.STEPS }) {
+			TickScheduler scheduler = new TickScheduler(mode, 0, 0, 2);
+			scheduler.setPeriodMillis(-1);
+			scheduler.start();
+			assertFalse(scheduler.afterTick());
+			assertEquals(mode == TickMode.STEPS, scheduler.afterTick());
+		}
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testFixedRateNeedsPeriod() {
+		new TickScheduler(TickMode.FIXED_RATE, 0, 0, 0);
+	}
+	
+	@Test
+	public void testSwitchToFixedRate() {
+		TickScheduler scheduler = new TickScheduler(TickMode.FREE, 0, 0, 0);
+		try {
+			scheduler.setMode(TickMode.FIXED_RATE);
+			fail("fixed rate without a period");
+		} catch (IllegalArgumentException e) {
+		}
+		assertEquals(TickMode.FREE, scheduler.getMode());
+		
+		scheduler.setPeriodMillis(5);
+		scheduler.setMode(TickMode.FIXED_RATE);
+		try {
+			scheduler.setPeriodMillis(0);
+			fail("no period at a fixed rate");
+		} catch (IllegalArgumentException e) {
+		}
+		assertEquals(5.0, scheduler.getPeriodMillis(), 0);
+	}
+}
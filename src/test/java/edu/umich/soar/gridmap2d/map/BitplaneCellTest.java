@@ -0,0 +1,72 @@
+package edu.umich.soar.gridmap2d.map;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.umich.soar.gridmap2d.Names;
+
+/**
+ * Runs the cell tests against a bitplane cell and checks that the planes
+ * follow changes to the objects.
+ */
+public class BitplaneCellTest extends CellTest {
+	BitPlanes planes;
+	
+	@Before
+	@Override
+	public void setUp() {
+		super.setUp();
+		planes = new BitPlanes(3);
+		cell = cells.createCell(planes, new int[] { 2, 1 });
+	}
+	
+	@Test
+	public void testLocation() {
+		int[] xy = cell.getLocation();
+		assertEquals(2, xy[0]);
+		assertEquals(1, xy[1]);
+	}
+	
+	@Test
+	public void testPlanes() {
+		int block = BitPlanes.plane(Names.kPropertyBlock);
+		
+		cell.addObject(objects[0]);
+		assertFalse(cell.hasObjectWithProperty(Names.kPropertyBlock));
+		
+		objects[1].setProperty(Names.kPropertyBlock, "true");
+		cell.addObject(objects[1]);
+		assertTrue(cell.hasObjectWithProperty(Names.kPropertyBlock));
+		assertTrue(planes.test(block, planes.index(new int[] { 2, 1 })));
+		assertFalse(planes.test(block, planes.index(new int[] { 1, 2 })));
+		
+		// property changes on objects already in the cell
+		objects[1].removeProperty(Names.kPropertyBlock);
+		assertFalse(cell.hasObjectWithProperty(Names.kPropertyBlock));
+		assertNull(cell.getFirstObjectWithProperty(Names.kPropertyBlock));
+		
+		objects[0].setProperty("apply.properties." + Names.kPropertyBlock, "true");
+		assertFalse(cell.hasObjectWithProperty(Names.kPropertyBlock));
+		objects[0].doApplyProperties();
+		assertTrue(cell.hasObjectWithProperty(Names.kPropertyBlock));
+		
+		assertEquals(1, cell.removeAllObjectsByProperty(Names.kPropertyBlock).size());
+		assertFalse(cell.hasObjectWithProperty(Names.kPropertyBlock));
+		
+		// objects that left the cell no longer affect it
+		objects[0].setProperty(Names.kPropertyBlock, "true");
+		assertFalse(cell.hasObjectWithProperty(Names.kPropertyBlock));
+	}
+	
+	@Test
+	public void testOccupancy() {
+		int index = planes.index(new int[] { 2, 1 });
+		assertEquals(0, planes.getOccupancy(index));
+		assertFalse(cell.hasPlayers());
+	}
+}
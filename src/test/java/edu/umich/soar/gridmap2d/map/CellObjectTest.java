@@ -5,6 +5,9 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Random;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -71,7 +74,7 @@ public class CellObjectTest {
 	@Test(expected = NullPointerException.class)
 	public void testNullKey() {
 		CellObject a = new CellObject(configA);
-		a.setProperty(null, "void");
+		a.setProperty((String) null, "void");
 	}
 	
 	@Test(expected = NullPointerException.class)
@@ -205,4 +208,36 @@ public class CellObjectTest {
 		assertNotNull(c.getProperty("tolerance", Double.class));
 		assertNotNull(c.getProperty("visible", Boolean.class));
 	}
+	
+	@Test
+	public void testTransientReuse() {
+		CellObjectManager manager = new CellObjectManager(new Random(1));
+		manager.registerTemplate(new CellObject(configA));
+		
+		CellObject a1 = manager.createTransientObject("a");
+		a1.setProperty("name", "edward");
+		a1.setProperty("extra", 5);
+		manager.recycle(a1);
+		CellObject other = manager.createObject("a");
+		
+		CellObject a2 = manager.createTransientObject("a");
+		assertSame(a1, a2);
+		assertEquals(a2.getProperty("name"), "a");
+		assertFalse(a2.hasProperty("extra"));
+		assertTrue(a2.compareTo(other) > 0);
+		
+		// not pooled, ignored
+		manager.recycle(other);
+		assertFalse(manager.createTransientObject("a") == other);
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void testRecycleTwice() {
+		CellObjectManager manager = new CellObjectManager(new Random(1));
+		manager.registerTemplate(new CellObject(configA));
+		
+		CellObject a = manager.createTransientObject("a");
+		manager.recycle(a);
+		manager.recycle(a);
+	}
 }
@@ -5,6 +5,8 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 import org.junit.After;
@@ -16,12 +18,14 @@ import edu.umich.soar.gridmap2d.map.CellObjectObserver;
 import edu.umich.soar.gridmap2d.players.Player;
 
 public class CellTest {
+	Cells cells;
 	Cell cell;
 	CellObject[] objects = new CellObject[3];
 	
 	@Before
 	public void setUp() {
-		cell = Cells.createCell(new int[] { 0, 0 });
+		cells = new Cells();
+		cell = cells.createCell(new int[] { 0, 0 });
 		objects[0] = new CellObject();
 		objects[1] = new CellObject();
 		objects[2] = new CellObject();
@@ -211,6 +215,46 @@ public class CellTest {
 		assertEquals(removals.size(), 3);
 	}
 	
+	@Test
+	public void testVisitorOperations() {
+		List<CellObject> into = new ArrayList<CellObject>();
+		assertEquals(cell.getObjectsWithProperty("property", into), 0);
+		assertTrue(into.isEmpty());
+		
+		cell.addObject(objects[0]);
+		cell.addObject(objects[1]);
+		cell.addObject(objects[2]);
+		
+		assertEquals(cell.getObjectsWithProperty("property", into), 3);
+		assertEquals(cell.getObjectsWithProperty("property1", into), 1);
+		assertEquals(into.size(), 4);
+		assertEquals(into.get(3), objects[1]);
+		
+		final List<CellObject> visited = new ArrayList<CellObject>();
+		assertTrue(cell.visitObjects(new CellObjectVisitor() {
+			public boolean visit(CellObject object) {
+				visited.add(object);
+				return true;
+			}
+		}));
+		assertEquals(visited.size(), 3);
+		
+		visited.clear();
+		assertFalse(cell.visitObjectsWithProperty("property", new CellObjectVisitor() {
+			public boolean visit(CellObject object) {
+				visited.add(object);
+				return false;
+			}
+		}));
+		assertEquals(visited.size(), 1);
+		
+		into.clear();
+		assertEquals(cell.removeAllObjectsByProperty("property2", into), 1);
+		assertEquals(into.get(0), objects[2]);
+		assertFalse(cell.hasObject(objects[2]));
+		assertEquals(cell.getAllObjects().size(), 2);
+	}
+	
 	int observerAddCalled;
 	int observerRemoveCalled;
 	CellObject observerExpectedObject;
@@ -244,7 +288,7 @@ public class CellTest {
 
 	@Test
 	public void testObserver() {
-		Cells.addObserver(observer);
+		cells.addObserver(observer);
 
 		observer.reset();
 		observerExpectedObject = objects[0];
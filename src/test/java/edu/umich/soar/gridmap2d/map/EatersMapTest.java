@@ -2,6 +2,8 @@ package edu.umich.soar.gridmap2d.map;
 
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 
@@ -9,11 +11,17 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import edu.umich.soar.gridmap2d.Names;
+import edu.umich.soar.gridmap2d.SimulationContext;
+import edu.umich.soar.gridmap2d.config.SimConfig;
 import edu.umich.soar.gridmap2d.map.EatersMap;
 
 public class EatersMapTest {
+	SimulationContext context;
+	
 	@Before
-	public void setUp() {
+	public void setUp() throws Exception {
+		context = new SimulationContext(SimConfig.newInstance("config/eaters.cnf"));
 	}
 	
 	@After
@@ -27,7 +35,7 @@ public class EatersMapTest {
 		
 		for (File file : mapDir.listFiles()) {
 			if (file.isFile()) {
-				EatersMap map = EatersMap.generateInstance(file.getAbsolutePath(), false, .35, .85);
+				EatersMap map = EatersMap.generateInstance(context, file.getAbsolutePath(), false, .35, .85);
 				assertNotNull(map);
 			}
 		}
@@ -35,8 +43,81 @@ public class EatersMapTest {
 	
 	@Test
 	public void testBasicMap() {
-		EatersMap eatersMap = EatersMap.generateInstance("config/maps/eaters/tiny.txt", false, .35, .85);
+		EatersMap eatersMap = EatersMap.generateInstance(context, "config/maps/eaters/tiny.txt", false, .35, .85);
 		assertNotNull(eatersMap);
 		assertEquals(eatersMap.size(), 4);
 	}
+	
+	@Test
+	public void testPropertyIndex() {
+		EatersMap eatersMap = EatersMap.generateInstance(context, "config/maps/eaters/jump17.txt", false, .35, .85);
+		
+		int food = 0;
+		int[] xy = new int[2];
+		for (xy[0] = 0; xy[0] < eatersMap.size(); ++xy[0]) {
+			for (xy[1] = 0; xy[1] < eatersMap.size(); ++xy[1]) {
+				food += eatersMap.getCell(xy).getAllObjectsWithProperty(Names.kPropertyEdible).size();
+			}
+		}
+		assertTrue(food > 0);
+		assertEquals(food, eatersMap.countObjectsWithProperty(Names.kPropertyEdible));
+		assertEquals(food, eatersMap.getCellsWithProperty(Names.kPropertyEdible).size());
+		
+		// removal
+		CellObject eaten = eatersMap.getObjectsWithProperty(Names.kPropertyEdible).get(0);
+		eaten.getCell().removeObject(eaten);
+		assertEquals(food - 1, eatersMap.countObjectsWithProperty(Names.kPropertyEdible));
+		assertFalse(eatersMap.getObjectsWithProperty(Names.kPropertyEdible).contains(eaten));
+		
+		// key changes on an object in place
+		CellObject other = eatersMap.getObjectsWithProperty(Names.kPropertyEdible).get(0);
+		other.removeProperty(Names.kPropertyEdible);
+		assertEquals(food - 2, eatersMap.countObjectsWithProperty(Names.kPropertyEdible));
+		other.setProperty(Names.kPropertyEdible, "true");
+		assertEquals(food - 1, eatersMap.countObjectsWithProperty(Names.kPropertyEdible));
+		
+		// a reload starts over
+		eatersMap.reset();
+		assertEquals(food, eatersMap.countObjectsWithProperty(Names.kPropertyEdible));
+	}
+	
+	@Test
+	public void testCellChanges() {
+		EatersMap eatersMap = EatersMap.generateInstance(context, "config/maps/eaters/jump17.txt", false, .35, .85);
+		CellChanges changes = eatersMap.getCellChanges();
+		long cursor = changes.cursor();
+		assertTrue(changes.covers(cursor));
+		assertFalse(changes.covers(-1));
+		
+		// removing two foods and touching one twice logs two cells
+		CellObject first = eatersMap.getObjectsWithProperty(Names.kPropertyEdible).get(0);
+		CellObject second = eatersMap.getObjectsWithProperty(Names.kPropertyEdible).get(1);
+		Cell firstCell = first.getCell();
+		Cell secondCell = second.getCell();
+		firstCell.removeObject(first);
+		secondCell.removeObject(second);
+		firstCell.addObject(first);
+		
+		long next = changes.cursor();
+		assertEquals(cursor + 2, next);
+		assertEquals(firstCell.getXy(), changes.xyAt(cursor));
+		assertEquals(secondCell.getXy(), changes.xyAt(cursor + 1));
+		
+		// after a cursor, the same cell is logged again
+		firstCell.removeObject(first);
+		assertEquals(next + 1, changes.cursor());
+		assertEquals(firstCell.getXy(), changes.xyAt(next));
+		
+		// too far behind
+		for (int i = 0; i < 5000; ++i) {
+			firstCell.addObject(first);
+			changes.cursor();
+			firstCell.removeObject(first);
+		}
+		assertFalse(changes.covers(cursor));
+		
+		// a reload has a new log
+		eatersMap.reset();
+		assertTrue(changes != eatersMap.getCellChanges());
+	}
 }
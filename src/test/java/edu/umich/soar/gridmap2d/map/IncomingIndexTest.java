@@ -0,0 +1,195 @@
+package edu.umich.soar.gridmap2d.map;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.umich.soar.gridmap2d.Direction;
+import edu.umich.soar.gridmap2d.Names;
+import edu.umich.soar.gridmap2d.SimulationContext;
+import edu.umich.soar.gridmap2d.Xy;
+import edu.umich.soar.gridmap2d.config.PlayerConfig;
+import edu.umich.soar.gridmap2d.config.SimConfig;
+import edu.umich.soar.gridmap2d.players.Tank;
+import edu.umich.soar.gridmap2d.world.PlayersManager;
+
+public class IncomingIndexTest {
+	private static final Direction[] DIRECTIONS = { Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST };
+	private static final int TANKS = 12;
+
+	/**
+	 * Tanks and their locations without the world.
+	 */
+	private static class Players extends PlayersManager<Tank> {
+		final List<Tank> tanks = new ArrayList<Tank>();
+		final List<Integer> xys = new ArrayList<Integer>();
+
+		@Override
+		public int numberOfPlayers() {
+			return tanks.size();
+		}
+
+		@Override
+		public Tank get(int index) {
+			return tanks.get(index);
+		}
+
+		@Override
+		public int getXy(Tank player) {
+			return xys.get(tanks.indexOf(player));
+		}
+	}
+
+	SimulationContext context;
+	Tank[] pool = new Tank[TANKS];
+
+	@Before
+	public void setUp() throws Exception {
+		context = new SimulationContext(SimConfig.newInstance("config/tanksoar.cnf"));
+		for (int i = 0; i < TANKS; ++i) {
+			PlayerConfig cfg = new PlayerConfig();
+			cfg.name = "incoming" + i;
+			cfg.color = cfg.name;
+			context.config().playerConfigs().put(cfg.name, cfg);
+			pool[i] = new Tank.Builder(context, cfg.name).build();
+		}
+	}
+
+	/**
+	 * The walk TankSoarMap.handleIncoming did before IncomingIndex: from each
+	 * missile, step the way it flies until a wall, the edge or a tank, and
+	 * tell the first tank found.
+	 */
+	private static void walk(GridMapCells cells, List<CellObject> missiles, List<Integer> missileXys) {
+		for (int m = 0; m < missiles.size(); ++m) {
+			Direction direction = missiles.get(m).getProperty(Names.kPropertyDirection, Direction.class);
+			int xy = missileXys.get(m);
+			while (true) {
+				xy = Direction.translate(xy, direction);
+				if (!cells.isInBounds(xy) || cells.getCell(xy).hasObjectWithProperty(Names.kPropertyBlock)) {
+					break;
+				}
+				Tank tank = (Tank) cells.getCell(xy).getFirstPlayer();
+				if (tank != null) {
+					tank.getState().setIncoming(direction.backward());
+					break;
+				}
+			}
+		}
+	}
+
+	private static int random(Random random, int size) {
+		return Xy.pack(random.nextInt(size), random.nextInt(size));
+	}
+
+	/**
+	 * @return a cell without a wall, missiles and tanks can't be in walls
+	 */
+	private static int open(Random random, GridMapCells cells) {
+		while (true) {
+			int xy = random(random, cells.size());
+			if (!cells.getCell(xy).hasObjectWithProperty(Names.kPropertyBlock)) {
+				return xy;
+			}
+		}
+	}
+
+	@Test
+	public void testMatchesWalk() {
+		Random random = new Random(1);
+
+		for (int trial = 0; trial < 2000; ++trial) {
+			int size = 2 + random.nextInt(10);
+			GridMapCells cells = new GridMapCells(new Cells(), size, new CellObjectObserver[0]);
+
+			// walls before the index, they are fixed from there, always
+			// leaving open cells
+			int walls = random.nextInt(size * size / 3 + 1);
+			for (int i = 0; i < walls; ++i) {
+				CellObject wall = new CellObject();
+				wall.setProperty(Names.kPropertyBlock, "true");
+				Cell cell = cells.getCell(random(random, size));
+				if (!cell.hasObjectWithProperty(Names.kPropertyBlock)) {
+					cell.addObject(wall);
+				}
+			}
+			IncomingIndex index = new IncomingIndex(cells);
+
+			// tanks anywhere off the walls, edges included, sometimes two to
+			// a cell
+			Players players = new Players();
+			int tanks = 1 + random.nextInt(TANKS);
+			for (int i = 0; i < tanks; ++i) {
+				int xy = open(random, cells);
+				Tank tank = pool[i];
+				tank.getState().setIncoming(0);
+				cells.getCell(xy).addPlayer(tank);
+				players.tanks.add(tank);
+				players.xys.add(xy);
+			}
+
+			// missiles anywhere open, some without a direction
+			List<CellObject> missiles = new ArrayList<CellObject>();
+			List<Integer> missileXys = new ArrayList<Integer>();
+			int count = random.nextInt(2 * size + 1);
+			for (int i = 0; i < count; ++i) {
+				CellObject missile = new CellObject();
+				int xy = open(random, cells);
+				if (random.nextInt(10) == 0) {
+					index.addMissile(missile, xy);
+					continue;
+				}
+				missile.setProperty(Names.kPropertyDirection, DIRECTIONS[random.nextInt(4)]);
+				index.addMissile(missile, xy);
+				missiles.add(missile);
+				missileXys.add(xy);
+			}
+
+			// moved, re-added in place and removed during the tick
+			for (int i = missiles.size() - 1; i >= 0; --i) {
+				switch (random.nextInt(4)) {
+				case 0:
+					index.removeMissile(missiles.get(i));
+					missiles.remove(i);
+					missileXys.remove(i);
+					break;
+				case 1:
+					int xy = open(random, cells);
+					index.removeMissile(missiles.get(i));
+					index.addMissile(missiles.get(i), xy);
+					missileXys.set(i, xy);
+					break;
+				case 2:
+					xy = open(random, cells);
+					index.addMissile(missiles.get(i), xy);
+					missileXys.set(i, xy);
+					break;
+				default:
+					break;
+				}
+			}
+
+			index.resolve(players);
+			int[] resolved = new int[players.numberOfPlayers()];
+			for (int i = 0; i < resolved.length; ++i) {
+				resolved[i] = players.get(i).getState().getIncoming();
+				players.get(i).getState().setIncoming(0);
+			}
+
+			walk(cells, missiles, missileXys);
+			for (int i = 0; i < resolved.length; ++i) {
+				assertEquals("trial " + trial + " tank " + i, players.get(i).getState().getIncoming(), resolved[i]);
+			}
+
+			for (int i = 0; i < players.numberOfPlayers(); ++i) {
+				cells.getCell(players.xys.get(i)).removePlayer(players.get(i));
+			}
+			cells.removeObservers();
+		}
+	}
+}
@@ -0,0 +1,325 @@
+package edu.umich.soar.gridmap2d.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.umich.soar.gridmap2d.Direction;
+import edu.umich.soar.gridmap2d.Names;
+import edu.umich.soar.gridmap2d.SimulationContext;
+import edu.umich.soar.gridmap2d.Xy;
+import edu.umich.soar.gridmap2d.config.PlayerConfig;
+import edu.umich.soar.gridmap2d.config.SimConfig;
+import edu.umich.soar.gridmap2d.players.CommandInfo;
+import edu.umich.soar.gridmap2d.players.Tank;
+import edu.umich.soar.gridmap2d.world.PlayersManager;
+
+public class SoundNearTest {
+	private static final int TANKS = 16;
+	private static final int TRIALS = 50;
+	private static final int WINDOW = 12;
+
+	/**
+	 * Tanks, their locations and last commands without the world.
+	 */
+	static class Players extends PlayersManager<Tank> {
+		final List<Tank> tanks = new ArrayList<Tank>();
+		final List<Integer> xys = new ArrayList<Integer>();
+		final List<CommandInfo> commands = new ArrayList<CommandInfo>();
+
+		@Override
+		public int numberOfPlayers() {
+			return tanks.size();
+		}
+
+		@Override
+		public Tank get(int index) {
+			return tanks.get(index);
+		}
+
+		@Override
+		public int getXy(Tank player) {
+			return xys.get(tanks.indexOf(player));
+		}
+
+		@Override
+		public CommandInfo getCommand(Tank player) {
+			return commands.get(tanks.indexOf(player));
+		}
+	}
+
+	SimulationContext context;
+	int maxSoundDistance;
+
+	@Before
+	public void setUp() throws Exception {
+		context = new SimulationContext(SimConfig.newInstance("config/tanksoar.cnf"));
+		maxSoundDistance = context.config().tanksoarConfig().max_sound_distance;
+	}
+
+	/**
+	 * @return the maps under dir and its subdirectories but objects, which
+	 *         holds the object definitions the maps include
+	 */
+	static List<File> maps(File dir) {
+		List<File> maps = new ArrayList<File>();
+		File[] files = dir.listFiles();
+		Arrays.sort(files);
+		for (File file : files) {
+			if (file.isDirectory()) {
+				if (!file.getName().equals("objects")) {
+					maps.addAll(maps(file));
+				}
+			} else if (file.getName().endsWith(".txt")) {
+				maps.add(file);
+			}
+		}
+		return maps;
+	}
+
+	Tank tank(int i) {
+		String name = "sound" + i;
+		PlayerConfig cfg = context.config().playerConfigs().get(name);
+		if (cfg == null) {
+			cfg = new PlayerConfig();
+			cfg.name = name;
+			cfg.color = name;
+			context.config().playerConfigs().put(name, cfg);
+		}
+		return new Tank.Builder(context, name).build();
+	}
+
+	Tank[] pool(int count) {
+		Tank[] pool = new Tank[count];
+		for (int i = 0; i < pool.length; ++i) {
+			pool[i] = tank(i);
+		}
+		return pool;
+	}
+
+	/**
+	 * Puts up to count tanks in open cells of a random window, one to a
+	 * cell, some moving, some rotating and some still or without a command.
+	 */
+	static Players place(Random random, TankSoarMap map, Tank[] pool, int count, int window) {
+		GridMapCells cells = map.getData().cells;
+		window = Math.min(cells.size(), window);
+		int left = random.nextInt(cells.size() - window + 1);
+		int top = random.nextInt(cells.size() - window + 1);
+		Players players = new Players();
+		for (int tries = 0; players.numberOfPlayers() < count && tries < 4 * count; ++tries) {
+			int xy = Xy.pack(left + random.nextInt(window), top + random.nextInt(window));
+			Cell cell = cells.getCell(xy);
+			if (cell.hasObjectWithProperty(Names.kPropertyBlock) || cell.hasPlayers()) {
+				continue;
+			}
+			CommandInfo command = null;
+			switch (random.nextInt(4)) {
+			case 0:
+				command = new CommandInfo();
+				command.move = true;
+				break;
+			case 1:
+				command = new CommandInfo();
+				command.rotate = true;
+				break;
+			case 2:
+				command = new CommandInfo();
+				break;
+			default:
+				break;
+			}
+			Tank tank = pool[players.numberOfPlayers()];
+			cell.addPlayer(tank);
+			players.tanks.add(tank);
+			players.xys.add(xy);
+			players.commands.add(command);
+		}
+		return players;
+	}
+
+	static void clear(TankSoarMap map, Players players) {
+		for (int i = 0; i < players.numberOfPlayers(); ++i) {
+			map.getData().cells.getCell(players.xys.get(i)).removePlayer(players.get(i));
+		}
+	}
+
+	/**
+	 * The breadth first search TankSoarMap.getSoundNear did before
+	 * SoundSearch: from the tank, explore neighbors in Direction order up to
+	 * the sound distance, stop at the first cell whose first player moved or
+	 * rotated and walk its parents back to the first step.
+	 */
+	static Direction baseline(GridMapCells cells, Tank tank, Players players, int maxSoundDistance) {
+		if (players.numberOfPlayers() < 2) {
+			return Direction.NONE;
+		}
+
+		int start = players.getXy(tank);
+		Set<Integer> explored = new HashSet<Integer>();
+		Map<Integer, Integer> distance = new HashMap<Integer, Integer>();
+		Map<Integer, Integer> parents = new HashMap<Integer, Integer>();
+		Queue<Integer> searchList = new LinkedList<Integer>();
+		explored.add(start);
+		distance.put(start, 0);
+		searchList.add(start);
+
+		while (searchList.size() > 0) {
+			int parent = searchList.poll();
+			if (distance.get(parent) >= maxSoundDistance) {
+				continue;
+			}
+
+			for (Direction exploreDir : Direction.values()) {
+				if (exploreDir == Direction.NONE) {
+					continue;
+				}
+				int neighbor = Direction.translate(parent, exploreDir);
+				if (!cells.isInBounds(neighbor) || explored.contains(neighbor)) {
+					continue;
+				}
+				explored.add(neighbor);
+				if (cells.getCell(neighbor).hasObjectWithProperty(Names.kPropertyBlock)) {
+					continue;
+				}
+				distance.put(neighbor, distance.get(parent) + 1);
+
+				Tank target = (Tank) cells.getCell(neighbor).getFirstPlayer();
+				CommandInfo command = target != null ? players.getCommand(target) : null;
+				if (command != null && (command.move || command.rotate)) {
+					// walk home
+					int child = neighbor;
+					int step = parent;
+					while (parents.containsKey(step)) {
+						child = step;
+						step = parents.get(step);
+					}
+					for (Direction dir : Direction.values()) {
+						if (dir != Direction.NONE && Direction.translate(start, dir) == child) {
+							return dir;
+						}
+					}
+					throw new AssertionError("no direction to sound");
+				}
+
+				parents.put(neighbor, parent);
+				searchList.add(neighbor);
+			}
+		}
+		return Direction.NONE;
+	}
+
+	@Test
+	public void testSearchMatchesBaseline() {
+		Tank[] pool = pool(TANKS);
+		Random random = new Random(1);
+		int heard = 0;
+
+		for (File file : maps(new File("config/maps/tanksoar"))) {
+			TankSoarMap map = TankSoarMap.generateInstance(context, file.getPath(), maxSoundDistance);
+			// always search
+			map.soundTable = null;
+			GridMapCells cells = map.getData().cells;
+
+			for (int trial = 0; trial < TRIALS; ++trial) {
+				Players players = place(random, map, pool, 1 + random.nextInt(TANKS), WINDOW);
+				for (Tank tank : players.tanks) {
+					Direction expected = baseline(cells, tank, players, maxSoundDistance);
+					assertEquals(file.getName() + " trial " + trial + " " + tank,
+							expected, map.getSoundNear(tank, players));
+					if (expected != Direction.NONE) {
+						heard += 1;
+					}
+				}
+				clear(map, players);
+			}
+		}
+		// the comparison means nothing if nobody ever hears anything
+		assertTrue(heard > 0);
+	}
+
+	@Test
+	public void testTableMatchesSearch() {
+		Tank[] pool = pool(TANKS);
+		Random random = new Random(2);
+		int tables = 0;
+		int heard = 0;
+
+		for (File file : maps(new File("config/maps/tanksoar"))) {
+			TankSoarMap map = TankSoarMap.generateInstance(context, file.getPath(), maxSoundDistance);
+			SoundTable table = map.soundTable;
+			if (table == null) {
+				// too big for one
+				continue;
+			}
+			tables += 1;
+
+			for (int trial = 0; trial < TRIALS; ++trial) {
+				Players players = place(random, map, pool, 1 + random.nextInt(TANKS), WINDOW);
+				for (Tank tank : players.tanks) {
+					Direction looked = map.getSoundNear(tank, players);
+					map.soundTable = null;
+					Direction searched = map.getSoundNear(tank, players);
+					map.soundTable = table;
+					assertEquals(file.getName() + " trial " + trial + " " + tank, searched, looked);
+					if (looked != Direction.NONE) {
+						heard += 1;
+					}
+				}
+				clear(map, players);
+			}
+		}
+		assertTrue(tables > 0);
+		assertTrue(heard > 0);
+	}
+
+	@Test
+	public void testManyTanksSkipTable() {
+		Tank[] pool = pool(TankSoarMap.SOUND_TABLE_PLAYERS + 8);
+		Random random = new Random(3);
+
+		// a table for other walls gets some answers wrong, so any use of it
+		// shows
+		TankSoarMap map = TankSoarMap.generateInstance(context, "config/maps/tanksoar/default.txt", maxSoundDistance);
+		TankSoarMap empty = TankSoarMap.generateInstance(context, "config/maps/tanksoar/empty.txt", maxSoundDistance);
+		assertTrue(map.soundTable.getLayoutHash() != empty.soundTable.getLayoutHash());
+		map.soundTable = empty.soundTable;
+		GridMapCells cells = map.getData().cells;
+
+		boolean wrong = false;
+		for (int trial = 0; trial < TRIALS; ++trial) {
+			Players players = place(random, map, pool, 1 + random.nextInt(TANKS), WINDOW);
+			for (Tank tank : players.tanks) {
+				if (map.getSoundNear(tank, players) != baseline(cells, tank, players, maxSoundDistance)) {
+					wrong = true;
+				}
+			}
+			clear(map, players);
+		}
+		assertTrue(wrong);
+
+		for (int trial = 0; trial < TRIALS; ++trial) {
+			Players players = place(random, map, pool, pool.length, cells.size());
+			assertTrue(players.numberOfPlayers() > TankSoarMap.SOUND_TABLE_PLAYERS);
+			for (Tank tank : players.tanks) {
+				assertEquals("trial " + trial + " " + tank,
+						baseline(cells, tank, players, maxSoundDistance), map.getSoundNear(tank, players));
+			}
+			clear(map, players);
+		}
+	}
+}
@@ -6,13 +6,29 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import edu.umich.soar.gridmap2d.Direction;
+import edu.umich.soar.gridmap2d.Names;
+import edu.umich.soar.gridmap2d.SimulationContext;
+import edu.umich.soar.gridmap2d.Xy;
+import edu.umich.soar.gridmap2d.config.PlayerConfig;
+import edu.umich.soar.gridmap2d.config.SimConfig;
 import edu.umich.soar.gridmap2d.map.TankSoarMap;
+import edu.umich.soar.gridmap2d.players.RadarCell;
+import edu.umich.soar.gridmap2d.players.Tank;
 
 public class TanksoarMapTest {
+	SimulationContext context;
+	
 	@Before
-	public void setUp()  {
+	public void setUp() throws Exception {
+		context = new SimulationContext(SimConfig.newInstance("config/tanksoar.cnf"));
 	}
 	
 	@After
@@ -26,9 +42,197 @@ public class TanksoarMapTest {
 		
 		for (File file : mapDir.listFiles()) {
 			if (file.isFile()) {
-				TankSoarMap map = TankSoarMap.generateInstance(file.getAbsolutePath(), 7);
+				TankSoarMap map = TankSoarMap.generateInstance(context, file.getAbsolutePath(), 7);
 				assertNotNull(map);
 			}
 		}
 	}
+	
+	@Test
+	public void testSoundTableShared() {
+		TankSoarMap first = TankSoarMap.generateInstance(context, "config/maps/tanksoar/default.txt", 7);
+		TankSoarMap second = TankSoarMap.generateInstance(context, "config/maps/tanksoar/default.txt", 7);
+		TankSoarMap other = TankSoarMap.generateInstance(context, "config/maps/tanksoar/empty.txt", 7);
+		assertNotNull(first.soundTable);
+		assertSame(first.soundTable, second.soundTable);
+		assertTrue(first.soundTable != other.soundTable);
+	}
+	
+	@Test
+	public void testSoundTableCache() throws Exception {
+		File cacheDir = File.createTempFile("sound", "");
+		cacheDir.delete();
+		
+		TankSoarMap map = TankSoarMap.generateInstance(context, "config/maps/tanksoar/default.txt", 7);
+		SoundTable built = SoundTable.load(map.getData().cells, 7, cacheDir);
+		assertEquals(cacheDir.listFiles().length, 1);
+		SoundTable loaded = SoundTable.load(map.getData().cells, 7, cacheDir);
+		
+		int size = map.size();
+		for (int from = 0; from < size * size; ++from) {
+			for (int to = 0; to < size * size; ++to) {
+				int a = Xy.pack(from % size, from / size);
+				int b = Xy.pack(to % size, to / size);
+				assertEquals(built.order(a, b), loaded.order(a, b));
+				assertEquals(built.distance(a, b), loaded.distance(a, b));
+				assertTrue(built.firstStep(a, b) == loaded.firstStep(a, b));
+				if (built.distance(a, b) == 1) {
+					assertTrue(Direction.translate(a, built.firstStep(a, b)) == b);
+				}
+			}
+		}
+		
+		for (File file : cacheDir.listFiles()) {
+			file.delete();
+		}
+		cacheDir.delete();
+	}
+	
+	@Test
+	public void testEffects() {
+		TankSoarMap map = TankSoarMap.generateInstance(context, "config/maps/tanksoar/default.txt", 7);
+		int xy = Xy.pack(3, 4);
+		map.addEffect(xy, Effect.EXPLOSION, 1);
+		map.addEffect(xy, Effect.RADAR_NORTH, 2);
+		assertTrue(Effect.EXPLOSION.in(map.getEffects(xy)));
+		assertTrue(Effect.RADAR_NORTH.in(map.getEffects(xy)));
+		assertFalse(Effect.RADAR_SOUTH.in(map.getEffects(xy)));
+		assertEquals(map.getEffects(Xy.pack(4, 3)), 0);
+		
+		map.getCell(xy).setModified(false);
+		map.expireEffects();
+		assertEquals(map.getEffects(xy), Effect.RADAR_NORTH.bit());
+		assertTrue(map.getCell(xy).isModified());
+		
+		// added again, it goes when the later of the two runs out
+		map.addEffect(xy, Effect.RADAR_NORTH, 1);
+		map.expireEffects();
+		assertEquals(map.getEffects(xy), 0);
+	}
+	
+	@Test
+	public void testAvailableLocations() {
+		TankSoarMap map = TankSoarMap.generateInstance(context, "config/maps/tanksoar/default.txt", 7);
+		PlayerConfig cfg = new PlayerConfig();
+		cfg.name = "free";
+		cfg.color = "red";
+		context.config().playerConfigs().put("free", cfg);
+		Tank tank = new Tank.Builder(context, "free").build();
+
+		// fill every free cell, each pick must be free and new
+		int free = map.getData().free.count();
+		assertTrue(free > 0);
+		for (int i = 0; i < free; ++i) {
+			int[] location = map.getAvailableLocationAmortized();
+			assertNotNull(location);
+			assertTrue(map.isAvailable(location));
+			map.getCell(location).addPlayer(tank);
+		}
+		assertNull(map.getAvailableLocationAmortized());
+
+		// and one frees up again
+		int xy = Xy.pack(1, 1);
+		map.getCell(xy).removePlayer(tank);
+		int[] location = map.getAvailableLocationAmortized();
+		assertEquals(Xy.pack(location), xy);
+	}
+	
+	private Tank radarTank(String name) {
+		PlayerConfig cfg = new PlayerConfig();
+		cfg.name = name;
+		cfg.color = name;
+		context.config().playerConfigs().put(name, cfg);
+		return new Tank.Builder(context, name).build();
+	}
+	
+	/**
+	 * Checks each entry up to distance against the map seen from xy, and that
+	 * the rest are null.
+	 */
+	private void assertRadar(TankSoarMap map, RadarCell[][] radar, int xy, Direction facing, int distance) {
+		for (int d = 0; d < radar[1].length; ++d) {
+			if (d < distance) {
+				assertSees(map, radar[0][d], Direction.translate(xy, facing.left()));
+				assertSees(map, radar[2][d], Direction.translate(xy, facing.right()));
+			} else {
+				assertNull(radar[0][d]);
+				assertNull(radar[2][d]);
+			}
+			if (d > 0 && d <= distance) {
+				assertSees(map, radar[1][d], xy);
+			} else if (d > distance) {
+				assertNull(radar[1][d]);
+			}
+			xy = Direction.translate(xy, facing);
+		}
+	}
+	
+	private void assertSees(TankSoarMap map, RadarCell radarCell, int xy) {
+		assertNotNull(radarCell);
+		Cell cell = map.getCell(xy);
+		assertEquals(cell.hasObjectWithProperty(Names.kPropertyBlock), radarCell.obstacle);
+		assertSame(cell.getFirstPlayer(), radarCell.player);
+	}
+	
+	@Test
+	public void testRadarFrames() {
+		TankSoarMap map = TankSoarMap.generateInstance(context, "config/maps/tanksoar/default.txt", 7);
+		Tank east = radarTank("east");
+		Tank west = radarTank("west");
+		RadarCell[][] eastRadar = east.getState().getRadar();
+		RadarCell[][] westRadar = west.getState().getRadar();
+		
+		// facing each other along the open top row, the cones overlap
+		int eastXy = Xy.pack(1, 1);
+		int westXy = Xy.pack(6, 1);
+		map.getCell(eastXy).addPlayer(east);
+		map.getCell(westXy).addPlayer(west);
+		
+		map.nextRadarFrame();
+		assertEquals(5, map.getRadar(eastRadar, eastXy, Direction.EAST, 5));
+		assertEquals(5, map.getRadar(westRadar, westXy, Direction.WEST, 5));
+		assertRadar(map, eastRadar, eastXy, Direction.EAST, 5);
+		assertRadar(map, westRadar, westXy, Direction.WEST, 5);
+		assertSame(west, eastRadar[1][5].player);
+		assertSame(east, westRadar[1][5].player);
+		// a cell both see is looked at once in a frame
+		assertSame(eastRadar[1][1], westRadar[1][4]);
+		assertTrue((west.getState().getRwaves() & Direction.WEST.indicator()) != 0);
+		
+		// west moves next to east, which turns its power down
+		map.getCell(westXy).removePlayer(west);
+		westXy = Xy.pack(2, 1);
+		map.getCell(westXy).addPlayer(west);
+		
+		map.nextRadarFrame();
+		assertEquals(1, map.getRadar(eastRadar, eastXy, Direction.EAST, 1));
+		assertRadar(map, eastRadar, eastXy, Direction.EAST, 1);
+		// the cell is looked at again in the new frame
+		assertSame(west, eastRadar[1][1].player);
+		
+		// west leaves, east looks further with nothing in the way
+		map.getCell(westXy).removePlayer(west);
+		westXy = Xy.pack(6, 14);
+		map.getCell(westXy).addPlayer(west);
+		
+		map.nextRadarFrame();
+		assertEquals(3, map.getRadar(eastRadar, eastXy, Direction.EAST, 3));
+		assertRadar(map, eastRadar, eastXy, Direction.EAST, 3);
+		assertNull(eastRadar[1][1].player);
+		
+		// west's power drops, its entries past the new distance go and
+		// east's are left alone
+		RadarCell[][] before = new RadarCell[eastRadar.length][];
+		for (int i = 0; i < eastRadar.length; ++i) {
+			before[i] = eastRadar[i].clone();
+		}
+		assertEquals(1, map.getRadar(westRadar, westXy, Direction.WEST, 1));
+		assertRadar(map, westRadar, westXy, Direction.WEST, 1);
+		for (int i = 0; i < eastRadar.length; ++i) {
+			for (int j = 0; j < eastRadar[i].length; ++j) {
+				assertSame(before[i][j], eastRadar[i][j]);
+			}
+		}
+		assertRadar(map, eastRadar, eastXy, Direction.EAST, 3);
+	}
 }
@@ -0,0 +1,192 @@
+package edu.umich.soar.gridmap2d.soar;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class InputLinkMirrorTest {
+
+	/**
+	 * Names each identifier and WME by its path from the input link and writes
+	 * down every call.
+	 */
+	private static class RecordingSink implements InputLinkMirror.Sink {
+		final List<String> calls = new ArrayList<String>();
+
+		public Object root() {
+			return "I";
+		}
+
+		public Object createId(Object parent, String attribute) {
+			return create(parent, attribute, "id");
+		}
+
+		public Object createInt(Object parent, String attribute, int value) {
+			return create(parent, attribute, Integer.toString(value));
+		}
+
+		public Object createFloat(Object parent, String attribute, float value) {
+			return create(parent, attribute, Float.toString(value));
+		}
+
+		public Object createString(Object parent, String attribute, String value) {
+			return create(parent, attribute, value);
+		}
+
+		private Object create(Object parent, String attribute, String value) {
+			String wme = parent + "." + attribute;
+			calls.add("create " + wme + " " + value);
+			return wme;
+		}
+
+		public void update(Object wme, int value) {
+			calls.add("update " + wme + " " + value);
+		}
+
+		public void update(Object wme, float value) {
+			calls.add("update " + wme + " " + value);
+		}
+
+		public void update(Object wme, String value) {
+			calls.add("update " + wme + " " + value);
+		}
+
+		public void destroy(Object wme) {
+			calls.add("destroy " + wme);
+		}
+
+		List<String> take() {
+			List<String> taken = new ArrayList<String>(calls);
+			calls.clear();
+			return taken;
+		}
+	}
+
+	RecordingSink sink;
+	InputLinkMirror il;
+	InputLinkMirror.Node blocked;
+	InputLinkMirror.StringSlot forward;
+	InputLinkMirror.IntSlot energy;
+	InputLinkMirror.FloatSlot clock;
+
+	@Before
+	public void setUp() {
+		sink = new RecordingSink();
+		il = new InputLinkMirror(sink);
+		blocked = il.id(il.root(), "blocked");
+		forward = il.stringSlot(blocked, "forward");
+		energy = il.intSlot(il.root(), "energy");
+		clock = il.floatSlot(il.root(), "clock");
+		forward.set("no");
+		energy.set(1000);
+	}
+
+	private void assertFlush(String... expected) {
+		il.flush();
+		assertEquals(Arrays.asList(expected), sink.take());
+		assertEquals(expected.length, il.sent());
+	}
+
+	@Test
+	public void testFlushSendsOnlyChanges() {
+		// clock was never set, parents come first
+		assertFlush(
+				"create I.blocked id",
+				"create I.blocked.forward no",
+				"create I.energy 1000");
+		assertFlush();
+
+		forward.set("no");
+		energy.set(1000);
+		assertFlush();
+
+		energy.set(990);
+		clock.set(1.5f);
+		assertFlush(
+				"update I.energy 990",
+				"create I.clock 1.5");
+		assertFlush();
+	}
+
+	@Test
+	public void testBlink() {
+		assertFlush(
+				"create I.blocked id",
+				"create I.blocked.forward no",
+				"create I.energy 1000");
+
+		energy.blink();
+		assertFlush(
+				"destroy I.energy",
+				"create I.energy 1000");
+
+		// the children go with the old identifier and come back under the new
+		blocked.blink();
+		assertFlush(
+				"destroy I.blocked",
+				"create I.blocked id",
+				"create I.blocked.forward no");
+		assertFlush();
+	}
+
+	@Test
+	public void testClear() {
+		assertFlush(
+				"create I.blocked id",
+				"create I.blocked.forward no",
+				"create I.energy 1000");
+
+		energy.clear();
+		assertFlush("destroy I.energy");
+		assertFlush();
+		energy.set(1000);
+		assertFlush("create I.energy 1000");
+
+		// the children go with their parent, without calls of their own
+		blocked.clear();
+		assertFlush("destroy I.blocked");
+		assertFlush();
+		blocked.show();
+		assertFlush(
+				"create I.blocked id",
+				"create I.blocked.forward no");
+	}
+
+	@Test
+	public void testDestroy() {
+		assertFlush(
+				"create I.blocked id",
+				"create I.blocked.forward no",
+				"create I.energy 1000");
+
+		il.destroy();
+		assertEquals(Arrays.asList("destroy I.blocked", "destroy I.energy"), sink.take());
+
+		assertFlush(
+				"create I.blocked id",
+				"create I.blocked.forward no",
+				"create I.energy 1000");
+	}
+
+	@Test
+	public void testRemove() {
+		assertFlush(
+				"create I.blocked id",
+				"create I.blocked.forward no",
+				"create I.energy 1000");
+
+		il.remove(blocked);
+		assertEquals(Arrays.asList("destroy I.blocked"), sink.take());
+		forward.set("yes");
+		assertFlush();
+
+		il.remove(energy);
+		assertEquals(Arrays.asList("destroy I.energy"), sink.take());
+		assertFlush();
+	}
+}
@@ -0,0 +1,311 @@
+package edu.umich.soar.gridmap2d.soar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ShardBarrierTest {
+	private static final long TIMEOUT = 10000;
+
+	/**
+	 * Counts ticks, stops after a given number of them and checks that no
+	 * kernel is running while it updates.
+	 */
+	private class FakeWorld implements ShardBarrier.World {
+		final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+		int stopAfter = Integer.MAX_VALUE;
+		int ticks;
+
+		public void startEvent() {
+			events.add("start");
+		}
+
+		public void tickEvent() {
+			ticks += 1;
+			synchronized (runners) {
+				for (FakeKernel runner : runners) {
+					if (runner.inCycle) {
+						errors.add("tick " + ticks + " while " + runner.name + " runs");
+					}
+					if (!runner.finished && runner.events != ticks) {
+						errors.add("tick " + ticks + " with " + runner.name + " at " + runner.events);
+					}
+				}
+			}
+		}
+
+		public boolean isStopped() {
+			return ticks >= stopAfter;
+		}
+
+		public void stopEvent() {
+			synchronized (runners) {
+				for (FakeKernel runner : runners) {
+					if (!runner.finished) {
+						errors.add("stop while " + runner.name + " runs");
+					}
+				}
+			}
+			events.add("stop");
+		}
+	}
+
+	/**
+	 * Runs decision cycles, each ending in an update event, until its agents
+	 * halt after a given number of cycles or the barrier stops it.
+	 */
+	private class FakeKernel implements ShardBarrier.Runner {
+		final String name;
+		final int cycles;
+		volatile Thread thread;
+		volatile Thread stoppedFrom;
+		volatile boolean inCycle;
+		volatile boolean finished;
+		volatile int events;
+
+		FakeKernel(String name, int cycles) {
+			this.name = name;
+			this.cycles = cycles;
+		}
+
+		public void run(boolean forever) {
+			thread = Thread.currentThread();
+			try {
+				for (int cycle = 0; cycle < cycles && !abort; ++cycle) {
+					inCycle = true;
+					beforeEvent(cycle);
+					events += 1;
+					inCycle = false;
+					if (barrier.awaitTick()) {
+						stoppedFrom = Thread.currentThread();
+						break;
+					}
+					if (!forever) {
+						break;
+					}
+				}
+			} finally {
+				finished = true;
+			}
+		}
+
+		void beforeEvent(int cycle) {
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	FakeWorld world;
+	ShardBarrier barrier;
+	final List<FakeKernel> runners = new ArrayList<FakeKernel>();
+	final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+	/** set when a run does not end, so the kernels give up */
+	volatile boolean abort;
+
+	@Before
+	public void setUp() {
+		world = new FakeWorld();
+		barrier = new ShardBarrier(world);
+	}
+
+	private FakeKernel kernel(int cycles) {
+		return add(new FakeKernel("kernel " + runners.size(), cycles));
+	}
+
+	private FakeKernel add(FakeKernel kernel) {
+		synchronized (runners) {
+			runners.add(kernel);
+		}
+		return kernel;
+	}
+
+	/**
+	 * Runs the barrier on a thread of its own, as the controller would.
+	 *
+	 * @return that thread, finished
+	 */
+	private Thread run(final boolean forever) throws InterruptedException {
+		Thread controller = new Thread("controller") {
+			@Override
+			public void run() {
+				barrier.run(runners, forever);
+			}
+		};
+		controller.start();
+		join(controller);
+		assertEquals(Collections.emptyList(), errors);
+		for (FakeKernel runner : runners) {
+			assertTrue(runner.name, runner.finished);
+		}
+		return controller;
+	}
+
+	private void join(Thread controller) throws InterruptedException {
+		controller.join(TIMEOUT);
+		if (controller.isAlive()) {
+			abort = true;
+			barrier.requestStop();
+			controller.join(TIMEOUT);
+			fail("the run did not end");
+		}
+	}
+
+	@Test
+	public void testStep() throws InterruptedException {
+		kernel(100);
+		kernel(100);
+		kernel(100);
+		run(false);
+		assertEquals(1, world.ticks);
+		for (FakeKernel runner : runners) {
+			assertEquals(runner.name, 1, runner.events);
+			assertTrue(runner.stoppedFrom == null);
+		}
+		assertEquals(Arrays.asList("start", "stop"), world.events);
+	}
+
+	@Test
+	public void testArrival() throws InterruptedException {
+		kernel(20);
+		kernel(20);
+		kernel(20);
+		kernel(20);
+		run(true);
+		// one tick per round, however the kernels interleave
+		assertEquals(20, world.ticks);
+		for (FakeKernel runner : runners) {
+			assertEquals(runner.name, 20, runner.events);
+		}
+		assertEquals(Arrays.asList("start", "stop"), world.events);
+	}
+
+	@Test
+	public void testFinishedShards() throws InterruptedException {
+		// one halts before its first update event, so the last ones to
+		// arrive are waiting on it to finish
+		kernel(0);
+		kernel(3);
+		kernel(10);
+		kernel(7);
+		run(true);
+		assertEquals(10, world.ticks);
+		assertEquals(0, runners.get(0).events);
+		assertEquals(3, runners.get(1).events);
+		assertEquals(10, runners.get(2).events);
+		assertEquals(7, runners.get(3).events);
+		for (FakeKernel runner : runners) {
+			assertTrue(runner.name, runner.stoppedFrom == null);
+		}
+	}
+
+	@Test
+	public void testWorldStops() throws InterruptedException {
+		world.stopAfter = 5;
+		kernel(Integer.MAX_VALUE);
+		kernel(Integer.MAX_VALUE);
+		kernel(Integer.MAX_VALUE);
+		Thread controller = run(true);
+		assertEquals(5, world.ticks);
+		for (FakeKernel runner : runners) {
+			assertEquals(runner.name, 5, runner.events);
+			// each kernel is stopped from its own thread, the first on the
+			// controller's
+			assertTrue(runner.name, runner.stoppedFrom == runner.thread);
+		}
+		assertTrue(runners.get(0).thread == controller);
+		assertTrue(runners.get(1).thread != runners.get(2).thread);
+	}
+
+	@Test
+	public void testRunAgain() throws InterruptedException {
+		world.stopAfter = 2;
+		kernel(Integer.MAX_VALUE);
+		kernel(Integer.MAX_VALUE);
+		run(true);
+		assertEquals(2, world.ticks);
+
+		// a stopped run leaves nothing behind for the next one
+		world.ticks = 0;
+		world.stopAfter = Integer.MAX_VALUE;
+		runners.clear();
+		kernel(4);
+		kernel(4);
+		run(true);
+		assertEquals(4, world.ticks);
+		assertEquals(Arrays.asList("start", "stop", "start", "stop"), world.events);
+	}
+
+	@Test
+	public void testInterruptedJoin() throws InterruptedException {
+		// the first kernel halts at once and leaves the controller joining
+		// the others, which never stop by themselves
+		kernel(0);
+		final FakeKernel waiting = kernel(Integer.MAX_VALUE);
+		kernel(Integer.MAX_VALUE);
+
+		final boolean[] interrupted = new boolean[1];
+		Thread controller = new Thread("controller") {
+			@Override
+			public void run() {
+				barrier.run(runners, true);
+				interrupted[0] = Thread.currentThread().isInterrupted();
+			}
+		};
+		controller.start();
+		long end = System.currentTimeMillis() + TIMEOUT;
+		while (waiting.events < 3 && System.currentTimeMillis() < end) {
+			Thread.sleep(1);
+		}
+		controller.interrupt();
+		join(controller);
+
+		assertEquals(Collections.emptyList(), errors);
+		// the interrupt is kept for the controller's caller
+		assertTrue(interrupted[0]);
+		for (FakeKernel runner : runners.subList(1, runners.size())) {
+			assertTrue(runner.name, runner.finished);
+			assertTrue(runner.name, runner.stoppedFrom == runner.thread);
+		}
+		assertEquals(Arrays.asList("start", "stop"), world.events);
+	}
+
+	@Test
+	public void testInterruptedWait() throws InterruptedException {
+		final FakeKernel first = kernel(Integer.MAX_VALUE);
+		add(new FakeKernel("kernel 1", Integer.MAX_VALUE) {
+			@Override
+			void beforeEvent(int cycle) {
+				if (cycle == 3) {
+					// interrupt the other while it waits for this one, and
+					// only arrive once it has given up
+					while (first.thread.getState() != Thread.State.WAITING && !abort) {
+						Thread.yield();
+					}
+					first.thread.interrupt();
+					while (!first.finished && !abort) {
+						Thread.yield();
+					}
+				}
+			}
+		});
+		run(true);
+		assertEquals(3, world.ticks);
+		assertEquals(4, runners.get(0).events);
+		assertEquals(4, runners.get(1).events);
+		for (FakeKernel runner : runners) {
+			assertTrue(runner.name, runner.stoppedFrom == runner.thread);
+		}
+		assertEquals(Arrays.asList("start", "stop"), world.events);
+	}
+}
@@ -0,0 +1,151 @@
+package edu.umich.soar.gridmap2d.soar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class StringWmeIndexTest {
+
+	/**
+	 * Numbers each WME it creates and writes down every call.
+	 */
+	private static class RecordingSink implements InputLinkMirror.Sink {
+		final List<String> calls = new ArrayList<String>();
+		int created;
+
+		public Object root() {
+			return "I";
+		}
+
+		public Object createId(Object parent, String attribute) {
+			throw new UnsupportedOperationException();
+		}
+
+		public Object createInt(Object parent, String attribute, int value) {
+			throw new UnsupportedOperationException();
+		}
+
+		public Object createFloat(Object parent, String attribute, float value) {
+			throw new UnsupportedOperationException();
+		}
+
+		public Object createString(Object parent, String attribute, String value) {
+			String wme = "w" + created++;
+			calls.add("create " + wme + " " + parent + "." + attribute + " " + value);
+			return wme;
+		}
+
+		public void update(Object wme, int value) {
+			throw new UnsupportedOperationException();
+		}
+
+		public void update(Object wme, float value) {
+			throw new UnsupportedOperationException();
+		}
+
+		public void update(Object wme, String value) {
+			calls.add("update " + wme + " " + value);
+		}
+
+		public void destroy(Object wme) {
+			calls.add("destroy " + wme);
+		}
+
+		List<String> take() {
+			List<String> taken = new ArrayList<String>(calls);
+			calls.clear();
+			return taken;
+		}
+	}
+
+	RecordingSink sink;
+	StringWmeIndex index;
+
+	@Before
+	public void setUp() {
+		sink = new RecordingSink();
+		index = new StringWmeIndex(sink);
+	}
+
+	@Test
+	public void testCreate() {
+		assertFalse(index.contains("content", "eater"));
+		Object eater = index.create("C", "content", "eater");
+		assertEquals(Arrays.asList("create w0 C.content eater"), sink.take());
+		assertTrue(index.contains("content", "eater"));
+		assertFalse(index.contains("content", "food"));
+		assertFalse(index.contains("content-name", "eater"));
+		assertEquals("eater", index.value(eater));
+	}
+
+	@Test
+	public void testCreateIfAbsent() {
+		assertEquals("w0", index.createIfAbsent("C", "content", "food"));
+		assertNull(index.createIfAbsent("C", "content", "food"));
+		assertEquals("w1", index.createIfAbsent("C", "content", "empty"));
+		assertEquals(Arrays.asList("create w0 C.content food", "create w1 C.content empty"), sink.take());
+	}
+
+	@Test
+	public void testCountsDuplicates() {
+		Object first = index.create("C", "content", "food");
+		Object second = index.create("C", "content", "food");
+		index.destroy(first);
+		assertTrue(index.contains("content", "food"));
+		index.destroy(second);
+		assertFalse(index.contains("content", "food"));
+		assertEquals(Arrays.asList(
+				"create w0 C.content food",
+				"create w1 C.content food",
+				"destroy w0",
+				"destroy w1"), sink.take());
+	}
+
+	@Test
+	public void testUpdate() {
+		Object name = index.create("C", "content-name", "red");
+		index.update(name, "blue");
+		assertEquals(Arrays.asList("create w0 C.content-name red", "update w0 blue"), sink.take());
+		assertFalse(index.contains("content-name", "red"));
+		assertTrue(index.contains("content-name", "blue"));
+		assertEquals("blue", index.value(name));
+	}
+
+	@Test
+	public void testDestroy() {
+		Object food = index.create("C", "content", "food");
+		index.destroy(food);
+		assertFalse(index.contains("content", "food"));
+		assertNull(index.value(food));
+
+		// a second destroy still goes to the sink but changes no count
+		Object other = index.create("C", "content", "food");
+		index.destroy(food);
+		assertTrue(index.contains("content", "food"));
+		assertEquals("food", index.value(other));
+		assertEquals(Arrays.asList(
+				"create w0 C.content food",
+				"destroy w0",
+				"create w1 C.content food",
+				"destroy w0"), sink.take());
+	}
+
+	@Test
+	public void testOutsideIndex() {
+		// WMEs the index did not create go to the sink untouched
+		index.create("C", "content", "food");
+		index.update("x", "food");
+		index.destroy("y");
+		assertTrue(index.contains("content", "food"));
+		assertNull(index.value("x"));
+		assertEquals(Arrays.asList("create w0 C.content food", "update x food", "destroy y"), sink.take());
+	}
+}
@@ -0,0 +1,75 @@
+package edu.umich.soar.gridmap2d.world;
+
+import edu.umich.soar.gridmap2d.SimulationContext;
+import edu.umich.soar.gridmap2d.config.SimConfig;
+
+/**
+ * Runs TankSoar headless on the generated arenas in
+ * config/maps/tanksoar/arena with wandering tanks, to see how a tick scales
+ * with map size and tank count. Not a unit test, run it by hand from the
+ * project directory:
+ * 
+ * <pre>
+ * java edu.umich.soar.gridmap2d.world.ArenaBenchmark [ticks]
+ * </pre>
+ * 
+ * Prints how long the map and the tanks took to set up, the ticks per second
+ * and mean microseconds per tick, and the heap in use afterwards, then the
+ * mean microseconds per tick of each TankSoarWorld.Phase. Terminal
+ * conditions are turned off so the runs go the whole way.
+ */
+public class ArenaBenchmark {
+	private static final int[] MAP_SIZES = { 64, 256, 1024 };
+	private static final int[] TANK_COUNTS = { 16, 256, 2048 };
+
+	public static void main(String[] args) throws Exception {
+		int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+
+		System.out.println(String.format("%-14s %6s %9s %9s %10s %10s %8s",
+				"map", "tanks", "map ms", "spawn ms", "ticks/s", "us/tick", "heap MB"));
+		for (int size : MAP_SIZES) {
+			for (int count : TANK_COUNTS) {
+				SimulationContext context = new SimulationContext(SimConfig.newInstance("config/tanksoar.cnf"));
+				context.config().terminalsConfig().max_updates = 0;
+				context.config().terminalsConfig().winning_score = 0;
+				TankSoarWorld world = new TankSoarWorld(context);
+
+				String mapName = "arena" + size + ".txt";
+				long start = System.nanoTime();
+				world.setAndResetMap("config/maps/tanksoar/arena/" + mapName);
+				double mapMillis = (System.nanoTime() - start) / 1000000.0;
+
+				start = System.nanoTime();
+				int tanks = world.addArenaTanks(count);
+				double spawnMillis = (System.nanoTime() - start) / 1000000.0;
+
+				// warm up, then measure
+				int worldCount = 0;
+				for (int tick = 0; tick < ticks / 4; ++tick) {
+					world.update(++worldCount);
+				}
+				PhaseProfiler<TankSoarWorld.Phase> profiler = world.getProfiler();
+				profiler.reset();
+				profiler.setEnabled(true);
+				start = System.nanoTime();
+				for (int tick = 0; tick < ticks; ++tick) {
+					world.update(++worldCount);
+				}
+				long elapsed = System.nanoTime() - start;
+
+				Runtime runtime = Runtime.getRuntime();
+				double heap = (runtime.totalMemory() - runtime.freeMemory()) / (1024.0 * 1024.0);
+				System.out.println(String.format("%-14s %6d %9.1f %9.1f %10.1f %10.1f %8.1f",
+						mapName, tanks, mapMillis, spawnMillis, ticks * 1e9 / elapsed,
+						elapsed / 1000.0 / ticks, heap));
+
+				StringBuilder phases = new StringBuilder("   ");
+				for (TankSoarWorld.Phase phase : TankSoarWorld.Phase.values()) {
+					phases.append(String.format(" %s %.1f", phase.name().toLowerCase(),
+							profiler.totalNanos(phase) / 1000.0 / profiler.ticks()));
+				}
+				System.out.println(phases);
+			}
+		}
+	}
+}
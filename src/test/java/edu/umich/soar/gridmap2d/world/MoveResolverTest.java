@@ -0,0 +1,134 @@
+package edu.umich.soar.gridmap2d.world;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.umich.soar.gridmap2d.Direction;
+import edu.umich.soar.gridmap2d.Xy;
+
+public class MoveResolverTest {
+
+	/**
+	 * The recursive resolution TankSoarWorld used before MoveResolver.
+	 */
+	private static class Recursive {
+		int[] oldXys;
+		int[] xys;
+		int[] placedXys;
+		boolean[] moving;
+		Map<Integer, List<Integer> > collisionMap = new LinkedHashMap<Integer, List<Integer> >();
+
+		void resolve() {
+			for (int tank = 0; tank < xys.length; ++tank) {
+				doMoveCollisions(tank);
+				placedXys[tank] = xys[tank];
+			}
+		}
+
+		void doMoveCollisions(int tank) {
+			List<Integer> collision = collisionMap.get(xys[tank]);
+			if (collision != null) {
+				if (collision.size() == 1) {
+					int other = collision.get(0);
+					if (moving[other]) {
+						cancelMove(other);
+						doMoveCollisions(other);
+					}
+				}
+				collision.add(tank);
+				if (moving[tank]) {
+					cancelMove(tank);
+					doMoveCollisions(tank);
+				}
+				return;
+			}
+			collision = new ArrayList<Integer>(4);
+			collision.add(tank);
+			collisionMap.put(xys[tank], collision);
+		}
+
+		void cancelMove(int tank) {
+			moving[tank] = false;
+			xys[tank] = oldXys[tank];
+		}
+	}
+
+	@Test
+	public void testMatchesRecursive() {
+		Random random = new Random(1);
+		Direction[] directions = { Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST };
+		MoveResolver moves = new MoveResolver();
+
+		for (int trial = 0; trial < 2000; ++trial) {
+			int size = 3 + random.nextInt(8);
+			int count = 1 + random.nextInt(size * size);
+
+			// tanks start in different cells
+			List<Integer> cells = new ArrayList<Integer>();
+			for (int i = 0; i < size * size; ++i) {
+				cells.add(Xy.pack(i % size, i / size));
+			}
+			Collections.shuffle(cells, random);
+
+			Recursive expected = new Recursive();
+			expected.oldXys = new int[count];
+			expected.xys = new int[count];
+			expected.placedXys = new int[count];
+			expected.moving = new boolean[count];
+			for (int i = 0; i < count; ++i) {
+				int xy = cells.get(i);
+				expected.oldXys[i] = xy;
+				expected.xys[i] = xy;
+				if (random.nextInt(4) > 0) {
+					int to = Direction.translate(xy, directions[random.nextInt(4)]);
+					if (Xy.x(to) >= 0 && Xy.y(to) >= 0 && Xy.x(to) < size && Xy.y(to) < size) {
+						expected.xys[i] = to;
+						expected.moving[i] = true;
+					}
+				}
+			}
+			// cross collisions are cancelled before this phase
+			for (int i = 0; i < count; ++i) {
+				for (int j = i + 1; j < count; ++j) {
+					if (expected.moving[i] && expected.moving[j]
+							&& expected.xys[i] == expected.oldXys[j] && expected.xys[j] == expected.oldXys[i]) {
+						expected.cancelMove(i);
+						expected.cancelMove(j);
+					}
+				}
+			}
+
+			moves.begin(size, count);
+			for (int i = 0; i < count; ++i) {
+				moves.setTank(i, expected.oldXys[i], expected.xys[i], expected.moving[i]);
+			}
+			moves.resolve();
+			expected.resolve();
+
+			for (int i = 0; i < count; ++i) {
+				assertEquals(expected.moving[i], moves.moving(i));
+				assertEquals(expected.xys[i], moves.xy(i));
+				assertEquals(expected.placedXys[i], moves.placedXy(i));
+			}
+
+			assertEquals(expected.collisionMap.size(), moves.groups());
+			int g = 0;
+			for (Map.Entry<Integer, List<Integer> > entry : expected.collisionMap.entrySet()) {
+				assertEquals(entry.getKey().intValue(), moves.groupXy(g));
+				assertEquals(entry.getValue().size(), moves.groupSize(g));
+				for (int k = 0; k < entry.getValue().size(); ++k) {
+					assertEquals(entry.getValue().get(k).intValue(), moves.member(g, k));
+				}
+				++g;
+			}
+		}
+	}
+}
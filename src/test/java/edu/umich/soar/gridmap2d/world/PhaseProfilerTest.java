@@ -0,0 +1,77 @@
+package edu.umich.soar.gridmap2d.world;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PhaseProfilerTest {
+	enum Phase { A, B, C }
+
+	@Test
+	public void testDisabledByDefault() {
+		PhaseProfiler<Phase> profiler = new PhaseProfiler<Phase>(Phase.class);
+		profiler.start();
+		profiler.mark(Phase.A);
+		profiler.end();
+		assertEquals(0, profiler.ticks());
+		assertEquals(0, profiler.count(Phase.A));
+		assertEquals(0, profiler.percentileNanos(Phase.A, 0.5));
+	}
+
+	@Test
+	public void testCounts() throws Exception {
+		PhaseProfiler<Phase> profiler = new PhaseProfiler<Phase>(Phase.class);
+		profiler.setEnabled(true);
+		for (int tick = 0; tick < 3; ++tick) {
+			profiler.start();
+			profiler.mark(Phase.A);
+			Thread.sleep(2);
+			profiler.mark(Phase.B);
+			// a phase in two parts is one tick
+			profiler.mark(Phase.A);
+			profiler.end();
+		}
+
+		assertEquals(3, profiler.ticks());
+		assertEquals(3, profiler.count(Phase.A));
+		assertEquals(3, profiler.count(Phase.B));
+		assertEquals(0, profiler.count(Phase.C));
+		assertTrue(profiler.totalNanos(Phase.B) >= 6000000);
+		assertEquals(profiler.totalNanos(), profiler.totalNanos(Phase.A) + profiler.totalNanos(Phase.B));
+
+		long sum = 0;
+		for (long n : profiler.histogram(Phase.B)) {
+			sum += n;
+		}
+		assertEquals(3, sum);
+		long p99 = profiler.percentileNanos(Phase.B, 0.99);
+		assertTrue(p99 >= 2000000 && p99 <= 2 * profiler.totalNanos(Phase.B));
+		assertTrue(profiler.report().contains("over 3 ticks"));
+
+		profiler.reset();
+		assertEquals(0, profiler.ticks());
+		assertEquals(0, profiler.totalNanos(Phase.B));
+	}
+
+	@Test
+	public void testToggleMidTick() {
+		PhaseProfiler<Phase> profiler = new PhaseProfiler<Phase>(Phase.class);
+		profiler.start();
+		profiler.setEnabled(true);
+		profiler.mark(Phase.A);
+		profiler.end();
+		assertEquals(0, profiler.ticks());
+
+		profiler.start();
+		profiler.setEnabled(false);
+		profiler.mark(Phase.A);
+		profiler.end();
+		assertEquals(0, profiler.ticks());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadPercentile() {
+		new PhaseProfiler<Phase>(Phase.class).percentileNanos(Phase.A, 2);
+	}
+}
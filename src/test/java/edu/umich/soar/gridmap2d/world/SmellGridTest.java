@@ -0,0 +1,91 @@
+package edu.umich.soar.gridmap2d.world;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.umich.soar.gridmap2d.SimulationContext;
+import edu.umich.soar.gridmap2d.Xy;
+import edu.umich.soar.gridmap2d.config.PlayerConfig;
+import edu.umich.soar.gridmap2d.config.SimConfig;
+import edu.umich.soar.gridmap2d.players.Tank;
+
+public class SmellGridTest {
+	SimulationContext context;
+
+	@Before
+	public void setUp() throws Exception {
+		context = new SimulationContext(SimConfig.newInstance("config/tanksoar.cnf"));
+	}
+
+	private Tank newTank(int i) {
+		String id = "smell" + i;
+		if (!context.config().playerConfigs().containsKey(id)) {
+			PlayerConfig cfg = new PlayerConfig();
+			cfg.name = id;
+			cfg.color = "red";
+			context.config().playerConfigs().put(id, cfg);
+		}
+		return new Tank.Builder(context, id).build();
+	}
+
+	@Test
+	public void testMatchesPairwise() {
+		Random random = new Random(1);
+		int size = 64;
+		PlayersManager<Tank> players = new PlayersManager<Tank>();
+		for (int i = 0; i < 150; ++i) {
+			Tank tank = newTank(i);
+			players.add(tank, null);
+			players.setXy(tank, Xy.pack(random.nextInt(size), random.nextInt(size)));
+		}
+
+		SmellGrid<Tank> grid = new SmellGrid<Tank>();
+		grid.rebuild(players, size);
+		for (int maxDistance : new int[] { 3, 99 }) {
+			for (int i = 0; i < players.numberOfPlayers(); ++i) {
+				int expected = maxDistance;
+				for (int j = 0; j < players.numberOfPlayers(); ++j) {
+					if (j != i) {
+						expected = Math.min(expected, Xy.manhattan(players.getXy(players.get(i)),
+								players.getXy(players.get(j))));
+					}
+				}
+
+				int nearest = grid.nearest(i, maxDistance, random);
+				assertEquals(expected, grid.distance());
+				if (nearest >= 0) {
+					assertEquals(expected, Xy.manhattan(players.getXy(players.get(i)),
+							players.getXy(players.get(nearest))));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testTiesAreUniform() {
+		PlayersManager<Tank> players = new PlayersManager<Tank>();
+		int[] xys = { Xy.pack(20, 20), Xy.pack(20, 15), Xy.pack(25, 20), Xy.pack(17, 22) };
+		for (int i = 0; i < xys.length; ++i) {
+			Tank tank = newTank(i);
+			players.add(tank, null);
+			players.setXy(tank, xys[i]);
+		}
+
+		SmellGrid<Tank> grid = new SmellGrid<Tank>();
+		grid.rebuild(players, 32);
+		Random random = new Random(2);
+		int[] counts = new int[xys.length];
+		for (int i = 0; i < 3000; ++i) {
+			counts[grid.nearest(0, 99, random)] += 1;
+		}
+		assertEquals(0, counts[0]);
+		for (int i = 1; i < counts.length; ++i) {
+			assertTrue(counts[i] > 800);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package edu.umich.soar.gridmap2d.world;
+
+import java.io.File;
+import java.util.Arrays;
+
+import edu.umich.soar.gridmap2d.Direction;
+import edu.umich.soar.gridmap2d.SimulationContext;
+import edu.umich.soar.gridmap2d.config.PlayerConfig;
+import edu.umich.soar.gridmap2d.config.SimConfig;
+import edu.umich.soar.gridmap2d.map.TankSoarMap;
+import edu.umich.soar.gridmap2d.players.CommandInfo;
+import edu.umich.soar.gridmap2d.players.Tank;
+
+/**
+ * Measures what TankSoar sound costs per tick: every tank listens once, as
+ * TankSoarWorld does when it updates sensors. Not a unit test, run it by
+ * hand from the project directory:
+ *
+ * <pre>
+ * java edu.umich.soar.gridmap2d.world.SoundBenchmark [ticks]
+ * </pre>
+ *
+ * Prints the mean microseconds per tick for 2, 8 and 64 tanks on each map in
+ * config/maps/tanksoar. Maps without room for all of the tanks get as many
+ * as fit.
+ */
+public class SoundBenchmark {
+	private static final int[] TANK_COUNTS = { 2, 8, 64 };
+
+	public static void main(String[] args) throws Exception {
+		int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+
+		SimulationContext context = new SimulationContext(SimConfig.newInstance("config/tanksoar.cnf"));
+		int maxSoundDistance = context.config().tanksoarConfig().max_sound_distance;
+
+		File[] maps = new File("config/maps/tanksoar").listFiles();
+		Arrays.sort(maps);
+		System.out.println(String.format("%-14s %6s %12s", "map", "tanks", "us/tick"));
+		for (File file : maps) {
+			if (!file.isFile()) {
+				continue;
+			}
+			for (int count : TANK_COUNTS) {
+				TankSoarMap map = TankSoarMap.generateInstance(context, file.getPath(), maxSoundDistance);
+				PlayersManager<Tank> players = place(context, map, count);
+
+				// warm up, then measure
+				listen(map, players, ticks / 4);
+				long start = System.nanoTime();
+				listen(map, players, ticks);
+				double micros = (System.nanoTime() - start) / 1000.0 / ticks;
+
+				System.out.println(String.format("%-14s %6d %12.2f", file.getName(), players.numberOfPlayers(), micros));
+			}
+		}
+	}
+
+	private static PlayersManager<Tank> place(SimulationContext context, TankSoarMap map, int count) {
+		PlayersManager<Tank> players = new PlayersManager<Tank>();
+		Direction[] directions = { Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST };
+		for (int i = 0; i < count; ++i) {
+			int[] location = map.getAvailableLocationAmortized();
+			if (location == null) {
+				break;
+			}
+
+			String id = "bench" + i;
+			if (!context.config().playerConfigs().containsKey(id)) {
+				PlayerConfig cfg = new PlayerConfig();
+				cfg.name = id;
+				cfg.color = "red";
+				context.config().playerConfigs().put(id, cfg);
+			}
+
+			Tank tank = new Tank.Builder(context, id).build();
+			players.add(tank, null);
+			players.setLocation(tank, location);
+			map.getCell(location).addPlayer(tank);
+
+			// half of them make sound
+			CommandInfo command = new CommandInfo();
+			command.move = i % 2 == 0;
+			command.moveDirection = directions[i % directions.length];
+			players.setCommand(tank, command);
+		}
+		return players;
+	}
+
+	private static void listen(TankSoarMap map, PlayersManager<Tank> players, int ticks) {
+		int heard = 0;
+		for (int tick = 0; tick < ticks; ++tick) {
+			for (Tank tank : players.getAll()) {
+				if (map.getSoundNear(tank, players) != Direction.NONE) {
+					heard += 1;
+				}
+			}
+		}
+		if (heard < 0) {
+			// keeps the calls from being optimized away
+			System.out.println(heard);
+		}
+	}
+}